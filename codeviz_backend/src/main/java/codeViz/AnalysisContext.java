@@ -0,0 +1,231 @@
+package codeViz;
+
+import codeViz.entity.Entity;
+import codeViz.entity.EntityType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * An analyzed repository, shared by every session viewing it
+ * A repository is analyzed into a new context, which replaces the old one once the analysis is done,
+ * so the sessions viewing the old graph are not affected by an analysis that is running or fails
+ * A local repository is updated in place instead, so only the entities of the changed files are created again;
+ * the sessions keep reading the graph while the changed files are parsed, and wait while the graph is changed
+ * Otherwise the graph is only read: the search, git history weighting and selected node of a session are applied
+ * as an overlay when its graph is written, so the requests of every session are served in parallel
+ * The generated graphs are cached, so switching back to a graph any session already viewed doesn't generate it again
+ */
+public class AnalysisContext {
+
+    private final String repositoryKey;
+    private final CodeVizInterface codeVizInterface;
+    private final GraphViewCache graphViewCache;
+
+    // the requests of the sessions read the graph with the read lock, an update changes it with the write lock
+    private final ReentrantReadWriteLock graphLock;
+
+    AnalysisContext(String repositoryKey, CodeVizInterface codeVizInterface) {
+        this.repositoryKey = repositoryKey;
+        this.codeVizInterface = codeVizInterface;
+        this.graphViewCache = new GraphViewCache(GraphViewCache.DEFAULT_MAX_BYTES);
+        this.graphLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * @return  the repository URL or directory, without a trailing .git or /
+     */
+    public String getRepositoryKey() {
+        return repositoryKey;
+    }
+
+    /**
+     * Analyze a GitHub repository into this context, before it is shared
+     * @param repoURL           the GitHub repo URL
+     * @param maxNumCommits     the number of commits to get the history from, -1 if all commits
+     * @param progress          progress of the job
+     * @return                  error message, empty if the analysis was successful
+     */
+    String analyze(String repoURL, int maxNumCommits, AnalysisProgress progress) {
+        return codeVizInterface.generateEntitiesAndConnections(repoURL, maxNumCommits, progress);
+    }
+
+    /**
+     * Update the graph of a local repository in place, only the files changed since its revision are read again
+     * Updates of the same context are run one at a time, each from the revision the last update left the graph at
+     * @param repoDirectory     the local repository directory
+     * @param oldRevision       the previously analyzed revision, or null to use the revision of this context
+     * @param newRevision       the revision to update to
+     * @param maxNumCommits     the number of commits to get the history from, -1 if all commits
+     * @param progress          progress of the job
+     * @return                  error message, empty if the update was successful
+     */
+    synchronized String update(String repoDirectory, String oldRevision, String newRevision, int maxNumCommits,
+                               AnalysisProgress progress) {
+        try {
+            return codeVizInterface.updateEntitiesAndConnections(repoDirectory, oldRevision, newRevision, maxNumCommits,
+                    progress, graphLock.writeLock());
+        } finally {
+            graphViewCache.clear(); // the views of the old graph are not used again, since they have its version
+        }
+    }
+
+    /**
+     * Read the graph, waiting for an update that is changing it
+     */
+    private <T> T readGraph(Supplier<T> reader) {
+        graphLock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            graphLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return  the number of generated graphs that are cached
+     */
+    public int getNumCachedViews() {
+        return graphViewCache.getNumViews();
+    }
+
+    /**
+     * Get what a session shows on top of the shared graph
+     * @param session       the session
+     * @param withSearch    whether to include the session's search, the git weights are always included
+     */
+    private GraphOverlay getOverlay(AnalysisSession session, boolean withSearch) {
+        GraphOverlay.GitWeights gitWeights = codeVizInterface.getGitWeights(session.getGitHistoryWeighting());
+        Map<String, String> searchRequest = session.getSearchRequest();
+        if (!withSearch || searchRequest.isEmpty()) {
+            return new GraphOverlay(Set.of(), "", gitWeights);
+        }
+
+        String searchValue = searchRequest.getOrDefault("value", "").replace(" ", ""); // remove any spaces
+        Set<Entity> searchResults = codeVizInterface.findSearchResults(searchValue,
+                Boolean.parseBoolean(searchRequest.getOrDefault("searchClasses", "false")),
+                Boolean.parseBoolean(searchRequest.getOrDefault("searchMethods", "false")),
+                Boolean.parseBoolean(searchRequest.getOrDefault("searchAttributes", "false")),
+                Boolean.parseBoolean(searchRequest.getOrDefault("searchParameters", "false")),
+                Boolean.parseBoolean(searchRequest.getOrDefault("searchReturnType", "false")),
+                Boolean.parseBoolean(searchRequest.getOrDefault("searchConnections", "false")),
+                session.getSearchLevel());
+        return new GraphOverlay(searchResults, searchValue, gitWeights);
+    }
+
+    private GraphViewCache.Key getViewKey(AnalysisSession session, EntityType level, Entity parentEntity) {
+        return new GraphViewCache.Key(codeVizInterface.getGraphVersion(), level, parentEntity, session.isGitHistory(),
+                session.getGitHistoryWeighting(), session.getSearchRequest(), session.getSearchLevel());
+    }
+
+    /**
+     * Show a generated graph in the session
+     */
+    private void useView(AnalysisSession session, GraphViewCache.View view, Entity parentEntity) {
+        GraphPayload graphPayload = view.getGraphPayload();
+        session.setGraphPayload(graphPayload);
+        session.setSelectedNode(parentEntity);
+        session.setEdges(graphPayload.getEdgeSources(), graphPayload.getEdgeDestinations());
+    }
+
+    /**
+     * Generate a graph of the session, or use the cached graph
+     * @param session       the session
+     * @param level         the level of the graph
+     * @param parentEntity  the node to filter the graph to, or null for the whole level
+     * @return              the graph, or null if it couldn't be generated
+     */
+    private GraphViewCache.View getView(AnalysisSession session, EntityType level, Entity parentEntity) {
+        GraphViewCache.Key key = getViewKey(session, level, parentEntity);
+        GraphViewCache.View view = graphViewCache.get(key);
+        if (view == null) {
+            // sessions generating the same graph at the same time each generate it, the graphs are the same
+            GraphOverlay overlay = getOverlay(session, true);
+            GraphPayload graphPayload = codeVizInterface.generateGraphPayload(parentEntity, level, session.isGitHistory(), overlay);
+            if (graphPayload == null) {
+                return null;
+            }
+            view = new GraphViewCache.View(graphPayload, codeVizInterface.getSearchResult(level, overlay));
+            graphViewCache.put(key, view);
+        }
+        useView(session, view, parentEntity);
+        return view;
+    }
+
+    /**
+     * @return  the node the session's graph is filtered to, if the level is the node's inner level, otherwise null
+     */
+    private Entity getParentEntity(AnalysisSession session, EntityType level) {
+        Entity selectedNode = session.getSelectedNode();
+        return (selectedNode != null && selectedNode.getEntityType().getChild().equals(level)) ? selectedNode : null;
+    }
+
+    /**
+     * Generate the graph of a session, at the session's level
+     * The inner graph of the selected node is kept if the level is the node's inner level
+     */
+    public void generateGraph(AnalysisSession session) {
+        readGraph(() -> {
+            EntityType level = session.getCurrentLevel();
+            return getView(session, level, getParentEntity(session, level));
+        });
+    }
+
+    /**
+     * Generate the graph inside a node for a session, and view the graph at the inner level
+     * @param session       the session
+     * @param nodeName      the node to generate the inner graph of, at the session's level
+     * @param childLevel    the inner level
+     */
+    public void generateInnerGraph(AnalysisSession session, String nodeName, EntityType childLevel) {
+        readGraph(() -> {
+            Entity parentEntity = codeVizInterface.getGraphGenerator().getNode(nodeName, session.getCurrentLevel());
+            if (parentEntity != null && getView(session, childLevel, parentEntity) != null) {
+                session.setCurrentLevel(childLevel);
+            }
+            return parentEntity;
+        });
+    }
+
+    /**
+     * Generate the graph of a session with its search results highlighted
+     * @return  the result of the session's search
+     */
+    public String generateSearchGraph(AnalysisSession session) {
+        return readGraph(() -> {
+            EntityType level = session.getCurrentLevel();
+            GraphViewCache.View view = getView(session, level, getParentEntity(session, level));
+            return (view != null) ? view.getSearchResult() : "";
+        });
+    }
+
+    /**
+     * Generate the graph of a session in Gexf format, to export it to Gephi
+     * @return  the graph in Gexf format, or null if it couldn't be generated
+     */
+    public String exportGraph(AnalysisSession session) {
+        return readGraph(() -> {
+            EntityType level = session.getCurrentLevel();
+            return codeVizInterface.exportGraph(getParentEntity(session, level), level, session.isGitHistory(), getOverlay(session, true));
+        });
+    }
+
+    public String getNodeDetails(AnalysisSession session, String nodeName) {
+        return readGraph(() -> codeVizInterface.getNodeDetails(nodeName, session.getCurrentLevel()));
+    }
+
+    public String getComplexityDetails(AnalysisSession session, String nodeName) {
+        return readGraph(() -> codeVizInterface.getComplexityDetails(nodeName, session.getCurrentLevel()));
+    }
+
+    /**
+     * Get the details of an edge of the last graph written for the session
+     * The weight of the edge is the weight with the session's git history weighting
+     */
+    public String getEdgeDetails(AnalysisSession session, String edgeName, int numCommits) {
+        return readGraph(() -> codeVizInterface.getGraphGenerator().getEdgeDetails(edgeName, numCommits,
+                session.getEdgeSources(), session.getEdgeDestinations(), getOverlay(session, false)));
+    }
+}
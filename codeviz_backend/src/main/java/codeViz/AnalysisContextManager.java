@@ -0,0 +1,312 @@
+package codeViz;
+
+import codeViz.codeSummary.CompilationUnitSummaryCache;
+import codeViz.gitHistory.CommitHistoryStore;
+import codeViz.gitHistory.GitMirrorManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The sessions of the users of the backend, and the analyzed repositories they view
+ * Sessions viewing the same repository share its analyzed graph, and the least recently used repositories
+ * are unloaded once too many are loaded, so the memory used is bounded by the number of repositories, not users
+ * The parsed file cache, git mirrors and commit history store are shared by every repository
+ * Local repositories can only be updated from within the configured roots, so a request can't read any directory on the server
+ */
+public class AnalysisContextManager {
+
+    public static final int DEFAULT_MAX_REPOSITORIES = 4;
+    public static final int DEFAULT_MAX_SESSIONS = 100;
+    public static final String DEFAULT_LOCAL_REPOSITORY_ROOT = "./codeviz_repos";
+
+    private final int maxRepositories;
+    private final int maxSessions;
+
+    private final CompilationUnitSummaryCache summaryCache;
+    private final GitMirrorManager gitMirrorManager;
+    private final CommitHistoryStore commitHistoryStore;
+    private final List<Path> localRepositoryRoots;
+    private final AnalysisJobManager analysisJobManager;
+
+    // in least recently used order
+    private final LinkedHashMap<String, AnalysisContext> contexts;
+    private final LinkedHashMap<String, AnalysisSession> sessions;
+    private final LinkedHashSet<String> removedSessionIds; // in the order they were removed
+
+    private final AnalysisContext emptyContext; // viewed by sessions that didn't analyze a repository yet
+
+    /**
+     * Create the manager
+     * @param maxRepositories       the number of analyzed repositories kept in memory
+     * @param maxSessions           the number of sessions kept, the least recently used sessions are forgotten
+     * @param summaryCache          cache of previously parsed files, or null to parse every file
+     * @param gitMirrorManager      the local mirrors of the repositories
+     * @param commitHistoryStore    store of previously diffed commits, or null to diff every commit
+     * @param localRepositoryRoots  the directories local repositories can be updated from
+     * @param analysisJobManager    the jobs analyzing for the sessions, whose sessions are kept until they finish,
+     *                              or null if the sessions have no jobs
+     */
+    public AnalysisContextManager(int maxRepositories, int maxSessions,
+                                  CompilationUnitSummaryCache summaryCache, GitMirrorManager gitMirrorManager,
+                                  CommitHistoryStore commitHistoryStore, List<Path> localRepositoryRoots,
+                                  AnalysisJobManager analysisJobManager) {
+        this.maxRepositories = maxRepositories;
+        this.maxSessions = maxSessions;
+        this.summaryCache = summaryCache;
+        this.gitMirrorManager = gitMirrorManager;
+        this.commitHistoryStore = commitHistoryStore;
+        this.localRepositoryRoots = List.copyOf(localRepositoryRoots);
+        this.analysisJobManager = analysisJobManager;
+        this.contexts = new LinkedHashMap<>(16, 0.75f, true);
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+        this.removedSessionIds = new LinkedHashSet<>();
+
+        this.emptyContext = createContext("");
+    }
+
+    /**
+     * Get the key of a repository, so the different forms of its URL share one context
+     */
+    public static String getRepositoryKey(String repoURL) {
+        String repositoryKey = repoURL.trim();
+        while (repositoryKey.endsWith("/")) {
+            repositoryKey = repositoryKey.substring(0, repositoryKey.length() - 1);
+        }
+        if (repositoryKey.endsWith(".git")) {
+            repositoryKey = repositoryKey.substring(0, repositoryKey.length() - ".git".length());
+        }
+        return repositoryKey;
+    }
+
+    private AnalysisContext createContext(String repositoryKey) {
+        return new AnalysisContext(repositoryKey, new CodeVizInterface(summaryCache, gitMirrorManager, commitHistoryStore));
+    }
+
+    /**
+     * Get a session, creating it with an empty graph if it doesn't exist
+     * A session that was forgotten is created again as reset, so the client can tell the user its graph is gone
+     * @param sessionId     id of the session, ex. the id of the HTTP session
+     * @return              the session
+     */
+    public synchronized AnalysisSession getSession(String sessionId) {
+        AnalysisSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = new AnalysisSession(sessionId);
+            if (removedSessionIds.remove(sessionId)) {
+                session.setReset();
+            }
+            emptyContext.generateGraph(session);
+            sessions.put(sessionId, session);
+            removeOldSessions(session);
+        }
+        return session;
+    }
+
+    /**
+     * @return  the context of the repository the session is viewing, or an empty context if it isn't viewing one
+     */
+    public AnalysisContext getContext(AnalysisSession session) {
+        AnalysisContext context = session.getContext();
+        return (context != null) ? context : emptyContext;
+    }
+
+    /**
+     * @return  the loaded context of a repository, or null if it is not loaded
+     */
+    public synchronized AnalysisContext getLoadedContext(String repoURL) {
+        return contexts.get(getRepositoryKey(repoURL));
+    }
+
+    public synchronized int getNumLoadedRepositories() {
+        return contexts.size();
+    }
+
+    public synchronized int getNumSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Analyze a GitHub repository and view it in the session
+     * A repository that is already loaded is shared instead of analyzed again, unless refreshing it
+     * @param session           the session to view the repository in
+     * @param repoURL           the GitHub repo URL
+     * @param refresh           whether to analyze the repository again even if it is loaded
+     * @param maxNumCommits     the number of commits to get the history from, -1 if all commits
+     * @param progress          progress of the job
+     * @return                  error message, empty if the analysis was successful
+     */
+    public String analyzeRepository(AnalysisSession session, String repoURL, boolean refresh, int maxNumCommits,
+                                    AnalysisProgress progress) {
+        AnalysisContext context = refresh ? null : getLoadedContext(repoURL);
+        if (context == null) {
+            context = createContext(getRepositoryKey(repoURL));
+            String error = context.analyze(repoURL, maxNumCommits, progress);
+            if (!error.isEmpty()) {
+                return error;
+            }
+            addContext(context);
+        } else {
+            System.out.println("Sharing the loaded graph of " + context.getRepositoryKey());
+        }
+
+        progress.startPhase(AnalysisProgress.Phase.LAYOUT, -1);
+        session.setContext(context);
+        context.generateGraph(session);
+        return "";
+    }
+
+    /**
+     * Check that a local repository can be updated
+     * @param repoDirectory     the local repository directory
+     * @return                  error message, empty if the directory is within one of the local repository roots
+     */
+    public String checkLocalRepository(String repoDirectory) {
+        if (repoDirectory == null || repoDirectory.isBlank()) {
+            return "ERROR, no repository directory was given";
+        }
+        return (getLocalRepositoryPath(repoDirectory) == null)
+                ? "ERROR, " + repoDirectory + " is not a directory that can be updated" : "";
+    }
+
+    /**
+     * @return  the real path of the directory, or null if it doesn't exist or is outside of the local repository roots
+     */
+    private Path getLocalRepositoryPath(String repoDirectory) {
+        try {
+            Path repoPath = Paths.get(repoDirectory.trim()).toRealPath(); // links are followed, so they can't leave a root
+            for (Path root : localRepositoryRoots) {
+                if (root.toFile().isDirectory() && repoPath.startsWith(root.toRealPath())) {
+                    return repoPath;
+                }
+            }
+        } catch (IOException | RuntimeException e) { // ex. an invalid path
+            System.out.println("Could not check the repository directory " + repoDirectory + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Update the graph of a local repository with the files changed between two revisions, and view it in the session
+     * A loaded context of the repository is updated in place, so only the entities of the changed files are created again,
+     * and the sessions viewing it go back to its whole graph; otherwise the update is done in a new context
+     * @param session           the session to view the repository in
+     * @param repoDirectory     the local repository directory, within one of the local repository roots
+     * @param oldRevision       the previously analyzed revision, or null to use the last revision analyzed
+     * @param newRevision       the revision to update to
+     * @param maxNumCommits     the number of commits to get the history from, -1 if all commits
+     * @param progress          progress of the job
+     * @return                  error message, empty if the update was successful
+     */
+    public String updateRepository(AnalysisSession session, String repoDirectory, String oldRevision, String newRevision,
+                                   int maxNumCommits, AnalysisProgress progress) {
+        String error = checkLocalRepository(repoDirectory);
+        if (!error.isEmpty()) {
+            return error;
+        }
+        String repoPath = getLocalRepositoryPath(repoDirectory).toString();
+
+        AnalysisContext loadedContext = getLoadedContext(repoPath);
+        AnalysisContext context = (loadedContext != null) ? loadedContext : createContext(getRepositoryKey(repoPath));
+        error = context.update(repoPath, oldRevision, newRevision, maxNumCommits, progress);
+        if (loadedContext != null) {
+            clearViews(loadedContext); // even if the update failed, the graph may have been changed
+        }
+        if (!error.isEmpty()) {
+            return error;
+        }
+        addContext(context);
+
+        progress.startPhase(AnalysisProgress.Phase.LAYOUT, -1);
+        session.setContext(context);
+        context.generateGraph(session);
+        return "";
+    }
+
+    /**
+     * Clear the views of the sessions viewing a context, once its graph is updated
+     */
+    private synchronized void clearViews(AnalysisContext context) {
+        for (AnalysisSession session : sessions.values()) {
+            if (session.getContext() == context) {
+                session.clearView();
+            }
+        }
+    }
+
+    /**
+     * Load a context, replacing the repository's old context
+     * The sessions viewing the old context view the new one, and the least recently used repositories are unloaded,
+     * the sessions viewing them go back to an empty graph
+     */
+    private void addContext(AnalysisContext context) {
+        ArrayList<AnalysisSession> switchedSessions = new ArrayList<>();
+        ArrayList<AnalysisSession> emptiedSessions = new ArrayList<>();
+
+        synchronized (this) {
+            AnalysisContext replacedContext = contexts.put(context.getRepositoryKey(), context);
+
+            ArrayList<AnalysisContext> unloadedContexts = new ArrayList<>();
+            Iterator<AnalysisContext> iterator = contexts.values().iterator();
+            while (contexts.size() > maxRepositories && iterator.hasNext()) {
+                AnalysisContext leastRecentlyUsed = iterator.next();
+                if (leastRecentlyUsed != context) {
+                    System.out.println("Unloading the graph of " + leastRecentlyUsed.getRepositoryKey());
+                    unloadedContexts.add(leastRecentlyUsed);
+                    iterator.remove();
+                }
+            }
+
+            for (AnalysisSession session : sessions.values()) {
+                AnalysisContext sessionContext = session.getContext();
+                if (sessionContext != null && sessionContext == replacedContext) {
+                    session.setContext(context); // view the new analysis of the repository
+                    switchedSessions.add(session);
+                } else if (unloadedContexts.contains(sessionContext)) {
+                    session.setContext(null);
+                    emptiedSessions.add(session);
+                }
+            }
+        }
+
+        // the graphs of the sessions are generated outside of the lock, so other sessions aren't held up
+        for (AnalysisSession session : switchedSessions) {
+            context.generateGraph(session);
+        }
+        for (AnalysisSession session : emptiedSessions) {
+            emptyContext.generateGraph(session);
+        }
+    }
+
+    /**
+     * Forget the least recently used sessions, except the sessions with a queued or running job,
+     * since the job would finish into a session that can't be viewed anymore
+     * @param newSession    the session that was just created, which is kept
+     */
+    private void removeOldSessions(AnalysisSession newSession) {
+        int numToRemove = sessions.size() - maxSessions;
+        Iterator<AnalysisSession> iterator = sessions.values().iterator();
+        while (numToRemove > 0 && iterator.hasNext()) {
+            AnalysisSession session = iterator.next();
+            if (session != newSession
+                    && (analysisJobManager == null || !analysisJobManager.hasUnfinishedJob(session.getId()))) {
+                iterator.remove();
+                removedSessionIds.add(session.getId());
+                numToRemove--;
+            }
+        }
+
+        // only the recently removed sessions are remembered, so the removed ids don't grow forever
+        Iterator<String> removedIterator = removedSessionIds.iterator();
+        while (removedSessionIds.size() > maxSessions && removedIterator.hasNext()) {
+            removedIterator.next();
+            removedIterator.remove();
+        }
+    }
+}
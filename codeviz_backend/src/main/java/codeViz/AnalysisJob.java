@@ -0,0 +1,97 @@
+package codeViz;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * An analysis submitted to the AnalysisJobManager, with its state and progress
+ */
+public class AnalysisJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String sessionId; // the session the job analyzes for, empty if none
+    private final String description;
+    private final AnalysisProgress progress;
+    private volatile State state;
+    private volatile String error; // empty unless the job failed or was cancelled
+    private volatile Future<?> future;
+
+    AnalysisJob(String id, String sessionId, String description, AnalysisProgress progress) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.description = description;
+        this.progress = progress;
+        this.state = State.QUEUED;
+        this.error = "";
+        this.future = null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public AnalysisProgress getProgress() {
+        return progress;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * @return  the state and progress of the job, as the JSON response of the job status endpoint
+     */
+    public Map<String, String> toResponse() {
+        Map<String, String> response = new HashMap<>();
+        response.put("jobId", id);
+        response.put("state", state.name());
+        response.put("phase", progress.getPhase().name());
+        response.put("done", String.valueOf(progress.getDone()));
+        response.put("total", String.valueOf(progress.getTotal()));
+        long etaMillis = progress.getEtaMillis();
+        response.put("etaSeconds", (etaMillis < 0) ? "" : String.valueOf((etaMillis + 999) / 1000));
+        response.put("error", error);
+        return response;
+    }
+}
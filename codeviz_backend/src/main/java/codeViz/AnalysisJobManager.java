@@ -0,0 +1,180 @@
+package codeViz;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs analyses in the background, so a request can return right away and the progress can be polled
+ * Jobs run on a fixed number of threads with a bounded queue, and each job has a time limit,
+ * so a huge codebase can't hold up the other jobs forever
+ * Cancelling is cooperative: the readers stop at the next file or commit, so the git mirror and commit store are not left half-written
+ */
+public class AnalysisJobManager {
+
+    /**
+     * The work of a job
+     */
+    public interface AnalysisTask {
+        /**
+         * Run the analysis, reporting progress and checking for cancellation
+         * @param progress  progress of the job
+         * @return          error message, empty if the analysis was successful
+         */
+        String run(AnalysisProgress progress);
+    }
+
+    // analyses run in the background, each into its own context, so different repos can be analyzed at the same time
+    public static final int DEFAULT_NUM_THREADS = 2;
+    public static final int DEFAULT_MAX_QUEUED_JOBS = 4;
+    public static final long DEFAULT_MAX_JOB_MILLIS = 30 * 60 * 1000;
+
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    private final ThreadPoolExecutor executor;
+    private final long maxJobMillis;
+    private final LinkedHashMap<String, AnalysisJob> jobs; // in the order they were submitted
+
+    /**
+     * Create the job manager
+     * @param numThreads        the number of jobs that can run at the same time
+     * @param maxQueuedJobs     the number of jobs that can wait to run, more jobs are rejected
+     * @param maxJobMillis      the time a job can run before it is cancelled, 0 for no limit
+     */
+    public AnalysisJobManager(int numThreads, int maxQueuedJobs, long maxJobMillis) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs), runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.maxJobMillis = maxJobMillis;
+        this.jobs = new LinkedHashMap<>();
+    }
+
+    /**
+     * Queue a job that isn't for a session
+     * @see #submit(String, String, AnalysisTask)
+     */
+    public AnalysisJob submit(String description, AnalysisTask task) {
+        return submit("", description, task);
+    }
+
+    /**
+     * Queue a job
+     * @param sessionId     id of the session the job analyzes for, which is kept until the job finishes
+     * @param description   what the job analyzes, ex. the repo URL
+     * @param task          the work of the job
+     * @return              the job
+     * @throws RejectedExecutionException   if the queue is full
+     */
+    public synchronized AnalysisJob submit(String sessionId, String description, AnalysisTask task) {
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), sessionId, description,
+                new AnalysisProgress(maxJobMillis));
+        job.setFuture(executor.submit(() -> runJob(job, task)));
+        jobs.put(job.getId(), job);
+        removeOldJobs();
+        return job;
+    }
+
+    private void runJob(AnalysisJob job, AnalysisTask task) {
+        AnalysisProgress progress = job.getProgress();
+        if (progress.isCancelled()) {
+            job.setState(AnalysisJob.State.CANCELLED);
+            return;
+        }
+        progress.start();
+        job.setState(AnalysisJob.State.RUNNING);
+        System.out.println("Running analysis job " + job.getId() + " for " + job.getDescription());
+
+        try {
+            String error = task.run(progress);
+            if (error.isEmpty()) {
+                progress.startPhase(AnalysisProgress.Phase.DONE, -1);
+                job.setState(AnalysisJob.State.SUCCEEDED);
+            } else {
+                job.setError(error);
+                job.setState(AnalysisJob.State.FAILED);
+            }
+        } catch (CancellationException e) {
+            job.setError(e.getMessage());
+            job.setState(AnalysisJob.State.CANCELLED);
+        } catch (RuntimeException e) {
+            System.out.println("ERROR, analysis job " + job.getId() + " failed: " + e);
+            job.setError("ERROR, " + e.getMessage());
+            job.setState(AnalysisJob.State.FAILED);
+        } finally {
+            if (!job.getState().isFinished()) { // ex. an Error, which is still thrown, but the job must not stay running
+                job.setError("ERROR, the analysis stopped unexpectedly");
+                job.setState(AnalysisJob.State.FAILED);
+            }
+            System.out.println("Analysis job " + job.getId() + " " + job.getState());
+        }
+    }
+
+    /**
+     * @return  the job, or null if there is no job with the id (or it finished a long time ago)
+     */
+    public synchronized AnalysisJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * @return  whether a job of the session is queued or running
+     */
+    public synchronized boolean hasUnfinishedJob(String sessionId) {
+        for (AnalysisJob job : jobs.values()) {
+            if (job.getSessionId().equals(sessionId) && !job.getState().isFinished()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancel a job, a queued job is removed from the queue and a running job stops at its next check
+     * @return  whether the job was found and not finished yet
+     */
+    public synchronized boolean cancel(String jobId) {
+        AnalysisJob job = jobs.get(jobId);
+        if (job == null || job.getState().isFinished()) {
+            return false;
+        }
+        job.getProgress().cancel();
+        if (job.getState() == AnalysisJob.State.QUEUED && job.getFuture().cancel(false)) {
+            job.setError("Analysis was cancelled before it started");
+            job.setState(AnalysisJob.State.CANCELLED);
+            executor.purge(); // make room in the queue
+        }
+        return true;
+    }
+
+    /**
+     * Forget the oldest finished jobs, so the job list does not grow forever
+     */
+    private void removeOldJobs() {
+        int numToRemove = jobs.size() - MAX_FINISHED_JOBS;
+        Iterator<AnalysisJob> iterator = jobs.values().iterator();
+        while (numToRemove > 0 && iterator.hasNext()) {
+            if (iterator.next().getState().isFinished()) {
+                iterator.remove();
+                numToRemove--;
+            }
+        }
+    }
+
+    /**
+     * Stop accepting jobs and cancel the running jobs
+     */
+    public synchronized void shutdown() {
+        jobs.values().forEach(job -> job.getProgress().cancel());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,134 @@
+package codeViz;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of analyzing a codebase, updated by the readers as they go and read by the job status endpoint
+ * The readers check for cancellation between files and commits, so a cancelled job stops at the next one
+ */
+public class AnalysisProgress {
+
+    /**
+     * Phases of an analysis, in the order they are run
+     */
+    public enum Phase {
+        QUEUED,
+        DOWNLOAD,   // open the archive of the codebase
+        PARSE,      // parse the files, while the archive is downloading
+        CONNECT,    // create the entities and connections
+        HISTORY,    // read the git history
+        LAYOUT,     // write the graph
+        DONE
+    }
+
+    // progress for readers that are not run as a job
+    public static final AnalysisProgress NONE = new AnalysisProgress(0);
+
+    private final long maxDurationMillis; // 0 if there is no time limit
+    private volatile long deadlineMillis; // 0 until the job starts running, or if there is no time limit
+    private volatile boolean cancelled;
+
+    private volatile Phase phase;
+    private volatile int total; // -1 if not known
+    private final AtomicInteger done;
+    private volatile long phaseStartMillis;
+
+    /**
+     * Create the progress of a job
+     * @param maxDurationMillis     the time the job can run before it is cancelled, 0 for no limit
+     */
+    public AnalysisProgress(long maxDurationMillis) {
+        this.maxDurationMillis = Math.max(0, maxDurationMillis);
+        this.deadlineMillis = 0;
+        this.cancelled = false;
+        this.phase = Phase.QUEUED;
+        this.total = -1;
+        this.done = new AtomicInteger(0);
+        this.phaseStartMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Start the time limit, when the job starts running, so the time spent in the queue doesn't count
+     */
+    public void start() {
+        if (maxDurationMillis > 0) {
+            deadlineMillis = System.currentTimeMillis() + maxDurationMillis;
+        }
+    }
+
+    /**
+     * Start a phase, or restart the current phase once its total is known
+     * @param phase     the phase
+     * @param total     the number of steps in the phase, -1 if not known
+     */
+    public void startPhase(Phase phase, int total) {
+        if (this == NONE) {
+            return;
+        }
+        this.total = total;
+        this.done.set(0);
+        this.phaseStartMillis = System.currentTimeMillis();
+        this.phase = phase;
+    }
+
+    /**
+     * Count a finished step of the current phase, safe to call from multiple threads
+     */
+    public void advance() {
+        if (this != NONE) {
+            done.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stop the job at the next check
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return  whether the job was cancelled, or ran past its time limit
+     */
+    public boolean isCancelled() {
+        long deadline = deadlineMillis;
+        return cancelled || (deadline > 0 && System.currentTimeMillis() > deadline);
+    }
+
+    /**
+     * Called by the readers between steps
+     * @throws CancellationException    if the job was cancelled
+     */
+    public void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Analysis was cancelled in the " + phase + " phase");
+        }
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getDone() {
+        return done.get();
+    }
+
+    /**
+     * Estimate the time left in the current phase, from the time taken by the steps done so far
+     * @return  the estimate in milliseconds, or -1 if the total is not known or no step is done yet
+     */
+    public long getEtaMillis() {
+        int numDone = done.get();
+        int numTotal = total;
+        if (numTotal < 0 || numDone == 0) {
+            return -1;
+        }
+        long elapsedMillis = System.currentTimeMillis() - phaseStartMillis;
+        return elapsedMillis * Math.max(0, numTotal - numDone) / numDone;
+    }
+}
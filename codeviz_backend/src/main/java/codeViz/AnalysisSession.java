@@ -0,0 +1,191 @@
+package codeViz;
+
+import codeViz.entity.Entity;
+import codeViz.entity.EntityType;
+import codeViz.gitHistory.GitHistoryWeighting;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The view of one user of the backend, ex. one browser session
+ * Each session has its own level, selected node, search and git history settings, and keeps its own generated graph,
+ * so users viewing the same repository don't change each other's graph
+ * The session's view is applied by the AnalysisContext as its graph is written, the shared graph of its repository is not changed
+ */
+public class AnalysisSession {
+
+    private final String id;
+    private boolean reset; // the session was forgotten and created again, until the client is told
+    private GraphPayload graphPayload; // the last graph generated for this session
+
+    private AnalysisContext context; // null until a repository is analyzed
+    private EntityType currentLevel;
+    private boolean gitHistory;
+    private GitHistoryWeighting gitHistoryWeighting;
+    private Entity selectedNode; // an entity of the context's graph, null if not viewing an inner graph
+    private Map<String, String> searchRequest; // empty if not searching
+    private EntityType searchLevel;
+
+    // edges of the last graph generated for this session, to find the details of a hovered edge
+    private List<Entity> edgeSources;
+    private List<Entity> edgeDestinations;
+
+    AnalysisSession(String id) {
+        this.id = id;
+        this.reset = false;
+        this.graphPayload = null;
+        this.context = null;
+        this.currentLevel = EntityType.CLASS; // default level
+        this.gitHistory = false;
+        this.gitHistoryWeighting = GitHistoryWeighting.ALL_COMMITS;
+        this.selectedNode = null;
+        this.searchRequest = Map.of();
+        this.searchLevel = EntityType.CLASS;
+        this.edgeSources = List.of();
+        this.edgeDestinations = List.of();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    synchronized void setReset() {
+        this.reset = true;
+    }
+
+    /**
+     * Check whether the session was reset, ex. it was forgotten while the client was away, so the client can tell the user
+     * @return  whether the session was reset since the last check
+     */
+    public synchronized boolean takeReset() {
+        boolean wasReset = reset;
+        reset = false;
+        return wasReset;
+    }
+
+    /**
+     * @return  the last graph generated for this session
+     */
+    public synchronized GraphPayload getGraphPayload() {
+        return graphPayload;
+    }
+
+    synchronized void setGraphPayload(GraphPayload graphPayload) {
+        this.graphPayload = graphPayload;
+    }
+
+    public synchronized AnalysisContext getContext() {
+        return context;
+    }
+
+    /**
+     * View another repository, starting from its whole graph
+     * @param context   the repository's context, or null to view an empty graph
+     */
+    synchronized void setContext(AnalysisContext context) {
+        if (this.context != context) {
+            this.context = context;
+            this.searchRequest = Map.of();
+            clearView();
+        }
+    }
+
+    /**
+     * Forget the entities of the viewed graph, once its context is updated, since they may have been removed
+     */
+    synchronized void clearView() {
+        this.selectedNode = null;
+        this.edgeSources = List.of();
+        this.edgeDestinations = List.of();
+    }
+
+    public synchronized EntityType getCurrentLevel() {
+        return currentLevel;
+    }
+
+    public synchronized void setCurrentLevel(EntityType currentLevel) {
+        this.currentLevel = currentLevel;
+    }
+
+    public synchronized boolean isGitHistory() {
+        return gitHistory;
+    }
+
+    public synchronized void setGitHistory(boolean gitHistory) {
+        this.gitHistory = gitHistory;
+    }
+
+    public synchronized GitHistoryWeighting getGitHistoryWeighting() {
+        return gitHistoryWeighting;
+    }
+
+    /**
+     * Set how the commits are weighted in the git history graph
+     * @param windowDays    only use the commits this many days before the most recent commit, 0 to use all commits
+     * @param halfLifeDays  halve the weight of a commit for every this many days before the most recent commit, 0 for no decay
+     * @return              error message, empty if the weighting was set
+     */
+    public synchronized String setGitHistoryWeighting(double windowDays, double halfLifeDays) {
+        try {
+            gitHistoryWeighting = new GitHistoryWeighting(windowDays, halfLifeDays);
+            return "";
+        } catch (IllegalArgumentException e) {
+            return "ERROR, " + e.getMessage();
+        }
+    }
+
+    public synchronized Entity getSelectedNode() {
+        return selectedNode;
+    }
+
+    synchronized void setSelectedNode(Entity selectedNode) {
+        this.selectedNode = selectedNode;
+    }
+
+    public synchronized void clearSelectedNode() {
+        selectedNode = null;
+    }
+
+    /**
+     * @return  the name of the selected node, empty if not viewing an inner graph
+     */
+    public synchronized String getSelectedNodeToString() {
+        return (selectedNode != null) ? selectedNode.getName() : "";
+    }
+
+    public synchronized Map<String, String> getSearchRequest() {
+        return searchRequest;
+    }
+
+    public synchronized EntityType getSearchLevel() {
+        return searchLevel;
+    }
+
+    /**
+     * Search the graph, the search is kept until it is cleared
+     * @param searchRequest     the search value and search components
+     * @param searchLevel       the level the search was made at
+     */
+    public synchronized void setSearch(Map<String, String> searchRequest, EntityType searchLevel) {
+        this.searchRequest = Map.copyOf(searchRequest);
+        this.searchLevel = searchLevel;
+    }
+
+    public synchronized void clearSearch() {
+        searchRequest = Map.of();
+    }
+
+    synchronized List<Entity> getEdgeSources() {
+        return edgeSources;
+    }
+
+    synchronized List<Entity> getEdgeDestinations() {
+        return edgeDestinations;
+    }
+
+    synchronized void setEdges(List<Entity> edgeSources, List<Entity> edgeDestinations) {
+        this.edgeSources = edgeSources;
+        this.edgeDestinations = edgeDestinations;
+    }
+}
@@ -0,0 +1,44 @@
+package codeViz;
+
+import codeViz.codeSummary.CompilationUnitSummaryCache;
+import codeViz.gitHistory.CommitHistoryStore;
+import codeViz.gitHistory.GitMirrorManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The shared managers of the backend, injected into the controller
+ * The limits, cache directories and commit store can be set with application properties, ex. --codeviz.maxSessions=500,
+ * and default to the constants of each class
+ */
+@Configuration
+public class CodeVizConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public AnalysisJobManager analysisJobManager(
+            @Value("${codeviz.analysisThreads:" + AnalysisJobManager.DEFAULT_NUM_THREADS + "}") int numThreads,
+            @Value("${codeviz.maxQueuedAnalyses:" + AnalysisJobManager.DEFAULT_MAX_QUEUED_JOBS + "}") int maxQueuedJobs,
+            @Value("${codeviz.maxAnalysisMillis:" + AnalysisJobManager.DEFAULT_MAX_JOB_MILLIS + "}") long maxJobMillis) {
+        return new AnalysisJobManager(numThreads, maxQueuedJobs, maxJobMillis);
+    }
+
+    @Bean
+    public AnalysisContextManager analysisContextManager(
+            AnalysisJobManager analysisJobManager,
+            @Value("${codeviz.maxRepositories:" + AnalysisContextManager.DEFAULT_MAX_REPOSITORIES + "}") int maxRepositories,
+            @Value("${codeviz.maxSessions:" + AnalysisContextManager.DEFAULT_MAX_SESSIONS + "}") int maxSessions,
+            @Value("${codeviz.summaryCacheDirectory:" + CompilationUnitSummaryCache.DEFAULT_CACHE_DIRECTORY + "}") String summaryCacheDirectory,
+            @Value("${codeviz.summaryCacheMaxBytes:" + CompilationUnitSummaryCache.DEFAULT_MAX_SIZE_BYTES + "}") long summaryCacheMaxBytes,
+            @Value("${codeviz.mirrorDirectory:" + GitMirrorManager.DEFAULT_MIRROR_DIRECTORY + "}") String mirrorDirectory,
+            @Value("${codeviz.commitHistoryJdbcUrl:" + CommitHistoryStore.DEFAULT_JDBC_URL + "}") String commitHistoryJdbcUrl,
+            @Value("${codeviz.localRepositoryRoots:" + AnalysisContextManager.DEFAULT_LOCAL_REPOSITORY_ROOT + "}") List<String> localRepositoryRoots) {
+        return new AnalysisContextManager(maxRepositories, maxSessions,
+                new CompilationUnitSummaryCache(Paths.get(summaryCacheDirectory), summaryCacheMaxBytes),
+                new GitMirrorManager(Paths.get(mirrorDirectory)), new CommitHistoryStore(commitHistoryJdbcUrl),
+                localRepositoryRoots.stream().map(Paths::get).toList(), analysisJobManager);
+    }
+}
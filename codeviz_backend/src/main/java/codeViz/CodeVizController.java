@@ -1,59 +1,161 @@
 package codeViz;
 import codeViz.entity.EntityType;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 public class CodeVizController {
 
-    private EntityType currentLevel = EntityType.CLASS;
-    private static final String GEXF_FILE = "./codeviz_frontend/public/codeviz_demo.gexf";
+    private static final int MAX_NUM_COMMITS = 50;
 
-    private final CodeVizInterface codeVizInterface;
+    // each browser session has its own view, the sessions viewing the same repo share its analyzed graph
+    private final AnalysisContextManager analysisContextManager;
+    private final AnalysisJobManager analysisJobManager;
     private boolean success;
-    private boolean gitHistory;
 
     private boolean isDisplayingGraph = false;
 
-    public CodeVizController() {
-        this.codeVizInterface = new CodeVizInterface();
+    /**
+     * Create the controller, with the managers configured in CodeVizConfig
+     * @param analysisContextManager    the sessions and the analyzed repositories they view
+     * @param analysisJobManager        runs the analyses in the background
+     */
+    public CodeVizController(AnalysisContextManager analysisContextManager, AnalysisJobManager analysisJobManager) {
+        this.analysisContextManager = analysisContextManager;
+        this.analysisJobManager = analysisJobManager;
         this.success = true; // Change to false after target can be chosen
-        this.gitHistory = false;
+    }
+
+    private AnalysisSession getSession(HttpSession httpSession) {
+        return analysisContextManager.getSession(httpSession.getId());
+    }
 
-        // create empty graph on start-up
-        codeVizInterface.generateGraph(currentLevel, GEXF_FILE, gitHistory);
+    private AnalysisContext getContext(AnalysisSession session) {
+        return analysisContextManager.getContext(session);
+    }
+
+    /**
+     * @return  the response with the ETag of the session's graph, or 404 with an error if no graph could be generated
+     */
+    private ResponseEntity<Map<String, String>> graphResponse(Map<String, String> response, AnalysisSession session) {
+        GraphPayload graphPayload = session.getGraphPayload();
+        if (graphPayload == null) {
+            response.put("error", "ERROR, the graph could not be generated");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("eTag", graphPayload.getETag());
+        return ResponseEntity.ok(response);
     }
 
     /**
      * Input a new repo url
+     * The repo is analyzed in the background, poll /api/jobStatus with the returned jobId for its progress
+     * A repo that was already analyzed for another session is shared, unless refresh is true
      * @author Maisha Abdullah
-     * @param requestBody   request body
-     * @return              response, whether it was successful
+     * @param requestBody   request body, with the repoURL and refresh (default false)
+     * @param httpSession   the session to view the repo in
+     * @return              response, whether the analysis was queued, and its jobId
      */
     @CrossOrigin
     @PostMapping("/init")
-    public Map<String, String> initController(@RequestBody Map<String, String> requestBody) {
+    public Map<String, String> initController(@RequestBody Map<String, String> requestBody, HttpSession httpSession) {
         String repoURL = requestBody.get("repoURL");
+        boolean refresh = Boolean.parseBoolean(requestBody.getOrDefault("refresh", "false"));
+        AnalysisSession session = getSession(httpSession);
         Map<String, String> responseBody = new HashMap<>();
         responseBody.put("ok", "true");
 
         System.out.println("THE REPO URL WAS SENT TO BACKEND " + repoURL);
 
-        // Call generateEntitiesAndConnections method with repoURL
-        String repoUrlError = codeVizInterface.generateEntitiesAndConnections(repoURL, 50);
-        if (repoUrlError.isEmpty()) {
-            codeVizInterface.generateGraph(currentLevel, GEXF_FILE, gitHistory);
-        } else {
-            repoUrlError = TextAnnotate.javaToHtml(repoUrlError);
+        try {
+            AnalysisJob job = analysisJobManager.submit(session.getId(), repoURL, progress ->
+                    analysisContextManager.analyzeRepository(session, repoURL, refresh, MAX_NUM_COMMITS, progress));
+            responseBody.put("jobId", job.getId());
+        } catch (RejectedExecutionException e) {
             responseBody.put("ok", "false");
-            responseBody.put("error", repoUrlError);
+            responseBody.put("error", TextAnnotate.javaToHtml("ERROR, too many repos are being analyzed, try again later"));
         }
 
         return responseBody;
     }
 
+    /**
+     * Get the state and progress of an analysis job
+     * @param jobId     id of the job, returned by /init
+     * @return          response, with the state, phase, done and total counts, and the estimated seconds left in the phase
+     */
+    @CrossOrigin
+    @GetMapping("/api/jobStatus")
+    public Map<String, String> jobStatus(@RequestParam(name = "jobId", defaultValue = "") String jobId) {
+        AnalysisJob job = analysisJobManager.getJob(jobId);
+        if (job == null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "ERROR, no analysis job " + jobId);
+            return response;
+        }
+        Map<String, String> response = job.toResponse();
+        response.put("error", TextAnnotate.javaToHtml(job.getError()));
+        return response;
+    }
+
+    /**
+     * Cancel an analysis job, a running job stops at its next file or commit
+     * @param jobId     id of the job, returned by /init
+     * @return          response, whether the job was cancelled
+     */
+    @CrossOrigin
+    @PostMapping("/api/cancelJob")
+    public Map<String, String> cancelJob(@RequestParam(name = "jobId", defaultValue = "") String jobId) {
+        Map<String, String> response = new HashMap<>();
+        response.put("ok", String.valueOf(analysisJobManager.cancel(jobId)));
+        return response;
+    }
+
+    /**
+     * Update the graph with the files changed between two revisions of a local repository
+     * The repo is updated in the background, poll /api/jobStatus with the returned jobId for its progress
+     * @param requestBody   request body, with the repoPath, newRevision (default HEAD) and oldRevision (default the last revision analyzed)
+     * @return              response, whether the update was queued, and its jobId
+     *                      400 if the repoPath is missing, or not a directory within the local repository roots
+     */
+    @CrossOrigin
+    @PostMapping("/api/updateRepo")
+    public ResponseEntity<Map<String, String>> updateRepo(@RequestBody Map<String, String> requestBody, HttpSession httpSession) {
+        String repoPath = requestBody.get("repoPath");
+        String oldRevision = requestBody.get("oldRevision");
+        String newRevision = requestBody.getOrDefault("newRevision", "HEAD");
+        AnalysisSession session = getSession(httpSession);
+        Map<String, String> responseBody = new HashMap<>();
+        responseBody.put("ok", "true");
+
+        String pathError = analysisContextManager.checkLocalRepository(repoPath);
+        if (!pathError.isEmpty()) {
+            responseBody.put("ok", "false");
+            responseBody.put("error", TextAnnotate.javaToHtml(pathError));
+            return ResponseEntity.badRequest().body(responseBody);
+        }
+
+        try {
+            AnalysisJob job = analysisJobManager.submit(session.getId(), repoPath, progress ->
+                    analysisContextManager.updateRepository(session, repoPath, oldRevision, newRevision, MAX_NUM_COMMITS, progress));
+            responseBody.put("jobId", job.getId());
+        } catch (RejectedExecutionException e) {
+            responseBody.put("ok", "false");
+            responseBody.put("error", TextAnnotate.javaToHtml("ERROR, too many repos are being analyzed, try again later"));
+        }
+
+        return ResponseEntity.ok(responseBody);
+    }
+
     @GetMapping("/")
     public String index() {
         return "Welcome to the CodeViz API";
@@ -67,6 +169,55 @@ public class CodeVizController {
         return response; //each API call returns a JSON object that the React app parses
     }
 
+    /**
+     * Get the current graph of the session, generated by the last view change
+     * Returns 304 if the client already has the graph (If-None-Match), and a gzipped body if the client accepts it
+     * @param ifNoneMatch       ETag of the graph the client already has
+     * @param acceptEncoding    encodings the client accepts
+     * @return                  the graph and its legend, in the compact format read by the frontend, or 404 if there is no graph
+     */
+    @CrossOrigin
+    @GetMapping("/api/graph")
+    public ResponseEntity<byte[]> getGraph(@RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false, defaultValue = "") String acceptEncoding,
+                                           HttpSession httpSession) {
+        GraphPayload graphPayload = getSession(httpSession).getGraphPayload();
+        if (graphPayload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (graphPayload.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(graphPayload.getETag()).cacheControl(CacheControl.noCache()).build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(graphPayload.getETag())
+                .cacheControl(CacheControl.noCache()) // check the ETag before using a cached graph
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.parseMediaType(graphPayload.getMediaType()));
+        if (acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(graphPayload.getGzippedBody());
+        }
+        return response.body(graphPayload.getBody());
+    }
+
+    /**
+     * Export the current graph of the session in Gexf format, ex. to open it in Gephi
+     * @return  the Gexf file, or 404 if there is no graph
+     */
+    @CrossOrigin
+    @GetMapping("/api/exportGraph")
+    public ResponseEntity<String> exportGraph(HttpSession httpSession) {
+        AnalysisSession session = getSession(httpSession);
+        String gexf = getContext(session).exportGraph(session);
+        if (gexf == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"codeviz.gexf\"")
+                .contentType(MediaType.APPLICATION_XML)
+                .body(gexf);
+    }
+
     @CrossOrigin
     @GetMapping("/api/displayGraph")
     public Map<String, String> hello() {
@@ -80,44 +231,54 @@ public class CodeVizController {
      * Select the level of the graph to view at
      * Returns the default code graph at the given level (no annotations, inner graphs, etc.)
      * @param level             either the PACKAGE, CLASS, or METHOD level
-     * @return                  file response, name of gexf file
+     * @return                  response, ETag of the generated graph, get the graph from /api/graph
+     *                          404 if the graph couldn't be generated
      */
     @CrossOrigin
     @GetMapping("/api/viewGraphLevel")
-    public Map<String, String> viewGraphLevel(@RequestParam(name = "level", required = false, defaultValue = "") String level)
+    public ResponseEntity<Map<String, String>> viewGraphLevel(@RequestParam(name = "level", required = false, defaultValue = "") String level,
+                                              HttpSession httpSession)
     {
         Map<String, String> response = new HashMap<>();
+        AnalysisSession session = getSession(httpSession);
 
         if (!level.isEmpty()) {
-            currentLevel = EntityType.valueOf(level);
+            session.setCurrentLevel(EntityType.valueOf(level));
         }
 
         if (success) {
 
-            codeVizInterface.clearSelectedNode(); // clicking the level buttons will clear any filters
+            session.clearSelectedNode(); // clicking the level buttons will clear any filters
             // TODO - also clear searches? (could be useful to keep search results when viewing other levels)
-            gitHistory = false; // default git history is false
-            codeVizInterface.generateGraph(currentLevel, GEXF_FILE, gitHistory);
+            session.setGitHistory(false); // default git history is false
+            getContext(session).generateGraph(session);
         }
 
-        response.put("file", "codeviz_demo.gexf");
-        return response; //each API call returns a JSON object that the React app parses
+        return graphResponse(response, session); //each API call returns a JSON object that the React app parses
     }
 
     @CrossOrigin
     @GetMapping("/api/annotateGraph")
-    public Map<String, String> annotateGraph(@RequestParam(name = "gitHistory", required = false, defaultValue = "false") boolean gitHistory)
+    public ResponseEntity<Map<String, String>> annotateGraph(@RequestParam(name = "gitHistory", required = false, defaultValue = "false") boolean gitHistory,
+                                             @RequestParam(name = "windowDays", required = false, defaultValue = "0") double windowDays,
+                                             @RequestParam(name = "halfLifeDays", required = false, defaultValue = "0") double halfLifeDays,
+                                             HttpSession httpSession)
     {
         Map<String, String> response = new HashMap<>();
+        AnalysisSession session = getSession(httpSession);
 
         if (success) {
-            this.gitHistory = gitHistory;
+            // only use recent commits (windowDays), or weight commits by their age (halfLifeDays), 0 to weight all commits the same
+            String weightingError = session.setGitHistoryWeighting(windowDays, halfLifeDays);
+            if (!weightingError.isEmpty()) {
+                response.put("error", weightingError);
+            }
+            session.setGitHistory(gitHistory);
             System.out.println("git history: " + gitHistory);
-            codeVizInterface.generateGraph(currentLevel, GEXF_FILE, gitHistory);
+            getContext(session).generateGraph(session);
         }
 
-        response.put("file", "codeviz_demo.gexf");
-        return response; //each API call returns a JSON object that the React app parses
+        return graphResponse(response, session); //each API call returns a JSON object that the React app parses
     }
 
 
@@ -126,35 +287,28 @@ public class CodeVizController {
      * Updates the displayed code graph
      * @author Sabah Samwatin
      * @param requestBody       the search value and search components
+     * @param httpSession       the session to search in
      * @return                  string response, message of the search result
      */
     @CrossOrigin
     @PostMapping("/api/searchGraph")
-    public Map<String, String> searchGraph(@RequestBody Map<String, String> requestBody
+    public Map<String, String> searchGraph(@RequestBody Map<String, String> requestBody, HttpSession httpSession
     ) {
-        String searchValue;
-        boolean searchClasses, searchMethods, searchAttributes, searchParameters, searchReturnType, searchConnections;
-
-        searchValue = requestBody.getOrDefault("value", "");
-        searchClasses = Boolean.parseBoolean(requestBody.getOrDefault("searchClasses", "false"));
-        searchMethods = Boolean.parseBoolean(requestBody.getOrDefault("searchMethods", "false"));
-        searchAttributes = Boolean.parseBoolean(requestBody.getOrDefault("searchAttributes", "false"));
-        searchParameters = Boolean.parseBoolean(requestBody.getOrDefault("searchParameters", "false"));
-        searchReturnType = Boolean.parseBoolean(requestBody.getOrDefault("searchReturnType", "false"));
-        searchConnections = Boolean.parseBoolean(requestBody.getOrDefault("searchConnections", "false"));
+        String searchValue = requestBody.getOrDefault("value", "");
+        AnalysisSession session = getSession(httpSession);
 
         Map<String, String> response = new HashMap<>();
 
+        String result = "";
         if (success) {
             if (!searchValue.isEmpty()) {
                 System.out.println("SEARCHING FOR " + searchValue);
-                codeVizInterface.performSearch(searchValue, searchClasses, searchMethods, searchAttributes,
-                        searchParameters, searchReturnType, searchConnections, currentLevel);
+                // the search components are read when the search is applied to the graph
+                session.setSearch(requestBody, session.getCurrentLevel());
             }
-            codeVizInterface.generateGraph(currentLevel, GEXF_FILE, this.gitHistory);
+            result = getContext(session).generateSearchGraph(session);
         }
 
-        String result = codeVizInterface.getSearchResult();
         System.out.println("Search Result: " + result);
 
         result = TextAnnotate.javaToHtml(result);
@@ -169,10 +323,12 @@ public class CodeVizController {
      */
     @CrossOrigin
     @GetMapping("/api/getNodeDetails")
-    public Map<String, String> getNodeDetails(@RequestParam(name = "nodeName", defaultValue = "") String nodeName) {
+    public Map<String, String> getNodeDetails(@RequestParam(name = "nodeName", defaultValue = "") String nodeName,
+                                              HttpSession httpSession) {
         Map<String, String> response = new HashMap<>();
+        AnalysisSession session = getSession(httpSession);
 
-        String results = codeVizInterface.getNodeDetails(nodeName, currentLevel);
+        String results = getContext(session).getNodeDetails(session, nodeName);
         results = TextAnnotate.javaToHtml(results);
 
         response.put("string", results);
@@ -186,10 +342,12 @@ public class CodeVizController {
      */
     @CrossOrigin
     @GetMapping("/api/getComplexityDetails")
-    public Map<String, String> getComplexityDetails(@RequestParam(name = "nodeName", defaultValue = "") String nodeName) {
+    public Map<String, String> getComplexityDetails(@RequestParam(name = "nodeName", defaultValue = "") String nodeName,
+                                                    HttpSession httpSession) {
         Map<String, String> response = new HashMap<>();
+        AnalysisSession session = getSession(httpSession);
 
-        String results = codeVizInterface.getComplexityDetails(nodeName, currentLevel);
+        String results = getContext(session).getComplexityDetails(session, nodeName);
         results = TextAnnotate.javaToHtml(results);
 
         response.put("string", results);
@@ -199,20 +357,24 @@ public class CodeVizController {
     /**
      * Get the details of an edge
      * Note: Only works for git history annotations
-     * @param edgeName  name of the edge
-     * @return          string response of the edge details
+     * @param edgeName      name of the edge
+     * @param numCommits    the max number of shared commits to show, from the most recent
+     * @return              string response of the edge details
      */
     @CrossOrigin
     @GetMapping("/api/getEdgeDetails")
-    public Map<String, String> getEdgeDetails(@RequestParam(name = "edgeName", defaultValue = "") String edgeName) {
+    public Map<String, String> getEdgeDetails(@RequestParam(name = "edgeName", defaultValue = "") String edgeName,
+                                              @RequestParam(name = "numCommits", required = false, defaultValue = "1") int numCommits,
+                                              HttpSession httpSession) {
         Map<String, String> response = new HashMap<>();
+        AnalysisSession session = getSession(httpSession);
 
-        if (!gitHistory){
+        if (!session.isGitHistory()){
             response.put("string", "");
             return response;
         }
 
-        String results = codeVizInterface.getEdgeDetails(edgeName);
+        String results = getContext(session).getEdgeDetails(session, edgeName, numCommits);
         results = TextAnnotate.javaToHtml(results);
 
         response.put("string", results);
@@ -226,14 +388,15 @@ public class CodeVizController {
      */
     @CrossOrigin
     @GetMapping("/api/generateInnerGraph")
-    public void generateInnerGraph(@RequestParam(name = "nodeName", defaultValue = "") String nodeName) {
+    public void generateInnerGraph(@RequestParam(name = "nodeName", defaultValue = "") String nodeName, HttpSession httpSession) {
+        AnalysisSession session = getSession(httpSession);
+        EntityType currentLevel = session.getCurrentLevel();
         // go inside one level (if possible)
         if (currentLevel.getChild() != null){
             EntityType newLevel = currentLevel.getChild();
             System.out.println("Generate inner graph for " + nodeName + " at " + currentLevel);
-            gitHistory = false; // default git history is false
-            codeVizInterface.generateInnerGraph(nodeName, currentLevel, newLevel, GEXF_FILE, gitHistory);
-            currentLevel = newLevel;
+            session.setGitHistory(false); // default git history is false
+            getContext(session).generateInnerGraph(session, nodeName, newLevel);
         }
     }
 
@@ -243,31 +406,34 @@ public class CodeVizController {
      */
     @CrossOrigin
     @GetMapping("/api/getCurrentLevel")
-    public Map<String, String> getCurrentLevel() {
+    public Map<String, String> getCurrentLevel(HttpSession httpSession) {
         Map<String, String> response = new HashMap<>();
 
-        String currentLevelString = currentLevel.getName();
+        String currentLevelString = getSession(httpSession).getCurrentLevel().getName();
         response.put("string", currentLevelString);
         return response;
     }
 
     /**
      * Get the current level of the code graph + any other annotation details
-     * @return  string response, current level + any other annotation details
+     * @return  string response, current level + any other annotation details,
+     *          and sessionReset true the first time after the session was forgotten, ex. after being away for a long time
      */
     @CrossOrigin
     @GetMapping("/api/getCurrentGraphName")
-    public Map<String, String> getCurrentGraphName() {
+    public Map<String, String> getCurrentGraphName(HttpSession httpSession) {
         Map<String, String> response = new HashMap<>();
+        AnalysisSession session = getSession(httpSession);
 
-        String currentLevelString = currentLevel.getName();
+        String currentLevelString = session.getCurrentLevel().getName();
 
-        String selectedNodeName = codeVizInterface.getSelectedNodeToString();
+        String selectedNodeName = session.getSelectedNodeToString();
         if (!selectedNodeName.isEmpty()) {
             currentLevelString += " at " + selectedNodeName;
         }
 
         response.put("string", currentLevelString);
+        response.put("sessionReset", String.valueOf(session.takeReset()));
         return response;
     }
 
@@ -277,10 +443,10 @@ public class CodeVizController {
      */
     @CrossOrigin
     @GetMapping("/api/getCurrentMilestone")
-    public Map<String, String> getCurrentMilestone() {
+    public Map<String, String> getCurrentMilestone(HttpSession httpSession) {
         Map<String, String> response = new HashMap<>();
         String milestone;
-        if (!gitHistory){
+        if (!getSession(httpSession).isGitHistory()){
             milestone = "m1"; // code dependency graph
         } else {
             milestone = "m2"; // git history annotations at class level
@@ -292,10 +458,11 @@ public class CodeVizController {
 
     @CrossOrigin
     @GetMapping("/api/clearSearch")
-    public void clearSearch() {
-        codeVizInterface.clearSearch();
+    public void clearSearch(HttpSession httpSession) {
+        AnalysisSession session = getSession(httpSession);
+        session.clearSearch();
 
         // update code graph without search value
-        codeVizInterface.generateGraph(currentLevel, GEXF_FILE, gitHistory);
+        getContext(session).generateGraph(session);
     }
 }
\ No newline at end of file
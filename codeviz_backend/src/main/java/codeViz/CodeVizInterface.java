@@ -1,8 +1,22 @@
 package codeViz;
 
+import codeViz.codeSummary.CompilationUnitSummaryCache;
+import codeViz.entity.ClassEntity;
 import codeViz.entity.Entity;
 import codeViz.entity.EntityType;
+import codeViz.gitHistory.CommitHistoryStore;
 import codeViz.gitHistory.GitCommitReader;
+import codeViz.gitHistory.GitHistoryWeighting;
+import codeViz.gitHistory.GitMirrorManager;
+import codeViz.gitHistory.GitRevisionDiff;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * CodeViz Interface that connects the CodeViz classes to the CodeVizController
@@ -12,17 +26,32 @@ public class CodeVizInterface {
     private final GraphGenerator graphGenerator;
     private final GitCommitReader gitCommitReader;
     private final SourcecodeReader sourcecodeReader;
+    private static final int MAX_COMMIT_INFOS_PER_CLASS = 100;
 
-    private Entity selectedNode;
     private boolean success;
 
+    private volatile int graphVersion; // changed whenever the graph is updated in place
+
 
     public CodeVizInterface(){
-        this.sourcecodeReader = new SourcecodeReader();
+        // the persistent caches are shared by the contexts of AnalysisContextManager, a single interface parses and diffs everything
+        this(null, new GitMirrorManager(), null);
+    }
+
+    /**
+     * Create a CodeViz Interface for one repository, sharing the caches with the interfaces of the other repositories
+     * @param summaryCache          cache of previously parsed files, or null to parse every file
+     * @param gitMirrorManager      the local mirrors of the repositories
+     * @param commitHistoryStore    store of previously diffed commits, or null to diff every commit
+     */
+    public CodeVizInterface(CompilationUnitSummaryCache summaryCache, GitMirrorManager gitMirrorManager, CommitHistoryStore commitHistoryStore){
+        this.sourcecodeReader = new SourcecodeReader(Runtime.getRuntime().availableProcessors(), summaryCache);
         this.graphGenerator = sourcecodeReader.getGraphGenerator();
-        this.gitCommitReader = new GitCommitReader(graphGenerator);
+        this.gitCommitReader = new GitCommitReader(graphGenerator, gitMirrorManager, commitHistoryStore);
+        // the edge details only need the recent commits of each class, older commits are kept as co-change counts
+        this.gitCommitReader.setMaxCommitInfosPerClass(MAX_COMMIT_INFOS_PER_CLASS);
         this.success = true; // FIXME - change back to false once stuff are working
-        this.selectedNode = null;
+        this.graphVersion = 0;
     }
 
     /**
@@ -32,6 +61,28 @@ public class CodeVizInterface {
      * @return boolean, whether entities/connections were created
      */
     public String generateEntitiesAndConnections(String repoURL, int maxNumCommits) {
+        return generateEntitiesAndConnections(repoURL, maxNumCommits, AnalysisProgress.NONE);
+    }
+
+    /**
+     * Generate the entities and connections between them AND annotate with local git history, as an analysis job
+     * @param repoURL           the GitHub repo URL
+     * @param maxNumCommits     the number of commits to get the history from, -1 if all commits
+     * @param progress          progress of the job, updated as each phase runs
+     * @return                  error message, empty if the entities/connections were created
+     */
+    public String generateEntitiesAndConnections(String repoURL, int maxNumCommits, AnalysisProgress progress) {
+        sourcecodeReader.setAnalysisProgress(progress);
+        gitCommitReader.setAnalysisProgress(progress);
+        try {
+            return analyzeRepository(repoURL, maxNumCommits, progress);
+        } finally {
+            sourcecodeReader.setAnalysisProgress(AnalysisProgress.NONE);
+            gitCommitReader.setAnalysisProgress(AnalysisProgress.NONE);
+        }
+    }
+
+    private String analyzeRepository(String repoURL, int maxNumCommits, AnalysisProgress progress) {
 
         repoURL = modifyRepoUrl(repoURL);
 
@@ -47,6 +98,7 @@ public class CodeVizInterface {
         boolean success = sourcecodeReader.analyzeCodebase(repoURL);
         if (success) {
             String tokenPassword = ""; // empty string for public repos
+            progress.startPhase(AnalysisProgress.Phase.HISTORY, -1); // the number of commits is known once the mirror is fetched
             gitCommitReader.extractCommitHistory(repoURL, tokenPassword, maxNumCommits);
             return "";
         } else {
@@ -54,6 +106,115 @@ public class CodeVizInterface {
         }
     }
 
+    /**
+     * Update the entities and connections with the files changed between two revisions of a local repository,
+     * instead of analyzing the whole codebase again
+     * @param repoDirectory     the local repository directory
+     * @param oldRevision       the previously analyzed revision, or null to use the last revision analyzed
+     * @param newRevision       the revision to update to
+     * @param maxNumCommits     the number of commits to get the history from when it is all read, -1 if all commits
+     * @param progress          progress of the job, updated as each phase runs
+     * @return                  error message, empty if the update was successful
+     */
+    public String updateEntitiesAndConnections(String repoDirectory, String oldRevision, String newRevision, int maxNumCommits,
+                                               AnalysisProgress progress) {
+        return updateEntitiesAndConnections(repoDirectory, oldRevision, newRevision, maxNumCommits, progress, new ReentrantLock());
+    }
+
+    /**
+     * Update the entities and connections of a graph that is being read, in place
+     * The changed files and the new commits are diffed and parsed before the graph lock is taken, so the graph can still
+     * be read meanwhile; once the graph starts changing, the update can no longer be cancelled
+     * Only the commits since the history was read are added to it, unless the new revision is not a later revision
+     * @param repoDirectory     the local repository directory
+     * @param oldRevision       the previously analyzed revision, or null to use the last revision analyzed
+     * @param newRevision       the revision to update to
+     * @param maxNumCommits     the number of commits to get the history from when it is all read, -1 if all commits
+     * @param progress          progress of the job, updated as each phase runs
+     * @param graphLock         held while the graph is changed, ex. the write lock of the graph's readers
+     * @return                  error message, empty if the update was successful
+     */
+    public String updateEntitiesAndConnections(String repoDirectory, String oldRevision, String newRevision, int maxNumCommits,
+                                               AnalysisProgress progress, Lock graphLock) {
+        sourcecodeReader.setAnalysisProgress(progress);
+        gitCommitReader.setAnalysisProgress(progress);
+        try {
+            return updateRepository(repoDirectory, oldRevision, newRevision, maxNumCommits, progress, graphLock);
+        } finally {
+            sourcecodeReader.setAnalysisProgress(AnalysisProgress.NONE);
+            gitCommitReader.setAnalysisProgress(AnalysisProgress.NONE);
+        }
+    }
+
+    private String updateRepository(String repoDirectory, String oldRevision, String newRevision, int maxNumCommits,
+                                    AnalysisProgress progress, Lock graphLock) {
+        if (oldRevision == null) {
+            oldRevision = sourcecodeReader.getAnalyzedRevision();
+        }
+        boolean readAllFiles = (oldRevision == null); // nothing to update from, read all files of the new revision
+
+        GitRevisionDiff gitRevisionDiff;
+        try (Repository repository = Git.open(new File(repoDirectory)).getRepository()) {
+            gitRevisionDiff = GitRevisionDiff.compute(repository, oldRevision, newRevision);
+        } catch (IOException e) {
+            return "ERROR, could not read revisions: " + e.getMessage();
+        }
+
+        progress.startPhase(AnalysisProgress.Phase.PARSE, gitRevisionDiff.getChangedFiles().size());
+        SourcecodeReader.CodebaseUpdate codebaseUpdate = sourcecodeReader.parseCodebaseUpdate(gitRevisionDiff.getRemovedPaths(),
+                gitRevisionDiff.getChangedFiles(), gitRevisionDiff.getNewRevision());
+        progress.checkCancelled();
+
+        // only the commits since the history was read are diffed, null if the whole history needs to be read again
+        GitCommitReader.NewCommits newCommits = readAllFiles ? null
+                : gitCommitReader.readNewCommits(new File(repoDirectory), gitRevisionDiff.getNewRevision());
+        progress.checkCancelled();
+
+        // the graph is changed in place from here on, so it is not left half updated by a cancel
+        sourcecodeReader.setAnalysisProgress(AnalysisProgress.NONE);
+        gitCommitReader.setAnalysisProgress(AnalysisProgress.NONE);
+        graphLock.lock();
+        try {
+            if (readAllFiles) {
+                sourcecodeReader.clearCodebase();
+            }
+            progress.startPhase(AnalysisProgress.Phase.CONNECT, -1);
+            if (!sourcecodeReader.applyCodebaseUpdate(codebaseUpdate)) {
+                return "ERROR, not a valid Java project";
+            }
+            progress.startPhase(AnalysisProgress.Phase.HISTORY, -1);
+            if (newCommits != null) {
+                gitCommitReader.appendCommitHistory(newCommits);
+            } else {
+                gitCommitReader.extractCommitHistory(new File(repoDirectory), maxNumCommits);
+            }
+            return "";
+        } finally {
+            graphVersion++;
+            graphLock.unlock();
+        }
+    }
+
+    /**
+     * @return  the version of the graph, which changes whenever the graph is updated in place
+     */
+    public int getGraphVersion() {
+        return graphVersion;
+    }
+
+    /**
+     * Get the weights of the git connections with a weighting, to show them without weighting the shared graph again
+     * @param gitHistoryWeighting   the weighting
+     * @return                      the weights, or null if the graph is already weighted this way
+     */
+    public GraphOverlay.GitWeights getGitWeights(GitHistoryWeighting gitHistoryWeighting) {
+        if (gitHistoryWeighting.equals(gitCommitReader.getGitHistoryWeighting())) {
+            return null;
+        }
+        return (entity, connectedEntity, weight) ->
+                gitCommitReader.getGitWeight((ClassEntity) entity, (ClassEntity) connectedEntity, gitHistoryWeighting);
+    }
+
     private String modifyRepoUrl(String repoURL) {
         if (repoURL.endsWith(".git")){
             repoURL = repoURL.replace(".git", "");
@@ -69,52 +230,57 @@ public class CodeVizInterface {
         }
     }
 */
-    public void performSearch(String searchValue, boolean searchClasses, boolean searchMethods, boolean searchAttributes,
-                              boolean searchParameters, boolean searchReturnType, boolean searchConnections, EntityType currentLevel) {
-        if (success) {
-            graphGenerator.performSearch(searchValue, searchClasses, searchMethods, searchAttributes,
-                    searchParameters, searchReturnType, searchConnections, currentLevel);
+    /**
+     * Find the entities matching a search, the graph is not changed
+     * @return  the matching entities, empty if the graph couldn't be generated
+     */
+    public Set<Entity> findSearchResults(String searchValue, boolean searchClasses, boolean searchMethods, boolean searchAttributes,
+                                         boolean searchParameters, boolean searchReturnType, boolean searchConnections, EntityType currentLevel) {
+        if (!success) {
+            return Set.of();
         }
+        return graphGenerator.findSearchResults(searchValue, searchClasses, searchMethods, searchAttributes,
+                searchParameters, searchReturnType, searchConnections, currentLevel);
     }
 
     /**
-     * Generate graph
+     * Generate graph, kept in memory in the compact format to be sent to the frontend
      *
-     * @param newLevel   the level to generate the graph at
-     * @param filename   the filename to save the gexf file as
-     * @param gitHistory whether viewing git history graph or not
+     * @param parentEntity  the node to filter the graph to, or null for the whole level
+     * @param newLevel      the level to generate the graph at
+     * @param gitHistory    whether viewing git history graph or not
+     * @param overlay       the search highlights and git weights of the session
+     * @return              the graph, or null if it couldn't be generated
      */
-    public void generateGraph(EntityType newLevel, String filename, boolean gitHistory){
-        if (success) {
-            // if already looking at the inner level of a selected node, keep doing that
-            if (selectedNode != null && selectedNode.getEntityType().getChild().equals(newLevel)){
-                graphGenerator.directedGraphToGexf(selectedNode, newLevel, filename, gitHistory);
-            } else {
-                selectedNode = null;
-                graphGenerator.directedGraphToGexf(newLevel, filename, gitHistory);
-            }
+    public GraphPayload generateGraphPayload(Entity parentEntity, EntityType newLevel, boolean gitHistory, GraphOverlay overlay){
+        if (!success) {
+            return null;
+        }
+        if (parentEntity != null){
+            return graphGenerator.directedGraphToCompactPayload(parentEntity, newLevel, gitHistory, overlay);
+        } else {
+            return graphGenerator.directedGraphToCompactPayload(newLevel, gitHistory, overlay);
         }
     }
 
     /**
-     * Generate graph filtered to a specific node
-     * @param nodeName          the name of the node to filter the graph at
-     * @param parentLevel       the level of the node
-     * @param childLevel        the inner level to generate the graph for
-     * @param filename          the filename to save the gexf file as
+     * Generate the graph in Gexf format, to export it to Gephi
+     * Note: the same graph as generateGraphPayload
+     *
+     * @param parentEntity  the node to filter the graph to, or null for the whole level
+     * @param newLevel      the level to generate the graph at
+     * @param gitHistory    whether viewing git history graph or not
+     * @param overlay       the search highlights and git weights of the session
+     * @return              the graph in Gexf format, or null if it couldn't be generated
      */
-    public void generateInnerGraph(String nodeName, EntityType parentLevel, EntityType childLevel, String filename, boolean gitHistory){
-        selectedNode = graphGenerator.getNode(nodeName, parentLevel);
-        if (success) {
-            graphGenerator.directedGraphToGexf(selectedNode, childLevel, filename, gitHistory);
+    public String exportGraph(Entity parentEntity, EntityType newLevel, boolean gitHistory, GraphOverlay overlay){
+        if (!success) {
+            return null;
         }
-    }
-
-    public String getSelectedNodeToString() {
-        if (selectedNode != null) {
-            return selectedNode.getName();
+        if (parentEntity != null){
+            return graphGenerator.directedGraphToGexfString(parentEntity, newLevel, gitHistory, overlay);
         } else {
-            return "";
+            return graphGenerator.directedGraphToGexfString(newLevel, gitHistory, overlay);
         }
     }
 
@@ -126,19 +292,11 @@ public class CodeVizInterface {
         return graphGenerator.getComplexityDetails(nodeName, currentLevel);
     }
 
-    public String getSearchResult() {
-        return graphGenerator.getSearchResult();
-    }
-
-    public void clearSearch() {
-        graphGenerator.clearSearch();
-    }
-
-    public void clearSelectedNode() {
-        selectedNode = null;
+    public String getSearchResult(EntityType currentLevel, GraphOverlay overlay) {
+        return graphGenerator.getSearchResult(currentLevel, overlay);
     }
 
-    public String getEdgeDetails(String edgeName) {
-        return graphGenerator.getEdgeDetails(edgeName);
+    public GraphGenerator getGraphGenerator() {
+        return graphGenerator;
     }
 }
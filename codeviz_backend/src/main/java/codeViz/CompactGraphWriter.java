@@ -0,0 +1,224 @@
+package codeViz;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a graph in a compact binary format, read by the frontend instead of parsing Gexf
+ * Each string is stored once in a string table, and the nodes and edges are stored as columns,
+ * so the frontend can read each column directly as a typed array
+ *
+ * All values are little-endian, and each section starts at a multiple of 4 bytes:
+ * header          "CVZG", int32 version, int32 numStrings, int32 numStringBytes, int32 numNodes, int32 numEdges, int32 numLegendItems
+ * string table    int32[numStrings + 1] offset of each string, uint8[numStringBytes] UTF-8 strings, padded to 4 bytes
+ * nodes           int32[] id string, int32[] label string, float32[] size, float32[] x, float32[] y, uint32[] colour as 0xRRGGBB
+ * edges           int32[] source node index, int32[] target node index, float32[] weight
+ * legend          int32[] category string, int32[] colour string
+ */
+class CompactGraphWriter implements GraphWriter {
+
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = "CVZG".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = 28;
+
+    private final OutputStream outputStream;
+
+    private final HashMap<String, Integer> stringIndexes;
+    private final ArrayList<byte[]> strings;
+    private int numStringBytes;
+
+    private final HashMap<String, Integer> nodeIndexes; // index of each node id, to find the nodes of an edge
+    private int numNodes;
+    private int[] nodeIds;
+    private int[] nodeLabels;
+    private float[] nodeSizes;
+    private float[] nodeXs;
+    private float[] nodeYs;
+    private int[] nodeColours;
+
+    private int numEdges;
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private float[] edgeWeights;
+
+    private int[] legendCategories;
+    private int[] legendColours;
+
+    /**
+     * Start a graph, the graph is written to the stream when it is closed
+     * @param outputStream  stream to write the graph to, closed when the graph is closed
+     */
+    CompactGraphWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+        this.stringIndexes = new HashMap<>();
+        this.strings = new ArrayList<>();
+        this.numStringBytes = 0;
+
+        this.nodeIndexes = new HashMap<>();
+        this.numNodes = 0;
+        this.nodeIds = new int[16];
+        this.nodeLabels = new int[16];
+        this.nodeSizes = new float[16];
+        this.nodeXs = new float[16];
+        this.nodeYs = new float[16];
+        this.nodeColours = new int[16];
+
+        this.numEdges = 0;
+        this.edgeSources = new int[16];
+        this.edgeTargets = new int[16];
+        this.edgeWeights = new float[16];
+
+        this.legendCategories = new int[0];
+        this.legendColours = new int[0];
+    }
+
+    /**
+     * @return  the index of the string in the string table, adding it if it isn't in the table yet
+     */
+    private int getStringIndex(String value) {
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            index = strings.size();
+            strings.add(bytes);
+            stringIndexes.put(value, index);
+            numStringBytes += bytes.length;
+        }
+        return index;
+    }
+
+    @Override
+    public void writeNode(String id, String label, float size, float x, float y, Color colour) {
+        if (numEdges > 0) {
+            throw new IllegalStateException("Node " + id + " written after the edges");
+        }
+        if (numNodes == nodeIds.length) {
+            int newLength = numNodes * 2;
+            nodeIds = Arrays.copyOf(nodeIds, newLength);
+            nodeLabels = Arrays.copyOf(nodeLabels, newLength);
+            nodeSizes = Arrays.copyOf(nodeSizes, newLength);
+            nodeXs = Arrays.copyOf(nodeXs, newLength);
+            nodeYs = Arrays.copyOf(nodeYs, newLength);
+            nodeColours = Arrays.copyOf(nodeColours, newLength);
+        }
+
+        nodeIndexes.put(id, numNodes);
+        nodeIds[numNodes] = getStringIndex(id);
+        nodeLabels[numNodes] = getStringIndex(label);
+        nodeSizes[numNodes] = size;
+        nodeXs[numNodes] = x;
+        nodeYs[numNodes] = y;
+        nodeColours[numNodes] = colour.getRGB() & 0xFFFFFF;
+        numNodes++;
+    }
+
+    @Override
+    public void writeEdge(String sourceId, String targetId, double weight) {
+        Integer sourceIndex = nodeIndexes.get(sourceId);
+        Integer targetIndex = nodeIndexes.get(targetId);
+        if (sourceIndex == null || targetIndex == null) {
+            throw new IllegalArgumentException("Edge " + sourceId + " -> " + targetId + " has a node that wasn't written");
+        }
+        if (numEdges == edgeSources.length) {
+            int newLength = numEdges * 2;
+            edgeSources = Arrays.copyOf(edgeSources, newLength);
+            edgeTargets = Arrays.copyOf(edgeTargets, newLength);
+            edgeWeights = Arrays.copyOf(edgeWeights, newLength);
+        }
+
+        edgeSources[numEdges] = sourceIndex;
+        edgeTargets[numEdges] = targetIndex;
+        edgeWeights[numEdges] = (float) weight;
+        numEdges++;
+    }
+
+    /**
+     * Write the legend of the graph, sent with the graph so the frontend doesn't need another request
+     * @param legend    the colour of each legend category, as rgb(r,g,b)
+     */
+    void writeLegend(LinkedHashMap<String, String> legend) {
+        legendCategories = new int[legend.size()];
+        legendColours = new int[legend.size()];
+        int i = 0;
+        for (Map.Entry<String, String> legendItem : legend.entrySet()) {
+            legendCategories[i] = getStringIndex(legendItem.getKey());
+            legendColours[i] = getStringIndex(legendItem.getValue());
+            i++;
+        }
+    }
+
+    private static int padToInt(int numBytes) {
+        return (numBytes + 3) & ~3;
+    }
+
+    /**
+     * Write the graph to the stream and close it
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            int numBytes = HEADER_BYTES
+                    + 4 * (strings.size() + 1) + padToInt(numStringBytes)
+                    + 4 * 6 * numNodes
+                    + 4 * 3 * numEdges
+                    + 4 * 2 * legendCategories.length;
+            ByteBuffer buffer = ByteBuffer.allocate(numBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(strings.size());
+            buffer.putInt(numStringBytes);
+            buffer.putInt(numNodes);
+            buffer.putInt(numEdges);
+            buffer.putInt(legendCategories.length);
+
+            int stringOffset = 0;
+            buffer.putInt(stringOffset);
+            for (byte[] string : strings) {
+                stringOffset += string.length;
+                buffer.putInt(stringOffset);
+            }
+            for (byte[] string : strings) {
+                buffer.put(string);
+            }
+            buffer.position(buffer.position() + padToInt(numStringBytes) - numStringBytes);
+
+            buffer.asIntBuffer().put(nodeIds, 0, numNodes);
+            buffer.position(buffer.position() + 4 * numNodes);
+            buffer.asIntBuffer().put(nodeLabels, 0, numNodes);
+            buffer.position(buffer.position() + 4 * numNodes);
+            buffer.asFloatBuffer().put(nodeSizes, 0, numNodes);
+            buffer.position(buffer.position() + 4 * numNodes);
+            buffer.asFloatBuffer().put(nodeXs, 0, numNodes);
+            buffer.position(buffer.position() + 4 * numNodes);
+            buffer.asFloatBuffer().put(nodeYs, 0, numNodes);
+            buffer.position(buffer.position() + 4 * numNodes);
+            buffer.asIntBuffer().put(nodeColours, 0, numNodes);
+            buffer.position(buffer.position() + 4 * numNodes);
+
+            buffer.asIntBuffer().put(edgeSources, 0, numEdges);
+            buffer.position(buffer.position() + 4 * numEdges);
+            buffer.asIntBuffer().put(edgeTargets, 0, numEdges);
+            buffer.position(buffer.position() + 4 * numEdges);
+            buffer.asFloatBuffer().put(edgeWeights, 0, numEdges);
+            buffer.position(buffer.position() + 4 * numEdges);
+
+            buffer.asIntBuffer().put(legendCategories);
+            buffer.position(buffer.position() + 4 * legendCategories.length);
+            buffer.asIntBuffer().put(legendColours);
+
+            outputStream.write(buffer.array());
+        } finally {
+            outputStream.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package codeViz;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a graph in Gexf format one node or edge at a time, without building the graph in memory first
+ * Nodes must all be written before the first edge
+ * Following this format: https://gexf.net/basic.html
+ */
+class GexfWriter implements GraphWriter {
+
+    private final Writer writer;
+    private boolean writingNodes;
+
+    /**
+     * Write the start of the graph, ex. to a StringWriter to keep the graph in memory
+     * @param writer    writer to write the graph to, closed when the graph is closed
+     */
+    GexfWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        this.writingNodes = true;
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<gexf xmlns=\"http://gexf.net/1.3\" version=\"1.3\">\n");
+        writer.write("\t<graph mode=\"static\" defaultedgetype=\"directed\">\n");
+        writer.write("\t\t<nodes>\n");
+    }
+
+    @Override
+    public void writeNode(String id, String label, float size, float x, float y, Color colour) throws IOException {
+        writer.write("\t\t\t<node id=\"" + escape(id) + "\" label=\"" + escape(label) + "\" >\n");
+
+        writer.write("\t\t\t\t<size value=\"" + size + "\"></size>");
+        writer.write("\n");
+
+        writer.write("\t\t\t\t <position x=\"" + x + "\" y=\"" + y + "\" z=\"0.0\"></position>");
+        writer.write("\n");
+
+        writer.write("\t\t\t\t<color r=\"" + colour.getRed() + "\" g=\"" + colour.getGreen() + "\" b=\""+ colour.getBlue() +"\"></color>");
+        writer.write("\n");
+
+        writer.write("\t\t\t</node>\n");
+    }
+
+    @Override
+    public void writeEdge(String sourceId, String targetId, double weight) throws IOException {
+        endNodes();
+
+        writer.write("\t\t\t<edge source=\"" + escape(sourceId) + "\" target=\"" + escape(targetId) + "\" weight=\"" + weight +"\" >");
+        writer.write("\n");
+
+        writer.write("\t\t\t\t<size value=\"" + weight + "\"></size>");
+        writer.write("\n");
+
+        writer.write("\t\t\t</edge>\n");
+    }
+
+    private void endNodes() throws IOException {
+        if (writingNodes) {
+            writer.write("\t\t</nodes>\n");
+            writer.write("\t\t<edges>\n");
+            writingNodes = false;
+        }
+    }
+
+    /**
+     * Write the end of the graph and close the writer
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endNodes();
+            writer.write("\t\t</edges>\n");
+
+            writer.write("\t</graph>\n");
+            writer.write("</gexf>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('&') < 0 && value.indexOf('<') < 0 && value.indexOf('>') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
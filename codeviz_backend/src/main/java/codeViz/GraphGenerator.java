@@ -1,12 +1,8 @@
 package codeViz;
 
-import codeViz.entity.ClassEntity;
-import codeViz.entity.Entity;
-import codeViz.entity.EntityType;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import codeViz.entity.*;
+import codeViz.gitHistory.CoChangeMatrix;
 import codeViz.gitHistory.CommitInfo;
-//import codeViz.gitHistory.GitCommitReader;
 import codeViz.gitHistory.GitCommitReader;
 import org.gephi.graph.api.*;
 import org.gephi.project.api.ProjectController;
@@ -17,7 +13,8 @@ import java.util.*;
 import java.awt.Color;
 
 /**
- * Class that generates the gephi input files
+ * Class that holds the entities of an analyzed codebase, and generates their graphs at each level
+ * The graphs are written in the compact format sent to the frontend, or in Gexf format to export them to Gephi
  *
  * @author Thanuja Sivaananthan
  */
@@ -28,14 +25,37 @@ public class GraphGenerator {
     private LinkedHashMap<String, Entity> packageEntities;
     private LinkedHashMap<String, Entity> classEntities;
     private LinkedHashMap<String, Entity> methodEntities;
-    private EntityType currentLevel;
-    private String searchValue;
 
-    // details on the most recently generated graph
-    // Note: can also store node details here if needed
-    private ArrayList<Entity> edgeSources;
-    private ArrayList<Entity> edgeDestinations;
-    private LinkedHashMap<String, Color> legendColours;
+    // canonical keys of each level, and the entities by their id within the level (null once an entity is removed)
+    // Note: the maps above are the lookup by name, in insertion order; an entity added again with a removed entity's key
+    // gets the removed entity's id back, so the id order can differ from the insertion order after an update
+    // the connections are walked by id through the adjacency stores
+    private final EnumMap<EntityType, SymbolTable> symbolTables;
+    private final EnumMap<EntityType, ArrayList<Entity>> entitiesById;
+
+    // connections of each level by id, the dependency store then the git history store,
+    // kept until the version of the level's symbol table changes
+    private final EnumMap<EntityType, AdjacencyStore[]> adjacencyStores;
+    private final EnumMap<EntityType, int[]> adjacencyStoreVersions;
+
+    // the class of each source file, by its path within the repository (ex. src/main/java/codeViz/GraphGenerator.java)
+    private HashMap<String, ClassEntity> classEntitiesByPath;
+
+    private boolean useGephiWorkspace; // whether Gexf files are written through a Gephi graph, instead of directly from the entities
+
+    private CoChangeMatrix coChangeMatrix; // classes changed together in the git history, null if not annotated
+
+    // Gephi's workspace is global, so only one Gephi graph is built at a time
+    private static final Object GEPHI_LOCK = new Object();
+
+    /**
+     * What is known about a graph once it is written
+     */
+    private static class WrittenGraph {
+        private final ArrayList<Entity> edgeSources = new ArrayList<>();
+        private final ArrayList<Entity> edgeDestinations = new ArrayList<>();
+        private final LinkedHashMap<String, Color> legendColours = new LinkedHashMap<>();
+    }
 
     /**
      * Create an EntityGraphGenerator
@@ -45,12 +65,14 @@ public class GraphGenerator {
         packageEntities = new LinkedHashMap<>();
         classEntities = new LinkedHashMap<>();
         methodEntities = new LinkedHashMap<>();
-        currentLevel = EntityType.CLASS; // default level
-        searchValue = "";
-
-        edgeSources = new ArrayList<>();
-        edgeDestinations = new ArrayList<>();
-        legendColours = new LinkedHashMap<>();
+        symbolTables = new EnumMap<>(EntityType.class);
+        entitiesById = new EnumMap<>(EntityType.class);
+        adjacencyStores = new EnumMap<>(EntityType.class);
+        adjacencyStoreVersions = new EnumMap<>(EntityType.class);
+        classEntitiesByPath = new HashMap<>();
+        clearSymbolTables();
+        useGephiWorkspace = false;
+        coChangeMatrix = null;
     }
 
     /**
@@ -70,9 +92,139 @@ public class GraphGenerator {
         }
 
         entities.put(key, entity);
+
+        // give the entity an id within its level, a key that was removed before keeps its id
+        SymbolTable symbolTable = symbolTables.get(entity.getEntityType());
+        ArrayList<Entity> levelEntities = entitiesById.get(entity.getEntityType());
+        int id = symbolTable.intern(key);
+        entity.setId(id);
+        entity.setSymbolTable(symbolTable);
+        if (id < levelEntities.size()) {
+            levelEntities.set(id, entity);
+            symbolTable.entitiesChanged();
+        } else {
+            levelEntities.add(entity);
+        }
         return true;
     }
 
+    /**
+     * Remove an entity, so the graph can be updated without creating every entity again
+     * Connections to the entity from other entities are not removed, the caller finds those connections again
+     * @param entity    entity to remove
+     * @return          whether the entity was removed (false if it isn't stored in this graph generator)
+     */
+    public boolean removeEntity(Entity entity){
+        LinkedHashMap<String, Entity> entities = getEntities(entity.getEntityType());
+        if (entities.get(entity.getKey()) != entity){
+            return false;
+        }
+        entities.remove(entity.getKey());
+
+        SymbolTable symbolTable = symbolTables.get(entity.getEntityType());
+        entitiesById.get(entity.getEntityType()).set(entity.getId(), null);
+        symbolTable.entitiesChanged();
+        entity.setId(-1);
+        entity.setSymbolTable(null);
+        return true;
+    }
+
+    /**
+     * Add entity, using its fully qualified name as the key
+     * @param entity    entity
+     * @return          whether the entity was added (false if the key already exists)
+     */
+    public boolean addEntity(Entity entity){
+        return addEntity(entity.getKey(), entity);
+    }
+
+    /**
+     * Get an entity by its id
+     * @param entityType    the level of the entity
+     * @param id            the id of the entity within its level
+     * @return              the entity, or null if the entity with this id was removed
+     */
+    public Entity getEntity(EntityType entityType, int id) {
+        return entitiesById.get(entityType).get(id);
+    }
+
+    /**
+     * Get the connections of a level in compressed sparse row form, indexed by entity id
+     * The store is only built again once an entity is added to or removed from the level or the level's connections change
+     * @param entityType    the level
+     * @param gitHistory    whether to use the git history connections instead of the dependency connections
+     * @return              a snapshot of the level's current connections
+     */
+    public synchronized AdjacencyStore getAdjacencyStore(EntityType entityType, boolean gitHistory) {
+        int index = gitHistory ? 1 : 0;
+        int version = symbolTables.get(entityType).getVersion();
+        AdjacencyStore[] stores = adjacencyStores.get(entityType);
+        int[] versions = adjacencyStoreVersions.get(entityType);
+        if (stores[index] == null || versions[index] != version) {
+            stores[index] = AdjacencyStore.build(entitiesById.get(entityType), gitHistory);
+            versions[index] = version;
+        }
+        return stores[index];
+    }
+
+    public boolean isUseGephiWorkspace() {
+        return useGephiWorkspace;
+    }
+
+    /**
+     * Set how Gexf files are generated
+     * @param useGephiWorkspace     true to build a Gephi graph and export it, false to write the file directly from the entities
+     */
+    public void setUseGephiWorkspace(boolean useGephiWorkspace) {
+        this.useGephiWorkspace = useGephiWorkspace;
+    }
+
+    public CoChangeMatrix getCoChangeMatrix() {
+        return coChangeMatrix;
+    }
+
+    public void setCoChangeMatrix(CoChangeMatrix coChangeMatrix) {
+        this.coChangeMatrix = coChangeMatrix;
+    }
+
+    /**
+     * Store which class a source file declares, so the git history can find the class of a changed file directly
+     * @param path          path of the file within the repository
+     * @param classEntity   the class declared by the file
+     */
+    public void addClassEntityPath(String path, ClassEntity classEntity) {
+        classEntitiesByPath.put(path, classEntity);
+    }
+
+    /**
+     * Stop indexing a source file, once it is removed or no longer declares its class
+     * @param path  path of the file within the repository
+     */
+    public void removeClassEntityPath(String path) {
+        classEntitiesByPath.remove(path);
+    }
+
+    /**
+     * @param path  path of a file within the repository
+     * @return      the class declared by the file, or null if the file is not indexed
+     */
+    public ClassEntity getClassEntityByPath(String path) {
+        return classEntitiesByPath.get(path);
+    }
+
+    public SymbolTable getSymbolTable(EntityType entityType) {
+        return symbolTables.get(entityType);
+    }
+
+    private void clearSymbolTables() {
+        for (EntityType entityType : List.of(EntityType.PACKAGE, EntityType.CLASS, EntityType.METHOD)) {
+            symbolTables.put(entityType, new SymbolTable());
+            entitiesById.put(entityType, new ArrayList<>());
+            adjacencyStores.put(entityType, new AdjacencyStore[2]);
+            adjacencyStoreVersions.put(entityType, new int[2]);
+        }
+    }
+
     public LinkedHashMap<String, Entity> getPackageEntities() {
         return packageEntities;
     }
@@ -117,23 +269,17 @@ public class GraphGenerator {
      * @author Thanuja Sivaananthan
      */
     public DirectedGraph entitiesToNodes(EntityType entityType, boolean gitHistory) {
-        currentLevel = entityType;
         LinkedHashMap<String, Entity> entities = getEntities(entityType);
-        return entitiesToNodes(entities, gitHistory);
+        return entitiesToNodes(entities, entityType, true, gitHistory, GraphOverlay.NONE, new WrittenGraph());
     }
 
     /**
-     * Generate an inner graph for a specific parent node.
-     * The following level pairs are supported:
-     * parentEntity: PACKAGE, childLevel: CLASS
-     * parentEntity: PACKAGE, childLevel: METHOD
-     * parentEntity: CLASS, childLevel: METHOD
+     * Get the entities of an inner graph
      * @param parentEntity  the entity to generate the inner graph for
      * @param childLevel    the level of the inner graph
-     * @param gitHistory whether viewing git history graph or not
-     * @return              resulting directed graph
+     * @return              the inner entities, or null if the level pair is not supported
      */
-    private DirectedGraph entitiesToNodes(Entity parentEntity, EntityType childLevel, boolean gitHistory) {
+    private LinkedHashMap<String, Entity> getInnerEntities(Entity parentEntity, EntityType childLevel) {
 
         // combinations that do not work
         if (parentEntity.getEntityType().equals(EntityType.METHOD) // 3 - method - any
@@ -148,37 +294,52 @@ public class GraphGenerator {
         // keep this check just in case
         if (parentEntity.getEntityType().equals(EntityType.PACKAGE)) {
             if (childLevel.equals(EntityType.CLASS)) { // package - class
-                currentLevel = EntityType.CLASS;
                 PackageEntity packageEntity = (PackageEntity) parentEntity;
                 Set<ClassEntity> classEntities1 = packageEntity.getClasses();
                 for (Entity entityInner : classEntities1) {
-                    entities.put(entityInner.getName(), entityInner);
+                    entities.put(entityInner.getKey(), entityInner);
                 }
             } else if (childLevel.equals(EntityType.METHOD)) { // package - method
-                currentLevel = EntityType.METHOD;
                 PackageEntity packageEntity = (PackageEntity) parentEntity;
                 Set<ClassEntity> classEntities1 = packageEntity.getClasses();
                 for (ClassEntity classEntityInner : classEntities1) {
                     Set<MethodEntity> methodEntities1 = classEntityInner.getMethods();
                     for (Entity entityInner : methodEntities1) {
-                        entities.put(parentEntity.getName() + "." + entityInner.getName(), entityInner);
+                        entities.put(entityInner.getKey(), entityInner);
                     }
                 }
             }
         } else if (parentEntity.getEntityType().equals(EntityType.CLASS)) { // class - method
-            currentLevel = EntityType.METHOD;
             ClassEntity classEntity = (ClassEntity) parentEntity;
             Set<MethodEntity> methodEntities1 = classEntity.getMethods();
             for (Entity entityInner : methodEntities1) {
-                entities.put(parentEntity.getName() + "." + entityInner.getName(), entityInner);
+                entities.put(entityInner.getKey(), entityInner);
             }
         }
-        return entitiesToNodes(entities, gitHistory);
+        return entities;
     }
 
 
 
-    private DirectedGraph entitiesToNodes(LinkedHashMap<String, Entity> entities, boolean gitHistory){
+    /**
+     * Build a Gephi graph of the entities
+     * @param entities      entities of the graph, at the level
+     * @param level         the level of the graph
+     * @param isWholeLevel  whether the entities are all the entities of the level, instead of an inner graph
+     * @param gitHistory    whether viewing git history graph or not
+     * @param overlay       the search highlights and git weights to show
+     * @param writtenGraph  the edges and legend of the graph, added as the graph is built
+     * @return              the graph
+     */
+    private DirectedGraph entitiesToNodes(LinkedHashMap<String, Entity> entities, EntityType level, boolean isWholeLevel,
+                                          boolean gitHistory, GraphOverlay overlay, WrittenGraph writtenGraph){
+        synchronized (GEPHI_LOCK) {
+            return buildDirectedGraph(entities, level, isWholeLevel, gitHistory, overlay, writtenGraph);
+        }
+    }
+
+    private DirectedGraph buildDirectedGraph(LinkedHashMap<String, Entity> entities, EntityType level, boolean isWholeLevel,
+                                             boolean gitHistory, GraphOverlay overlay, WrittenGraph writtenGraph){
         // NOTE: assuming all entities are properly set up with connections already
 
         if (entities.isEmpty()){
@@ -189,16 +350,16 @@ public class GraphGenerator {
         List<Node> nodes = new ArrayList<>();
         List<Edge> edges = new ArrayList<>();
 
-        edgeSources = new ArrayList<>();
-        edgeDestinations = new ArrayList<>();
-        legendColours = new LinkedHashMap<>();
-
         ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
         pc.newProject();
 
         //Get a graph model - it exists because we have a workspace
         GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getGraphModel();
 
+        // nodes of this view, used to check if an edge's other node is in the view
+        // (kept here instead of on the entities, which are shared by every view)
+        IdentityHashMap<Entity, Node> viewNodes = new IdentityHashMap<>();
+
         // 1. create nodes for each entity
         int id = 1; // add id in case there are duplicate names
         for (String entityKey : entities.keySet()){
@@ -207,48 +368,41 @@ public class GraphGenerator {
             Node node = graphModel.factory().newNode(id + "_" + entityKey); // want this as entityKey, is okay because only label is displayed
             node.setLabel(nodeName);
             node.setSize(entity.getSize()); // might need to scale up node size, so it appears nicely?
-            node.setColor(entity.getParentColour());
+            node.setColor(overlay.getColour(entity));
 
-            if (!legendColours.containsKey(entity.getParentName())) {
-                legendColours.put(entity.getParentName(), entity.getParentColour());
+            if (!writtenGraph.legendColours.containsKey(entity.getParentName())) {
+                writtenGraph.legendColours.put(entity.getParentName(), overlay.getColour(entity));
             }
 
             float pos_x = entity.getX_pos();
             float pos_y = entity.getY_pos();
             node.setPosition(pos_x, pos_y); // TODO - determine proper coordinates
 
-            entity.setGephiNode(node);
+            viewNodes.put(entity, node);
             nodes.add(node);
 
             id += 1;
         }
 
         // 2. create edges for each pair
-        for (String entityKey : entities.keySet()){
-            Entity entity = entities.get(entityKey);
-
-            Set<Map.Entry<Entity, Float>> connectedEntities = entity.getConnectedEntitiesAndWeights().entrySet();
-            if (gitHistory && entity.getEntityType().equals(EntityType.CLASS)){
-                connectedEntities = entity.getGitConnectedEntitiesAndWeights().entrySet(); // TODO - move to diff location
-            }
-
-            for (Map.Entry<Entity, Float> entry : connectedEntities){
-
-                Entity connectedEntity = entry.getKey();
+        try {
+            forEachConnection(entities.values(), level, isWholeLevel, gitHistory, overlay, (entity, connectedEntity, weight) -> {
                 // FIXME what if connected entities doesn't exist in inner graph?
                 //  could add immediate connections
                 //  could simply not include those nodes/edges that aren't in the inner graph
 
-                if (nodes.contains(connectedEntity.getGephiNode())) { // only add edge if the other node exists
-                    float weight = entry.getValue();
+                Node connectedNode = viewNodes.get(connectedEntity);
+                if (connectedNode != null) { // only add edge if the other node exists
                     int type = (int) 1f; // not sure what the type field should be
-                    Edge edge = graphModel.factory().newEdge(entity.getGephiNode(), connectedEntity.getGephiNode(), type, weight, true);
+                    Edge edge = graphModel.factory().newEdge(viewNodes.get(entity), connectedNode, type, weight, true);
 
-                    edgeSources.add(entity);
-                    edgeDestinations.add(connectedEntity);
+                    writtenGraph.edgeSources.add(entity);
+                    writtenGraph.edgeDestinations.add(connectedEntity);
                     edges.add(edge);
                 }
-            }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
 
         DirectedGraph directedGraph = graphModel.getDirectedGraph();
@@ -265,114 +419,144 @@ public class GraphGenerator {
     }
 
 
-    /**
-     * Convert entities to Gexf format manually
-     *
-     * @author Thanuja Sivaananthan
-     *
-     * @param directedGraph directed graph to use
-     * @param filename filename to save as
-     */
-    public void directedGraphToGexf(DirectedGraph directedGraph, String filename){
-
-        // following this format:
-        // https://gexf.net/basic.html
-
+    private void writeDirectedGraph(DirectedGraph directedGraph, GraphWriter writer) throws IOException {
         Node[] nodes = directedGraph.getNodes().toArray();
         Edge[] edges = directedGraph.getEdges().toArray();
 
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
-
-            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-            writer.write("<gexf xmlns=\"http://gexf.net/1.3\" version=\"1.3\">\n");
-            writer.write("\t<graph mode=\"static\" defaultedgetype=\"directed\">\n");
+        for (Node node: nodes){
+            writer.writeNode(node.getId().toString(), node.getLabel(), node.size(), node.x(), node.y(), node.getColor());
+        }
 
-            writer.write("\t\t<nodes>\n");
-            for (Node node: nodes){
-                // System.out.println(node.getLabel());
-                writer.write("\t\t\t<node id=\"" + node.getId() + "\" label=\"" + node.getLabel() + "\" >\n");
+        for (Edge edge: edges){
+            writer.writeEdge(edge.getSource().getId().toString(), edge.getTarget().getId().toString(), edge.getWeight());
+        }
+    }
 
-                writer.write("\t\t\t\t<size value=\"" + node.size() + "\"></size>");
-                writer.write("\n");
+    /**
+     * Write entities directly, without creating a Gephi workspace
+     * Writes the same graph as entitiesToNodes followed by writeDirectedGraph
+     *
+     * @param entities      entities to write, at the level
+     * @param level         the level of the graph
+     * @param isWholeLevel  whether the entities are all the entities of the level, instead of an inner graph
+     * @param gitHistory    whether viewing git history graph or not
+     * @param overlay       the search highlights and git weights to show
+     * @param writer        the writer of the graph format
+     * @return              the edges and legend of the written graph
+     */
+    private WrittenGraph writeEntities(LinkedHashMap<String, Entity> entities, EntityType level, boolean isWholeLevel,
+                                       boolean gitHistory, GraphOverlay overlay, GraphWriter writer) throws IOException {
+        WrittenGraph writtenGraph = new WrittenGraph();
 
-                writer.write("\t\t\t\t <position x=\"" + node.x() + "\" y=\"" + node.y() + "\" z=\"0.0\"></position>");
-                writer.write("\n");
+        // ids of the nodes in this graph, an edge is only added if its other node is in the graph
+        IdentityHashMap<Entity, String> nodeIds = new IdentityHashMap<>();
 
-                Color colour = node.getColor();
-                writer.write("\t\t\t\t<color r=\"" + colour.getRed() + "\" g=\"" + colour.getGreen() + "\" b=\""+ colour.getBlue() +"\"></color>");
-                writer.write("\n");
+        // 1. write a node for each entity
+        int id = 1; // add id in case there are duplicate names
+        for (Map.Entry<String, Entity> entry : entities.entrySet()){
+            Entity entity = entry.getValue();
+            String nodeId = id + "_" + entry.getKey();
+            Color colour = overlay.getColour(entity);
 
-                writer.write("\t\t\t</node>\n");
+            if (!writtenGraph.legendColours.containsKey(entity.getParentName())) {
+                writtenGraph.legendColours.put(entity.getParentName(), colour);
             }
-            writer.write("\t\t</nodes>\n");
-
-            writer.write("\t\t<edges>\n");
-            for (Edge edge: edges){
-                // System.out.println(edge.getSource().getLabel() + "->" + edge.getTarget().getLabel());
-                writer.write("\t\t\t<edge source=\"" + edge.getSource().getId() + "\" target=\"" + edge.getTarget().getId() + "\" weight=\"" + edge.getWeight() +"\" >");
-                writer.write("\n");
 
-                writer.write("\t\t\t\t<size value=\"" + edge.getWeight() + "\"></size>");
-                writer.write("\n");
+            writer.writeNode(nodeId, entity.getName(), entity.getSize(), entity.getX_pos(), entity.getY_pos(), colour);
+            nodeIds.put(entity, nodeId);
+            id += 1;
+        }
 
-                writer.write("\t\t\t</edge>\n");
+        // 2. write an edge for each pair
+        forEachConnection(entities.values(), level, isWholeLevel, gitHistory, overlay, (entity, connectedEntity, weight) -> {
+            String connectedNodeId = nodeIds.get(connectedEntity);
+            if (connectedNodeId != null) {
+                writer.writeEdge(nodeIds.get(entity), connectedNodeId, weight);
+                writtenGraph.edgeSources.add(entity);
+                writtenGraph.edgeDestinations.add(connectedEntity);
             }
-            writer.write("\t\t</edges>\n");
+        });
+        return writtenGraph;
+    }
 
-            writer.write("\t</graph>\n");
-            writer.write("</gexf>\n");
+    private interface EdgeVisitor {
+        void visit(Entity entity, Entity connectedEntity, float weight) throws IOException;
+    }
 
-            writer.close();
+    /**
+     * Visit the connections of the entities of a graph, in the order each entity's connections were added
+     * A whole level is read from the level's adjacency store, an inner graph only walks the connections of its own entities
+     * @param entities      the entities of the graph
+     * @param level         the level of the entities
+     * @param isWholeLevel  whether the entities are all the entities of the level
+     * @param gitHistory    whether to use the git history connections, only classes have them
+     * @param overlay       the weights of the git history connections, a connection with no weight is not visited
+     * @param visitor       called for each connection
+     */
+    private void forEachConnection(Collection<Entity> entities, EntityType level, boolean isWholeLevel, boolean gitHistory,
+                                   GraphOverlay overlay, EdgeVisitor visitor) throws IOException {
+        boolean useGitConnections = gitHistory && level.equals(EntityType.CLASS);
+        EdgeVisitor weightedVisitor = !useGitConnections ? visitor : (entity, connectedEntity, weight) -> {
+            float gitWeight = overlay.getGitWeight(entity, connectedEntity, weight);
+            if (gitWeight != 0) {
+                visitor.visit(entity, connectedEntity, gitWeight);
+            }
+        };
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        if (!isWholeLevel) {
+            for (Entity entity : entities) {
+                for (int position = 0; position < entity.getNumConnections(useGitConnections); position++) {
+                    weightedVisitor.visit(entity, entity.getConnectedEntity(position, useGitConnections), entity.getConnectionWeight(position, useGitConnections));
+                }
+            }
+            return;
         }
 
-        generateLegend();
+        ArrayList<Entity> levelEntities = entitiesById.get(level);
+        AdjacencyStore adjacencyStore = getAdjacencyStore(level, useGitConnections);
+        for (Entity entity : entities){
+            int entityId = entity.getId();
+            if (entityId < 0 || entityId >= adjacencyStore.getNumEntities() || levelEntities.get(entityId) != entity){
+                continue; // not stored in this graph generator, so it has no connections in the store
+            }
 
+            for (int position = adjacencyStore.getStart(entityId); position < adjacencyStore.getEnd(entityId); position++){
+                weightedVisitor.visit(entity, levelEntities.get(adjacencyStore.getTarget(position)), adjacencyStore.getWeight(position));
+            }
+        }
     }
 
     /**
-     * Generate a legend as a JavaScript data file
+     * Get the legend of a written graph
+     * @param level         the level of the graph
+     * @param overlay       the search highlights of the graph
+     * @param writtenGraph  the graph
+     * @return  the colour of each legend category, in the same format as the frontend node colours: rgb(r,g,b)
      */
-    private void generateLegend(){
-
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter("./codeviz_frontend/src/LegendItems.js"));
+    private LinkedHashMap<String, String> getLegendItems(EntityType level, GraphOverlay overlay, WrittenGraph writtenGraph) {
+        LinkedHashMap<String, String> legendItems = new LinkedHashMap<>();
 
-            writer.write("const legendItems = [\n");
-
-            if (containsSearchResult()){
-                String parentName = "Search Result";
-                if (!currentLevel.equals(EntityType.METHOD)){ // match naming conventions with level
-                    parentName = parentName.toLowerCase();
-                }
-                Color parentColor = Entity.getHighlightedColour();
-                // rgbColour should be the same format as the frontend node colours: rgb(r,g,b)
-                String rgbColour = "rgb(" + parentColor.getRed() + "," + parentColor.getGreen() + "," + parentColor.getBlue() + ")";
-                writer.write("\t{ category: '"+ parentName + "', color: '" + rgbColour + "' },\n");
+        if (containsSearchResult(level, overlay)){
+            String parentName = "Search Result";
+            if (!level.equals(EntityType.METHOD)){ // match naming conventions with level
+                parentName = parentName.toLowerCase();
             }
+            legendItems.put(parentName, toRgbString(Entity.getHighlightedColour()));
+        }
 
-            for (String parentName : legendColours.keySet()){
-                Color parentColor = legendColours.get(parentName);
-                if (parentColor.equals(Entity.getHighlightedColour())){ // highlighted colours are grouped together
-                    continue;
-                }
-                String rgbColour = "rgb(" + parentColor.getRed() + "," + parentColor.getGreen() + "," + parentColor.getBlue() + ")";
-                writer.write("\t{ category: '"+ parentName + "', color: '" + rgbColour + "' },\n");
+        for (String parentName : writtenGraph.legendColours.keySet()){
+            Color parentColor = writtenGraph.legendColours.get(parentName);
+            if (parentColor.equals(Entity.getHighlightedColour())){ // highlighted colours are grouped together
+                continue;
             }
-
-            writer.write("];\n\n");
-            writer.write("export default legendItems;");
-
-            writer.close();
-
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            legendItems.putIfAbsent(parentName, toRgbString(parentColor));
         }
+        return legendItems;
     }
 
+    private static String toRgbString(Color colour) {
+        return "rgb(" + colour.getRed() + "," + colour.getGreen() + "," + colour.getBlue() + ")";
+    }
 
     /**
      * Clear existing entities from the graph generator
@@ -386,6 +570,9 @@ public class GraphGenerator {
         packageEntities = new LinkedHashMap<>();
         classEntities = new LinkedHashMap<>();
         methodEntities = new LinkedHashMap<>();
+        clearSymbolTables();
+        classEntitiesByPath = new HashMap<>();
+        coChangeMatrix = null;
     }
 
     public void performSearch(String searchValue, boolean searchClasses, boolean searchMethods, boolean searchAttributes,
@@ -393,37 +580,52 @@ public class GraphGenerator {
         clearSearch(); // Clear previous search results
 
         searchValue = searchValue.replace(" ", ""); // remove any spaces
-        this.searchValue = searchValue;
+        for (Entity entity : findSearchResults(searchValue, searchClasses, searchMethods, searchAttributes,
+                searchParameters, searchReturnType, searchConnections, currentLevel)) {
+            entity.setHighlighted(true);
+        }
+    }
+
+    /**
+     * Find the entities matching a search, without highlighting them, so a search can be shown over a shared graph
+     * @param searchValue   the value to search for, without spaces
+     * @param currentLevel  the level the search is performed at
+     * @return              the matching entities
+     */
+    public Set<Entity> findSearchResults(String searchValue, boolean searchClasses, boolean searchMethods, boolean searchAttributes,
+                                         boolean searchParameters, boolean searchReturnType, boolean searchConnections, EntityType currentLevel) {
+        Set<Entity> searchResults = Collections.newSetFromMap(new IdentityHashMap<>());
 
         // base case - check the entity names
-        checkAllNames(searchValue, packageEntities);
-        checkAllNames(searchValue, classEntities);
-        checkAllNames(searchValue, methodEntities);
+        checkAllNames(searchValue, packageEntities, searchResults);
+        checkAllNames(searchValue, classEntities, searchResults);
+        checkAllNames(searchValue, methodEntities, searchResults);
 
         // Start the search based on entity levels and their attributes
         if (searchClasses || searchAttributes) {
-            performSearchOnEntities(searchValue, classEntities, searchAttributes, false, false, currentLevel);
+            performSearchOnEntities(searchValue, classEntities, searchAttributes, false, false, currentLevel, searchResults);
         }
         if (searchMethods || searchParameters || searchReturnType) {
-            performSearchOnEntities(searchValue, methodEntities, false, searchParameters, searchReturnType, currentLevel);
+            performSearchOnEntities(searchValue, methodEntities, false, searchParameters, searchReturnType, currentLevel, searchResults);
         }
         if (searchConnections) {
-            checkConnections(searchValue, getEntities(currentLevel));
+            checkConnections(searchValue, getEntities(currentLevel), searchResults);
         }
+        return searchResults;
     }
 
-    private void checkAllNames(String searchValue, LinkedHashMap<String, Entity> entities){
+    private void checkAllNames(String searchValue, LinkedHashMap<String, Entity> entities, Set<Entity> searchResults){
         for (Entity entity : entities.values()) {
             if (entity.nameContains(searchValue)){ // Simplified the condition
-                entity.setHighlighted(true);
+                searchResults.add(entity);
             }
         }
     }
 
-    private void checkConnections(String searchValue, LinkedHashMap<String, Entity> entities){
+    private void checkConnections(String searchValue, LinkedHashMap<String, Entity> entities, Set<Entity> searchResults){
         for (Entity entity : entities.values()) {
             if (entity.containsSearchValue(searchValue)){ // calling the superclass containsSearchValue will just check the connections
-                entity.setHighlighted(true);
+                searchResults.add(entity);
             }
         }
     }
@@ -432,7 +634,8 @@ public class GraphGenerator {
      * A helper method to perform search on a collection of entities
      */
     private void performSearchOnEntities(String searchValue, LinkedHashMap<String, Entity> entities,
-                                         boolean searchAttributes, boolean searchParameters, boolean searchReturnType, EntityType currentLevel) {
+                                         boolean searchAttributes, boolean searchParameters, boolean searchReturnType,
+                                         EntityType currentLevel, Set<Entity> searchResults) {
         for (Entity entity : entities.values()) {
             boolean isHighlighted = entity.nameContains(searchValue); // Simplified the condition
 
@@ -449,17 +652,17 @@ public class GraphGenerator {
                 }
             }
 
-            if (isHighlighted) { // only set highlighted true (they are all false initially)
-                entity.setHighlighted(true);
+            if (isHighlighted) {
+                searchResults.add(entity);
 
                 // in case the parent type is performing the search, set the parent's highlight as well
                 if (entity.getEntityType().equals(currentLevel)) {
                     if (entity instanceof ClassEntity classEntity) {
                         if (classEntity.getPackageEntity() != null) {
-                            classEntity.getPackageEntity().setHighlighted(true);
+                            searchResults.add(classEntity.getPackageEntity());
                         }
                     } else if (entity instanceof MethodEntity methodEntity) {
-                        methodEntity.getClassEntity().setHighlighted(true);
+                        searchResults.add(methodEntity.getClassEntity());
                     }
                 }
 
@@ -488,7 +691,6 @@ public class GraphGenerator {
      * @author Thanuja Sivaananthan
      */
     public void clearSearch() {
-        this.searchValue = "";
         clearSearch(packageEntities);
         clearSearch(classEntities);
         clearSearch(methodEntities);
@@ -564,7 +766,16 @@ public class GraphGenerator {
         }
     }
 
-    public String getEdgeDetails(String edgeName) {
+    /**
+     * Get the git history details of an edge of a graph generated earlier
+     * @param edgeName          name of the edge
+     * @param numCommits        the max number of shared commits to show, from the most recent
+     * @param edgeSources       the edge sources of the graph, from its GraphPayload
+     * @param edgeDestinations  the edge destinations of the graph, from its GraphPayload
+     * @param overlay           the git weights the graph was generated with
+     * @return                  the details, or an error message if the classes don't share a commit
+     */
+    public String getEdgeDetails(String edgeName, int numCommits, List<Entity> edgeSources, List<Entity> edgeDestinations, GraphOverlay overlay) {
         String[] newNodeNames = edgeName.split("_");
         if (newNodeNames.length != 3){
             System.out.println("INVALID NAME, " + edgeName + " LENGTH IS " + newNodeNames.length);
@@ -575,7 +786,7 @@ public class GraphGenerator {
 
         int edgeId = Integer.parseInt(edgeName);
 
-        if (edgeSources.size() < edgeId){
+        if (edgeSources.size() <= edgeId){
             System.out.println("INVALID EDGE ID, " + edgeId + " IS GREATER THAN " + edgeSources.size());
             return "";
         }
@@ -583,26 +794,51 @@ public class GraphGenerator {
         Entity edgeSource = edgeSources.get(edgeId);
         Entity edgeDestination = edgeDestinations.get(edgeId);
 
-        float weight = edgeSource.getGitConnectedEntitiesAndWeights().get(edgeDestination) / GitCommitReader.getWeightAdjuster();
+        float graphWeight = edgeSource.getGitConnectedEntitiesAndWeights().getOrDefault(edgeDestination, 0f);
+        float weight = overlay.getGitWeight(edgeSource, edgeDestination, graphWeight) / GitCommitReader.getWeightAdjuster();
 
         String edgeDetails = "Association Rule Mining Score: " + weight + "\n";
 
-        for (CommitInfo sourceStorage : edgeSource.getCommitInfos()){
-            if (edgeDestination.getCommitInfos().contains(sourceStorage)){
-                return edgeDetails + sourceStorage.toString();
+        if (coChangeMatrix != null && edgeSource instanceof ClassEntity sourceClass && edgeDestination instanceof ClassEntity destinationClass) {
+            // the most recent shared commits were kept for each pair when the commits were counted
+            List<CommitInfo> sharedCommits = coChangeMatrix.getSharedCommits(sourceClass, destinationClass, numCommits);
+            if (!sharedCommits.isEmpty()) {
+                edgeDetails += "Commits Changed Together: " + coChangeMatrix.getCount(sourceClass, destinationClass) + "\n";
+                StringJoiner commitDetails = new StringJoiner("\n\n");
+                sharedCommits.forEach(commitInfo -> commitDetails.add(commitInfo.toString()));
+                return edgeDetails + commitDetails;
             }
+            return "ERROR, this pair doesn't share a recent commit";
+        }
+
+        CommitInfo sharedCommit = findSharedCommit(edgeSource, edgeDestination);
+        if (sharedCommit != null) {
+            return edgeDetails + sharedCommit.toString();
         }
 
         return "ERROR, this pair doesn't share a recent commit";
     }
 
-    private boolean containsSearchResult(){
-        LinkedHashMap<String, Entity> entities = getEntities(currentLevel);
+    /**
+     * @return  the most recent commit stored in both entities, or null if they don't share a stored commit
+     */
+    private static CommitInfo findSharedCommit(Entity edgeSource, Entity edgeDestination) {
+        Set<CommitInfo> destinationCommits = new HashSet<>(edgeDestination.getCommitInfos());
+        for (CommitInfo sourceStorage : edgeSource.getCommitInfos()){
+            if (destinationCommits.contains(sourceStorage)){
+                return sourceStorage;
+            }
+        }
+        return null;
+    }
+
+    private boolean containsSearchResult(EntityType level, GraphOverlay overlay){
+        LinkedHashMap<String, Entity> entities = getEntities(level);
 
         boolean isFound = false;
 
         for (Entity entity : entities.values()){
-            if (entity.isHighlighted()) {
+            if (overlay.isHighlighted(entity)) {
                 isFound = true;
                 break;
             }
@@ -612,15 +848,18 @@ public class GraphGenerator {
 
     /**
      * Check if search value found for certain level
+     * @param level     the level of the graph
+     * @param overlay   the search of the graph
      * @return string message
      */
-    public String getSearchResult() {
+    public String getSearchResult(EntityType level, GraphOverlay overlay) {
+        String searchValue = overlay.getSearchValue();
 
         if (searchValue.isEmpty()){
             return "";
         }
 
-        boolean isFound = containsSearchResult();
+        boolean isFound = containsSearchResult(level, overlay);
 
         String result = TextAnnotate.BOLD.javaText;
 
@@ -634,39 +873,146 @@ public class GraphGenerator {
     }
 
     /**
-     * Generate a code graph at a specific level
+     * Write a code graph of the entities, all the entities of a level or the entities from getInnerEntities
+     */
+    private WrittenGraph writeGraph(LinkedHashMap<String, Entity> entities, EntityType level, boolean isWholeLevel,
+                                    boolean gitHistory, GraphOverlay overlay, GraphWriter writer) throws IOException {
+        if (!useGephiWorkspace) {
+            return writeEntities(entities, level, isWholeLevel, gitHistory, overlay, writer);
+        }
+        WrittenGraph writtenGraph = new WrittenGraph();
+        writeDirectedGraph(entitiesToNodes(entities, level, isWholeLevel, gitHistory, overlay, writtenGraph), writer);
+        return writtenGraph;
+    }
+
+    private String toGexfString(LinkedHashMap<String, Entity> entities, EntityType level, boolean isWholeLevel,
+                                boolean gitHistory, GraphOverlay overlay) {
+        StringWriter stringWriter = new StringWriter();
+        try (GexfWriter writer = new GexfWriter(stringWriter)) {
+            writeGraph(entities, level, isWholeLevel, gitHistory, overlay, writer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return stringWriter.toString();
+    }
+
+    private GraphPayload toCompactPayload(LinkedHashMap<String, Entity> entities, EntityType level, boolean isWholeLevel,
+                                          boolean gitHistory, GraphOverlay overlay) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        WrittenGraph writtenGraph;
+        LinkedHashMap<String, String> legend;
+        try (CompactGraphWriter writer = new CompactGraphWriter(outputStream)) {
+            writtenGraph = writeGraph(entities, level, isWholeLevel, gitHistory, overlay, writer);
+            legend = getLegendItems(level, overlay, writtenGraph);
+            writer.writeLegend(legend);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new GraphPayload(outputStream.toByteArray(), GraphPayload.COMPACT_MEDIA_TYPE, legend,
+                writtenGraph.edgeSources, writtenGraph.edgeDestinations);
+    }
+
+    /**
+     * Generate a code graph at a specific level in Gexf format, ex. to export it to Gephi
      *
      * @param newLevel   the level to generate the code graph at
-     * @param filename   the filename to save the gexf file as
      * @param gitHistory whether viewing git history graph or not
+     * @return           the graph in Gexf format
      */
-    public void directedGraphToGexf(EntityType newLevel, String filename, boolean gitHistory) {
-        DirectedGraph directedGraph = entitiesToNodes(newLevel, gitHistory);
-        if (directedGraph != null) {
-            directedGraphToGexf(directedGraph, filename);
-        }
+    public String directedGraphToGexfString(EntityType newLevel, boolean gitHistory) {
+        return directedGraphToGexfString(newLevel, gitHistory, GraphOverlay.NONE);
     }
 
     /**
-     * Generate a filtered code graph at a specific level
+     * Generate a code graph at a specific level in Gexf format, with a session's search and git weights
+     *
+     * @param newLevel   the level to generate the code graph at
+     * @param gitHistory whether viewing git history graph or not
+     * @param overlay    the search highlights and git weights to show
+     * @return           the graph in Gexf format
+     */
+    public String directedGraphToGexfString(EntityType newLevel, boolean gitHistory, GraphOverlay overlay) {
+        return toGexfString(getEntities(newLevel), newLevel, true, gitHistory, overlay);
+    }
+
+    /**
+     * Generate a filtered code graph at a specific level in Gexf format, ex. to export it to Gephi
      *
      * @param parentEntity the parent entity to filter the graph to
      * @param childLevel   the level to generate the code graph at
-     * @param filename     the filename to save the gexf file as
      * @param gitHistory   whether viewing git history graph or not
+     * @return             the graph in Gexf format, or null if the level pair is not supported
      */
-    public void directedGraphToGexf(Entity parentEntity, EntityType childLevel, String filename, boolean gitHistory) {
-        DirectedGraph directedGraph = entitiesToNodes(parentEntity, childLevel, gitHistory);
-        if (directedGraph != null) {
-            directedGraphToGexf(directedGraph, filename);
+    public String directedGraphToGexfString(Entity parentEntity, EntityType childLevel, boolean gitHistory) {
+        return directedGraphToGexfString(parentEntity, childLevel, gitHistory, GraphOverlay.NONE);
+    }
+
+    /**
+     * Generate a filtered code graph at a specific level in Gexf format, with a session's search and git weights
+     *
+     * @param parentEntity the parent entity to filter the graph to
+     * @param childLevel   the level to generate the code graph at
+     * @param gitHistory   whether viewing git history graph or not
+     * @param overlay      the search highlights and git weights to show
+     * @return             the graph in Gexf format, or null if the level pair is not supported
+     */
+    public String directedGraphToGexfString(Entity parentEntity, EntityType childLevel, boolean gitHistory, GraphOverlay overlay) {
+        LinkedHashMap<String, Entity> entities = getInnerEntities(parentEntity, childLevel);
+        if (entities == null) {
+            return null;
         }
+        return toGexfString(entities, childLevel, false, gitHistory, overlay);
+    }
+
+    /**
+     * Generate a code graph at a specific level in the compact format of CompactGraphWriter, which the frontend reads
+     *
+     * @param newLevel   the level to generate the code graph at
+     * @param gitHistory whether viewing git history graph or not
+     * @return           the graph and its legend
+     */
+    public GraphPayload directedGraphToCompactPayload(EntityType newLevel, boolean gitHistory) {
+        return directedGraphToCompactPayload(newLevel, gitHistory, GraphOverlay.NONE);
     }
 
-    public ClassEntity changeInterfaceToClassEntity(ClassOrInterfaceDeclaration classOrInterfaceDeclaration){
-        ClassEntity classEntity = null;
-        if (classEntities.containsKey(classOrInterfaceDeclaration.getNameAsString())){
-            classEntity = (ClassEntity) classEntities.get(classOrInterfaceDeclaration.getNameAsString());
+    /**
+     * Generate a code graph at a specific level in the compact format, with a session's search and git weights
+     *
+     * @param newLevel   the level to generate the code graph at
+     * @param gitHistory whether viewing git history graph or not
+     * @param overlay    the search highlights and git weights to show
+     * @return           the graph and its legend
+     */
+    public GraphPayload directedGraphToCompactPayload(EntityType newLevel, boolean gitHistory, GraphOverlay overlay) {
+        return toCompactPayload(getEntities(newLevel), newLevel, true, gitHistory, overlay);
+    }
+
+    /**
+     * Generate a filtered code graph at a specific level in the compact format of CompactGraphWriter
+     *
+     * @param parentEntity the parent entity to filter the graph to
+     * @param childLevel   the level to generate the code graph at
+     * @param gitHistory   whether viewing git history graph or not
+     * @return             the graph and its legend, or null if the level pair is not supported
+     */
+    public GraphPayload directedGraphToCompactPayload(Entity parentEntity, EntityType childLevel, boolean gitHistory) {
+        return directedGraphToCompactPayload(parentEntity, childLevel, gitHistory, GraphOverlay.NONE);
+    }
+
+    /**
+     * Generate a filtered code graph at a specific level in the compact format, with a session's search and git weights
+     *
+     * @param parentEntity the parent entity to filter the graph to
+     * @param childLevel   the level to generate the code graph at
+     * @param gitHistory   whether viewing git history graph or not
+     * @param overlay      the search highlights and git weights to show
+     * @return             the graph and its legend, or null if the level pair is not supported
+     */
+    public GraphPayload directedGraphToCompactPayload(Entity parentEntity, EntityType childLevel, boolean gitHistory, GraphOverlay overlay) {
+        LinkedHashMap<String, Entity> entities = getInnerEntities(parentEntity, childLevel);
+        if (entities == null) {
+            return null;
         }
-        return classEntity;
+        return toCompactPayload(entities, childLevel, false, gitHistory, overlay);
     }
 }
@@ -0,0 +1,67 @@
+package codeViz;
+
+import codeViz.entity.Entity;
+
+import java.awt.Color;
+import java.util.Set;
+
+/**
+ * What a session shows on top of the analyzed graph: its search highlights and its git history weighting
+ * The overlay is applied as a graph is written, so the shared graph is never changed by a session's view
+ */
+public class GraphOverlay {
+
+    /**
+     * Weights the git history connections, ex. by a window of recent commits
+     */
+    public interface GitWeights {
+        /**
+         * @param entity            the source of the connection
+         * @param connectedEntity   the destination of the connection
+         * @param weight            the weight of the connection in the graph
+         * @return                  the weight to show, 0 to leave out the connection
+         */
+        float getWeight(Entity entity, Entity connectedEntity, float weight);
+    }
+
+    // the graph as it is, with the highlights and git weights set on its entities
+    public static final GraphOverlay NONE = new GraphOverlay(null, "", null);
+
+    private final Set<Entity> highlightedEntities; // null to use the highlights of the entities
+    private final String searchValue;
+    private final GitWeights gitWeights; // null to use the weights of the git connections
+
+    /**
+     * Create an overlay
+     * @param highlightedEntities   the search results, or null to use the highlights of the entities
+     * @param searchValue           the value searched for, empty if not searching
+     * @param gitWeights            the weights of the git history connections, or null to use their weights in the graph
+     */
+    public GraphOverlay(Set<Entity> highlightedEntities, String searchValue, GitWeights gitWeights) {
+        this.highlightedEntities = highlightedEntities;
+        this.searchValue = searchValue;
+        this.gitWeights = gitWeights;
+    }
+
+    public boolean isHighlighted(Entity entity) {
+        return (highlightedEntities == null) ? entity.isHighlighted() : highlightedEntities.contains(entity);
+    }
+
+    /**
+     * @return  the colour of the entity's node, being highlighted takes precedence over the parent
+     */
+    public Color getColour(Entity entity) {
+        return isHighlighted(entity) ? Entity.getHighlightedColour() : entity.getParentColour();
+    }
+
+    /**
+     * @return  the weight of a git history connection, 0 if it is not shown
+     */
+    public float getGitWeight(Entity entity, Entity connectedEntity, float weight) {
+        return (gitWeights == null) ? weight : gitWeights.getWeight(entity, connectedEntity, weight);
+    }
+
+    public String getSearchValue() {
+        return searchValue;
+    }
+}
@@ -0,0 +1,128 @@
+package codeViz;
+
+import codeViz.entity.Entity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A generated graph, kept in memory and sent as the response of the graph endpoint
+ * The body is in the compact binary format of CompactGraphWriter, which includes the legend
+ * The body is compressed and hashed once when the graph is generated, so each request only sends bytes,
+ * and a request with the ETag of an unchanged graph doesn't need a body at all
+ * The entities of each edge are kept with the graph, as the edge ids the frontend sends are positions in these lists
+ */
+public class GraphPayload {
+
+    public static final String COMPACT_MEDIA_TYPE = "application/octet-stream";
+
+    private final byte[] body;
+    private final String mediaType;
+    private final byte[] gzippedBody;
+    private final String eTag;
+    private final LinkedHashMap<String, String> legend;
+    private final List<Entity> edgeSources;
+    private final List<Entity> edgeDestinations;
+
+    /**
+     * Create the payload of a graph that is already encoded
+     * @param body              the encoded graph
+     * @param mediaType         the media type of the body
+     * @param legend            the colour of each legend category, as rgb(r,g,b)
+     * @param edgeSources       the source of each edge of the graph, by edge id
+     * @param edgeDestinations  the destination of each edge of the graph, by edge id
+     */
+    public GraphPayload(byte[] body, String mediaType, LinkedHashMap<String, String> legend,
+                        List<Entity> edgeSources, List<Entity> edgeDestinations) {
+        this.body = body;
+        this.mediaType = mediaType;
+        this.legend = legend;
+        this.edgeSources = edgeSources;
+        this.edgeDestinations = edgeDestinations;
+        this.gzippedBody = gzip(body);
+        this.eTag = "\"" + hash(body) + "\"";
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 8 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return  the media type of the body, ex. COMPACT_MEDIA_TYPE
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return  the body, compressed with gzip
+     */
+    public byte[] getGzippedBody() {
+        return gzippedBody;
+    }
+
+    /**
+     * @return  a strong ETag of the body, the same for graphs with the same body
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @param ifNoneMatch   the If-None-Match header of a request, can be null
+     * @return              whether the client already has this graph
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String requestETag : ifNoneMatch.split(",")) {
+            requestETag = requestETag.trim();
+            if (requestETag.startsWith("W/")) {
+                requestETag = requestETag.substring(2); // a weak comparison is fine for a GET
+            }
+            if (requestETag.equals(eTag) || requestETag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public LinkedHashMap<String, String> getLegend() {
+        return legend;
+    }
+
+    public List<Entity> getEdgeSources() {
+        return edgeSources;
+    }
+
+    public List<Entity> getEdgeDestinations() {
+        return edgeDestinations;
+    }
+}
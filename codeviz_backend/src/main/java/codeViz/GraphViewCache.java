@@ -0,0 +1,148 @@
+package codeViz;
+
+import codeViz.entity.Entity;
+import codeViz.entity.EntityType;
+import codeViz.gitHistory.GitHistoryWeighting;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The graphs generated for an analyzed repository, so viewing a graph again doesn't generate it again
+ * A graph is found by everything it is generated from: the version of the graph, the level, the parent node,
+ * whether it shows the git history, the git history weighting and the search; each analysis has its own context,
+ * so its own cache
+ * The least recently used graphs are removed once the graphs use more than the maximum number of bytes
+ */
+class GraphViewCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, View> views; // in least recently used order
+    private long numBytes;
+
+    GraphViewCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.views = new LinkedHashMap<>(16, 0.75f, true);
+        this.numBytes = 0;
+    }
+
+    /**
+     * What a graph is generated from
+     */
+    static class Key {
+        private final int graphVersion; // changes when the context's graph is updated in place
+        private final EntityType level;
+        private final Entity parentEntity; // null if not an inner graph
+        private final boolean gitHistory;
+        private final GitHistoryWeighting gitHistoryWeighting;
+        private final Map<String, String> searchRequest; // empty if not searching
+        private final EntityType searchLevel; // null if not searching
+
+        Key(int graphVersion, EntityType level, Entity parentEntity, boolean gitHistory, GitHistoryWeighting gitHistoryWeighting,
+            Map<String, String> searchRequest, EntityType searchLevel) {
+            this.graphVersion = graphVersion;
+            this.level = level;
+            this.parentEntity = parentEntity;
+            this.gitHistory = gitHistory;
+            this.gitHistoryWeighting = gitHistoryWeighting;
+            this.searchRequest = searchRequest;
+            this.searchLevel = searchRequest.isEmpty() ? null : searchLevel; // the level of no search doesn't matter
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) object;
+            return graphVersion == key.graphVersion && level == key.level && parentEntity == key.parentEntity && gitHistory == key.gitHistory
+                    && gitHistoryWeighting.equals(key.gitHistoryWeighting) && searchRequest.equals(key.searchRequest)
+                    && searchLevel == key.searchLevel;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(graphVersion, level, System.identityHashCode(parentEntity), gitHistory, gitHistoryWeighting,
+                    searchRequest, searchLevel);
+        }
+    }
+
+    /**
+     * A generated graph, with the result of the search it shows
+     */
+    static class View {
+        private final GraphPayload graphPayload;
+        private final String searchResult;
+
+        View(GraphPayload graphPayload, String searchResult) {
+            this.graphPayload = graphPayload;
+            this.searchResult = searchResult;
+        }
+
+        GraphPayload getGraphPayload() {
+            return graphPayload;
+        }
+
+        String getSearchResult() {
+            return searchResult;
+        }
+
+        /**
+         * @return  the approximate number of bytes used by the view, the entities are shared with the graph
+         */
+        long getNumBytes() {
+            return graphPayload.getBody().length + graphPayload.getGzippedBody().length
+                    + 8L * (graphPayload.getEdgeSources().size() + graphPayload.getEdgeDestinations().size());
+        }
+    }
+
+    /**
+     * @return  the view, or null if it isn't cached
+     */
+    synchronized View get(Key key) {
+        return views.get(key);
+    }
+
+    /**
+     * Cache a view, removing the least recently used views if the cache is too big
+     * A view bigger than the whole cache is not kept
+     */
+    synchronized void put(Key key, View view) {
+        long viewBytes = view.getNumBytes();
+        if (viewBytes > maxBytes) {
+            return;
+        }
+
+        View replacedView = views.put(key, view);
+        if (replacedView != null) {
+            numBytes -= replacedView.getNumBytes();
+        }
+        numBytes += viewBytes;
+
+        Iterator<View> iterator = views.values().iterator();
+        while (numBytes > maxBytes && iterator.hasNext()) {
+            View leastRecentlyUsed = iterator.next();
+            if (leastRecentlyUsed != view) {
+                numBytes -= leastRecentlyUsed.getNumBytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        views.clear();
+        numBytes = 0;
+    }
+
+    synchronized int getNumViews() {
+        return views.size();
+    }
+
+    synchronized long getNumBytes() {
+        return numBytes;
+    }
+}
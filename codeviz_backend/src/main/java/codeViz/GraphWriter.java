@@ -0,0 +1,16 @@
+package codeViz;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a graph one node or edge at a time, in the format of the implementation
+ * Nodes must all be written before the first edge, and an edge's nodes must be written before it
+ */
+interface GraphWriter extends Closeable {
+
+    void writeNode(String id, String label, float size, float x, float y, Color colour) throws IOException;
+
+    void writeEdge(String sourceId, String targetId, double weight) throws IOException;
+}
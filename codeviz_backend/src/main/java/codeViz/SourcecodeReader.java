@@ -1,27 +1,24 @@
 package codeViz;
 
 import codeViz.codeComplexity.ClassComplexityDetails;
-import codeViz.codeComplexity.CyclomaticComplexity.CyclomaticComplexityVisitor;
+import codeViz.codeSummary.*;
 import codeViz.entity.*;
 import com.github.javaparser.*;
 
-import com.github.javaparser.ast.body.*;
-import com.github.javaparser.ast.expr.Expression;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.expr.VariableDeclarationExpr;
-import com.github.javaparser.ast.type.ClassOrInterfaceType;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.springframework.stereotype.Controller;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
@@ -38,11 +35,98 @@ public class SourcecodeReader {
 
     private final GraphGenerator graphGenerator;
 
-    private List<byte[]> entryContentsList;
+    // summaries of the parsed files, keyed by the file path within the repository (in zip order)
+    private LinkedHashMap<String, CompilationUnitSummary> compilationUnitSummaries;
+
+    // the git revision the summaries were last updated to, null if unknown (ex. read from a GitHub zip)
+    private String analyzedRevision;
+
+    // number of threads used to parse the .java files, 1 parses everything in order on a single thread
+    private int parsingParallelism;
+
+    // JavaParser is not thread-safe, so each parsing thread keeps its own parser
+    private static final ThreadLocal<JavaParser> JAVA_PARSER = ThreadLocal.withInitial(JavaParser::new);
+
+    // how many files each parsing thread can have waiting before the zip stops being read
+    private static final int MAX_PENDING_FILES_PER_THREAD = 4;
+
+    // summaries of previously parsed files, null if files are always parsed
+    private final CompilationUnitSummaryCache summaryCache;
+
+    // progress of the analysis job using this reader, updated per file
+    private AnalysisProgress analysisProgress;
+
+    // what the entities of each file depend on, so an update only creates and resolves the files it affects
+    private HashMap<String, Set<String>> referencedNamesByPath; // the names each file refers to classes by
+    private HashMap<String, Set<String>> pathsByReferencedName;
+    private HashMap<String, Integer> numClassDeclarations; // the number of files declaring each class key
+    private HashMap<String, Integer> numFilesByPackage; // the number of files declaring types in each package or its subpackages
+    private HashMap<String, HashMap<ClassEntity, Integer>> classComplexitiesByPath; // the cyclomatic complexity each file added to each class
+    private HashMap<ClassEntity, Integer> numDeclaredConnections; // the number of connections of each class before its methods' connections
+
+    // splits a type name or expression into the simple names it uses, ex. "Map<String, shop.Item>" into Map, String, shop, Item
+    private static final Pattern NAME_SEPARATOR = Pattern.compile("[^\\p{javaJavaIdentifierPart}]+");
+
+    /**
+     * The files changed between two revisions, parsed but not yet applied to the analyzed codebase
+     * Parsing does not change the reader, so it can run while the current graph is still being read
+     */
+    public static class CodebaseUpdate {
+        private final Set<String> removedPaths;
+        private final LinkedHashMap<String, CompilationUnitSummary> parsedFiles; // null if the file is no longer a valid .java file
+        private final String newRevision;
+
+        private CodebaseUpdate(Set<String> removedPaths, LinkedHashMap<String, CompilationUnitSummary> parsedFiles, String newRevision) {
+            this.removedPaths = removedPaths;
+            this.parsedFiles = parsedFiles;
+            this.newRevision = newRevision;
+        }
+
+        public String getNewRevision() {
+            return newRevision;
+        }
+    }
 
     public SourcecodeReader(){
+        this(Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Create a SourcecodeReader
+     * @param parsingParallelism    number of threads used to parse the .java files
+     * @param summaryCache          cache of previously parsed files, or null to parse every file
+     */
+    public SourcecodeReader(int parsingParallelism, CompilationUnitSummaryCache summaryCache){
         this.graphGenerator = new GraphGenerator(); // only set this once (clear entities each time a new graph is made)
-        this.entryContentsList = new ArrayList<>();
+        this.compilationUnitSummaries = new LinkedHashMap<>();
+        this.analyzedRevision = null;
+        this.summaryCache = summaryCache;
+        this.analysisProgress = AnalysisProgress.NONE;
+        clearDependencies();
+        setParsingParallelism(parsingParallelism);
+    }
+
+    public AnalysisProgress getAnalysisProgress() {
+        return analysisProgress;
+    }
+
+    /**
+     * Set the progress to report to, and to check for cancellation between files
+     * @param analysisProgress  the progress, or AnalysisProgress.NONE if not run as a job
+     */
+    public void setAnalysisProgress(AnalysisProgress analysisProgress) {
+        this.analysisProgress = analysisProgress;
+    }
+
+    public int getParsingParallelism() {
+        return parsingParallelism;
+    }
+
+    public void setParsingParallelism(int parsingParallelism) {
+        if (parsingParallelism < 1) {
+            throw new IllegalArgumentException("Parsing parallelism must be at least 1, was " + parsingParallelism);
+        }
+        this.parsingParallelism = parsingParallelism;
     }
 
 
@@ -53,20 +137,24 @@ public class SourcecodeReader {
         } else if (repoURL.endsWith(".git")){
             errorMessage = "ERROR, do not use the .git URL";
         } else {
-            // check the repo URL, if it's public
-            if (retrieveGitHubCodebase(repoURL) == null){
-                errorMessage = "ERROR, only public Java projects are supported";
+            // check the repo URL, if it's public (only the response status is needed, the archive is not downloaded)
+            try (InputStream codebase = openGitHubCodebase(repoURL)) {
+                if (codebase == null){
+                    errorMessage = "ERROR, only public Java projects are supported";
+                }
+            } catch (IOException e) {
+                System.out.println("Error closing codebase" + e.getMessage());
             }
         }
 
         return errorMessage;
     }
 
-    private byte[] retrieveGitHubCodebase(String repoUrl){
+    private InputStream openGitHubCodebase(String repoUrl){
         // Assuming main/master branch
         String[] branchNames = {"main", "master"};
         for (String branchName : branchNames) {
-            byte [] codebase = retrieveGitHubCodebase(repoUrl, branchName);
+            InputStream codebase = openGitHubCodebase(repoUrl, branchName);
             if (codebase != null) { // return if proper branch was found
                 return codebase;
             }
@@ -74,75 +162,160 @@ public class SourcecodeReader {
         return null;
     }
 
-    private byte[] retrieveGitHubCodebase(String repoUrl, String branchName) {
-        HttpClient httpClient = HttpClients.createDefault();
+    /**
+     * Open the zip archive of a GitHub branch as a stream, so it can be read while it is downloading
+     * Closing the stream releases the connection without reading the rest of the archive
+     * @param repoUrl       the GitHub repo URL
+     * @param branchName    the branch to download
+     * @return              the archive stream, or null if it could not be retrieved
+     */
+    private InputStream openGitHubCodebase(String repoUrl, String branchName) {
+        CloseableHttpClient httpClient = HttpClients.createDefault();
         HttpGet request = new HttpGet(repoUrl + "/archive/" + branchName + ".zip");
 
         try {
-            HttpResponse response = httpClient.execute(request);
+            CloseableHttpResponse response = httpClient.execute(request);
 
             // Check the HTTP status code
             int statusCode = response.getStatusLine().getStatusCode();
             if (statusCode != HttpStatus.SC_OK) {
                 //throw new IOException("Failed to retrieve codebase. HTTP Status Code: " + statusCode);
                 System.out.println("Failed to retrieve codebase. HTTP Status Code: " + statusCode);
+                response.close();
+                httpClient.close();
                 return null;
             }
 
-            // Read the response content as a byte array
+            // Stream the response content instead of reading it into a byte array
             HttpEntity entity = response.getEntity();
-            return entity.getContent().readAllBytes();
+            return new FilterInputStream(new BufferedInputStream(entity.getContent())) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        response.close();
+                    } finally {
+                        httpClient.close();
+                    }
+                }
+            };
         } catch (IOException e) {
             //e.printStackTrace();
             // Log or throw a custom exception with more details
             //throw new RuntimeException("Error retrieving codebase", e);
             System.out.println("Error retrieving codebase" + e.getMessage());
+            try {
+                httpClient.close();
+            } catch (IOException closeException) {
+                System.out.println("Error closing HTTP client" + closeException.getMessage());
+            }
             return null;
         }
     }
 
-    private boolean parseJavaFilesFromZip(InputStream byteArrayInputStream) throws IOException {
+    /**
+     * Read the .java files from the zip and parse them on the parsing pool
+     * Files are parsed in parallel, but their entities are created on this thread in zip order,
+     * so the entity keys and insertion order are the same as a sequential run
+     * Only a few files are waiting to be parsed at a time, so memory use does not grow with the archive size
+     * @param zipContents               the zip contents, read as a stream
+     * @return                          true if the zip contains at least one .java file
+     * @throws IOException              if the zip could not be read
+     */
+    private boolean parseJavaFilesFromZip(InputStream zipContents) throws IOException {
         boolean isValidJavaProject = false;
-        Set<PackageEntity> packages = new HashSet<>();
-        JavaParser javaParser = new JavaParser();
+        LinkedHashMap<String, ForkJoinTask<CompilationUnitSummary>> parseTasks = new LinkedHashMap<>();
 
-        ZipInputStream zipInputStream = new ZipInputStream(byteArrayInputStream);
+        ForkJoinPool parsingPool = new ForkJoinPool(parsingParallelism);
+        try {
+            ZipInputStream zipInputStream = new ZipInputStream(zipContents);
+
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                analysisProgress.checkCancelled();
+                if (!entry.isDirectory() && entry.getName().endsWith(".java")) {
+                    isValidJavaProject = true;
+                    byte[] entryContent = zipInputStream.readAllBytes();
+
+                    if (entryContent.length > 0) {
+                        parseTasks.put(getRepositoryPath(entry.getName()), parsingPool.submit(() -> parseCompilationUnit(entryContent)));
+                        // don't read ahead too far, merge the oldest file if too many are pending
+                        if (parseTasks.size() > MAX_PENDING_FILES_PER_THREAD * parsingParallelism) {
+                            Map.Entry<String, ForkJoinTask<CompilationUnitSummary>> oldestTask = parseTasks.pollFirstEntry();
+                            mergeParsedFile(oldestTask.getKey(), oldestTask.getValue());
+                        }
+                    }
+                    zipInputStream.closeEntry();
+                }
+            }
 
-        ZipEntry entry;
-        while ((entry = zipInputStream.getNextEntry()) != null) {
-            if (!entry.isDirectory() && entry.getName().endsWith(".java")) {
-                isValidJavaProject = true;
-                byte[] entryContent = zipInputStream.readAllBytes();
+            // merge the remaining results in zip order
+            parseTasks.forEach(this::mergeParsedFile);
+        } finally {
+            parsingPool.shutdownNow();
+        }
+        return isValidJavaProject;
+    }
 
-                if (entryContent.length > 0) {
-                    entryContentsList.add(entryContent);
+    private void mergeParsedFile(String path, ForkJoinTask<CompilationUnitSummary> parseTask) {
+        CompilationUnitSummary compilationUnitSummary = parseTask.join();
+        analysisProgress.advance();
+        if (compilationUnitSummary != null) {
+            compilationUnitSummaries.put(path, compilationUnitSummary);
+        } else {
+            compilationUnitSummaries.remove(path); // could have been valid in a previous revision
+        }
+    }
 
-                    String code = new String(entryContent, StandardCharsets.UTF_8);
-                    ParseResult<CompilationUnit> parseResult = javaParser.parse(new StringReader(code));
+    /**
+     * Get the path of a zip entry within the repository
+     * GitHub archives put every file in a top-level folder named after the repository and branch
+     * @param entryName     name of the zip entry, ex. CodeViz-main/src/Main.java
+     * @return              the path within the repository, ex. src/Main.java
+     */
+    private static String getRepositoryPath(String entryName) {
+        return entryName.substring(entryName.indexOf('/') + 1);
+    }
 
-                    if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
-                        CompilationUnit compilationUnit = parseResult.getResult().get();
-                        packages.addAll(createEntities(compilationUnit));
-                    } else {
-                        // Handle parsing errors
-                        parseResult.getProblems().forEach(problem -> {
-                            System.err.println("Parsing error: " + problem.getMessage());
-                        });
-                    }
-                }
-                zipInputStream.closeEntry();
+    /**
+     * Parse a .java file once, and keep only the summary that the later phases need
+     * If the same file contents were parsed before, the cached summary is used instead
+     * Safe to call from multiple threads, nothing is added to the graph here
+     * @param entryContent      contents of the .java file
+     * @return                  the summary, or null if the file could not be parsed
+     */
+    private CompilationUnitSummary parseCompilationUnit(byte[] entryContent) {
+        String hash = null;
+        if (summaryCache != null) {
+            hash = CompilationUnitSummaryCache.hash(entryContent);
+            CompilationUnitSummary cachedSummary = summaryCache.get(hash);
+            if (cachedSummary != null) {
+                return cachedSummary;
             }
         }
-        return isValidJavaProject;
+
+        String code = new String(entryContent, StandardCharsets.UTF_8);
+        ParseResult<CompilationUnit> parseResult = JAVA_PARSER.get().parse(new StringReader(code));
+
+        if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
+            CompilationUnitSummary compilationUnitSummary = CodeSummaryExtractor.summarize(parseResult.getResult().get());
+            if (summaryCache != null) {
+                summaryCache.put(hash, compilationUnitSummary);
+            }
+            return compilationUnitSummary;
+        } else {
+            // Handle parsing errors
+            parseResult.getProblems().forEach(problem -> {
+                System.err.println("Parsing error: " + problem.getMessage());
+            });
+            return null;
+        }
     }
 
-    private void setLinesOfCode(Optional<Position> startPosition, Optional<Position> endPosition, Entity entity){
+    private void setLinesOfCode(int beginLine, int endLine, Entity entity){
         // Complexity Metrics: Lines of Code
         // includes blank lines and comments (not JavaDoc)
-        if (startPosition.isPresent() && endPosition.isPresent()){
-            int startLine = startPosition.get().line;
-            int endLine = endPosition.get().line;
-            int linesOfCode = endLine - startLine + 1;
+        if (beginLine > 0 && endLine > 0){
+            int linesOfCode = endLine - beginLine + 1;
 
             System.out.println(entity.getEntityType().getName() + ": " + entity.getName() + ", Lines of Code: " + linesOfCode);
             entity.getComplexityDetails().setLinesOfCode(linesOfCode);
@@ -153,13 +326,14 @@ public class SourcecodeReader {
     /**
      * Get the connected class entity for a given name
      * If a valid entity, will add a connection
+     * @param typeScope                 type names visible in the class's compilation unit
      * @param classEntity               class that has the connection destination
      * @param connectedClassName        class name of the connection source
      * @return                          the connected class (or dummy class if not valid)
      */
-    private ClassEntity getAndStoreConnectedClassEntity(ClassEntity classEntity, String connectedClassName) {
+    private ClassEntity getAndStoreConnectedClassEntity(SymbolIndex.TypeScope typeScope, ClassEntity classEntity, String connectedClassName) {
         // TODO - handle List/Set types that hold another class type
-        ClassEntity connectedClassEntity = (ClassEntity) graphGenerator.getClassEntities().get(connectedClassName);
+        ClassEntity connectedClassEntity = typeScope.resolve(connectedClassName);
 
         if (connectedClassEntity == null){
             //String[] connectedClassNames = connectedClassName.split("\\.");
@@ -176,69 +350,57 @@ public class SourcecodeReader {
         return connectedClassEntity;
     }
 
-    private void createAndStoreMethodEntity(String methodName, ClassEntity classEntity, Optional<Position> begin , Optional<Position> end){
-        MethodEntity methodEntity = new MethodEntity(methodName, classEntity);
-        methodName = classEntity.getName() + "." + methodEntity.getName();
-        boolean methodSuccess = graphGenerator.addEntity(methodName, methodEntity);
+    private void createAndStoreMethodEntity(MethodSummary methodSummary, ClassEntity classEntity){
+        MethodEntity methodEntity = new MethodEntity(methodSummary.getName(), classEntity);
+        boolean methodSuccess = graphGenerator.addEntity(methodEntity);
 
-        setLinesOfCode(begin, end, methodEntity);
+        setLinesOfCode(methodSummary.getBeginLine(), methodSummary.getEndLine(), methodEntity);
     }
 
-    private void createAndStoreClassEntity(PackageEntity packageEntity, TypeDeclaration classDeclaration,
-                                           List<ConstructorDeclaration> constructorDeclarations,
-                                           List<MethodDeclaration> methodDeclarations,
-                                           Optional<Position> begin , Optional<Position> end){
-        // Add class entity to the package
-        ClassEntity classEntity = new ClassEntity(classDeclaration.getNameAsString(), packageEntity);
-        boolean classSuccess = graphGenerator.addEntity(classEntity.getName(), classEntity);
-        packageEntity.addClass(classEntity);
+    private void createAndStoreClassEntity(PackageEntity packageEntity, TypeSummary typeSummary, Map<String, ClassEntity> keptClasses){
+        // Add class entity to the package, unless the class was kept from the previous revision
+        ClassEntity keptClassEntity = keptClasses.get(getClassKey(packageEntity.getKey(), typeSummary.getName()));
+        ClassEntity classEntity = (keptClassEntity != null) ? keptClassEntity : new ClassEntity(typeSummary.getName(), packageEntity); // adds itself to the package
+        if (keptClassEntity == null) {
+            boolean classSuccess = graphGenerator.addEntity(classEntity);
+        }
 
-        constructorDeclarations.forEach(constructorDeclaration -> {
-            System.out.println("Constructor:" + constructorDeclaration.getNameAsString());
-            createAndStoreMethodEntity(constructorDeclaration.getNameAsString(), classEntity,
-                    constructorDeclaration.getBegin(), constructorDeclaration.getEnd());
+        typeSummary.getConstructors().forEach(constructorSummary -> {
+            System.out.println("Constructor:" + constructorSummary.getName());
+            createAndStoreMethodEntity(constructorSummary, classEntity);
         });
 
-        methodDeclarations.forEach(methodDeclaration -> {
-            createAndStoreMethodEntity(methodDeclaration.getNameAsString(), classEntity,
-                    methodDeclaration.getBegin(), methodDeclaration.getEnd());
+        typeSummary.getMethods().forEach(methodSummary -> {
+            createAndStoreMethodEntity(methodSummary, classEntity);
         });
 
-        setLinesOfCode(begin, end, classEntity);
+        setLinesOfCode(typeSummary.getBeginLine(), typeSummary.getEndLine(), classEntity);
     }
 
-    private Set<PackageEntity> createEntities(CompilationUnit compilationUnit) {
+    /**
+     * Create the package, class and method entities of a file
+     * @param compilationUnitSummary    summary of the file
+     * @param keptClasses               classes kept from the previous revision by key, reused instead of creating them again
+     * @return                          the packages that were created
+     */
+    private Set<PackageEntity> createEntities(CompilationUnitSummary compilationUnitSummary, Map<String, ClassEntity> keptClasses) {
         Set<PackageEntity> packages = new HashSet<>();
-        ConnectionVisitor connectionVisitor = new ConnectionVisitor();
-        compilationUnit.accept(connectionVisitor, null);
-
-        // Visit the compilation unit
-        connectionVisitor.visit(compilationUnit, null);
-
-        // Get the collected information
-        Set<String> connectedClasses = connectionVisitor.getClasses();
-        Set<String> fieldTypes = connectionVisitor.getFieldTypes();
-        Set<String> methodInvocations = connectionVisitor.getMethodInvocations();
 
         // Get the package name from the compilation unit
-        String basePackageName = compilationUnit.getPackageDeclaration()
-                .map(pd -> pd.getName().toString())
-                .orElse("");
+        String basePackageName = compilationUnitSummary.getPackageName();
 
         // Iterate over all types (classes, interfaces, enums, etc.) in the compilation unit
-        compilationUnit.getTypes().forEach(type -> {
+        compilationUnitSummary.getTypes().forEach(typeSummary -> {
             // Get or create the package entity
-            PackageEntity packageEntity = getOrCreatePackage(packages, basePackageName, connectedClasses);
+            PackageEntity packageEntity = getOrCreatePackage(packages, basePackageName);
 
-            if (type instanceof ClassOrInterfaceDeclaration classDeclaration) {
-                createAndStoreClassEntity(packageEntity, classDeclaration, classDeclaration.getConstructors(), classDeclaration.getMethods(),
-                        classDeclaration.getBegin(), classDeclaration.getEnd());
-                System.out.println("Class: " + classDeclaration.getNameAsString());
+            if (typeSummary.getKind().equals(TypeKind.CLASS_OR_INTERFACE)) {
+                createAndStoreClassEntity(packageEntity, typeSummary, keptClasses);
+                System.out.println("Class: " + typeSummary.getName());
 
-            } else if (type instanceof EnumDeclaration enumDeclaration) {
-                createAndStoreClassEntity(packageEntity, enumDeclaration, enumDeclaration.getConstructors(), enumDeclaration.getMethods(),
-                        enumDeclaration.getBegin(), enumDeclaration.getEnd());
-                System.out.println("Enum: " + enumDeclaration.getNameAsString());
+            } else if (typeSummary.getKind().equals(TypeKind.ENUM)) {
+                createAndStoreClassEntity(packageEntity, typeSummary, keptClasses);
+                System.out.println("Enum: " + typeSummary.getName());
             }
         });
 
@@ -257,475 +419,735 @@ public class SourcecodeReader {
 
     }
 
-    private void createClassMethodInnerVariables() {
-        JavaParser javaParser = new JavaParser();
+    private void createClassMethodInnerVariables(SymbolIndex symbolIndex, Collection<CompilationUnitSummary> resolvedSummaries) {
+        for (CompilationUnitSummary compilationUnitSummary : resolvedSummaries) {
+            SymbolIndex.TypeScope typeScope = symbolIndex.getTypeScope(compilationUnitSummary);
+            // after storing all classes, go back and add other class types: fields, arguments, return type
+            compilationUnitSummary.getTypes().forEach(typeSummary -> {
+                if (!typeSummary.getKind().equals(TypeKind.OTHER)) { // classes, interfaces and enums
+                    createClassInnerVariables(typeScope, typeSummary);
+                }
+            });
+        }
+    }
 
-        HashMap<ClassEntity, Set<Entity>> connectedClasses = new HashMap<>();
-        Set<ClassEntity> classEntityList = new HashSet<>();
-
-        for (byte[] entryContent : entryContentsList) {
-            String code = new String(entryContent, StandardCharsets.UTF_8);
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(new StringReader(code));
-
-            if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
-                CompilationUnit compilationUnit = parseResult.getResult().get();
-                ConnectionVisitor connectionVisitor = new ConnectionVisitor();
-                compilationUnit.accept(connectionVisitor, null);
-                connectionVisitor.visit(compilationUnit, null);
-
-                // after storing all classes, go back and add other class types: fields, arguments, return type
-                compilationUnit.getTypes().forEach(type -> {
-                    if (type instanceof ClassOrInterfaceDeclaration classDeclaration) {
-                        ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(classDeclaration.getNameAsString());
-
-
-                        if (classDeclaration.getExtendedTypes().size() == 1) {
-                            String superClassName = classDeclaration.getExtendedTypes().get(0).getNameAsString();
-                            ClassEntity superClassEntity = (ClassEntity) graphGenerator.getClassEntities().get(superClassName);
-                            if (superClassEntity != null){
-                                classEntity.setSuperClass(superClassEntity);
-                                classEntity.addConnectedEntity(superClassEntity);
-                            } else {
-                                System.out.println("ERROR, couldn't connect superclass: " + superClassName);
-                            }
-                        }
+    private void createClassInnerVariables(SymbolIndex.TypeScope typeScope, TypeSummary typeSummary) {
+        ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(typeScope.getKey(typeSummary.getName()));
 
-                        System.out.println("CLASS " + classDeclaration.getNameAsString() + " FIELDS: " + classDeclaration.getFields());
-                        classDeclaration.getFields().forEach(fieldDeclaration -> {
-                            String fieldType = String.valueOf(fieldDeclaration.getElementType());
-                            ClassEntity fieldClassEntity = getAndStoreConnectedClassEntity(classEntity, fieldType);
-                            String fieldName = fieldDeclaration.getVariables().get(0).getNameAsString();
-                            System.out.println("Added field " + fieldType + " " + fieldName);
-                            classEntity.addField(fieldName, fieldClassEntity);
-                        });
+        if (typeSummary.getSuperClassName() != null) {
+            String superClassName = typeSummary.getSuperClassName();
+            ClassEntity superClassEntity = typeScope.resolve(superClassName);
+            if (superClassEntity != null){
+                classEntity.setSuperClass(superClassEntity);
+                classEntity.addConnectedEntity(superClassEntity);
+            } else {
+                System.out.println("ERROR, couldn't connect superclass: " + superClassName);
+            }
+        }
 
+        typeSummary.getFields().forEach(fieldSummary -> {
+            String fieldType = fieldSummary.getElementType();
+            ClassEntity fieldClassEntity = getAndStoreConnectedClassEntity(typeScope, classEntity, fieldType);
+            String fieldName = fieldSummary.getName();
+            System.out.println("Added field " + fieldType + " " + fieldName);
+            classEntity.addField(fieldName, fieldClassEntity);
+        });
 
-                        classDeclaration.getConstructors().forEach(methodDeclaration -> {
-                            MethodEntity methodEntity = classEntity.getMethod(methodDeclaration.getNameAsString());
+        typeSummary.getConstructors().forEach(constructorSummary -> {
+            MethodEntity methodEntity = classEntity.getMethod(constructorSummary.getName());
+            addArguments(typeScope, classEntity, methodEntity, constructorSummary);
+            setLinesOfCode(constructorSummary.getBeginLine(), constructorSummary.getEndLine(), methodEntity);
+        });
 
-                            System.out.println("METHOD " + methodDeclaration.getNameAsString() + " PARAMETERS: " + methodDeclaration.getParameters());
-                            methodDeclaration.getParameters().forEach(parameter -> {
-                                String stringArgumentType = String.valueOf(parameter.getType());
-                                ClassEntity argumentClassEntity = getAndStoreConnectedClassEntity(classEntity, stringArgumentType);
-                                String argumentName = parameter.getNameAsString();
-                                methodEntity.addArgument(argumentName, argumentClassEntity);
-                                System.out.println("Added argument " + stringArgumentType + " " + argumentName);
-                            });
+        typeSummary.getMethods().forEach(methodSummary -> {
+            MethodEntity methodEntity = classEntity.getMethod(methodSummary.getName());
+            addArguments(typeScope, classEntity, methodEntity, methodSummary);
 
-                            setLinesOfCode(methodDeclaration.getBegin(), methodDeclaration.getEnd(), methodEntity);
-                        });
+            System.out.println("METHOD " + methodSummary.getName() + " RETURN TYPE: " + methodSummary.getReturnType());
+            String stringReturnType = methodSummary.getReturnType();
+            ClassEntity returnClassEntity = getAndStoreConnectedClassEntity(typeScope, classEntity, stringReturnType);
+            methodEntity.setReturnType(returnClassEntity);
 
-                        classDeclaration.getMethods().forEach(methodDeclaration -> {
-                            MethodEntity methodEntity = classEntity.getMethod(methodDeclaration.getNameAsString());
+            setLinesOfCode(methodSummary.getBeginLine(), methodSummary.getEndLine(), methodEntity);
+        });
+    }
 
-                            System.out.println("METHOD " + methodDeclaration.getNameAsString() + " PARAMETERS: " + methodDeclaration.getParameters());
-                            methodDeclaration.getParameters().forEach(parameter -> {
-                                String stringArgumentType = String.valueOf(parameter.getType());
-                                ClassEntity argumentClassEntity = getAndStoreConnectedClassEntity(classEntity, stringArgumentType);
-                                String argumentName = parameter.getNameAsString();
-                                methodEntity.addArgument(argumentName, argumentClassEntity);
-                                System.out.println("Added argument " + stringArgumentType + " " + argumentName);
-                            });
+    private void addArguments(SymbolIndex.TypeScope typeScope, ClassEntity classEntity, MethodEntity methodEntity, MethodSummary methodSummary) {
+        methodSummary.getParameters().forEach(parameter -> {
+            String stringArgumentType = parameter.getType();
+            ClassEntity argumentClassEntity = getAndStoreConnectedClassEntity(typeScope, classEntity, stringArgumentType);
+            String argumentName = parameter.getName();
+            methodEntity.addArgument(argumentName, argumentClassEntity);
+            System.out.println("Added argument " + stringArgumentType + " " + argumentName);
+        });
+    }
 
-                            System.out.println("METHOD " + methodDeclaration.getNameAsString() + " RETURN TYPE: " + methodDeclaration.getType());
-                            String stringReturnType = String.valueOf(methodDeclaration.getType());
-                            ClassEntity returnClassEntity = getAndStoreConnectedClassEntity(classEntity, stringReturnType);
-                            methodEntity.setReturnType(returnClassEntity);
+    // Method to create or retrieve package entities for nested packages
+    // Note: the connection to the parent package is added with the other package connections, in updatePackageConnections
+    private PackageEntity getOrCreatePackage(Set<PackageEntity> packages, String packageName) {
+        PackageEntity packageEntity = null;
 
-                            setLinesOfCode(methodDeclaration.getBegin(), methodDeclaration.getEnd(), methodEntity);
-                        });
+        for (String fullPackageName : getPackageNames(packageName)) {
+            packageEntity = (PackageEntity) graphGenerator.getPackageEntities().get(fullPackageName);
 
-                    } else if (type instanceof EnumDeclaration classDeclaration) {
-                        ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(classDeclaration.getNameAsString());
+            if (packageEntity == null){ // not in graph generator yet, need to create a new package
+                packageEntity = new PackageEntity(fullPackageName);
+                packages.add(packageEntity);
 
-                        System.out.println("ENUM " + classDeclaration.getNameAsString() + " FIELDS: " + classDeclaration.getFields());
-                        classDeclaration.getFields().forEach(fieldDeclaration -> {
-                            String fieldType = String.valueOf(fieldDeclaration.getElementType());
-                            ClassEntity fieldClassEntity = getAndStoreConnectedClassEntity(classEntity, fieldType);
-                            String fieldName = fieldDeclaration.getVariables().get(0).getNameAsString();
-                            System.out.println("Added field " + fieldType + " " + fieldName);
-                            classEntity.addField(fieldName, fieldClassEntity);
-                        });
+                boolean packageSuccess = graphGenerator.addEntity(fullPackageName, packageEntity);
+            }
+        }
 
-                        classDeclaration.getConstructors().forEach(methodDeclaration -> {
-                            MethodEntity methodEntity = classEntity.getMethod(methodDeclaration.getNameAsString());
+        assert packageEntity != null;
 
-                            System.out.println("ENUM METHOD " + methodDeclaration.getNameAsString() + " PARAMETERS: " + methodDeclaration.getParameters());
-                            methodDeclaration.getParameters().forEach(parameter -> {
-                                String stringArgumentType = String.valueOf(parameter.getType());
-                                ClassEntity argumentClassEntity = getAndStoreConnectedClassEntity(classEntity, stringArgumentType);
-                                String argumentName = parameter.getNameAsString();
-                                methodEntity.addArgument(argumentName, argumentClassEntity);
-                                System.out.println("Added argument " + stringArgumentType + " " + argumentName);
-                            });
 
-                            setLinesOfCode(methodDeclaration.getBegin(), methodDeclaration.getEnd(), methodEntity);
-                        });
+        return packageEntity;
+    }
+
+    /**
+     * Get the name of a package and of the packages it is nested in
+     * @param packageName   name of the package, ex. a.b.c
+     * @return              the package names from the outermost package, ex. a, a.b, a.b.c
+     */
+    private static List<String> getPackageNames(String packageName) {
+        List<String> packageNames = new ArrayList<>();
+        String fullPackageName = "";
+        for (String name : packageName.split("\\.")) {
+            fullPackageName = fullPackageName.isEmpty() ? name : fullPackageName + "." + name;
+            packageNames.add(fullPackageName);
+        }
+        return packageNames;
+    }
 
-                        classDeclaration.getMethods().forEach(methodDeclaration -> {
-                            MethodEntity methodEntity = classEntity.getMethod(methodDeclaration.getNameAsString());
+    private static String getClassKey(String packageName, String className) {
+        // classes in the default package are only identified by their name
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    /**
+     * Get the keys of the class entities declared by a file
+     */
+    private static List<String> getClassKeys(CompilationUnitSummary compilationUnitSummary) {
+        List<String> classKeys = new ArrayList<>();
+        compilationUnitSummary.getTypes().forEach(typeSummary -> {
+            if (!typeSummary.getKind().equals(TypeKind.OTHER)) { // classes, interfaces and enums
+                classKeys.add(getClassKey(compilationUnitSummary.getPackageName(), typeSummary.getName()));
+            }
+        });
+        return classKeys;
+    }
 
-                            System.out.println("ENUM METHOD " + methodDeclaration.getNameAsString() + " PARAMETERS: " + methodDeclaration.getParameters());
-                            methodDeclaration.getParameters().forEach(parameter -> {
-                                String stringArgumentType = String.valueOf(parameter.getType());
-                                ClassEntity argumentClassEntity = getAndStoreConnectedClassEntity(classEntity, stringArgumentType);
-                                String argumentName = parameter.getNameAsString();
-                                methodEntity.addArgument(argumentName, argumentClassEntity);
-                                System.out.println("Added argument " + stringArgumentType + " " + argumentName);
-                            });
 
-                            System.out.println("ENUM METHOD " + methodDeclaration.getNameAsString() + " RETURN TYPE: " + methodDeclaration.getType());
-                            String stringReturnType = String.valueOf(methodDeclaration.getType());
-                            ClassEntity returnClassEntity = getAndStoreConnectedClassEntity(classEntity, stringReturnType);
-                            methodEntity.setReturnType(returnClassEntity);
 
-                            setLinesOfCode(methodDeclaration.getBegin(), methodDeclaration.getEnd(), methodEntity);
+    private void createClassConnections(SymbolIndex symbolIndex, Map<String, CompilationUnitSummary> resolvedSummaries) {
+        HashMap<ClassEntity, Set<Entity>> connectedClasses = new HashMap<>();
+
+        for (Map.Entry<String, CompilationUnitSummary> summaryEntry : resolvedSummaries.entrySet()) {
+            CompilationUnitSummary compilationUnitSummary = summaryEntry.getValue();
+            SymbolIndex.TypeScope typeScope = symbolIndex.getTypeScope(compilationUnitSummary);
+            compilationUnitSummary.getTypes().forEach(typeSummary -> {
+                if (typeSummary.getKind().equals(TypeKind.CLASS_OR_INTERFACE)) {
+                    ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(typeScope.getKey(typeSummary.getName()));
+
+                    typeSummary.getFields().forEach(fieldSummary -> {
+                        // Check if the field type is a class or interface
+                        if (fieldSummary.getClassTypeName() != null) {
+                            // Retrieve the corresponding ClassEntity from the GraphGenerator
+                            ClassEntity fieldClassEntity = typeScope.resolve(fieldSummary.getClassTypeName());
+
+                            if (fieldClassEntity != null) {
+                                classEntity.addConnectedEntity(fieldClassEntity);
+                                connectedClasses.put(classEntity, classEntity.getConnectedEntities());
+                            }
+                        }
+
+                        // Check the type arguments of a parameterized type (List, Set, etc.)
+                        fieldSummary.getTypeArgumentNames().forEach(typeArgumentName -> {
+                            // Retrieve the corresponding ClassEntity from the GraphGenerator
+                            ClassEntity genericClassEntity = typeScope.resolve(typeArgumentName);
+
+                            if (genericClassEntity != null) {
+                                classEntity.addConnectedEntity(genericClassEntity);
+                                connectedClasses.put(classEntity, classEntity.getConnectedEntities());
+                            }
                         });
-                    }
-                });
+                    });
+
+                    // before adding method connections, add the method's local variables
+                    typeSummary.getMethods().forEach(methodSummary -> {
+                        MethodEntity methodEntity = symbolIndex.getMethod(classEntity, methodSummary.getName());
+
+                        methodSummary.getLocalVariables().forEach(variable -> {
+                            String variableName = variable.getName();
+                            ClassEntity variableClassEntity = getAndStoreConnectedClassEntity(typeScope, methodEntity.getClassEntity(), variable.getType());
+                            System.out.println("Added local Variable: " + variableClassEntity.getName() + " " + variableName);
+                            methodEntity.addLocalVariable(variableName, variableClassEntity);
+                        });
+                    });
+
+                    // Connect method entities based on method invocations
+                    typeSummary.getMethods().forEach(methodSummary -> {
+                        MethodEntity methodEntity = symbolIndex.getMethod(classEntity, methodSummary.getName());
+                        SymbolIndex.MethodScope methodScope = symbolIndex.getScope(methodEntity);
+                        System.out.println("ADDING CONNECTIONS FOR " + methodEntity.getKey());
+                        methodSummary.getCallSites().forEach(callSite -> connectCalledMethod(symbolIndex, typeScope, methodEntity, methodScope, callSite, true));
+                    });
+
+                    typeSummary.getConstructors().forEach(constructorSummary -> {
+                        MethodEntity methodEntity = symbolIndex.getMethod(classEntity, constructorSummary.getName());
+                        SymbolIndex.MethodScope methodScope = symbolIndex.getScope(methodEntity);
+                        System.out.println("ADDING CONNECTIONS FOR " + methodEntity.getKey());
+                        constructorSummary.getCallSites().forEach(callSite -> connectCalledMethod(symbolIndex, typeScope, methodEntity, methodScope, callSite, false));
+                    });
+                }
+            });
+
+
+            // Cyclomatic complexity
+            // CC = E – N + 2P where E = the number of edges in the control flow graph
+            //N = the number of nodes in the control flow graph
+            //P = the number of connected components                System.out.println("Cyclomatic complexity for methods:");
+            HashMap<ClassEntity, Integer> classComplexities = new HashMap<>(); // kept to take back once the file is resolved again
+            compilationUnitSummary.getMethodComplexities().forEach((classAndMethodName, complexity) -> {
+                System.out.println(classAndMethodName + ": " + complexity);
+                int separatorIndex = classAndMethodName.lastIndexOf('.');
+                ClassEntity classEntity = typeScope.resolve(classAndMethodName.substring(0, separatorIndex));
+                MethodEntity methodEntity = symbolIndex.getMethod(classEntity, classAndMethodName.substring(separatorIndex + 1));
+                if (methodEntity != null) {
+                    methodEntity.getComplexityDetails().setCyclomaticComplexity(complexity);
+                    // Cyclomatic complexity of class = sum of cyclomatic complexities of the methods.
+                    ((ClassComplexityDetails) methodEntity.getClassEntity().getComplexityDetails()).incrementCyclomaticComplexity(complexity);
+                    classComplexities.merge(methodEntity.getClassEntity(), complexity, Integer::sum);
+                } else {
+                    System.out.println("ERROR, Method is null for: " + classAndMethodName);
+                }
+            });
+            classComplexitiesByPath.put(summaryEntry.getKey(), classComplexities);
+        }
+        for (Map.Entry<ClassEntity, Set<Entity>> entry : connectedClasses.entrySet()) {
+            System.out.println("TESTING CONNECTED CLASSES");
+            System.out.println("----------------------------------------------");
+            String key = entry.getKey().getName();
+            String value = entry.getValue().toString();
+            System.out.println("Class=" + key + ", Connected Classes=" + value);
+            System.out.println("----------------------------------------------");
+        }
+    }
+
+    /**
+     * Connect a method to the method it calls, if the called method can be found
+     * @param symbolIndex       index of the method entities
+     * @param typeScope         type names visible in the calling method's compilation unit
+     * @param methodEntity      the calling method
+     * @param methodScope       the identifiers visible in the calling method
+     * @param callSite          the method call
+     * @param checkSuper        whether super.methodName() calls go to the superclass (only done for methods, not constructors)
+     */
+    private void connectCalledMethod(SymbolIndex symbolIndex, SymbolIndex.TypeScope typeScope, MethodEntity methodEntity,
+                                     SymbolIndex.MethodScope methodScope, CallSiteSummary callSite, boolean checkSuper) {
+        String calledMethodName = callSite.getMethodName();
+
+        if (checkSuper && callSite.isSuperScope()) {
+            System.out.println("Super method call found in method: " + methodEntity.getName());
+
+            ClassEntity calledClassEntity = methodEntity.getClassEntity().getSuperClass();
+            if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
+                MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
+                methodEntity.addConnectedEntity(calledMethodEntity);
+                System.out.println("Connected to super method");
+            } else {
+                System.out.println("COULD NOT CONNECT TO SUPER METHOD");
+            }
+        } else if (callSite.hasScope()) { // Check if the method call has a scope ex. object.methodName()
+            String calledObjectName = callSite.getScope();
+
+            // try the arguments, then the local variables, then the class fields
+            MethodEntity calledMethodEntity = null;
+            for (ClassEntity calledClassEntity : methodScope.resolve(calledObjectName)) {
+                calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
+                if (calledMethodEntity != null) {
+                    break;
+                }
+            }
 
+            if (calledMethodEntity != null) {
+                methodEntity.addConnectedEntity(calledMethodEntity);
+                System.out.println("ADDED CALLED METHOD" + calledMethodEntity.getKey() + " FROM " + calledObjectName);
+            } else {
+                System.out.println("COULD NOT FIND CALLED METHOD " + calledObjectName + "." + calledMethodName);
+            }
+
+        } else if (callSite.getEnclosingClassName() != null) { //No scope ex. methodName()
+            // Assuming the method entity is available in the graph generator
+            MethodEntity calledMethodEntity = symbolIndex.getMethod(typeScope.resolve(callSite.getEnclosingClassName()), calledMethodName);
+
+            if (calledMethodEntity != null) {
+                // Add called method entity to the connected entities of the current method entity
+                methodEntity.addConnectedEntity(calledMethodEntity);
             }
         }
+    }
 
+    public boolean analyzeCodebase(String repoURL) {
+
+        analysisProgress.startPhase(AnalysisProgress.Phase.DOWNLOAD, -1);
+        try (InputStream codebase = openGitHubCodebase(repoURL)) {
+            if (codebase == null) {
+                return false;
+            }
+            // the archive is parsed while it is downloading
+            return analyzeCodebase(codebase);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
-    // Method to create or retrieve package entities for nested packages
-    private PackageEntity getOrCreatePackage(Set<PackageEntity> packages, String packageName,  Set<String> connectedClasses) {
-        String[] packageNames = packageName.split("\\.");
-        PackageEntity parentPackage = null;
+    /**
+     * Analyze a codebase from its zip archive, ex. a GitHub branch archive
+     * Every file is expected to be in a top-level folder, which is not part of its path
+     * @param zipContents   the zip contents, read as a stream and not closed
+     * @return              whether the codebase is a valid Java project
+     */
+    public boolean analyzeCodebase(InputStream zipContents) {
+        // the number of files is not known until the whole archive is read
+        analysisProgress.startPhase(AnalysisProgress.Phase.PARSE, -1);
 
-        for (String name : packageNames) {
-            String fullPackageName = (parentPackage == null || parentPackage.getName().isEmpty()) ? name : parentPackage.getName() + "." + name;
-            PackageEntity finalParentPackage = parentPackage;
-            PackageEntity packageEntity = (PackageEntity) graphGenerator.getPackageEntities().get(fullPackageName);
+        // reset when analyzing new codebase
+        this.compilationUnitSummaries = new LinkedHashMap<>();
+        this.analyzedRevision = null;
 
-            if (packageEntity == null){ // not in graph generator yet, need to create a new package
-                PackageEntity newPackage = new PackageEntity(fullPackageName);
-                packages.add(newPackage);
+        try {
+            if (parseJavaFilesFromZip(zipContents)) {
+                createEntitiesAndConnections();
+                return true;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return false;
+    }
+
+    /**
+     * Update the analyzed codebase with the files changed between two revisions
+     * Only the changed files are parsed, and only their entities are created again (see applyCodebaseUpdate)
+     * @param removedPaths      paths of the deleted files (and the old paths of renamed files)
+     * @param changedFiles      paths and contents of the added, modified and renamed files
+     * @param newRevision       the revision the codebase is updated to
+     * @return                  whether the updated codebase is a valid Java project
+     */
+    public boolean updateCodebase(Set<String> removedPaths, LinkedHashMap<String, byte[]> changedFiles, String newRevision) {
+        return applyCodebaseUpdate(parseCodebaseUpdate(removedPaths, changedFiles, newRevision));
+    }
+
+    /**
+     * Parse the files changed between two revisions, without changing the analyzed codebase
+     * @param removedPaths      paths of the deleted files (and the old paths of renamed files)
+     * @param changedFiles      paths and contents of the added, modified and renamed files
+     * @param newRevision       the revision the codebase is updated to
+     * @return                  the parsed changes, to apply with applyCodebaseUpdate
+     */
+    public CodebaseUpdate parseCodebaseUpdate(Set<String> removedPaths, LinkedHashMap<String, byte[]> changedFiles, String newRevision) {
+        LinkedHashMap<String, CompilationUnitSummary> parsedFiles = new LinkedHashMap<>();
 
-                boolean packageSuccess = graphGenerator.addEntity(fullPackageName, newPackage);
-                if (finalParentPackage != null && !newPackage.equals(finalParentPackage) && graphGenerator.getPackageEntities().get(finalParentPackage.getName()) != null){
-                    String className = Arrays.toString(connectedClasses.toArray());
-                    newPackage.addConnectedEntity((PackageEntity) graphGenerator.getPackageEntities().get(finalParentPackage.getName()));
+        ForkJoinPool parsingPool = new ForkJoinPool(parsingParallelism);
+        try {
+            LinkedHashMap<String, ForkJoinTask<CompilationUnitSummary>> parseTasks = new LinkedHashMap<>();
+            changedFiles.forEach((path, fileContent) -> {
+                if (path.endsWith(".java") && fileContent.length > 0) {
+                    parseTasks.put(path, parsingPool.submit(() -> parseCompilationUnit(fileContent)));
+                } else {
+                    parsedFiles.put(path, null);
                 }
-                packageEntity = newPackage;
-            }
-            parentPackage = packageEntity; // Update parent package for next iteration
+            });
+            parseTasks.forEach((path, parseTask) -> {
+                parsedFiles.put(path, parseTask.join());
+                analysisProgress.advance();
+            });
+        } finally {
+            parsingPool.shutdownNow();
         }
+        return new CodebaseUpdate(removedPaths, parsedFiles, newRevision);
+    }
 
-        assert parentPackage != null;
+    /**
+     * Apply the parsed changes to the analyzed codebase
+     * The entities of the removed and changed files are removed and created again, a class that is still declared keeps
+     * its entity; then only the changed files and the files referring to one of their classes or methods by name are resolved again
+     * The whole graph is created again if nothing was analyzed before, or if a changed class is declared by more than one file
+     * Note: the git history of the kept classes is not changed, it needs to be read again for the new revision
+     * @param codebaseUpdate    the parsed changes
+     * @return                  whether the updated codebase is a valid Java project
+     */
+    public boolean applyCodebaseUpdate(CodebaseUpdate codebaseUpdate) {
+        boolean isAnalyzed = !compilationUnitSummaries.isEmpty();
+
+        // the summaries before and after the update of each removed or changed file
+        LinkedHashMap<String, CompilationUnitSummary> oldSummaries = new LinkedHashMap<>();
+        LinkedHashMap<String, CompilationUnitSummary> newSummaries = new LinkedHashMap<>();
+        for (String path : codebaseUpdate.removedPaths) {
+            CompilationUnitSummary oldSummary = compilationUnitSummaries.remove(path);
+            if (oldSummary != null) {
+                oldSummaries.put(path, oldSummary);
+            }
+        }
+        // modified files keep their place, new files are added at the end
+        codebaseUpdate.parsedFiles.forEach((path, compilationUnitSummary) -> {
+            CompilationUnitSummary oldSummary = (compilationUnitSummary != null)
+                    ? compilationUnitSummaries.put(path, compilationUnitSummary)
+                    : compilationUnitSummaries.remove(path); // could have been valid in a previous revision
+            if (oldSummary != null) {
+                oldSummaries.putIfAbsent(path, oldSummary);
+            }
+            if (compilationUnitSummary != null) {
+                newSummaries.put(path, compilationUnitSummary);
+            }
+        });
+        analyzedRevision = codebaseUpdate.newRevision;
 
+        System.out.println("Updated " + codebaseUpdate.parsedFiles.size() + " files and removed " + codebaseUpdate.removedPaths.size()
+                + " files, now at revision " + analyzedRevision);
 
-        return parentPackage;
+        if (compilationUnitSummaries.isEmpty()) {
+            graphGenerator.clearEntities();
+            clearDependencies();
+            return false;
+        }
+        if (isAnalyzed && canUpdateEntities(oldSummaries, newSummaries)) {
+            updateEntitiesAndConnections(oldSummaries, newSummaries);
+        } else {
+            graphGenerator.clearEntities();
+            createEntitiesAndConnections();
+        }
+        return true;
     }
 
+    /**
+     * Create all entities and connections from the stored summaries
+     */
+    private void createEntitiesAndConnections() {
+        clearDependencies();
+        analysisProgress.startPhase(AnalysisProgress.Phase.CONNECT, compilationUnitSummaries.size());
+        Set<PackageEntity> packages = new HashSet<>();
+        for (Map.Entry<String, CompilationUnitSummary> summaryEntry : compilationUnitSummaries.entrySet()) {
+            analysisProgress.checkCancelled();
+            addDependencies(summaryEntry.getKey(), summaryEntry.getValue());
+            packages.addAll(createEntities(summaryEntry.getValue(), Map.of()));
+            addClassEntityPath(summaryEntry.getKey(), summaryEntry.getValue());
+            analysisProgress.advance();
+        }
 
+        // all class and method entities exist at this point
+        SymbolIndex symbolIndex = new SymbolIndex(graphGenerator.getClassEntities(), graphGenerator.getMethodEntities());
+        createClassMethodInnerVariables(symbolIndex, compilationUnitSummaries.values());
+        createClassConnections(symbolIndex, compilationUnitSummaries);
+        //createPackageConnections();
+        // Pass the created entities to the model or perform other actions
+        // model.addAttribute("packages", packages);
+
+        List<ClassEntity> classEntities = new ArrayList<>();
+        graphGenerator.getClassEntities().values().forEach(classEntity -> classEntities.add((ClassEntity) classEntity));
+        List<PackageEntity> packageEntities = new ArrayList<>();
+        graphGenerator.getPackageEntities().values().forEach(packageEntity -> packageEntities.add((PackageEntity) packageEntity));
+        finalizeConnections(classEntities, packageEntities);
+    }
 
-    private void createClassConnections() throws IOException {
-        JavaParser javaParser = new JavaParser();
+    /**
+     * Check whether the changed files' entities can be updated on their own, instead of creating the whole graph again
+     * Each class declared by a changed file has to be declared by that file alone, before and after the update
+     * Note: called before the dependencies of the changed files are updated
+     * @param oldSummaries  the summaries of the removed and changed files before the update
+     * @param newSummaries  the summaries of the changed files after the update
+     * @return              whether the entities can be updated
+     */
+    private boolean canUpdateEntities(Map<String, CompilationUnitSummary> oldSummaries, Map<String, CompilationUnitSummary> newSummaries) {
+        HashMap<String, Integer> numOldDeclarations = new HashMap<>();
+        oldSummaries.values().forEach(oldSummary -> getClassKeys(oldSummary).forEach(classKey -> numOldDeclarations.merge(classKey, 1, Integer::sum)));
+        HashMap<String, Integer> numNewDeclarations = new HashMap<>();
+        newSummaries.values().forEach(newSummary -> getClassKeys(newSummary).forEach(classKey -> numNewDeclarations.merge(classKey, 1, Integer::sum)));
+
+        Set<String> changedClassKeys = new HashSet<>(numOldDeclarations.keySet());
+        changedClassKeys.addAll(numNewDeclarations.keySet());
+        for (String classKey : changedClassKeys) {
+            int numOld = numOldDeclarations.getOrDefault(classKey, 0);
+            if (numOld > 1 || numNewDeclarations.getOrDefault(classKey, 0) > 1
+                    || numClassDeclarations.getOrDefault(classKey, 0) != numOld) { // also declared by an unchanged file
+                System.out.println("Class " + classKey + " is declared by more than one file, creating all entities again");
+                return false;
+            }
+        }
+        return true;
+    }
 
-        HashMap<ClassEntity, Set<Entity>> connectedClasses = new HashMap<>();
-        Set<ClassEntity> classEntityList = new HashSet<>();
+    /**
+     * Update the entities of the removed and changed files, and resolve again the files that refer to their classes or methods
+     * The rest of the graph keeps its entities and connections
+     * Note: a type name that is only resolved by its simple name goes to the first class with that name in the graph,
+     * which can be a different class than in a full analysis once classes with that name were removed and added
+     * @param oldSummaries  the summaries of the removed and changed files before the update
+     * @param newSummaries  the summaries of the changed files after the update
+     */
+    private void updateEntitiesAndConnections(Map<String, CompilationUnitSummary> oldSummaries, Map<String, CompilationUnitSummary> newSummaries) {
+        // the methods are created again too, so the calls to them are also resolved again
+        Set<String> changedNames = new HashSet<>();
+        for (Map<String, CompilationUnitSummary> summaries : List.of(oldSummaries, newSummaries)) {
+            summaries.values().forEach(compilationUnitSummary -> compilationUnitSummary.getTypes().forEach(typeSummary -> {
+                if (!typeSummary.getKind().equals(TypeKind.OTHER)) {
+                    changedNames.add(typeSummary.getName());
+                    typeSummary.getMethods().forEach(methodSummary -> changedNames.add(methodSummary.getName()));
+                }
+            }));
+        }
+        oldSummaries.forEach(this::removeDependencies);
+        newSummaries.forEach(this::addDependencies);
+
+        // the unchanged files referring to a changed class or method could now resolve their names to a different entity
+        LinkedHashMap<String, CompilationUnitSummary> dependentSummaries = new LinkedHashMap<>();
+        for (String changedName : changedNames) {
+            for (String path : pathsByReferencedName.getOrDefault(changedName, Set.of())) {
+                if (!oldSummaries.containsKey(path) && !newSummaries.containsKey(path)) {
+                    dependentSummaries.putIfAbsent(path, compilationUnitSummaries.get(path));
+                }
+            }
+        }
+        System.out.println("Updating the entities of " + oldSummaries.size() + " changed files, and the connections of "
+                + dependentSummaries.size() + " files referring to their classes or methods");
+
+        // take back what the files added to the classes before
+        oldSummaries.keySet().forEach(this::removeClassComplexities);
+        dependentSummaries.keySet().forEach(this::removeClassComplexities);
+
+        Set<String> newClassKeys = new HashSet<>();
+        newSummaries.values().forEach(newSummary -> newClassKeys.addAll(getClassKeys(newSummary)));
+
+        HashMap<String, ClassEntity> keptClasses = new HashMap<>(); // keep their ids, so they are the same nodes for the frontend
+        Set<PackageEntity> changedPackages = new LinkedHashSet<>();
+        Set<String> oldPackageNames = new LinkedHashSet<>();
+        oldSummaries.forEach((path, oldSummary) -> {
+            graphGenerator.removeClassEntityPath(path);
+            if (!oldSummary.getTypes().isEmpty()) {
+                oldPackageNames.addAll(getPackageNames(oldSummary.getPackageName()));
+            }
 
-        for (byte[] entryContent : entryContentsList) {
-            String code = new String(entryContent, StandardCharsets.UTF_8);
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(new StringReader(code));
+            for (String classKey : getClassKeys(oldSummary)) {
+                ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(classKey);
+                if (classEntity == null) {
+                    continue;
+                }
+                clearClass(classEntity);
+                classEntity.getMethods().forEach(graphGenerator::removeEntity);
+                classEntity.clearMethods();
+                changedPackages.add(classEntity.getPackageEntity());
+
+                if (newClassKeys.contains(classKey)) {
+                    keptClasses.put(classKey, classEntity);
+                } else {
+                    classEntity.getPackageEntity().removeClass(classEntity);
+                    graphGenerator.removeEntity(classEntity);
+                    numDeclaredConnections.remove(classEntity);
+                }
+            }
+        });
 
-            if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
-                CompilationUnit compilationUnit = parseResult.getResult().get();
-                ConnectionVisitor connectionVisitor = new ConnectionVisitor();
-                compilationUnit.accept(connectionVisitor, null);
-                connectionVisitor.visit(compilationUnit, null);
+        // the dependent files keep their entities, only their connections and variables are found again
+        dependentSummaries.values().forEach(dependentSummary -> {
+            for (String classKey : getClassKeys(dependentSummary)) {
+                ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(classKey);
+                if (classEntity != null) {
+                    clearClass(classEntity);
+                    classEntity.getMethods().forEach(methodEntity -> {
+                        methodEntity.clearVariables();
+                        methodEntity.clearConnections();
+                    });
+                }
+            }
+        });
 
+        newSummaries.forEach((path, newSummary) -> {
+            changedPackages.addAll(createEntities(newSummary, keptClasses));
+            addClassEntityPath(path, newSummary);
+        });
 
-                compilationUnit.getTypes().forEach(type -> {
-                    if (type instanceof ClassOrInterfaceDeclaration classDeclaration) {
-                        classDeclaration.getFields().forEach(fieldDeclaration -> {
-                            // Check if the field type is a class or interface
-                            if (fieldDeclaration.getElementType().isClassOrInterfaceType()) {
-                                ClassOrInterfaceType fieldType = fieldDeclaration.getElementType().asClassOrInterfaceType();
+        // remove the packages no file declares a type in anymore
+        for (String packageName : oldPackageNames) {
+            Entity packageEntity = graphGenerator.getPackageEntities().get(packageName);
+            if (packageEntity != null && !numFilesByPackage.containsKey(packageName)) {
+                graphGenerator.removeEntity(packageEntity);
+                changedPackages.remove(packageEntity);
+            }
+        }
 
-                                // Retrieve the corresponding ClassEntity from the GraphGenerator
-                                ClassEntity fieldClassEntity = (ClassEntity) graphGenerator.getClassEntities().get(fieldType.getNameAsString());
+        LinkedHashMap<String, CompilationUnitSummary> resolvedSummaries = new LinkedHashMap<>(newSummaries);
+        resolvedSummaries.putAll(dependentSummaries);
+        SymbolIndex symbolIndex = new SymbolIndex(graphGenerator.getClassEntities(), graphGenerator.getMethodEntities());
+        createClassMethodInnerVariables(symbolIndex, resolvedSummaries.values());
+        createClassConnections(symbolIndex, resolvedSummaries);
+
+        List<ClassEntity> resolvedClasses = new ArrayList<>();
+        resolvedSummaries.values().forEach(resolvedSummary -> {
+            for (String classKey : getClassKeys(resolvedSummary)) {
+                ClassEntity classEntity = (ClassEntity) graphGenerator.getClassEntities().get(classKey);
+                if (classEntity != null) {
+                    resolvedClasses.add(classEntity);
+                    changedPackages.add(classEntity.getPackageEntity());
+                }
+            }
+        });
+        finalizeConnections(resolvedClasses, changedPackages);
+    }
 
-                                if (fieldClassEntity != null) {
-                                    graphGenerator.changeInterfaceToClassEntity(classDeclaration).addConnectedEntity(fieldClassEntity);
-                                    connectedClasses.put(graphGenerator.changeInterfaceToClassEntity(classDeclaration), graphGenerator.changeInterfaceToClassEntity(classDeclaration).getConnectedEntities());
-                                }
-                            }
+    /**
+     * Remove what was found from a class's declaration, so the class can be resolved again
+     */
+    private void clearClass(ClassEntity classEntity) {
+        classEntity.clearConnections();
+        classEntity.clearFields();
+        classEntity.clearSuperClass();
+    }
 
-                            // Check if the field type is a parameterized type (List, Set, etc.)
-                            if (fieldDeclaration.getElementType().isClassOrInterfaceType() && fieldDeclaration.getElementType().asClassOrInterfaceType().getTypeArguments().isPresent()) {
-                                fieldDeclaration.getElementType().asClassOrInterfaceType().getTypeArguments().get().forEach(typeArg -> {
-                                    // Check if the type argument is a class or interface
-                                    if (typeArg.isClassOrInterfaceType()) {
-                                        ClassOrInterfaceType genericType = typeArg.asClassOrInterfaceType();
-
-                                        // Retrieve the corresponding ClassEntity from the GraphGenerator
-                                        ClassEntity genericClassEntity = (ClassEntity) graphGenerator.getClassEntities().get(genericType.getNameAsString());
-
-                                        if (genericClassEntity != null) {
-                                            graphGenerator.changeInterfaceToClassEntity(classDeclaration).addConnectedEntity(genericClassEntity);
-                                            connectedClasses.put(graphGenerator.changeInterfaceToClassEntity(classDeclaration), graphGenerator.changeInterfaceToClassEntity(classDeclaration).getConnectedEntities());
-                                        }
-                                    }
-                                });
-                            }
-                        });
+    private void removeClassComplexities(String path) {
+        HashMap<ClassEntity, Integer> classComplexities = classComplexitiesByPath.remove(path);
+        if (classComplexities != null) {
+            classComplexities.forEach((classEntity, complexity) ->
+                    ((ClassComplexityDetails) classEntity.getComplexityDetails()).incrementCyclomaticComplexity(-complexity));
+        }
+    }
 
-                        // before adding method connections, add the method's local variables
-                        classDeclaration.getMethods().forEach(methodDeclaration -> {
-                            // Connect method entities based on method invocations
-                            String methodName = classDeclaration.getNameAsString() + "." + methodDeclaration.getNameAsString();
-                            MethodEntity methodEntity = (MethodEntity) graphGenerator.getMethodEntities().get(methodName);
-
-                            // Visit each statement in the method's body
-                            methodDeclaration.getBody().ifPresent(body -> {
-                                body.findAll(VariableDeclarationExpr.class).forEach(variableExpr -> {
-                                    variableExpr.getVariables().forEach(variable -> {
-                                        String variableName = variable.getNameAsString();
-                                        String stringVariableType = String.valueOf(variable.getType());
-                                        ClassEntity variableClassEntity = getAndStoreConnectedClassEntity(methodEntity.getClassEntity(), stringVariableType);
-                                        System.out.println("Added local Variable: " + variableClassEntity.getName() + " " + variableName);
-                                        methodEntity.addLocalVariable(variableName, variableClassEntity);
-                                    });
-                                });
-                            });
-                        });
+    /**
+     * Store what a file declares and the names it refers to classes by
+     * @param path                      path of the file within the repository
+     * @param compilationUnitSummary    summary of the file
+     */
+    private void addDependencies(String path, CompilationUnitSummary compilationUnitSummary) {
+        getClassKeys(compilationUnitSummary).forEach(classKey -> numClassDeclarations.merge(classKey, 1, Integer::sum));
+        if (!compilationUnitSummary.getTypes().isEmpty()) {
+            getPackageNames(compilationUnitSummary.getPackageName()).forEach(packageName -> numFilesByPackage.merge(packageName, 1, Integer::sum));
+        }
 
-                        classDeclaration.getMethods().forEach(methodDeclaration -> {
-                            // Connect method entities based on method invocations
-                            String methodName = classDeclaration.getNameAsString() + "." + methodDeclaration.getNameAsString();
-                            MethodEntity methodEntity = (MethodEntity) graphGenerator.getMethodEntities().get(methodName);
-                            System.out.println("ADDING CONNECTIONS FOR " + methodEntity.getKey());
-                            methodDeclaration.accept(new VoidVisitorAdapter<Void>() {
-                                @Override
-                                public void visit(MethodCallExpr methodCallExpr, Void arg) {
-                                    super.visit(methodCallExpr, arg);
-                                    String calledMethodName = methodCallExpr.getNameAsString();
-
-                                    if (methodCallExpr.getScope().isPresent() && methodCallExpr.getScope().get().isSuperExpr()) {
-                                        System.out.println("Super method call found in method: " + methodDeclaration.getNameAsString());
-                                        System.out.println("Method call: " + methodCallExpr);
-
-                                        ClassEntity calledClassEntity = methodEntity.getClassEntity().getSuperClass();
-                                        if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
-                                            MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
-                                            methodEntity.addConnectedEntity(calledMethodEntity);
-                                            System.out.println("Connected to super method");
-                                        } else {
-                                            System.out.println("COULD NOT CONNECT TO SUPER METHOD");
-                                        }
-                                    } else if (methodCallExpr.getScope().isPresent()) { // Check if the method call has a scope ex. object.methodName()
-
-                                        Expression expression = methodCallExpr.getScope().get();
-                                        String calledObjectName = expression.toString();
-
-                                        // find the class that the method declaration is getting called in
-                                        Optional<ClassOrInterfaceDeclaration> containingClassNode = methodDeclaration.findAncestor(ClassOrInterfaceDeclaration.class);
-
-                                        if (containingClassNode.isPresent()) {
-                                            ClassOrInterfaceDeclaration containingClass = containingClassNode.get();
-                                            String containingClassName = containingClass.getNameAsString(); //get the name of containing class
-
-                                            // try setting called class entity
-                                            ClassEntity calledClassEntity = methodEntity.getArguments().getOrDefault(calledObjectName, null);
-                                            if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
-                                                MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
-                                                methodEntity.addConnectedEntity(calledMethodEntity);
-                                                System.out.println("ADDED CALLED METHOD" + calledMethodEntity.getKey() + " FROM ARGUMENTS");
-                                            } else {
-                                                calledClassEntity = methodEntity.getLocalVariables().getOrDefault(calledObjectName, null);
-                                                if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
-                                                    MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
-                                                    methodEntity.addConnectedEntity(calledMethodEntity);
-                                                    System.out.println("ADDED CALLED METHOD" + calledMethodEntity.getKey() + " FROM LOCAL VARS");
-                                                } else {
-                                                    calledClassEntity = methodEntity.getClassEntity().getFields().getOrDefault(calledObjectName, null);
-                                                    if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
-                                                        MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
-                                                        methodEntity.addConnectedEntity(calledMethodEntity);
-                                                        System.out.println("ADDED CALLED METHOD" + calledMethodEntity.getKey() + " FROM CLASS FIELDS");
-                                                    } else {
-                                                        System.out.println("COULD NOT FIND CALLED METHOD " + calledObjectName + "." + calledMethodName);
-                                                    }
-                                                }
-                                            }
-                                        }
-
-                                    } else { //No scope ex. methodName()
-                                        // Find the class or interface declaration containing the method declaration
-                                        Optional<MethodDeclaration> methodDeclarationNode = methodCallExpr.findAncestor(MethodDeclaration.class);
-
-                                        if (methodDeclarationNode.isPresent()) {
-                                            MethodDeclaration methodDeclaration = methodDeclarationNode.get();
-                                            Optional<ClassOrInterfaceDeclaration> containingClassNode = methodDeclaration.findAncestor(ClassOrInterfaceDeclaration.class);
-
-                                            if (containingClassNode.isPresent()) {
-                                                ClassOrInterfaceDeclaration containingClass = containingClassNode.get();
-                                                String containingClassName = containingClass.getNameAsString();
-//
-                                                // Assuming the method entity is available in the graph generator
-                                                MethodEntity calledMethodEntity = (MethodEntity) graphGenerator.getMethodEntities().get(containingClassName + "." + calledMethodName);
-
-                                                if (calledMethodEntity != null) {
-                                                    // Add called method entity to the connected entities of the current method entity
-                                                    methodEntity.addConnectedEntity(calledMethodEntity);
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }, null);
-                        });
+        Set<String> referencedNames = getReferencedNames(compilationUnitSummary);
+        referencedNamesByPath.put(path, referencedNames);
+        referencedNames.forEach(name -> pathsByReferencedName.computeIfAbsent(name, k -> new HashSet<>()).add(path));
+    }
 
+    private void removeDependencies(String path, CompilationUnitSummary compilationUnitSummary) {
+        getClassKeys(compilationUnitSummary).forEach(classKey -> decrementCount(numClassDeclarations, classKey));
+        if (!compilationUnitSummary.getTypes().isEmpty()) {
+            getPackageNames(compilationUnitSummary.getPackageName()).forEach(packageName -> decrementCount(numFilesByPackage, packageName));
+        }
 
-                        classDeclaration.getConstructors().forEach(methodDeclaration -> {
-                            // Connect method entities based on method invocations
-                            String methodName = classDeclaration.getNameAsString() + "." + methodDeclaration.getNameAsString();
-                            MethodEntity methodEntity = (MethodEntity) graphGenerator.getMethodEntities().get(methodName);
-                            System.out.println("ADDING CONNECTIONS FOR " + methodEntity.getKey());
-
-                            methodDeclaration.accept(new VoidVisitorAdapter<Void>() {
-                                @Override
-                                public void visit(MethodCallExpr methodCallExpr, Void arg) {
-                                    super.visit(methodCallExpr, arg);
-                                    String calledMethodName = methodCallExpr.getNameAsString();
-
-                                     if (methodCallExpr.getScope().isPresent()) { // Check if the method call has a scope ex. object.methodName()
-
-                                        Expression expression = methodCallExpr.getScope().get();
-                                        String calledObjectName = expression.toString();
-
-                                        // find the class that the method declaration is getting called in
-                                        Optional<ClassOrInterfaceDeclaration> containingClassNode = methodDeclaration.findAncestor(ClassOrInterfaceDeclaration.class);
-
-                                        if (containingClassNode.isPresent()) {
-                                            ClassOrInterfaceDeclaration containingClass = containingClassNode.get();
-                                            String containingClassName = containingClass.getNameAsString(); //get the name of containing class
-
-                                            // try setting called class entity
-                                            ClassEntity calledClassEntity = methodEntity.getArguments().getOrDefault(calledObjectName, null);
-                                            if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null){
-                                                MethodEntity calledMethodEntity =  calledClassEntity.getMethod(calledMethodName);
-                                                methodEntity.addConnectedEntity(calledMethodEntity);
-                                                System.out.println("ADDED CONSTRUCTOR CALLED METHOD" + calledMethodEntity.getKey() + " FROM ARGUMENTS");
-                                            } else {
-                                                calledClassEntity = methodEntity.getLocalVariables().getOrDefault(calledObjectName, null);
-                                                if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
-                                                    MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
-                                                    methodEntity.addConnectedEntity(calledMethodEntity);
-                                                    System.out.println("ADDED CONSTRUCTOR CALLED METHOD" + calledMethodEntity.getKey() + " FROM LOCAL VARS");
-                                                } else {
-                                                    calledClassEntity = methodEntity.getClassEntity().getFields().getOrDefault(calledObjectName, null);
-                                                    if (calledClassEntity != null && calledClassEntity.getMethod(calledMethodName) != null) {
-                                                        MethodEntity calledMethodEntity = calledClassEntity.getMethod(calledMethodName);
-                                                        methodEntity.addConnectedEntity(calledMethodEntity);
-                                                        System.out.println("ADDED CONSTRUCTOR CALLED METHOD" + calledMethodEntity.getKey() + " FROM CLASS FIELDS");
-                                                    } else {
-                                                        System.out.println("COULD NOT FIND CONSTRUCTOR CALLED METHOD " + calledObjectName + "." + calledMethodName);
-                                                    }
-                                                }
-                                            }
-                                        }
-
-                                    } else { //No scope ex. methodName()
-                                        // Find the class or interface declaration containing the method declaration
-                                        Optional<MethodDeclaration> methodDeclarationNode = methodCallExpr.findAncestor(MethodDeclaration.class);
-
-                                        if (methodDeclarationNode.isPresent()) {
-                                            MethodDeclaration methodDeclaration = methodDeclarationNode.get();
-                                            Optional<ClassOrInterfaceDeclaration> containingClassNode = methodDeclaration.findAncestor(ClassOrInterfaceDeclaration.class);
-
-                                            if (containingClassNode.isPresent()) {
-                                                ClassOrInterfaceDeclaration containingClass = containingClassNode.get();
-                                                String containingClassName = containingClass.getNameAsString();
-//
-                                                // Assuming the method entity is available in the graph generator
-                                                MethodEntity calledMethodEntity = (MethodEntity) graphGenerator.getMethodEntities().get(containingClassName + "." + calledMethodName);
-
-                                                if (calledMethodEntity != null) {
-                                                    // Add called method entity to the connected entities of the current method entity
-                                                    methodEntity.addConnectedEntity(calledMethodEntity);
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }, null);
-                        });
-                    }
-                });
+        Set<String> referencedNames = referencedNamesByPath.remove(path);
+        if (referencedNames != null) {
+            for (String name : referencedNames) {
+                Set<String> paths = pathsByReferencedName.get(name);
+                paths.remove(path);
+                if (paths.isEmpty()) {
+                    pathsByReferencedName.remove(name);
+                }
+            }
+        }
+    }
 
+    private static void decrementCount(HashMap<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> (count > 1) ? count - 1 : null);
+    }
 
-                // Create a visitor to compute cyclomatic complexity
-                CyclomaticComplexityVisitor visitor = new CyclomaticComplexityVisitor();
-                visitor.visit(compilationUnit, null);
-
-                // Cyclomatic complexity
-                // CC = E – N + 2P where E = the number of edges in the control flow graph
-                //N = the number of nodes in the control flow graph
-                //P = the number of connected components                System.out.println("Cyclomatic complexity for methods:");
-                visitor.getMethodComplexities().forEach((classAndMethodName, complexity) -> {
-                    System.out.println(classAndMethodName + ": " + complexity);
-                    MethodEntity methodEntity = (MethodEntity) graphGenerator.getMethodEntities().get(classAndMethodName);
-                    if (methodEntity != null) {
-                        methodEntity.getComplexityDetails().setCyclomaticComplexity(complexity);
-                        // Cyclomatic complexity of class = sum of cyclomatic complexities of the methods.
-                        ((ClassComplexityDetails) methodEntity.getClassEntity().getComplexityDetails()).incrementCyclomaticComplexity(complexity);
-                    } else {
-                        System.out.println("ERROR, Method is null for: " + classAndMethodName);
-                    }
-                });
+    /**
+     * Get the simple names a file could refer to classes and methods by, in its imports, types, variables, calls and complexities
+     * @param compilationUnitSummary    summary of the file
+     * @return                          the names, qualified names are split into their parts
+     */
+    private static Set<String> getReferencedNames(CompilationUnitSummary compilationUnitSummary) {
+        Set<String> names = new HashSet<>();
+        compilationUnitSummary.getImports().forEach(importName -> addNames(names, importName));
+        compilationUnitSummary.getMethodComplexities().keySet().forEach(classAndMethodName -> addNames(names, classAndMethodName));
+
+        for (TypeSummary typeSummary : compilationUnitSummary.getTypes()) {
+            addNames(names, typeSummary.getSuperClassName());
+            for (FieldSummary fieldSummary : typeSummary.getFields()) {
+                addNames(names, fieldSummary.getElementType());
+                addNames(names, fieldSummary.getClassTypeName());
+                fieldSummary.getTypeArgumentNames().forEach(typeArgumentName -> addNames(names, typeArgumentName));
+            }
 
-            } else {
-                // Handle parsing errors
-                parseResult.getProblems().forEach(problem -> {
-                    System.err.println("Parsing error: " + problem.getMessage());
+            List<MethodSummary> methodSummaries = new ArrayList<>(typeSummary.getConstructors());
+            methodSummaries.addAll(typeSummary.getMethods());
+            for (MethodSummary methodSummary : methodSummaries) {
+                addNames(names, methodSummary.getReturnType());
+                methodSummary.getParameters().forEach(parameter -> addNames(names, parameter.getType()));
+                methodSummary.getLocalVariables().forEach(variable -> addNames(names, variable.getType()));
+                methodSummary.getCallSites().forEach(callSite -> {
+                    addNames(names, callSite.getMethodName());
+                    addNames(names, callSite.getScope());
+                    addNames(names, callSite.getEnclosingClassName());
                 });
             }
         }
-        for (Map.Entry<ClassEntity, Set<Entity>> entry : connectedClasses.entrySet()) {
-            System.out.println("TESTING CONNECTED CLASSES");
-            System.out.println("----------------------------------------------");
-            String key = entry.getKey().getName();
-            String value = entry.getValue().toString();
-            System.out.println("Class=" + key + ", Connected Classes=" + value);
-            System.out.println("----------------------------------------------");
-        }
+        return names;
     }
 
-    public boolean analyzeCodebase(String repoURL) {
-
-        byte[] codebase = retrieveGitHubCodebase(repoURL);
-        if (codebase == null) {
-            return false;
+    private static void addNames(Set<String> names, String typeName) {
+        if (typeName == null) {
+            return;
+        }
+        for (String name : NAME_SEPARATOR.split(typeName)) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
         }
+    }
 
-        // reset when analyzing new codebase
-        this.entryContentsList = new ArrayList<>();
+    /**
+     * Forget what the files declare and depend on, before the entities are all created again
+     */
+    private void clearDependencies() {
+        this.referencedNamesByPath = new HashMap<>();
+        this.pathsByReferencedName = new HashMap<>();
+        this.numClassDeclarations = new HashMap<>();
+        this.numFilesByPackage = new HashMap<>();
+        this.classComplexitiesByPath = new HashMap<>();
+        this.numDeclaredConnections = new HashMap<>();
+    }
 
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(codebase)) {
-            if (parseJavaFilesFromZip(byteArrayInputStream)) {
-                createClassMethodInnerVariables();
-                createClassConnections();
-                //createPackageConnections();
-                // Pass the created entities to the model or perform other actions
-                // model.addAttribute("packages", packages);
+    /**
+     * Index the class named after the file, so the git history can find it from the file path
+     * @param path                      path of the file within the repository
+     * @param compilationUnitSummary    summary of the file
+     */
+    private void addClassEntityPath(String path, CompilationUnitSummary compilationUnitSummary) {
+        String fileName = path.substring(path.lastIndexOf('/') + 1).replace(".java", "");
+        String key = getClassKey(compilationUnitSummary.getPackageName(), fileName);
 
-                finalizeConnections();
-                return true;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        Entity classEntity = graphGenerator.getClassEntities().get(key);
+        if (classEntity != null) {
+            graphGenerator.addClassEntityPath(path, (ClassEntity) classEntity);
         }
-        return false;
     }
 
-    private void finalizeConnections(){
+    /**
+     * Forget the stored summaries, so the next update reads every file
+     */
+    public void clearCodebase() {
+        this.compilationUnitSummaries = new LinkedHashMap<>();
+        this.analyzedRevision = null;
+        clearDependencies();
+    }
+
+    public String getAnalyzedRevision() {
+        return analyzedRevision;
+    }
+
+    /**
+     * Add the connections that come from other connections, once the classes are resolved
+     * @param classEntities     the resolved classes
+     * @param packageEntities   the packages to find the connections of again, which include the packages of the resolved classes
+     */
+    private void finalizeConnections(Collection<ClassEntity> classEntities, Collection<PackageEntity> packageEntities){
         //graphGenerator.clearEntities();
-        updatePackageConnections();
-        updateClassConnections();
+        // the package connections only come from the connections the classes declare, not from their methods' connections
+        for (ClassEntity classEntity : classEntities) {
+            numDeclaredConnections.put(classEntity, classEntity.getNumConnections(false));
+        }
+        packageEntities.forEach(this::updatePackageConnections);
+        classEntities.forEach(this::updateClassConnections);
         //updatePackageConnections();
 
         graphGenerator.setEntitiesCoordinates();
@@ -733,42 +1155,48 @@ public class SourcecodeReader {
 
     }
 
-    private void updateClassConnections(){
-        Collection<Entity> classEntities = graphGenerator.getClassEntities().values();
-        for (Entity classEntity : classEntities){
-            // for each method in the class
-            for (MethodEntity methodEntity : ((ClassEntity) classEntity).getMethods()){
-                // get the connected method
-                for (Entity connectedMethod : methodEntity.getConnectedEntities()){
-                    // and connect the class to the connected method's class
-                    ClassEntity connectedClass = ((MethodEntity) connectedMethod).getClassEntity();
-                    ((ClassEntity) classEntity).addConnectedEntity(connectedClass);
-                }
+    private void updateClassConnections(ClassEntity classEntity){
+        // for each method in the class
+        for (MethodEntity methodEntity : classEntity.getMethods()){
+            // get the connected method
+            for (Entity connectedMethod : methodEntity.getConnectedEntities()){
+                // and connect the class to the connected method's class
+                ClassEntity connectedClass = ((MethodEntity) connectedMethod).getClassEntity();
+                classEntity.addConnectedEntity(connectedClass);
             }
         }
     }
 
 
-    private void updatePackageConnections(){
-        Collection<Entity> packageEntities = graphGenerator.getPackageEntities().values();
-        for (Entity packageEntity : packageEntities){
+    private void updatePackageConnections(PackageEntity packageEntity){
+        packageEntity.clearConnections();
 
-            System.out.println(((PackageEntity) packageEntity).getClasses());
+        // connect the package to the package it is nested in
+        int separatorIndex = packageEntity.getKey().lastIndexOf('.');
+        if (separatorIndex >= 0) {
+            packageEntity.addConnectedEntity((PackageEntity) graphGenerator.getPackageEntities().get(packageEntity.getKey().substring(0, separatorIndex)));
+        }
 
-            // for each class in the package
-            for (ClassEntity classEntity : ((PackageEntity) packageEntity).getClasses()){
+        System.out.println(packageEntity.getClasses());
 
-                // get the connected class
-                for (Entity connectedClass : classEntity.getConnectedEntities()){
-                    // and connect the package to the connected class's package (if it exists)
-                    PackageEntity connectedPackage = ((ClassEntity) connectedClass).getPackageEntity();
-                    if (connectedPackage != null && !connectedPackage.equals(packageEntity)){
-                        ((PackageEntity) packageEntity).addConnectedEntity(connectedPackage);
-                    }
+        // for each class in the package
+        for (ClassEntity classEntity : packageEntity.getClasses()){
+
+            // get the connected class
+            int numConnections = numDeclaredConnections.getOrDefault(classEntity, 0);
+            for (int position = 0; position < numConnections; position++){
+                // and connect the package to the connected class's package (if it exists)
+                PackageEntity connectedPackage = ((ClassEntity) classEntity.getConnectedEntity(position, false)).getPackageEntity();
+                if (connectedPackage != null && !connectedPackage.equals(packageEntity)){
+                    packageEntity.addConnectedEntity(connectedPackage);
                 }
             }
         }
     }
+    public CompilationUnitSummaryCache getSummaryCache() {
+        return summaryCache;
+    }
+
     public GraphGenerator getGraphGenerator() {
         return graphGenerator;
     }
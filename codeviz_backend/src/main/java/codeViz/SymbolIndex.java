@@ -0,0 +1,204 @@
+package codeViz;
+
+import codeViz.codeSummary.CompilationUnitSummary;
+import codeViz.codeSummary.TypeSummary;
+import codeViz.entity.ClassEntity;
+import codeViz.entity.Entity;
+import codeViz.entity.MethodEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the class and method entities, used to resolve type names and method calls
+ * without building a "package.Class.method" key for every call
+ * Built once after all class and method entities are created, it holds the same entities as the graph generator
+ */
+class SymbolIndex {
+
+    private final Map<String, Entity> classEntities;
+    private final HashMap<String, ClassEntity> classesBySimpleName;
+    private final HashMap<String, HashMap<String, MethodEntity>> methodsByClassKey;
+
+    /**
+     * Create the index
+     * @param classEntities     the class entities, keyed by "package.Class"
+     * @param methodEntities    the method entities, keyed by "package.Class.method"
+     */
+    SymbolIndex(Map<String, Entity> classEntities, Map<String, Entity> methodEntities) {
+        this.classEntities = classEntities;
+        this.classesBySimpleName = new HashMap<>();
+        classEntities.values().forEach(entity -> classesBySimpleName.putIfAbsent(entity.getName(), (ClassEntity) entity));
+
+        this.methodsByClassKey = new HashMap<>();
+        methodEntities.forEach((key, entity) -> {
+            int separatorIndex = key.lastIndexOf('.');
+            String classKey = key.substring(0, separatorIndex);
+            String methodName = key.substring(separatorIndex + 1);
+            methodsByClassKey.computeIfAbsent(classKey, k -> new HashMap<>()).put(methodName, (MethodEntity) entity);
+        });
+    }
+
+    /**
+     * Get a method entity, same as getting "classKey.methodName" from the graph generator's method entities
+     * @param classEntity   the class
+     * @param methodName    name of the method
+     * @return              the method entity, or null if it doesn't exist
+     */
+    MethodEntity getMethod(ClassEntity classEntity, String methodName) {
+        if (classEntity == null) {
+            return null;
+        }
+        HashMap<String, MethodEntity> methods = methodsByClassKey.get(classEntity.getKey());
+        return (methods == null) ? null : methods.get(methodName);
+    }
+
+    /**
+     * Create the scope of a compilation unit, to resolve the type names used in it
+     * @param compilationUnitSummary    the compilation unit
+     * @return                          the compilation unit's scope
+     */
+    TypeScope getTypeScope(CompilationUnitSummary compilationUnitSummary) {
+        return new TypeScope(compilationUnitSummary);
+    }
+
+    /**
+     * Create the scope of a method, to resolve the objects its method calls are made on
+     * @param methodEntity      the calling method, with its arguments and local variables already added
+     * @return                  the method's scope
+     */
+    MethodScope getScope(MethodEntity methodEntity) {
+        return new MethodScope(methodEntity);
+    }
+
+    /**
+     * The type names visible in a compilation unit, resolved the way the compiler would:
+     * a qualified name, then the unit's own types, then single-type imports, then the same package, then on-demand imports
+     * Names that can't be resolved this way fall back to the first class with that simple name
+     * Each name is resolved once per compilation unit
+     */
+    class TypeScope {
+
+        private final String packagePrefix;
+        private final List<String> ownTypeNames;
+        private final HashMap<String, String> singleTypeImports;
+        private final List<String> onDemandImports;
+        private final HashMap<String, ClassEntity> resolvedTypes;
+
+        private TypeScope(CompilationUnitSummary compilationUnitSummary) {
+            String packageName = compilationUnitSummary.getPackageName();
+            this.packagePrefix = packageName.isEmpty() ? "" : packageName + ".";
+            this.ownTypeNames = new ArrayList<>();
+            for (TypeSummary typeSummary : compilationUnitSummary.getTypes()) {
+                ownTypeNames.add(typeSummary.getName());
+            }
+
+            this.singleTypeImports = new HashMap<>();
+            this.onDemandImports = new ArrayList<>();
+            for (String importName : compilationUnitSummary.getImports()) {
+                if (importName.endsWith(".*")) {
+                    onDemandImports.add(importName.substring(0, importName.length() - 1)); // keep the "."
+                } else {
+                    singleTypeImports.put(importName.substring(importName.lastIndexOf('.') + 1), importName);
+                }
+            }
+            this.resolvedTypes = new HashMap<>();
+        }
+
+        /**
+         * Get the key of a type declared in this compilation unit
+         * @param typeName  simple name of the type
+         * @return          the fully qualified key
+         */
+        String getKey(String typeName) {
+            return packagePrefix + typeName;
+        }
+
+        /**
+         * Get the class a type name refers to
+         * @param typeName  the type name, ex. "Item" or "shop.Item"
+         * @return          the class entity, or null if it isn't a class in the codebase
+         */
+        ClassEntity resolve(String typeName) {
+            if (typeName == null) {
+                return null;
+            }
+            if (!resolvedTypes.containsKey(typeName)) { // null is a valid result, so computeIfAbsent is not used
+                resolvedTypes.put(typeName, findClassEntity(typeName));
+            }
+            return resolvedTypes.get(typeName);
+        }
+
+        private ClassEntity findClassEntity(String typeName) {
+            ClassEntity classEntity;
+            if (typeName.indexOf('.') >= 0 && (classEntity = getClass(typeName)) != null) {
+                return classEntity;
+            }
+
+            if (ownTypeNames.contains(typeName)) {
+                return getClass(getKey(typeName));
+            }
+
+            String importName = singleTypeImports.get(typeName);
+            if (importName != null) {
+                return getClass(importName); // explicitly a type from outside the codebase if it isn't found
+            }
+
+            if ((classEntity = getClass(getKey(typeName))) != null) {
+                return classEntity;
+            }
+
+            for (String onDemandImport : onDemandImports) {
+                if ((classEntity = getClass(onDemandImport + typeName)) != null) {
+                    return classEntity;
+                }
+            }
+
+            return classesBySimpleName.get(typeName);
+        }
+
+        private ClassEntity getClass(String key) {
+            return (ClassEntity) classEntities.get(key);
+        }
+    }
+
+    /**
+     * The identifiers visible in a method: its arguments, then its local variables, then its class's fields
+     * Each identifier is resolved once, and then reused for every call made on it within the method
+     */
+    static class MethodScope {
+
+        private final MethodEntity methodEntity;
+        private final HashMap<String, List<ClassEntity>> resolvedIdentifiers;
+
+        private MethodScope(MethodEntity methodEntity) {
+            this.methodEntity = methodEntity;
+            this.resolvedIdentifiers = new HashMap<>();
+        }
+
+        /**
+         * Get the classes an identifier could refer to, in the order they should be checked
+         * @param identifier    the object name, ex. "object" in object.methodName()
+         * @return              the possible classes (argument, local variable, field), empty if none
+         */
+        List<ClassEntity> resolve(String identifier) {
+            return resolvedIdentifiers.computeIfAbsent(identifier, this::findClassEntities);
+        }
+
+        private List<ClassEntity> findClassEntities(String identifier) {
+            List<ClassEntity> classEntities = new ArrayList<>(1);
+            addIfPresent(classEntities, methodEntity.getArguments().get(identifier));
+            addIfPresent(classEntities, methodEntity.getLocalVariables().get(identifier));
+            addIfPresent(classEntities, methodEntity.getClassEntity().getFields().get(identifier));
+            return classEntities;
+        }
+
+        private static void addIfPresent(List<ClassEntity> classEntities, ClassEntity classEntity) {
+            if (classEntity != null) {
+                classEntities.add(classEntity);
+            }
+        }
+    }
+}
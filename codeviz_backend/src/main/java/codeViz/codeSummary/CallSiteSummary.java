@@ -0,0 +1,46 @@
+package codeViz.codeSummary;
+
+/**
+ * A method call made within a method or constructor
+ */
+public class CallSiteSummary {
+
+    private final String methodName;
+    private final String scope;
+    private final boolean superScope;
+    private final String enclosingClassName;
+
+    /**
+     * Create a CallSiteSummary
+     * @param methodName            the name of the called method
+     * @param scope                 the scope of the call (ex. object in object.methodName()), null if there is no scope
+     * @param superScope            whether the scope is a super expression
+     * @param enclosingClassName    the class containing the method declaration the call is made in, null if there is none
+     */
+    public CallSiteSummary(String methodName, String scope, boolean superScope, String enclosingClassName) {
+        this.methodName = methodName;
+        this.scope = scope;
+        this.superScope = superScope;
+        this.enclosingClassName = enclosingClassName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public boolean hasScope() {
+        return scope != null;
+    }
+
+    public boolean isSuperScope() {
+        return superScope;
+    }
+
+    public String getEnclosingClassName() {
+        return enclosingClassName;
+    }
+}
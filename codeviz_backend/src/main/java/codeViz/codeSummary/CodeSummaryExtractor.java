@@ -0,0 +1,180 @@
+package codeViz.codeSummary;
+
+import codeViz.codeComplexity.CyclomaticComplexity.CyclomaticComplexityVisitor;
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Extracts a CompilationUnitSummary from a parsed compilation unit
+ * Note: the summary holds the declarations as written in the source, nothing is resolved against other files
+ */
+public class CodeSummaryExtractor {
+
+    private CodeSummaryExtractor() {
+    }
+
+    /**
+     * Summarize a compilation unit
+     * @param compilationUnit   the parsed compilation unit
+     * @return                  the summary
+     */
+    public static CompilationUnitSummary summarize(CompilationUnit compilationUnit) {
+        String packageName = compilationUnit.getPackageDeclaration()
+                .map(pd -> pd.getName().toString())
+                .orElse("");
+
+        List<String> imports = new ArrayList<>();
+        compilationUnit.getImports().forEach(importDeclaration -> {
+            if (!importDeclaration.isStatic()) {
+                imports.add(importDeclaration.getNameAsString() + (importDeclaration.isAsterisk() ? ".*" : ""));
+            }
+        });
+
+        List<TypeSummary> types = new ArrayList<>();
+        compilationUnit.getTypes().forEach(type -> types.add(summarizeType(type)));
+
+        CyclomaticComplexityVisitor complexityVisitor = new CyclomaticComplexityVisitor();
+        complexityVisitor.visit(compilationUnit, null);
+
+        return new CompilationUnitSummary(packageName, imports, types, complexityVisitor.getMethodComplexities());
+    }
+
+    private static TypeSummary summarizeType(TypeDeclaration<?> type) {
+        TypeKind kind;
+        String superClassName = null;
+
+        if (type instanceof ClassOrInterfaceDeclaration classDeclaration) {
+            kind = TypeKind.CLASS_OR_INTERFACE;
+            if (classDeclaration.getExtendedTypes().size() == 1) {
+                superClassName = classDeclaration.getExtendedTypes().get(0).getNameAsString();
+            }
+        } else if (type instanceof EnumDeclaration) {
+            kind = TypeKind.ENUM;
+        } else {
+            return new TypeSummary(type.getNameAsString(), TypeKind.OTHER, getLine(type.getBegin()), getLine(type.getEnd()),
+                    null, List.of(), List.of(), List.of());
+        }
+
+        // the class that unscoped calls in the method bodies resolve against, enums have none
+        String enclosingClassName = kind == TypeKind.CLASS_OR_INTERFACE ? type.getNameAsString() : null;
+
+        List<FieldSummary> fields = new ArrayList<>();
+        type.getFields().forEach(fieldDeclaration -> fields.add(summarizeField(fieldDeclaration)));
+
+        List<MethodSummary> constructors = new ArrayList<>();
+        type.getConstructors().forEach(constructorDeclaration -> constructors.add(
+                summarizeMethod(constructorDeclaration, null, Optional.of(constructorDeclaration.getBody()), enclosingClassName)));
+
+        List<MethodSummary> methods = new ArrayList<>();
+        type.getMethods().forEach(methodDeclaration -> methods.add(
+                summarizeMethod(methodDeclaration, String.valueOf(methodDeclaration.getType()), methodDeclaration.getBody(), enclosingClassName)));
+
+        return new TypeSummary(type.getNameAsString(), kind, getLine(type.getBegin()), getLine(type.getEnd()),
+                superClassName, fields, constructors, methods);
+    }
+
+    private static FieldSummary summarizeField(FieldDeclaration fieldDeclaration) {
+        String elementType = String.valueOf(fieldDeclaration.getElementType());
+        String fieldName = fieldDeclaration.getVariables().get(0).getNameAsString();
+
+        String classTypeName = null;
+        List<String> typeArgumentNames = new ArrayList<>();
+        if (fieldDeclaration.getElementType().isClassOrInterfaceType()) {
+            ClassOrInterfaceType fieldType = fieldDeclaration.getElementType().asClassOrInterfaceType();
+            classTypeName = fieldType.getNameAsString();
+
+            // parameterized types (List, Set, etc.)
+            fieldType.getTypeArguments().ifPresent(typeArguments -> typeArguments.forEach(typeArg -> {
+                if (typeArg.isClassOrInterfaceType()) {
+                    typeArgumentNames.add(typeArg.asClassOrInterfaceType().getNameAsString());
+                }
+            }));
+        }
+
+        return new FieldSummary(elementType, fieldName, classTypeName, typeArgumentNames);
+    }
+
+    private static MethodSummary summarizeMethod(CallableDeclaration<?> declaration, String returnType, Optional<BlockStmt> body,
+                                                 String enclosingClassName) {
+        List<VariableSummary> parameters = new ArrayList<>();
+        declaration.getParameters().forEach(parameter ->
+                parameters.add(new VariableSummary(String.valueOf(parameter.getType()), parameter.getNameAsString())));
+
+        List<VariableSummary> localVariables = new ArrayList<>();
+        body.ifPresent(blockStmt -> blockStmt.findAll(VariableDeclarationExpr.class).forEach(variableExpr ->
+                variableExpr.getVariables().forEach(variable ->
+                        localVariables.add(new VariableSummary(String.valueOf(variable.getType()), variable.getNameAsString())))));
+
+        return new MethodSummary(declaration.getNameAsString(), getLine(declaration.getBegin()), getLine(declaration.getEnd()),
+                parameters, returnType, localVariables, summarizeCallSites(declaration, enclosingClassName));
+    }
+
+    /**
+     * Get the method calls made within a declaration
+     * Calls are stored in the order they are visited (inner calls before the calls that contain them)
+     * Unscoped calls get the class containing the closest method declaration around them, which is tracked
+     * while visiting instead of being searched for from each call
+     * @param declaration           the method or constructor declaration
+     * @param enclosingClassName    the class the declaration belongs to, null if it is not a class or interface
+     * @return                      the call sites
+     */
+    private static List<CallSiteSummary> summarizeCallSites(Node declaration, String enclosingClassName) {
+        List<CallSiteSummary> callSites = new ArrayList<>();
+        declaration.accept(new VoidVisitorAdapter<Void>() {
+            private String className = enclosingClassName; // innermost class declaration visited so far
+            private String methodClassName = null; // class containing the innermost method declaration, null in constructors
+
+            @Override
+            public void visit(ClassOrInterfaceDeclaration classDeclaration, Void arg) {
+                String outerClassName = className;
+                className = classDeclaration.getNameAsString();
+                super.visit(classDeclaration, arg);
+                className = outerClassName;
+            }
+
+            @Override
+            public void visit(MethodDeclaration methodDeclaration, Void arg) {
+                String outerMethodClassName = methodClassName;
+                methodClassName = className;
+                super.visit(methodDeclaration, arg);
+                methodClassName = outerMethodClassName;
+            }
+
+            @Override
+            public void visit(MethodCallExpr methodCallExpr, Void arg) {
+                super.visit(methodCallExpr, arg);
+
+                String scope = null;
+                boolean superScope = false;
+                String callEnclosingClassName = null;
+
+                if (methodCallExpr.getScope().isPresent()) { // ex. object.methodName()
+                    Expression expression = methodCallExpr.getScope().get();
+                    scope = expression.toString();
+                    superScope = expression.isSuperExpr();
+                } else { // ex. methodName()
+                    callEnclosingClassName = methodClassName;
+                }
+
+                callSites.add(new CallSiteSummary(methodCallExpr.getNameAsString(), scope, superScope, callEnclosingClassName));
+            }
+        }, null);
+        return callSites;
+    }
+
+    private static int getLine(Optional<Position> position) {
+        return position.map(p -> p.line).orElse(0);
+    }
+}
@@ -0,0 +1,214 @@
+package codeViz.codeSummary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes CompilationUnitSummaries in a compact binary format
+ * The format starts with CompilationUnitSummaryCache.FORMAT_VERSION, so entries written by an older version are rejected
+ */
+public class CodeSummarySerializer {
+
+    private static final int MAGIC = 0x43565355; // "CVSU"
+
+    private CodeSummarySerializer() {
+    }
+
+    public static void write(CompilationUnitSummary compilationUnitSummary, DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(MAGIC);
+        outputStream.writeInt(CompilationUnitSummaryCache.FORMAT_VERSION);
+
+        writeString(compilationUnitSummary.getPackageName(), outputStream);
+        writeStrings(compilationUnitSummary.getImports(), outputStream);
+
+        outputStream.writeInt(compilationUnitSummary.getTypes().size());
+        for (TypeSummary typeSummary : compilationUnitSummary.getTypes()) {
+            writeType(typeSummary, outputStream);
+        }
+
+        outputStream.writeInt(compilationUnitSummary.getMethodComplexities().size());
+        for (Map.Entry<String, Integer> entry : compilationUnitSummary.getMethodComplexities().entrySet()) {
+            writeString(entry.getKey(), outputStream);
+            outputStream.writeInt(entry.getValue());
+        }
+    }
+
+    public static CompilationUnitSummary read(DataInputStream inputStream) throws IOException {
+        if (inputStream.readInt() != MAGIC) {
+            throw new IOException("Not a summary");
+        }
+        int version = inputStream.readInt();
+        if (version != CompilationUnitSummaryCache.FORMAT_VERSION) {
+            throw new IOException("Summary format version " + version + " is not supported");
+        }
+
+        String packageName = readString(inputStream);
+        List<String> imports = readStrings(inputStream);
+
+        int numTypes = inputStream.readInt();
+        List<TypeSummary> types = new ArrayList<>(numTypes);
+        for (int i = 0; i < numTypes; i++) {
+            types.add(readType(inputStream));
+        }
+
+        int numComplexities = inputStream.readInt();
+        Map<String, Integer> methodComplexities = new LinkedHashMap<>();
+        for (int i = 0; i < numComplexities; i++) {
+            String classAndMethodName = readString(inputStream);
+            methodComplexities.put(classAndMethodName, inputStream.readInt());
+        }
+
+        return new CompilationUnitSummary(packageName, imports, types, methodComplexities);
+    }
+
+    private static void writeType(TypeSummary typeSummary, DataOutputStream outputStream) throws IOException {
+        writeString(typeSummary.getName(), outputStream);
+        outputStream.writeInt(typeSummary.getKind().ordinal());
+        outputStream.writeInt(typeSummary.getBeginLine());
+        outputStream.writeInt(typeSummary.getEndLine());
+        writeString(typeSummary.getSuperClassName(), outputStream);
+
+        outputStream.writeInt(typeSummary.getFields().size());
+        for (FieldSummary fieldSummary : typeSummary.getFields()) {
+            writeString(fieldSummary.getElementType(), outputStream);
+            writeString(fieldSummary.getName(), outputStream);
+            writeString(fieldSummary.getClassTypeName(), outputStream);
+            writeStrings(fieldSummary.getTypeArgumentNames(), outputStream);
+        }
+
+        writeMethods(typeSummary.getConstructors(), outputStream);
+        writeMethods(typeSummary.getMethods(), outputStream);
+    }
+
+    private static TypeSummary readType(DataInputStream inputStream) throws IOException {
+        String name = readString(inputStream);
+        TypeKind kind = TypeKind.values()[inputStream.readInt()];
+        int beginLine = inputStream.readInt();
+        int endLine = inputStream.readInt();
+        String superClassName = readString(inputStream);
+
+        int numFields = inputStream.readInt();
+        List<FieldSummary> fields = new ArrayList<>(numFields);
+        for (int i = 0; i < numFields; i++) {
+            String elementType = readString(inputStream);
+            String fieldName = readString(inputStream);
+            String classTypeName = readString(inputStream);
+            fields.add(new FieldSummary(elementType, fieldName, classTypeName, readStrings(inputStream)));
+        }
+
+        List<MethodSummary> constructors = readMethods(inputStream);
+        List<MethodSummary> methods = readMethods(inputStream);
+
+        return new TypeSummary(name, kind, beginLine, endLine, superClassName, fields, constructors, methods);
+    }
+
+    private static void writeMethods(List<MethodSummary> methodSummaries, DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(methodSummaries.size());
+        for (MethodSummary methodSummary : methodSummaries) {
+            writeString(methodSummary.getName(), outputStream);
+            outputStream.writeInt(methodSummary.getBeginLine());
+            outputStream.writeInt(methodSummary.getEndLine());
+            writeVariables(methodSummary.getParameters(), outputStream);
+            writeString(methodSummary.getReturnType(), outputStream);
+            writeVariables(methodSummary.getLocalVariables(), outputStream);
+
+            outputStream.writeInt(methodSummary.getCallSites().size());
+            for (CallSiteSummary callSite : methodSummary.getCallSites()) {
+                writeString(callSite.getMethodName(), outputStream);
+                writeString(callSite.getScope(), outputStream);
+                outputStream.writeBoolean(callSite.isSuperScope());
+                writeString(callSite.getEnclosingClassName(), outputStream);
+            }
+        }
+    }
+
+    private static List<MethodSummary> readMethods(DataInputStream inputStream) throws IOException {
+        int numMethods = inputStream.readInt();
+        List<MethodSummary> methodSummaries = new ArrayList<>(numMethods);
+        for (int i = 0; i < numMethods; i++) {
+            String name = readString(inputStream);
+            int beginLine = inputStream.readInt();
+            int endLine = inputStream.readInt();
+            List<VariableSummary> parameters = readVariables(inputStream);
+            String returnType = readString(inputStream);
+            List<VariableSummary> localVariables = readVariables(inputStream);
+
+            int numCallSites = inputStream.readInt();
+            List<CallSiteSummary> callSites = new ArrayList<>(numCallSites);
+            for (int j = 0; j < numCallSites; j++) {
+                String methodName = readString(inputStream);
+                String scope = readString(inputStream);
+                boolean superScope = inputStream.readBoolean();
+                String enclosingClassName = readString(inputStream);
+                callSites.add(new CallSiteSummary(methodName, scope, superScope, enclosingClassName));
+            }
+
+            methodSummaries.add(new MethodSummary(name, beginLine, endLine, parameters, returnType, localVariables, callSites));
+        }
+        return methodSummaries;
+    }
+
+    private static void writeVariables(List<VariableSummary> variables, DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(variables.size());
+        for (VariableSummary variable : variables) {
+            writeString(variable.getType(), outputStream);
+            writeString(variable.getName(), outputStream);
+        }
+    }
+
+    private static List<VariableSummary> readVariables(DataInputStream inputStream) throws IOException {
+        int numVariables = inputStream.readInt();
+        List<VariableSummary> variables = new ArrayList<>(numVariables);
+        for (int i = 0; i < numVariables; i++) {
+            String type = readString(inputStream);
+            variables.add(new VariableSummary(type, readString(inputStream)));
+        }
+        return variables;
+    }
+
+    private static void writeStrings(List<String> strings, DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(string, outputStream);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream inputStream) throws IOException {
+        int numStrings = inputStream.readInt();
+        List<String> strings = new ArrayList<>(numStrings);
+        for (int i = 0; i < numStrings; i++) {
+            strings.add(readString(inputStream));
+        }
+        return strings;
+    }
+
+    /**
+     * Strings are written as a length and UTF-8 bytes, so long scope expressions are not limited to 64KB like writeUTF
+     * A null string is written with a length of -1
+     */
+    private static void writeString(String string, DataOutputStream outputStream) throws IOException {
+        if (string == null) {
+            outputStream.writeInt(-1);
+        } else {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            outputStream.writeInt(bytes.length);
+            outputStream.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream inputStream) throws IOException {
+        int length = inputStream.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        inputStream.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package codeViz.codeSummary;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the SourcecodeReader needs from a parsed .java file,
+ * so each file only has to be parsed once
+ */
+public class CompilationUnitSummary {
+
+    private final String packageName;
+    private final List<String> imports;
+    private final List<TypeSummary> types;
+    private final Map<String, Integer> methodComplexities;
+
+    /**
+     * Create a CompilationUnitSummary
+     * @param packageName           the declared package name, empty if there is none
+     * @param imports               the non-static imports, ex. "java.util.List" or "java.util.*"
+     * @param types                 the top-level types, in declaration order
+     * @param methodComplexities    cyclomatic complexity of each method, keyed by Class.method
+     */
+    public CompilationUnitSummary(String packageName, List<String> imports, List<TypeSummary> types, Map<String, Integer> methodComplexities) {
+        this.packageName = packageName;
+        this.imports = imports;
+        this.types = types;
+        this.methodComplexities = methodComplexities;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+
+    public List<TypeSummary> getTypes() {
+        return types;
+    }
+
+    public Map<String, Integer> getMethodComplexities() {
+        return methodComplexities;
+    }
+}
@@ -0,0 +1,215 @@
+package codeViz.codeSummary;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of CompilationUnitSummaries, keyed by a hash of the .java file contents
+ * Files that did not change between analyses do not need to be parsed again
+ * The cache is bounded by size, and the least recently used entries are removed first
+ */
+public class CompilationUnitSummaryCache {
+
+    // increase whenever the summary format or the extraction changes, old entries are then ignored and removed
+    public static final int FORMAT_VERSION = 2;
+
+    public static final String DEFAULT_CACHE_DIRECTORY = "./codeviz_cache/summaries";
+    public static final long DEFAULT_MAX_SIZE_BYTES = 256L * 1024 * 1024;
+
+    private static final String VERSION_DIRECTORY_PREFIX = "v";
+    private static final String ENTRY_SUFFIX = ".summary";
+
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    // hash -> entry size in bytes, in least recently used order
+    private final LinkedHashMap<String, Long> entrySizes;
+    private long totalSizeBytes;
+
+    /**
+     * Create a cache, loading any entries already stored in the directory
+     * @param baseDirectory     directory to store the cache in
+     * @param maxSizeBytes      maximum total size of the stored entries
+     */
+    public CompilationUnitSummaryCache(Path baseDirectory, long maxSizeBytes) {
+        this.directory = baseDirectory.resolve(VERSION_DIRECTORY_PREFIX + FORMAT_VERSION);
+        this.maxSizeBytes = maxSizeBytes;
+        this.entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+        this.totalSizeBytes = 0;
+
+        try {
+            Files.createDirectories(directory);
+            removeOldVersions(baseDirectory);
+            loadEntries();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create summary cache in " + directory, e);
+        }
+    }
+
+    /**
+     * Get the hash used to identify a file's contents
+     * @param fileContents  contents of the file
+     * @return              SHA-256 hash, as a hex string
+     */
+    public static String hash(byte[] fileContents) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(fileContents));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get a stored summary
+     * @param hash      hash of the file contents
+     * @return          the summary, or null if it is not stored
+     */
+    public CompilationUnitSummary get(String hash) {
+        synchronized (this) {
+            if (entrySizes.get(hash) == null) { // also marks the entry as recently used
+                return null;
+            }
+        }
+
+        Path entryPath = getEntryPath(hash);
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryPath)))) {
+            CompilationUnitSummary compilationUnitSummary = CodeSummarySerializer.read(inputStream);
+            entryPath.toFile().setLastModified(System.currentTimeMillis()); // keep the LRU order for the next run
+            return compilationUnitSummary;
+        } catch (IOException e) {
+            System.out.println("ERROR, could not read cached summary " + hash + ": " + e.getMessage());
+            remove(hash);
+            return null;
+        }
+    }
+
+    /**
+     * Store a summary, removing the least recently used entries if the cache is full
+     * @param hash                      hash of the file contents
+     * @param compilationUnitSummary    the summary to store
+     */
+    public void put(String hash, CompilationUnitSummary compilationUnitSummary) {
+        Path entryPath = getEntryPath(hash);
+        try {
+            // write to a temporary file first, so a partly written entry is never read
+            Path tempPath = Files.createTempFile(directory, hash, ".tmp");
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                CodeSummarySerializer.write(compilationUnitSummary, outputStream);
+            }
+            Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long entrySize = Files.size(entryPath);
+            synchronized (this) {
+                Long previousSize = entrySizes.put(hash, entrySize);
+                totalSizeBytes += entrySize - (previousSize == null ? 0 : previousSize);
+                evictLeastRecentlyUsed();
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR, could not cache summary " + hash + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return entrySizes.size();
+    }
+
+    public synchronized long getTotalSizeBytes() {
+        return totalSizeBytes;
+    }
+
+    public synchronized boolean contains(String hash) {
+        return entrySizes.containsKey(hash);
+    }
+
+    /**
+     * Remove all stored entries
+     */
+    public synchronized void clear() {
+        for (String hash : new ArrayList<>(entrySizes.keySet())) {
+            remove(hash);
+        }
+    }
+
+    private synchronized void remove(String hash) {
+        Long entrySize = entrySizes.remove(hash);
+        if (entrySize != null) {
+            totalSizeBytes -= entrySize;
+        }
+        try {
+            Files.deleteIfExists(getEntryPath(hash));
+        } catch (IOException e) {
+            System.out.println("ERROR, could not remove cached summary " + hash + ": " + e.getMessage());
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+        // always keep the most recent entry, even if it is larger than the cache
+        while (totalSizeBytes > maxSizeBytes && entrySizes.size() > 1 && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            String hash = entry.getKey();
+            totalSizeBytes -= entry.getValue();
+            iterator.remove();
+            try {
+                Files.deleteIfExists(getEntryPath(hash));
+            } catch (IOException e) {
+                System.out.println("ERROR, could not remove cached summary " + hash + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Path getEntryPath(String hash) {
+        return directory.resolve(hash + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Load the entries from a previous run, oldest first
+     */
+    private void loadEntries() throws IOException {
+        List<File> entryFiles = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(ENTRY_SUFFIX)) {
+                    entryFiles.add(path.toFile());
+                } else if (fileName.endsWith(".tmp")) { // left over from an interrupted write
+                    path.toFile().delete();
+                }
+            });
+        }
+        entryFiles.sort(Comparator.comparingLong(File::lastModified));
+
+        for (File entryFile : entryFiles) {
+            String fileName = entryFile.getName();
+            String hash = fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length());
+            entrySizes.put(hash, entryFile.length());
+            totalSizeBytes += entryFile.length();
+        }
+        evictLeastRecentlyUsed();
+    }
+
+    /**
+     * Remove the entries stored with another format version
+     */
+    private void removeOldVersions(Path baseDirectory) throws IOException {
+        try (Stream<Path> paths = Files.list(baseDirectory)) {
+            paths.filter(path -> Files.isDirectory(path)
+                            && path.getFileName().toString().startsWith(VERSION_DIRECTORY_PREFIX)
+                            && !path.equals(directory))
+                    .forEach(CompilationUnitSummaryCache::deleteDirectory);
+        }
+    }
+
+    private static void deleteDirectory(Path oldDirectory) {
+        try (Stream<Path> paths = Files.walk(oldDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.out.println("ERROR, could not remove old summary cache " + oldDirectory + ": " + e.getMessage());
+        }
+    }
+}
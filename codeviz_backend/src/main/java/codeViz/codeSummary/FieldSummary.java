@@ -0,0 +1,44 @@
+package codeViz.codeSummary;
+
+import java.util.List;
+
+/**
+ * A field declaration of a type
+ */
+public class FieldSummary {
+
+    private final String elementType;
+    private final String name;
+    private final String classTypeName;
+    private final List<String> typeArgumentNames;
+
+    /**
+     * Create a FieldSummary
+     * @param elementType           the element type, as written in the source (ex. Set<ClassEntity>)
+     * @param name                  the name of the first declared variable
+     * @param classTypeName         the name of the class or interface type (ex. Set), null if not a class or interface type
+     * @param typeArgumentNames     the names of any class or interface type arguments (ex. ClassEntity)
+     */
+    public FieldSummary(String elementType, String name, String classTypeName, List<String> typeArgumentNames) {
+        this.elementType = elementType;
+        this.name = name;
+        this.classTypeName = classTypeName;
+        this.typeArgumentNames = typeArgumentNames;
+    }
+
+    public String getElementType() {
+        return elementType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getClassTypeName() {
+        return classTypeName;
+    }
+
+    public List<String> getTypeArgumentNames() {
+        return typeArgumentNames;
+    }
+}
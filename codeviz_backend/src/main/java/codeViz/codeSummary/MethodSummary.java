@@ -0,0 +1,67 @@
+package codeViz.codeSummary;
+
+import java.util.List;
+
+/**
+ * A method or constructor declaration of a type
+ */
+public class MethodSummary {
+
+    private final String name;
+    private final int beginLine;
+    private final int endLine;
+    private final List<VariableSummary> parameters;
+    private final String returnType;
+    private final List<VariableSummary> localVariables;
+    private final List<CallSiteSummary> callSites;
+
+    /**
+     * Create a MethodSummary
+     * @param name              name of the method
+     * @param beginLine         first line of the declaration, 0 if unknown
+     * @param endLine           last line of the declaration, 0 if unknown
+     * @param parameters        parameters, in declaration order
+     * @param returnType        return type as written in the source, null for constructors
+     * @param localVariables    local variables declared in the body
+     * @param callSites         method calls made in the declaration, in visiting order
+     */
+    public MethodSummary(String name, int beginLine, int endLine,
+                         List<VariableSummary> parameters, String returnType,
+                         List<VariableSummary> localVariables, List<CallSiteSummary> callSites) {
+        this.name = name;
+        this.beginLine = beginLine;
+        this.endLine = endLine;
+        this.parameters = parameters;
+        this.returnType = returnType;
+        this.localVariables = localVariables;
+        this.callSites = callSites;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBeginLine() {
+        return beginLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public List<VariableSummary> getParameters() {
+        return parameters;
+    }
+
+    public String getReturnType() {
+        return returnType;
+    }
+
+    public List<VariableSummary> getLocalVariables() {
+        return localVariables;
+    }
+
+    public List<CallSiteSummary> getCallSites() {
+        return callSites;
+    }
+}
@@ -0,0 +1,10 @@
+package codeViz.codeSummary;
+
+/**
+ * Kinds of top-level type declarations in a compilation unit
+ */
+public enum TypeKind {
+    CLASS_OR_INTERFACE,
+    ENUM,
+    OTHER // records, annotations, etc. (only used to create the package)
+}
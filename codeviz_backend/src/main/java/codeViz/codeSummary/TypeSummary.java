@@ -0,0 +1,73 @@
+package codeViz.codeSummary;
+
+import java.util.List;
+
+/**
+ * A top-level type declaration (class, interface, enum, etc.) of a compilation unit
+ */
+public class TypeSummary {
+
+    private final String name;
+    private final TypeKind kind;
+    private final int beginLine;
+    private final int endLine;
+    private final String superClassName;
+    private final List<FieldSummary> fields;
+    private final List<MethodSummary> constructors;
+    private final List<MethodSummary> methods;
+
+    /**
+     * Create a TypeSummary
+     * @param name              name of the type
+     * @param kind              kind of the type
+     * @param beginLine         first line of the declaration, 0 if unknown
+     * @param endLine           last line of the declaration, 0 if unknown
+     * @param superClassName    name of the single extended type, null if there is not exactly one
+     * @param fields            field declarations
+     * @param constructors      constructor declarations
+     * @param methods           method declarations
+     */
+    public TypeSummary(String name, TypeKind kind, int beginLine, int endLine, String superClassName,
+                       List<FieldSummary> fields, List<MethodSummary> constructors, List<MethodSummary> methods) {
+        this.name = name;
+        this.kind = kind;
+        this.beginLine = beginLine;
+        this.endLine = endLine;
+        this.superClassName = superClassName;
+        this.fields = fields;
+        this.constructors = constructors;
+        this.methods = methods;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TypeKind getKind() {
+        return kind;
+    }
+
+    public int getBeginLine() {
+        return beginLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public List<FieldSummary> getFields() {
+        return fields;
+    }
+
+    public List<MethodSummary> getConstructors() {
+        return constructors;
+    }
+
+    public List<MethodSummary> getMethods() {
+        return methods;
+    }
+}
@@ -0,0 +1,28 @@
+package codeViz.codeSummary;
+
+/**
+ * A typed name, used for parameters and local variables
+ */
+public class VariableSummary {
+
+    private final String type;
+    private final String name;
+
+    /**
+     * Create a VariableSummary
+     * @param type  the type of the variable, as written in the source
+     * @param name  the name of the variable
+     */
+    public VariableSummary(String type, String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,99 @@
+package codeViz.entity;
+
+import java.util.List;
+
+/**
+ * The connections of one level in compressed sparse row form, using the entity ids of the level's symbol table
+ * The connections of the entity with id i are at positions getStart(i) to getEnd(i) - 1
+ * A store is a snapshot, it does not see connections added after it is built, which changes the version of the level's symbol table
+ */
+public class AdjacencyStore {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final float[] weights;
+
+    private AdjacencyStore(int[] offsets, int[] targets, float[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Build the store for a level
+     * Connections to entities that are not in the list are left out
+     * @param entitiesById      the entities of the level, where each entity is at the index of its id (null if removed)
+     * @param gitHistory        whether to use the git history connections instead of the dependency connections
+     * @return                  the store
+     */
+    public static AdjacencyStore build(List<Entity> entitiesById, boolean gitHistory) {
+        int numEntities = entitiesById.size();
+        int[] offsets = new int[numEntities + 1];
+
+        int numConnections = 0;
+        for (Entity entity : entitiesById) {
+            if (entity != null) {
+                numConnections += entity.getNumConnections(gitHistory);
+            }
+        }
+
+        int[] targets = new int[numConnections];
+        float[] weights = new float[numConnections];
+        int position = 0;
+        for (int id = 0; id < numEntities; id++) {
+            offsets[id] = position;
+            Entity entity = entitiesById.get(id);
+            if (entity == null) {
+                continue;
+            }
+            for (int i = 0; i < entity.getNumConnections(gitHistory); i++) {
+                Entity connectedEntity = entity.getConnectedEntity(i, gitHistory);
+                int targetId = connectedEntity.getId();
+                if (targetId >= 0 && targetId < numEntities && entitiesById.get(targetId) == connectedEntity) {
+                    targets[position] = targetId;
+                    weights[position] = entity.getConnectionWeight(i, gitHistory);
+                    position++;
+                }
+            }
+        }
+        offsets[numEntities] = position;
+
+        return new AdjacencyStore(offsets, targets, weights);
+    }
+
+    public int getNumEntities() {
+        return offsets.length - 1;
+    }
+
+    public int getNumConnections() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * @param id    id of the source entity
+     * @return      position of the entity's first connection
+     */
+    public int getStart(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * @param id    id of the source entity
+     * @return      position after the entity's last connection
+     */
+    public int getEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    /**
+     * @param position  position of the connection
+     * @return          id of the connected entity
+     */
+    public int getTarget(int position) {
+        return targets[position];
+    }
+
+    public float getWeight(int position) {
+        return weights[position];
+    }
+}
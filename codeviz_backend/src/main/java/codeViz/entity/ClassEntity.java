@@ -20,6 +20,8 @@ public class ClassEntity extends Entity {
     private final HashMap<String, MethodEntity> methods;
 
     private ClassEntity superClass; // may have methods not defined in this class alone
+    private int numAddedFields; // each added field adds to the size, even if it replaced a field with the same name
+    private final String key;
 
     public ClassEntity(String name, PackageEntity packageEntity){
         super(name, EntityType.CLASS, new ClassComplexityDetails(), packageEntity);
@@ -27,10 +29,18 @@ public class ClassEntity extends Entity {
         this.fields = new LinkedHashMap<>();
         this.methods = new LinkedHashMap<>();
         this.superClass = null;
+        this.numAddedFields = 0;
 
         if (packageEntity != null){
             packageEntity.addClass(this);
         }
+
+        // classes in the default package are only identified by their name
+        if (packageEntity == null || packageEntity.getKey().isEmpty()){
+            this.key = name;
+        } else {
+            this.key = packageEntity.getKey() + "." + name;
+        }
     }
 
     public ClassEntity(String name){
@@ -58,6 +68,16 @@ public class ClassEntity extends Entity {
         return superClass;
     }
 
+    /**
+     * Remove the superclass, so it can be set again
+     */
+    public void clearSuperClass() {
+        if (superClass != null) {
+            superClass.decrementSize();
+            superClass = null;
+        }
+    }
+
     /**
      * Add method to a class if it doesn't already exist
      * @author Thanuja Sivaananthan
@@ -77,6 +97,16 @@ public class ClassEntity extends Entity {
         return new LinkedHashSet<>(methods.values());
     }
 
+    /**
+     * Remove all the methods, so they can be added again from the class's new declaration
+     */
+    public void clearMethods() {
+        for (int i = 0; i < methods.size(); i++) {
+            decrementSize();
+        }
+        methods.clear();
+    }
+
     /**
      * Get a classEntity's methodEntity
      * @author Thanuja Sivaananthan
@@ -122,9 +152,21 @@ public class ClassEntity extends Entity {
 
     public void addField(String objectName, ClassEntity field) {
         this.fields.put(objectName, field);
+        numAddedFields++;
         incrementSize();
     }
 
+    /**
+     * Remove all the fields, so they can be added again
+     */
+    public void clearFields() {
+        for (int i = 0; i < numAddedFields; i++) {
+            decrementSize();
+        }
+        fields.clear();
+        numAddedFields = 0;
+    }
+
     public HashMap<String, ClassEntity> getFields() {
         return fields;
     }
@@ -147,12 +189,7 @@ public class ClassEntity extends Entity {
 
     @Override
     public String getKey() {
-        String name = getName();
-        if (packageEntity == null){
-            return getName();
-        } else {
-            return packageEntity.getKey() + "." + name;
-        }
+        return key;
     }
     /**
      * Check if the class has a field with the given name.
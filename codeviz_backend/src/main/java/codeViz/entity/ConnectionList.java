@@ -0,0 +1,238 @@
+package codeViz.entity;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The weighted connections of one entity, stored as parallel arrays of connected entities and float weights
+ * Connections keep the order they were first added in
+ * Small lists are searched directly, larger lists also keep an open addressing index of the positions
+ */
+final class ConnectionList {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int INDEX_THRESHOLD = 8; // lists up to this size are searched directly
+
+    private Entity[] entities;
+    private float[] weights;
+    private int size;
+
+    private int[] index; // position + 1 of each entity, 0 for an empty slot, null until the list is large enough
+
+    ConnectionList() {
+        this.entities = new Entity[0];
+        this.weights = new float[0];
+        this.size = 0;
+        this.index = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Entity getEntity(int position) {
+        return entities[position];
+    }
+
+    float getWeight(int position) {
+        return weights[position];
+    }
+
+    /**
+     * Get the position of a connected entity
+     * @param entity    the connected entity
+     * @return          the position, or -1 if the entity isn't connected
+     */
+    int indexOf(Object entity) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (entities[i] == entity) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for (int slot = hash(entity) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int position = index[slot] - 1;
+            if (entities[position] == entity) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add to the weight of a connection, adding the connection if it doesn't exist yet
+     */
+    void addWeight(Entity entity, float weight) {
+        int position = indexOf(entity);
+        if (position >= 0) {
+            weights[position] += weight;
+        } else {
+            append(entity, weight);
+        }
+    }
+
+    /**
+     * Set the weight of a connection, adding the connection if it doesn't exist yet
+     */
+    void setWeight(Entity entity, float weight) {
+        int position = indexOf(entity);
+        if (position >= 0) {
+            weights[position] = weight;
+        } else {
+            append(entity, weight);
+        }
+    }
+
+    /**
+     * Remove all connections
+     */
+    void clear() {
+        entities = new Entity[0];
+        weights = new float[0];
+        size = 0;
+        index = null;
+    }
+
+    private void append(Entity entity, float weight) {
+        if (size == entities.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            entities = Arrays.copyOf(entities, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        entities[size] = entity;
+        weights[size] = weight;
+        size++;
+
+        if (index != null && size * 2 > index.length) {
+            rebuildIndex(index.length * 2);
+        } else if (index != null) {
+            insertIntoIndex(size - 1);
+        } else if (size > INDEX_THRESHOLD) {
+            rebuildIndex(Integer.highestOneBit(size) * 4);
+        }
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertIntoIndex(i);
+        }
+    }
+
+    private void insertIntoIndex(int position) {
+        int mask = index.length - 1;
+        int slot = hash(entities[position]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private static int hash(Object entity) {
+        int hash = System.identityHashCode(entity);
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * A read-only map view of the connections and their weights
+     */
+    Map<Entity, Float> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return indexOf(key) >= 0;
+            }
+
+            @Override
+            public Float get(Object key) {
+                int position = indexOf(key);
+                return (position < 0) ? null : weights[position];
+            }
+
+            @Override
+            public Set<Entity> keySet() {
+                return asSet();
+            }
+
+            @Override
+            public Set<Map.Entry<Entity, Float>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<Entity, Float>> iterator() {
+                        return new PositionIterator<>() {
+                            @Override
+                            Map.Entry<Entity, Float> get(int position) {
+                                return new AbstractMap.SimpleImmutableEntry<>(entities[position], weights[position]);
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A read-only set view of the connected entities
+     */
+    Set<Entity> asSet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object object) {
+                return indexOf(object) >= 0;
+            }
+
+            @Override
+            public Iterator<Entity> iterator() {
+                return new PositionIterator<>() {
+                    @Override
+                    Entity get(int position) {
+                        return entities[position];
+                    }
+                };
+            }
+        };
+    }
+
+    private abstract class PositionIterator<T> implements Iterator<T> {
+        private int position = 0;
+
+        abstract T get(int position);
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public T next() {
+            if (position >= size) {
+                throw new NoSuchElementException();
+            }
+            return get(position++);
+        }
+    }
+}
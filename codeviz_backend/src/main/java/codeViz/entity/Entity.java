@@ -3,7 +3,6 @@ package codeViz.entity;
 import codeViz.codeComplexity.ComplexityDetails;
 import codeViz.gitHistory.CommitInfo;
 import codeViz.TextAnnotate;
-import org.gephi.graph.api.Node;
 import java.util.*;
 import java.awt.Color;
 
@@ -15,7 +14,7 @@ import java.awt.Color;
 public abstract class Entity {
     private final String name;
     private final EntityType entityType;
-    private final Map<Entity, Float> connectedEntitiesAndWeights; //stores the weight of connections
+    private final ConnectionList connections; //stores the weight of connections
 
     private int size;
     private static final int SIZE_INCREMENT = 2;
@@ -24,12 +23,13 @@ public abstract class Entity {
     private static final Color HIGHLIGHTED_COLOUR = new Color(255,255,50);
     private boolean isHighlighed;
 
-    private Node gephiNode;
+    private int id; // id within its level's symbol table, -1 if not added to a graph generator
+    private SymbolTable symbolTable; // the table the id is from, told when the connections change
 
     private float x_pos, y_pos;
 
     private final ArrayList<CommitInfo> commitInfos; // stored in order of most recent to the least recent
-    private final Map<Entity, Float> gitConnectedEntitiesAndWeights; //stores the weight of connections
+    private final ConnectionList gitConnections; //stores the weight of connections
 
     private final ComplexityDetails complexityDetails;
     private final Entity parent;
@@ -48,15 +48,17 @@ public abstract class Entity {
         this.name = name;
         this.entityType = entityType;
         this.parent = parent;
-        this.connectedEntitiesAndWeights = new LinkedHashMap<>();
+        this.connections = new ConnectionList();
         this.size = SIZE_INCREMENT;
         this.colour = getRandomColour();
         this.isHighlighed = false;
         // NOTE: might want to move within ClassEntity
         this.commitInfos = new ArrayList<>();
-        this.gitConnectedEntitiesAndWeights = new LinkedHashMap<>();
+        this.gitConnections = new ConnectionList();
         this.x_pos = 0;
         this.y_pos = 0;
+        this.id = -1;
+        this.symbolTable = null;
 
         this.complexityDetails = complexityDetails;
         complexityDetails.setEntity(this);
@@ -70,12 +72,25 @@ public abstract class Entity {
         return entityType;
     }
 
-    public void setGephiNode(Node node) {
-        this.gephiNode = node;
+    public int getId() {
+        return id;
     }
 
-    public Node getGephiNode() {
-        return gephiNode;
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Set the symbol table the entity's id is from, so the table's version changes with the entity's connections
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    private void connectionsChanged() {
+        if (symbolTable != null) {
+            symbolTable.connectionsChanged();
+        }
     }
 
 
@@ -83,6 +98,17 @@ public abstract class Entity {
         this.size += SIZE_INCREMENT;
     }
 
+    protected void decrementSize(){
+        this.size -= SIZE_INCREMENT;
+    }
+
+    /**
+     * Go back to the size of an entity with nothing in it
+     */
+    protected void resetSize(){
+        this.size = SIZE_INCREMENT;
+    }
+
     public static int getSizeIncrement() {
         return SIZE_INCREMENT;
     }
@@ -182,6 +208,11 @@ public abstract class Entity {
 
     public abstract String toString();
 
+    /**
+     * Get the fully qualified name of the entity, ex. package.Class.method
+     * The key is only built once, when the entity is created
+     * @return  the key
+     */
     public abstract String getKey();
 
     /**
@@ -266,27 +297,74 @@ public abstract class Entity {
         if (entity == null){
             return;
         }
-        float initialWeight = connectedEntitiesAndWeights.getOrDefault(entity, (float) 0);
-        //System.out.println(initialWeight);
-        connectedEntitiesAndWeights.put(entity, initialWeight + 1);
+        connections.addWeight(entity, 1);
+        connectionsChanged();
     }
 
     protected void addGitConnectedEntity(Entity entity, float weight){
         // only add to git history if they are connected in dependency graph
-        if (connectedEntitiesAndWeights.containsKey(entity)) {
-            gitConnectedEntitiesAndWeights.put(entity, weight);
+        if (connections.indexOf(entity) >= 0) {
+            gitConnections.setWeight(entity, weight);
+            connectionsChanged();
         }
     }
 
+    /**
+     * Remove the connections, so they can be found again once the entities they were found from changed
+     */
+    public void clearConnections(){
+        connections.clear();
+        connectionsChanged();
+    }
+
+    /**
+     * Remove the git history connections, so the git history can be annotated again
+     */
+    public void clearGitConnections(){
+        gitConnections.clear();
+        connectionsChanged();
+    }
+
+    /**
+     * Remove the commits and the git history connections, so the git history can be read again
+     */
+    public void clearGitHistory(){
+        commitInfos.clear();
+        clearGitConnections();
+    }
+
     public Set<Entity> getConnectedEntities() {
-        return connectedEntitiesAndWeights.keySet();
+        return connections.asSet();
     }
+
+    /**
+     * @return  a read-only view of the connected entities and their weights
+     */
     public Map <Entity, Float> getConnectedEntitiesAndWeights(){
-        return connectedEntitiesAndWeights;
+        return connections.asMap();
     }
 
+    /**
+     * @return  a read-only view of the git history connections and their weights
+     */
     public Map<Entity, Float> getGitConnectedEntitiesAndWeights() {
-        return gitConnectedEntitiesAndWeights;
+        return gitConnections.asMap();
+    }
+
+    public int getNumConnections(boolean gitHistory) {
+        return getConnections(gitHistory).size();
+    }
+
+    public Entity getConnectedEntity(int position, boolean gitHistory) {
+        return getConnections(gitHistory).getEntity(position);
+    }
+
+    public float getConnectionWeight(int position, boolean gitHistory) {
+        return getConnections(gitHistory).getWeight(position);
+    }
+
+    private ConnectionList getConnections(boolean gitHistory) {
+        return gitHistory ? gitConnections : connections;
     }
 
     public boolean nameContains(String searchValue){
@@ -298,9 +376,9 @@ public abstract class Entity {
             return true;
         }
 
-        for (Entity connectedEntity : connectedEntitiesAndWeights.keySet()){
+        for (int i = 0; i < connections.size(); i++){
             // just do a simple search on the connected entity (don't call recursively, could highlight too much)
-            if (connectedEntity.nameContains(searchValue)){
+            if (connections.getEntity(i).nameContains(searchValue)){
                 return true;
             }
         }
@@ -18,10 +18,12 @@ public class MethodEntity extends Entity {
     private final HashMap<String, ClassEntity> arguments;
     private final HashMap<String, ClassEntity> localVariables;
     private ClassEntity returnType;
+    private final String key;
 
     public MethodEntity(String name, ClassEntity classEntity){
         super(getProperName(name), EntityType.METHOD, new ComplexityDetails(), classEntity);
         this.classEntity = classEntity;
+        this.key = classEntity.getKey() + "." + getName();
 
         // should classEntity store its methods (easier to reference), or is that too much coupling?
         classEntity.addMethod(this);
@@ -84,6 +86,16 @@ public class MethodEntity extends Entity {
         return localVariables;
     }
 
+    /**
+     * Remove the arguments, local variables and return type, so they can be added again
+     */
+    public void clearVariables() {
+        arguments.clear();
+        localVariables.clear();
+        returnType = null;
+        resetSize(); // the size only counts the method's own variables
+    }
+
     public void setReturnType(ClassEntity returnType) {
         this.returnType = returnType;
         if (!returnType.getName().equals("void")){
@@ -107,8 +119,7 @@ public class MethodEntity extends Entity {
 
     @Override
     public String getKey() {
-        String name = getName();
-        return classEntity.getKey() + "." + name;
+        return key;
     }
     // Check if the method has a parameter with the given name
     // In MethodEntity class
@@ -14,6 +14,7 @@ public class PackageEntity extends Entity {
 
     private final Set<ClassEntity> classes;
     private final PackageEntity superPackage;
+    private final String key;
 
     public PackageEntity(String name, PackageEntity superPackage){
         super(name, EntityType.PACKAGE, new ComplexityDetails(), null); // TODO might not use complexity details
@@ -22,6 +23,9 @@ public class PackageEntity extends Entity {
         this.superPackage = superPackage;
         if (superPackage != null) {
             superPackage.incrementSize();
+            this.key = superPackage.getKey() + "." + name;
+        } else {
+            this.key = name;
         }
     }
 
@@ -34,8 +38,15 @@ public class PackageEntity extends Entity {
     }
 
     public void addClass(ClassEntity classEntity){
-        classes.add(classEntity);
-        incrementSize();
+        if (classes.add(classEntity)) {
+            incrementSize();
+        }
+    }
+
+    public void removeClass(ClassEntity classEntity){
+        if (classes.remove(classEntity)) {
+            decrementSize();
+        }
     }
 
     public Set<ClassEntity> getClasses() {
@@ -71,11 +82,6 @@ public class PackageEntity extends Entity {
 
     @Override
     public String getKey() {
-        String name = getName();
-        if (superPackage == null){
-            return getName();
-        } else {
-            return superPackage.getKey() + "." + name;
-        }
+        return key;
     }
 }
@@ -0,0 +1,79 @@
+package codeViz.entity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Canonical table of the entity keys of one level, where each key is given a compact integer id
+ * Ids are given in the order the keys are added, starting at 0, and a key keeps its id even if its entity is removed
+ * The version changes whenever a key is added, an entity is added or removed, or the connections of an entity with an
+ * id from this table change, so connections stored by id can be kept until the version changes
+ */
+public class SymbolTable {
+
+    private final HashMap<String, Integer> ids;
+    private final ArrayList<String> keys;
+    private int version;
+
+    public SymbolTable() {
+        this.ids = new HashMap<>();
+        this.keys = new ArrayList<>();
+        this.version = 0;
+    }
+
+    /**
+     * Get the id of a key, adding the key if it isn't in the table yet
+     * @param key   the fully qualified name of an entity
+     * @return      the id of the key
+     */
+    public int intern(String key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+            version++;
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of a key
+     * @param key   the fully qualified name of an entity
+     * @return      the id, or -1 if the key isn't in the table
+     */
+    public int getId(String key) {
+        return ids.getOrDefault(key, -1);
+    }
+
+    /**
+     * Get the key of an id
+     * @param id    the id
+     * @return      the canonical key
+     */
+    public String getKey(int id) {
+        return keys.get(id);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * @return  the version of the keys and connections of the table's entities
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Change the version once an entity with an id from this table is added or removed
+     */
+    public void entitiesChanged() {
+        version++;
+    }
+
+    void connectionsChanged() {
+        version++;
+    }
+}
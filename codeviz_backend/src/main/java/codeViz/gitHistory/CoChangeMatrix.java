@@ -0,0 +1,307 @@
+package codeViz.gitHistory;
+
+import codeViz.entity.ClassEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Sparse matrix of how many commits changed each pair of classes together
+ * Only pairs that changed together at least once are stored, in the order they were first found
+ * Commits that changed too many classes (ex. reformatting the whole codebase) are skipped, so they can't add a pair for every class
+ */
+public class CoChangeMatrix {
+
+    public static final int DEFAULT_MAX_CLASSES_PER_COMMIT = 500;
+    public static final int DEFAULT_MAX_SHARED_COMMITS = 5;
+    private static final CommitInfo[] NO_COMMITS = new CommitInfo[0];
+
+    private final int maxClassesPerCommit;
+    private final int maxSharedCommits;
+    private final HashMap<ClassEntity, Integer> classIds;
+    private final ArrayList<ClassEntity> classes;
+    private int numSkippedCommits;
+    private int[] commitClassIds;
+
+    // pairs, with the lower class id first
+    private int[] firstClassIds;
+    private int[] secondClassIds;
+    private int[] counts;
+    private CommitInfo[][] sharedCommits; // the most recent commits that changed the pair, up to maxSharedCommits
+    private int numPairs;
+
+    // open addressing index of pair keys to pair positions
+    private long[] indexKeys;
+    private int[] indexPairs; // pair position + 1, 0 for an empty slot
+
+    /**
+     * Create an empty matrix, where commits are added from the most recent to the oldest
+     * @param maxClassesPerCommit   commits that changed more classes than this are skipped
+     * @param maxSharedCommits      the number of most recent commits to keep for each pair, for showing the edge details
+     */
+    CoChangeMatrix(int maxClassesPerCommit, int maxSharedCommits) {
+        this.maxClassesPerCommit = maxClassesPerCommit;
+        this.maxSharedCommits = maxSharedCommits;
+        this.classIds = new HashMap<>();
+        this.classes = new ArrayList<>();
+        this.numSkippedCommits = 0;
+        this.commitClassIds = new int[0];
+
+        this.firstClassIds = new int[16];
+        this.secondClassIds = new int[16];
+        this.counts = new int[16];
+        this.sharedCommits = new CommitInfo[16][];
+        this.numPairs = 0;
+
+        this.indexKeys = new long[64];
+        this.indexPairs = new int[64];
+    }
+
+    /**
+     * Count the classes changed together in each commit
+     * @param commitInfos           the commits, from the most recent to the oldest
+     * @param maxClassesPerCommit   commits that changed more classes than this are skipped
+     * @return                      the matrix
+     */
+    public static CoChangeMatrix build(List<CommitInfo> commitInfos, int maxClassesPerCommit) {
+        CoChangeMatrix coChangeMatrix = new CoChangeMatrix(maxClassesPerCommit, DEFAULT_MAX_SHARED_COMMITS);
+        for (CommitInfo commitInfo : commitInfos) {
+            coChangeMatrix.addCommit(commitInfo);
+        }
+
+        System.out.println("Done getting git diff pairs! Size " + coChangeMatrix.numPairs);
+        return coChangeMatrix;
+    }
+
+    /**
+     * Count the classes changed together in a commit, after all of its classes were added
+     * @param commitInfo    the commit, older than the commits already added
+     */
+    void addCommit(CommitInfo commitInfo) {
+        int numClasses = commitInfo.getClasses().size();
+        if (numClasses > maxClassesPerCommit) {
+            System.out.println("Skipped co-changes of commit " + commitInfo.getId() + ", it changed " + numClasses + " classes");
+            numSkippedCommits++;
+            return;
+        }
+
+        if (commitClassIds.length < numClasses) {
+            commitClassIds = new int[numClasses];
+        }
+        int i = 0;
+        for (ClassEntity classEntity : commitInfo.getClasses()) {
+            commitClassIds[i++] = getOrAddClassId(classEntity);
+        }
+
+        for (int outer = 0; outer < numClasses; outer++) {
+            for (int inner = outer + 1; inner < numClasses; inner++) {
+                increment(commitClassIds[outer], commitClassIds[inner], commitInfo);
+            }
+        }
+    }
+
+    /**
+     * Add the pairs of a matrix read before this one, after the pairs of this matrix
+     * The commits of this matrix are kept as the most recent commits of each pair, the older matrix is not changed
+     * @param olderMatrix   the matrix of the commits older than the commits already added
+     */
+    void addOlderCommits(CoChangeMatrix olderMatrix) {
+        numSkippedCommits += olderMatrix.numSkippedCommits;
+        for (int olderPair = 0; olderPair < olderMatrix.numPairs; olderPair++) {
+            int classIdA = getOrAddClassId(olderMatrix.getFirstClass(olderPair));
+            int classIdB = getOrAddClassId(olderMatrix.getSecondClass(olderPair));
+            int pair = findPair(getKey(classIdA, classIdB));
+            if (pair < 0) {
+                pair = addPair(classIdA, classIdB);
+            }
+
+            int olderCount = olderMatrix.counts[olderPair];
+            int numOlderShared = Math.min(olderCount, olderMatrix.maxSharedCommits);
+            for (int i = 0; i < numOlderShared; i++) {
+                counts[pair]++;
+                addSharedCommit(pair, olderMatrix.sharedCommits[olderPair][i]);
+            }
+            counts[pair] += olderCount - numOlderShared;
+        }
+    }
+
+    private int getOrAddClassId(ClassEntity classEntity) {
+        Integer id = classIds.get(classEntity);
+        if (id == null) {
+            id = classes.size();
+            classIds.put(classEntity, id);
+            classes.add(classEntity);
+        }
+        return id;
+    }
+
+    private static long getKey(int classIdA, int classIdB) {
+        int lowId = Math.min(classIdA, classIdB);
+        int highId = Math.max(classIdA, classIdB);
+        return ((long) lowId << 32) | highId;
+    }
+
+    private static int getSlot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    private int findPair(long key) {
+        int mask = indexKeys.length - 1;
+        for (int slot = getSlot(key, mask); indexPairs[slot] != 0; slot = (slot + 1) & mask) {
+            if (indexKeys[slot] == key) {
+                return indexPairs[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void increment(int classIdA, int classIdB, CommitInfo commitInfo) {
+        int pair = findPair(getKey(classIdA, classIdB));
+        if (pair < 0) {
+            pair = addPair(classIdA, classIdB);
+        }
+        counts[pair]++;
+        addSharedCommit(pair, commitInfo);
+    }
+
+    /**
+     * Add a pair that was not found yet, without any commits
+     * @return  position of the pair
+     */
+    private int addPair(int classIdA, int classIdB) {
+        if (numPairs == counts.length) {
+            int capacity = numPairs * 2;
+            firstClassIds = Arrays.copyOf(firstClassIds, capacity);
+            secondClassIds = Arrays.copyOf(secondClassIds, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            sharedCommits = Arrays.copyOf(sharedCommits, capacity);
+        }
+        firstClassIds[numPairs] = Math.min(classIdA, classIdB);
+        secondClassIds[numPairs] = Math.max(classIdA, classIdB);
+        counts[numPairs] = 0;
+        sharedCommits[numPairs] = NO_COMMITS;
+        numPairs++;
+
+        if (numPairs * 2 > indexKeys.length) {
+            rebuildIndex(indexKeys.length * 2);
+        } else {
+            insertIntoIndex(getKey(classIdA, classIdB), numPairs - 1);
+        }
+        return numPairs - 1;
+    }
+
+    /**
+     * Keep the commit for the pair, if the pair doesn't have its most recent commits yet
+     * Called after the count is incremented, so the count is the number of commits seen for the pair
+     */
+    private void addSharedCommit(int pair, CommitInfo commitInfo) {
+        int numShared = counts[pair] - 1;
+        if (numShared >= maxSharedCommits) {
+            return;
+        }
+        CommitInfo[] commits = sharedCommits[pair];
+        if (numShared == commits.length) {
+            commits = Arrays.copyOf(commits, Math.min(maxSharedCommits, Math.max(1, commits.length * 2)));
+            sharedCommits[pair] = commits;
+        }
+        commits[numShared] = commitInfo;
+    }
+
+    private void rebuildIndex(int capacity) {
+        indexKeys = new long[capacity];
+        indexPairs = new int[capacity];
+        for (int pair = 0; pair < numPairs; pair++) {
+            insertIntoIndex(getKey(firstClassIds[pair], secondClassIds[pair]), pair);
+        }
+    }
+
+    private void insertIntoIndex(long key, int pair) {
+        int mask = indexKeys.length - 1;
+        int slot = getSlot(key, mask);
+        while (indexPairs[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        indexKeys[slot] = key;
+        indexPairs[slot] = pair + 1;
+    }
+
+    /**
+     * @return  position of the pair of classes, or -1 if they never changed together
+     */
+    public int getPair(ClassEntity classEntityA, ClassEntity classEntityB) {
+        Integer classIdA = classIds.get(classEntityA);
+        Integer classIdB = classIds.get(classEntityB);
+        if (classIdA == null || classIdB == null || classIdA.equals(classIdB)) {
+            return -1;
+        }
+        return findPair(getKey(classIdA, classIdB));
+    }
+
+    public int getNumPairs() {
+        return numPairs;
+    }
+
+    public ClassEntity getFirstClass(int pair) {
+        return classes.get(firstClassIds[pair]);
+    }
+
+    public ClassEntity getSecondClass(int pair) {
+        return classes.get(secondClassIds[pair]);
+    }
+
+    /**
+     * @param pair  position of the pair
+     * @return      number of commits that changed both classes of the pair
+     */
+    public int getCount(int pair) {
+        return counts[pair];
+    }
+
+    /**
+     * @return  number of commits that changed both classes, 0 if they never changed together
+     */
+    public int getCount(ClassEntity classEntityA, ClassEntity classEntityB) {
+        int pair = getPair(classEntityA, classEntityB);
+        return (pair < 0) ? 0 : counts[pair];
+    }
+
+    /**
+     * @return  the most recent commit that changed both classes, or null if they never changed together
+     */
+    public CommitInfo getMostRecentCommit(ClassEntity classEntityA, ClassEntity classEntityB) {
+        int pair = getPair(classEntityA, classEntityB);
+        return (pair < 0 || maxSharedCommits == 0) ? null : sharedCommits[pair][0];
+    }
+
+    /**
+     * Get the most recent commits that changed both classes, found when the commits were counted
+     * @param maxCommits    the max number of commits to get, at most the number kept for each pair
+     * @return              the commits, from the most recent, empty if they never changed together
+     */
+    public List<CommitInfo> getSharedCommits(ClassEntity classEntityA, ClassEntity classEntityB, int maxCommits) {
+        int pair = getPair(classEntityA, classEntityB);
+        if (pair < 0) {
+            return List.of();
+        }
+        int numShared = Math.max(0, Math.min(Math.min(counts[pair], maxSharedCommits), maxCommits));
+        return List.of(Arrays.copyOf(sharedCommits[pair], numShared));
+    }
+
+    public int getMaxSharedCommits() {
+        return maxSharedCommits;
+    }
+
+    int getMaxClassesPerCommit() {
+        return maxClassesPerCommit;
+    }
+
+    /**
+     * @return  number of commits skipped for changing too many classes
+     */
+    public int getNumSkippedCommits() {
+        return numSkippedCommits;
+    }
+}
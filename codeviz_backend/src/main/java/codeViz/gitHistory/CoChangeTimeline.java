@@ -0,0 +1,177 @@
+package codeViz.gitHistory;
+
+import codeViz.entity.ClassEntity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The times of the commits that changed each class, and each pair of classes in a CoChangeMatrix
+ * Times are kept sorted, so the commits in a window are found by binary search instead of going through every commit
+ * Decayed weights of the co-changes are kept as prefix sums for the last half-life used, so moving the window does not need them again
+ */
+class CoChangeTimeline {
+
+    private static final double SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final CoChangeMatrix coChangeMatrix;
+    private final long newestTime;
+
+    // sorted from the oldest commit to the newest
+    private final HashMap<ClassEntity, long[]> classTimes;
+    private final long[][] pairTimes;
+
+    // prefix sums of the decayed co-change weights, for the half-life they were computed with
+    private double prefixSumsHalfLifeDays;
+    private double[][] pairPrefixSums;
+
+    private CoChangeTimeline(CoChangeMatrix coChangeMatrix, long newestTime, HashMap<ClassEntity, long[]> classTimes, long[][] pairTimes) {
+        this.coChangeMatrix = coChangeMatrix;
+        this.newestTime = newestTime;
+        this.classTimes = classTimes;
+        this.pairTimes = pairTimes;
+        this.prefixSumsHalfLifeDays = -1;
+        this.pairPrefixSums = null;
+    }
+
+    /**
+     * Store the commit times of the classes and pairs
+     * Pairs are found by intersecting the commit positions of their classes, so the commits themselves are not needed
+     * @param gitDiffAssociationRules   the commits that changed each class
+     * @param coChangeMatrix            the pairs of classes changed together in the commits
+     * @return                          the timeline
+     */
+    static CoChangeTimeline build(GitDiffAssociationRules gitDiffAssociationRules, CoChangeMatrix coChangeMatrix) {
+        long newestTime = Long.MIN_VALUE;
+        for (int position = 0; position < gitDiffAssociationRules.getNumCommits(); position++) {
+            newestTime = Math.max(newestTime, gitDiffAssociationRules.getCommitTime(position));
+        }
+
+        HashMap<ClassEntity, long[]> classTimes = new HashMap<>();
+        long[][] pairTimes = new long[coChangeMatrix.getNumPairs()][];
+        for (int pair = 0; pair < pairTimes.length; pair++) {
+            ClassEntity classEntityA = coChangeMatrix.getFirstClass(pair);
+            ClassEntity classEntityB = coChangeMatrix.getSecondClass(pair);
+            int[] positionsA = gitDiffAssociationRules.getCommitPositions(classEntityA);
+            int[] positionsB = gitDiffAssociationRules.getCommitPositions(classEntityB);
+            classTimes.computeIfAbsent(classEntityA, k -> getTimes(gitDiffAssociationRules, positionsA));
+            classTimes.computeIfAbsent(classEntityB, k -> getTimes(gitDiffAssociationRules, positionsB));
+
+            // the commits that changed both, except the ones skipped by the matrix
+            long[] times = new long[coChangeMatrix.getCount(pair)];
+            int numTimes = 0;
+            int a = 0;
+            int b = 0;
+            while (a < positionsA.length && b < positionsB.length) {
+                if (positionsA[a] < positionsB[b]) {
+                    a++;
+                } else if (positionsA[a] > positionsB[b]) {
+                    b++;
+                } else {
+                    if (gitDiffAssociationRules.getNumClasses(positionsA[a]) <= coChangeMatrix.getMaxClassesPerCommit()) {
+                        times[numTimes++] = gitDiffAssociationRules.getCommitTime(positionsA[a]);
+                    }
+                    a++;
+                    b++;
+                }
+            }
+            Arrays.sort(times);
+            pairTimes[pair] = times;
+        }
+
+        return new CoChangeTimeline(coChangeMatrix, newestTime, classTimes, pairTimes);
+    }
+
+    /**
+     * @return  the sorted times of the commits at the positions
+     */
+    private static long[] getTimes(GitDiffAssociationRules gitDiffAssociationRules, int[] positions) {
+        long[] times = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            times[i] = gitDiffAssociationRules.getCommitTime(positions[i]);
+        }
+        Arrays.sort(times);
+        return times;
+    }
+
+    /**
+     * Get the weight of a pair of classes, the average confidence of the pair in the window,
+     * scaled by the average decayed weight of the pair's co-changes when commits decay
+     * @param pair          position of the pair in the CoChangeMatrix
+     * @param weighting     how to weight the commits
+     * @return              the weight, 0 if the classes did not change together in the window
+     */
+    float calculateWeight(int pair, GitHistoryWeighting weighting) {
+        long startTime = (weighting.getWindowDays() == 0) ? Long.MIN_VALUE
+                : newestTime - (long) (weighting.getWindowDays() * SECONDS_PER_DAY);
+
+        long[] timesAandB = pairTimes[pair];
+        int startAandB = lowerBound(timesAandB, startTime);
+        int countAandB = timesAandB.length - startAandB;
+        if (countAandB == 0) {
+            return 0;
+        }
+        int countA = countFrom(classTimes.get(coChangeMatrix.getFirstClass(pair)), startTime);
+        int countB = countFrom(classTimes.get(coChangeMatrix.getSecondClass(pair)), startTime);
+
+        // like GitDiffAssociationRules.calculateConfidence, with the commits in the window
+        // Note: countA and countB are the commits that changed each class, where calculateConfidence divides by
+        // the number of file changes of the class, which have no time; they only differ if a commit changed a class twice
+        float countAorB = countA + countB - countAandB;
+        float confidenceA = countAorB / countA;
+        float confidenceB = countAorB / countB;
+        float weight = (confidenceA + confidenceB) / 2;
+
+        if (weighting.getHalfLifeDays() > 0) {
+            // average decayed weight of the co-changes, 1 if they were all in the most recent commit
+            computePrefixSums(weighting.getHalfLifeDays());
+            double[] prefixSums = pairPrefixSums[pair];
+            weight *= (float) ((prefixSums[timesAandB.length] - prefixSums[startAandB]) / countAandB);
+        }
+        return weight;
+    }
+
+    private static int countFrom(long[] times, long startTime) {
+        return times.length - lowerBound(times, startTime);
+    }
+
+    /**
+     * @return  position of the first time at or after the start time
+     */
+    private static int lowerBound(long[] times, long startTime) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < startTime) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void computePrefixSums(double halfLifeDays) {
+        if (halfLifeDays == prefixSumsHalfLifeDays) {
+            return;
+        }
+        double halfLifeSeconds = halfLifeDays * SECONDS_PER_DAY;
+
+        double[][] newPairPrefixSums = new double[pairTimes.length][];
+        for (int pair = 0; pair < pairTimes.length; pair++) {
+            newPairPrefixSums[pair] = computePrefixSums(pairTimes[pair], halfLifeSeconds);
+        }
+        pairPrefixSums = newPairPrefixSums;
+        prefixSumsHalfLifeDays = halfLifeDays;
+    }
+
+    private double[] computePrefixSums(long[] times, double halfLifeSeconds) {
+        double[] prefixSums = new double[times.length + 1];
+        for (int i = 0; i < times.length; i++) {
+            // the most recent commit has a weight of 1
+            prefixSums[i + 1] = prefixSums[i] + Math.pow(0.5, (newestTime - times[i]) / halfLifeSeconds);
+        }
+        return prefixSums;
+    }
+}
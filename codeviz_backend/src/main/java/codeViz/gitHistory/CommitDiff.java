@@ -0,0 +1,88 @@
+package codeViz.gitHistory;
+
+/**
+ * The changed .java files of one commit, compared with its previous commit
+ * Only plain values are kept, so a diff can be stored and read back without the repository
+ */
+class CommitDiff {
+
+    private final String commitId;
+    private final String previousCommitId; // null for the first commit
+    private final String author;
+    private final int commitTime; // epoch time, in seconds
+    private final String message;
+
+    // the changed files, where renamed files have different old and new paths
+    private final String[] oldPaths;
+    private final String[] newPaths;
+    private final boolean[] renamed;
+
+    // added and removed lines of each file, null if lines were not counted
+    private final int[] linesAdded;
+    private final int[] linesRemoved;
+
+    CommitDiff(String commitId, String previousCommitId, String author, int commitTime, String message,
+               String[] oldPaths, String[] newPaths, boolean[] renamed, int[] linesAdded, int[] linesRemoved) {
+        this.commitId = commitId;
+        this.previousCommitId = previousCommitId;
+        this.author = author;
+        this.commitTime = commitTime;
+        this.message = message;
+        this.oldPaths = oldPaths;
+        this.newPaths = newPaths;
+        this.renamed = renamed;
+        this.linesAdded = linesAdded;
+        this.linesRemoved = linesRemoved;
+    }
+
+    String getCommitId() {
+        return commitId;
+    }
+
+    String getPreviousCommitId() {
+        return previousCommitId;
+    }
+
+    String getAuthor() {
+        return author;
+    }
+
+    int getCommitTime() {
+        return commitTime;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    int getNumFiles() {
+        return oldPaths.length;
+    }
+
+    String getOldPath(int file) {
+        return oldPaths[file];
+    }
+
+    String getNewPath(int file) {
+        return newPaths[file];
+    }
+
+    /**
+     * @return  whether the file was similar enough to its old path to be a rename (or copy)
+     */
+    boolean isRenamed(int file) {
+        return renamed[file];
+    }
+
+    boolean hasLineStats() {
+        return linesAdded != null;
+    }
+
+    int getLinesAdded(int file) {
+        return linesAdded[file];
+    }
+
+    int getLinesRemoved(int file) {
+        return linesRemoved[file];
+    }
+}
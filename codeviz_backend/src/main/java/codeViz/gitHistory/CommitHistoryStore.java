@@ -0,0 +1,236 @@
+package codeViz.gitHistory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Database of the commits that were already diffed, so the git history does not need to be diffed again after a restart
+ * Each commit is stored with the files it changed, and the commit it was compared with
+ * Uses the H2 database by default, any JDBC database with standard SQL should work
+ */
+public class CommitHistoryStore implements AutoCloseable {
+
+    public static final String DEFAULT_JDBC_URL = "jdbc:h2:file:./codeviz_cache/history/commits";
+
+    // commit ids looked up by one query, so a query stays within the parameter limits of the database
+    private static final int MAX_COMMIT_IDS_PER_QUERY = 500;
+
+    private final Connection connection;
+
+    /**
+     * Open the store, creating its tables if needed
+     * @param jdbcUrl   JDBC URL of the database
+     */
+    public CommitHistoryStore(String jdbcUrl) {
+        try {
+            this.connection = DriverManager.getConnection(jdbcUrl);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS commit_diffs ("
+                        + "repository VARCHAR(2048) NOT NULL, "
+                        + "commit_id VARCHAR(64) NOT NULL, "
+                        + "previous_commit_id VARCHAR(64), "
+                        + "author VARCHAR(1024), "
+                        + "commit_time INT NOT NULL, "
+                        + "message VARCHAR(65536), "
+                        + "has_line_stats BOOLEAN NOT NULL, "
+                        + "PRIMARY KEY (repository, commit_id))");
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS commit_files ("
+                        + "repository VARCHAR(2048) NOT NULL, "
+                        + "commit_id VARCHAR(64) NOT NULL, "
+                        + "file_index INT NOT NULL, "
+                        + "old_path VARCHAR(4096) NOT NULL, "
+                        + "new_path VARCHAR(4096) NOT NULL, "
+                        + "renamed BOOLEAN NOT NULL, "
+                        + "lines_added INT NOT NULL, "
+                        + "lines_removed INT NOT NULL, "
+                        + "PRIMARY KEY (repository, commit_id, file_index))");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not open commit history store " + jdbcUrl, e);
+        }
+    }
+
+    /**
+     * Get the stored diffs of some commits of a repository
+     * Only the given commits are read, so the memory used is bounded by the commits read, not by the whole stored history
+     * @param repository    the URI or directory of the repository
+     * @param commitIds     ids of the commits to get
+     * @return              the diffs of the commits that are stored, by commit id
+     */
+    synchronized Map<String, CommitDiff> loadCommitDiffs(String repository, Collection<String> commitIds) {
+        List<String> distinctCommitIds = new ArrayList<>(new LinkedHashSet<>(commitIds));
+        HashMap<String, CommitDiff> commitDiffs = new HashMap<>();
+        for (int start = 0; start < distinctCommitIds.size(); start += MAX_COMMIT_IDS_PER_QUERY) {
+            List<String> batch = distinctCommitIds.subList(start, Math.min(start + MAX_COMMIT_IDS_PER_QUERY, distinctCommitIds.size()));
+            try {
+                loadCommitDiffs(repository, batch, commitDiffs);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return commitDiffs;
+    }
+
+    /**
+     * Get the stored diffs of a batch of commits
+     * @param repository    the URI or directory of the repository
+     * @param commitIds     ids of the commits to get, at most MAX_COMMIT_IDS_PER_QUERY
+     * @param commitDiffs   the diffs found so far, by commit id, the diffs of the batch are added to it
+     */
+    private void loadCommitDiffs(String repository, List<String> commitIds, Map<String, CommitDiff> commitDiffs) throws SQLException {
+        String parameters = String.join(", ", Collections.nCopies(commitIds.size(), "?"));
+
+        // read the files first, grouped by commit in file order
+        HashMap<String, List<Object[]>> filesByCommit = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT commit_id, old_path, new_path, renamed, lines_added, lines_removed FROM commit_files "
+                        + "WHERE repository = ? AND commit_id IN (" + parameters + ") ORDER BY commit_id, file_index")) {
+            setParameters(statement, repository, commitIds);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    filesByCommit.computeIfAbsent(resultSet.getString(1), k -> new ArrayList<>()).add(new Object[]{
+                            resultSet.getString(2), resultSet.getString(3), resultSet.getBoolean(4),
+                            resultSet.getInt(5), resultSet.getInt(6)});
+                }
+            }
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT commit_id, previous_commit_id, author, commit_time, message, has_line_stats FROM commit_diffs "
+                        + "WHERE repository = ? AND commit_id IN (" + parameters + ")")) {
+            setParameters(statement, repository, commitIds);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String commitId = resultSet.getString(1);
+                    List<Object[]> files = filesByCommit.getOrDefault(commitId, List.of());
+                    int numFiles = files.size();
+                    boolean hasLineStats = resultSet.getBoolean(6);
+
+                    String[] oldPaths = new String[numFiles];
+                    String[] newPaths = new String[numFiles];
+                    boolean[] renamed = new boolean[numFiles];
+                    int[] linesAdded = hasLineStats ? new int[numFiles] : null;
+                    int[] linesRemoved = hasLineStats ? new int[numFiles] : null;
+                    for (int file = 0; file < numFiles; file++) {
+                        Object[] values = files.get(file);
+                        oldPaths[file] = (String) values[0];
+                        newPaths[file] = (String) values[1];
+                        renamed[file] = (Boolean) values[2];
+                        if (hasLineStats) {
+                            linesAdded[file] = (Integer) values[3];
+                            linesRemoved[file] = (Integer) values[4];
+                        }
+                    }
+
+                    commitDiffs.put(commitId, new CommitDiff(commitId, resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getInt(4), resultSet.getString(5), oldPaths, newPaths, renamed, linesAdded, linesRemoved));
+                }
+            }
+        }
+    }
+
+    private static void setParameters(PreparedStatement statement, String repository, List<String> commitIds) throws SQLException {
+        statement.setString(1, repository);
+        for (int i = 0; i < commitIds.size(); i++) {
+            statement.setString(i + 2, commitIds.get(i));
+        }
+    }
+
+    /**
+     * Store diffs of a repository, replacing any stored diffs of the same commits
+     * @param repository    the URI or directory of the repository
+     * @param commitDiffs   the diffs to store
+     */
+    synchronized void storeCommitDiffs(String repository, List<CommitDiff> commitDiffs) {
+        if (commitDiffs.isEmpty()) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement deleteFiles = connection.prepareStatement(
+                         "DELETE FROM commit_files WHERE repository = ? AND commit_id = ?");
+                 PreparedStatement deleteCommit = connection.prepareStatement(
+                         "DELETE FROM commit_diffs WHERE repository = ? AND commit_id = ?");
+                 PreparedStatement insertCommit = connection.prepareStatement(
+                         "INSERT INTO commit_diffs (repository, commit_id, previous_commit_id, author, commit_time, message, has_line_stats) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement insertFile = connection.prepareStatement(
+                         "INSERT INTO commit_files (repository, commit_id, file_index, old_path, new_path, renamed, lines_added, lines_removed) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+
+                for (CommitDiff commitDiff : commitDiffs) {
+                    for (PreparedStatement delete : List.of(deleteFiles, deleteCommit)) {
+                        delete.setString(1, repository);
+                        delete.setString(2, commitDiff.getCommitId());
+                        delete.addBatch();
+                    }
+
+                    insertCommit.setString(1, repository);
+                    insertCommit.setString(2, commitDiff.getCommitId());
+                    insertCommit.setString(3, commitDiff.getPreviousCommitId());
+                    insertCommit.setString(4, commitDiff.getAuthor());
+                    insertCommit.setInt(5, commitDiff.getCommitTime());
+                    insertCommit.setString(6, commitDiff.getMessage());
+                    insertCommit.setBoolean(7, commitDiff.hasLineStats());
+                    insertCommit.addBatch();
+
+                    for (int file = 0; file < commitDiff.getNumFiles(); file++) {
+                        insertFile.setString(1, repository);
+                        insertFile.setString(2, commitDiff.getCommitId());
+                        insertFile.setInt(3, file);
+                        insertFile.setString(4, commitDiff.getOldPath(file));
+                        insertFile.setString(5, commitDiff.getNewPath(file));
+                        insertFile.setBoolean(6, commitDiff.isRenamed(file));
+                        insertFile.setInt(7, commitDiff.hasLineStats() ? commitDiff.getLinesAdded(file) : 0);
+                        insertFile.setInt(8, commitDiff.hasLineStats() ? commitDiff.getLinesRemoved(file) : 0);
+                        insertFile.addBatch();
+                    }
+                }
+
+                deleteFiles.executeBatch();
+                deleteCommit.executeBatch();
+                insertCommit.executeBatch();
+                insertFile.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Remove all stored diffs of a repository
+     * @param repository    the URI or directory of the repository
+     */
+    public synchronized void clear(String repository) {
+        try (PreparedStatement deleteFiles = connection.prepareStatement("DELETE FROM commit_files WHERE repository = ?");
+             PreparedStatement deleteCommits = connection.prepareStatement("DELETE FROM commit_diffs WHERE repository = ?")) {
+            deleteFiles.setString(1, repository);
+            deleteFiles.executeUpdate();
+            deleteCommits.setString(1, repository);
+            deleteCommits.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -5,15 +5,18 @@ import codeViz.entity.ClassEntity;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class CommitInfo {
 
     private final String id;
     private final Set<ClassEntity> classes; //stores the weight of connections
+    private HashMap<ClassEntity, int[]> lineStats; // added and removed lines of each class, null if lines were not counted
 
     private final String author;
+    private final long time; // epoch time, in seconds
     private final LocalDateTime date;
     private final String message;
 
@@ -31,10 +34,13 @@ public class CommitInfo {
             String message
     ){
         this.id = id;
-        this.classes = new HashSet<>();
+        this.classes = new LinkedHashSet<>(); // keep the order of the diff, so the co-change pairs are found in a consistent order
+        this.lineStats = null;
 
         this.author = author;
 
+        this.time = date;
+
         // Convert epoch time to Java LocalDateTime
         Instant instant = Instant.ofEpochMilli(date * 1000L);
         this.date = instant.atZone(ZoneId.systemDefault()).toLocalDateTime();
@@ -46,10 +52,63 @@ public class CommitInfo {
         classes.add(classEntity);
     }
 
+    /**
+     * Add the lines changed in a class, a class changed by multiple files has the lines of each file added together
+     * @param classEntity       the changed class
+     * @param linesAdded        number of added lines
+     * @param linesRemoved      number of removed lines
+     */
+    public void addLineStats(ClassEntity classEntity, int linesAdded, int linesRemoved){
+        if (lineStats == null) {
+            lineStats = new HashMap<>();
+        }
+        int[] classLineStats = lineStats.computeIfAbsent(classEntity, k -> new int[2]);
+        classLineStats[0] += linesAdded;
+        classLineStats[1] += linesRemoved;
+    }
+
+    /**
+     * @return  whether the added and removed lines were counted for this commit
+     */
+    public boolean hasLineStats() {
+        return lineStats != null;
+    }
+
+    /**
+     * @return  number of lines added to the class, 0 if lines were not counted
+     */
+    public int getLinesAdded(ClassEntity classEntity) {
+        int[] classLineStats = (lineStats == null) ? null : lineStats.get(classEntity);
+        return (classLineStats == null) ? 0 : classLineStats[0];
+    }
+
+    /**
+     * @return  number of lines removed from the class, 0 if lines were not counted
+     */
+    public int getLinesRemoved(ClassEntity classEntity) {
+        int[] classLineStats = (lineStats == null) ? null : lineStats.get(classEntity);
+        return (classLineStats == null) ? 0 : classLineStats[1];
+    }
+
+    /**
+     * Get the churn of a class, for weighting how strongly it was coupled to the other classes in the commit
+     * @return  number of lines added to and removed from the class
+     */
+    public int getLinesChanged(ClassEntity classEntity) {
+        return getLinesAdded(classEntity) + getLinesRemoved(classEntity);
+    }
+
     public String getId() {
         return id;
     }
 
+    /**
+     * @return  date of the commit, as epoch time in seconds
+     */
+    public long getTime() {
+        return time;
+    }
+
     public String getMessage() {
         return message;
     }
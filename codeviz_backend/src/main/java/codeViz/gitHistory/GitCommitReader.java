@@ -1,28 +1,28 @@
 package codeViz.gitHistory;
 
+import codeViz.AnalysisProgress;
 import codeViz.GraphGenerator;
 import codeViz.entity.ClassEntity;
 import codeViz.entity.Entity;
-import org.apache.commons.collections4.keyvalue.MultiKey;
-import org.apache.commons.collections4.map.MultiKeyMap;
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffConfig;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.treewalk.*;
 import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Class that reads git commit history
@@ -31,48 +31,107 @@ import java.util.*;
  */
 public class GitCommitReader {
 
-    private static final String GIT_CLONE_DIR_PATH = "./testgithistory"; // local directory to clone into
-
-    private final File GIT_CLONE_DIRECTORY;
+    private final GitMirrorManager gitMirrorManager; // local mirrors of the repositories to clone
+    private final CommitHistoryStore commitHistoryStore; // diffs of previously read commits, null if commits are always diffed
     private Git git;
+    private String repositoryName; // URI or directory of the repository being read
+    private String historyRevision; // id of the most recent commit read, null if no commit was read
+    private int numDiffedCommits; // commits diffed by the last read, the other commits were in the commit history store
     private final GraphGenerator graphGenerator;
     private final LinkedHashMap<String, String> renamedClassEntityNames;
+    private final RenamedPaths renamedPaths; // resolves the renamedClassEntityNames to the current path of each file
     private final Set<String> deletedClasses;
     private GitDiffAssociationRules gitDiffAssociationRules;
+    private CoChangeMatrix coChangeMatrix;
+    private CoChangeTimeline coChangeTimeline; // commit times of the co-changes, built when a weighting needs them
+    private GitHistoryWeighting gitHistoryWeighting;
+    private int maxClassesPerCommit;
     private static final int WEIGHT_ADJUSTER = 2;
 
+    // number of threads used to diff the commits, 1 diffs every commit in order on a single thread
+    private int diffParallelism;
+
+    // how many chunks of commits each diff thread gets
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // most recent CommitInfos kept in each class, -1 to keep every commit
+    // when bounded, the commits are folded into the co-change statistics as they are read instead of being kept
+    private int maxCommitInfosPerClass;
+
+    // whether to count the added and removed lines of each changed file, which needs the file contents of every change
+    private boolean lineStats;
+
+    // progress of the analysis job using this reader, updated per diffed commit
+    private AnalysisProgress analysisProgress;
+
     /**
      * Create GitCommitReader
      * @param graphGenerator    the graph generator to use
      */
     public GitCommitReader(GraphGenerator graphGenerator){
+        this(graphGenerator, new GitMirrorManager(), null);
+    }
+
+    /**
+     * Create GitCommitReader
+     * @param graphGenerator        the graph generator to use
+     * @param gitMirrorManager      the local mirrors of the repositories to read
+     * @param commitHistoryStore    store of previously diffed commits, or null to diff every commit
+     */
+    public GitCommitReader(GraphGenerator graphGenerator, GitMirrorManager gitMirrorManager, CommitHistoryStore commitHistoryStore){
         this.graphGenerator = graphGenerator;
+        this.gitMirrorManager = gitMirrorManager;
+        this.commitHistoryStore = commitHistoryStore;
         this.renamedClassEntityNames = new LinkedHashMap<>();
+        this.renamedPaths = new RenamedPaths();
         this.deletedClasses = new HashSet<>();
+        this.historyRevision = null;
         this.gitDiffAssociationRules = new GitDiffAssociationRules();
-        this.GIT_CLONE_DIRECTORY = new File(GIT_CLONE_DIR_PATH);
+        this.coChangeMatrix = null;
+        this.coChangeTimeline = null;
+        this.gitHistoryWeighting = GitHistoryWeighting.ALL_COMMITS;
+        this.maxClassesPerCommit = CoChangeMatrix.DEFAULT_MAX_CLASSES_PER_COMMIT;
+        this.diffParallelism = Runtime.getRuntime().availableProcessors();
+        this.lineStats = false;
+        this.maxCommitInfosPerClass = -1;
+        this.analysisProgress = AnalysisProgress.NONE;
     }
 
     /**
      * Read commit history via gitHub
+     * The repository is mirrored locally, so reading it again only fetches the new commits
      * @param gitHubURI         the URI of the gitHub repository/fork
      * @param tokenPassword     the token password of the user
      * @param maxNumCommits the number of commits to get the history from, -1 if all commits
      */
     public void extractCommitHistory(String gitHubURI, String tokenPassword, int maxNumCommits){
         // TODO - make this properly secure
+        this.git = gitMirrorManager.openMirror(gitHubURI, tokenPassword);
+        this.repositoryName = gitHubURI;
         try {
-            FileUtils.deleteDirectory(GIT_CLONE_DIRECTORY);
-            this.git = Git.cloneRepository()
-                    .setURI(gitHubURI)
-                    .setCredentialsProvider(new UsernamePasswordCredentialsProvider(tokenPassword, ""))
-                    .setDirectory(GIT_CLONE_DIRECTORY)
-                    .call();
-        } catch (IOException | GitAPIException e) {
+            storeCommitHistory(maxNumCommits);
+        } finally {
+            git.getRepository().close(); // close this, so a new repo can be visualized later (even if the read was cancelled)
+        }
+    }
+
+    /**
+     * Read commit history from a repository that is already cloned
+     * @param repositoryDirectory   the local repository directory
+     * @param maxNumCommits the number of commits to get the history from, -1 if all commits
+     */
+    public void extractCommitHistory(File repositoryDirectory, int maxNumCommits){
+        try {
+            this.git = Git.open(repositoryDirectory);
+            this.repositoryName = repositoryDirectory.getCanonicalPath();
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        storeCommitHistory(maxNumCommits);
-        git.getRepository().close(); // close this, so a new repo can be visualized later
+        try {
+            storeCommitHistory(maxNumCommits);
+        } finally {
+            git.getRepository().close();
+        }
     }
 
     /**
@@ -83,16 +142,25 @@ public class GitCommitReader {
         // is an annotation - do not clear graphGenerator
         //TODO - make sure graphGenerator has commits cleared before adding a new set? or only add commits that are new
         renamedClassEntityNames.clear(); // FIXME - what if appending commits?
-        gitDiffAssociationRules = new GitDiffAssociationRules();
+        renamedPaths.clear();
+        if (graphGenerator != null) {
+            // the classes kept by an update of the codebase still have the history read before the update
+            graphGenerator.getClassEntities().values().forEach(Entity::clearGitHistory);
+        }
+        boolean keepCommitInfos = maxCommitInfosPerClass < 0;
+        gitDiffAssociationRules = new GitDiffAssociationRules(keepCommitInfos);
+        coChangeMatrix = new CoChangeMatrix(maxClassesPerCommit, CoChangeMatrix.DEFAULT_MAX_SHARED_COMMITS);
+        coChangeTimeline = null;
+        numDiffedCommits = 0;
         Iterable<RevCommit> log;
         try {
-            log = git.log().call();
+            // don't walk further back than the commits that are used
+            log = (maxNumCommits > 0) ? git.log().setMaxCount(maxNumCommits).call() : git.log().call();
         } catch (GitAPIException e) {
             throw new RuntimeException(e);
         }
-        boolean firstCommit = true;
-        RevCommit nextCommit = null;
 
+        List<RevCommit> commits = new ArrayList<>();
         int numCommits = 0;
 
         for (RevCommit commit : log) {
@@ -101,33 +169,214 @@ public class GitCommitReader {
             if (maxNumCommits > 0 && numCommits >= maxNumCommits) {
                 break;
             }
+            commits.add(commit);
+        }
+
+        // each commit is compared with the commit before it,
+        // and the first commit (where there's no previous commit) is only handled when the whole log was read
+        int numDiffs = commits.size() - 1;
+        if (!(maxNumCommits > 0 && numCommits >= maxNumCommits) && !commits.isEmpty()) {
+            numDiffs = commits.size();
+        }
 
-            if (!firstCommit) { // means that nextCommit != null
-                try {
-                    this.getDiffs(commit, nextCommit);
-                } catch (IOException | GitAPIException e) {
-                    throw new RuntimeException(e);
+        if (numDiffs > 0) {
+            storeCommitDiffs(commits, numDiffs);
+        }
+        historyRevision = commits.isEmpty() ? null : commits.get(0).getName();
+
+        // after storing all the commits and classes, now store the connections between classes and git commits
+        // this will be used to annotate the code graph (how a change of entities is correlated)
+        addGitHistoryConnections();
+    }
+
+    /**
+     * Diff each commit with its previous commit, and store the diffs in commit order
+     * The diffs are stored on this thread from the most recent commit to the oldest,
+     * so renames are tracked the same as a sequential run
+     * @param commits   the commits, from the most recent to the oldest
+     * @param numDiffs  number of commits to diff, the commit after the last one is its previous commit (if any)
+     */
+    private void storeCommitDiffs(List<RevCommit> commits, int numDiffs) {
+        CommitDiff[] commitDiffs = readCommitDiffs(git.getRepository(), commits, numDiffs, loadStoredDiffs(commits, numDiffs));
+
+        for (int position = 0; position < numDiffs; position++) {
+            storeDiffs(commitDiffs[position]);
+            commitDiffs[position] = null; // the diffs are not needed once they are stored
+        }
+    }
+
+    /**
+     * Get the stored diffs of the commits to diff, only these commits are read from the commit history store
+     * @param commits   the commits, from the most recent to the oldest
+     * @param numDiffs  number of commits to diff
+     * @return          the stored diffs, by commit id
+     */
+    private Map<String, CommitDiff> loadStoredDiffs(List<RevCommit> commits, int numDiffs) {
+        if (commitHistoryStore == null) {
+            return Map.of();
+        }
+        List<String> commitIds = new ArrayList<>(numDiffs);
+        for (int position = 0; position < numDiffs; position++) {
+            commitIds.add(commits.get(position).getName());
+        }
+        return commitHistoryStore.loadCommitDiffs(repositoryName, commitIds);
+    }
+
+    /**
+     * Diff each commit with its previous commit on the diff pool, and add the new diffs to the commit history store
+     * Commits that are in the stored diffs (compared with the same previous commit) are not diffed again
+     * Commits are diffed in chunks, where each chunk has its own ObjectReader since JGit readers are not thread-safe
+     * Nothing is added to the history here, so the commits can be diffed while the graph is being read
+     * @param repository    the repository
+     * @param commits       the commits, from the most recent to the oldest
+     * @param numDiffs      number of commits to diff, the commit after the last one is its previous commit (if any)
+     * @param storedDiffs   the stored diffs of the repository, by commit id
+     * @return              the diffs, from the most recent commit
+     */
+    private CommitDiff[] readCommitDiffs(Repository repository, List<RevCommit> commits, int numDiffs, Map<String, CommitDiff> storedDiffs) {
+        CommitDiff[] commitDiffs = new CommitDiff[numDiffs];
+        List<Integer> positionsToDiff = new ArrayList<>();
+        for (int position = 0; position < numDiffs; position++) {
+            CommitDiff storedDiff = storedDiffs.get(commits.get(position).getName());
+            String previousCommitId = (position + 1 < commits.size()) ? commits.get(position + 1).getName() : null;
+            if (storedDiff != null && Objects.equals(storedDiff.getPreviousCommitId(), previousCommitId)
+                    && (storedDiff.hasLineStats() || !lineStats)) {
+                commitDiffs[position] = storedDiff;
+            } else {
+                positionsToDiff.add(position);
+            }
+        }
+        numDiffedCommits = positionsToDiff.size();
+        analysisProgress.startPhase(AnalysisProgress.Phase.HISTORY, positionsToDiff.size());
+        if (commitHistoryStore != null) {
+            System.out.println("Using " + (numDiffs - positionsToDiff.size()) + " stored commits, diffing " + positionsToDiff.size() + " commits");
+        }
+
+        if (diffParallelism == 1 || positionsToDiff.size() <= 1) {
+            List<CommitDiff> newDiffs = computeCommitDiffs(repository, commits, positionsToDiff, lineStats, analysisProgress);
+            for (int i = 0; i < positionsToDiff.size(); i++) {
+                commitDiffs[positionsToDiff.get(i)] = newDiffs.get(i);
+            }
+        } else {
+            // a few chunks per thread, so one slow chunk doesn't hold up the rest
+            int numChunks = Math.min(positionsToDiff.size(), CHUNKS_PER_THREAD * diffParallelism);
+            List<ForkJoinTask<List<CommitDiff>>> diffTasks = new ArrayList<>(numChunks);
+            List<List<Integer>> chunkPositions = new ArrayList<>(numChunks);
+
+            ForkJoinPool diffPool = new ForkJoinPool(diffParallelism);
+            try {
+                for (int chunk = 0; chunk < numChunks; chunk++) {
+                    int start = (int) ((long) positionsToDiff.size() * chunk / numChunks);
+                    int end = (int) ((long) positionsToDiff.size() * (chunk + 1) / numChunks);
+                    List<Integer> positions = positionsToDiff.subList(start, end);
+                    chunkPositions.add(positions);
+                    diffTasks.add(diffPool.submit(() -> computeCommitDiffs(repository, commits, positions, lineStats, analysisProgress)));
                 }
 
-                //this.getCommitInfo(nextCommit);
+                for (int chunk = 0; chunk < numChunks; chunk++) {
+                    List<CommitDiff> newDiffs = diffTasks.get(chunk).join();
+                    for (int i = 0; i < newDiffs.size(); i++) {
+                        commitDiffs[chunkPositions.get(chunk).get(i)] = newDiffs.get(i);
+                    }
+                }
+            } finally {
+                diffPool.shutdownNow();
             }
+        }
 
-            firstCommit = false;
-            nextCommit = commit;
+        if (commitHistoryStore != null) {
+            List<CommitDiff> newDiffs = new ArrayList<>(positionsToDiff.size());
+            positionsToDiff.forEach(position -> newDiffs.add(commitDiffs[position]));
+            commitHistoryStore.storeCommitDiffs(repositoryName, newDiffs);
+        }
+        return commitDiffs;
+    }
 
+    /**
+     * Diff the commits made since the history was read from a local repository, up to a later revision
+     * Only these commits are read, the history already read is not read or changed, see appendCommitHistory
+     * @param repositoryDirectory   the local repository directory
+     * @param newRevision           the revision to read the commits up to
+     * @return                      the diffed commits, or null if the history was not read from an earlier revision
+     *                              of the repository, then the whole history needs to be read again
+     */
+    public NewCommits readNewCommits(File repositoryDirectory, String newRevision) {
+        String previousRevision = historyRevision;
+        if (previousRevision == null || coChangeMatrix == null) {
+            return null;
         }
+        try (Git localGit = Git.open(repositoryDirectory)) {
+            if (!repositoryDirectory.getCanonicalPath().equals(repositoryName)) {
+                return null;
+            }
+            Repository repository = localGit.getRepository();
+            ObjectId previousId = repository.resolve(previousRevision);
+            ObjectId newId = repository.resolve(newRevision);
+            if (previousId == null || newId == null) {
+                return null;
+            }
 
-        // handle first commit (where there's no previous commit)
-        if (!(maxNumCommits > 0 && numCommits >= maxNumCommits)) {
-            try {
-                this.getDiffs(null, nextCommit);
-            } catch (IOException | GitAPIException e) {
-                throw new RuntimeException(e);
+            List<RevCommit> commits = new ArrayList<>();
+            RevCommit previousCommit;
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                previousCommit = revWalk.parseCommit(previousId);
+                if (!revWalk.isMergedInto(previousCommit, revWalk.parseCommit(newId))) {
+                    return null; // not a later revision, ex. another branch
+                }
+            }
+            for (RevCommit commit : localGit.log().addRange(previousId, newId).call()) {
+                commits.add(commit);
             }
+            commits.add(previousCommit); // the oldest new commit is compared with the last commit read
+
+            // another context of the repository could have read these commits already
+            int numDiffs = commits.size() - 1;
+            CommitDiff[] commitDiffs = readCommitDiffs(repository, commits, numDiffs, loadStoredDiffs(commits, numDiffs));
+            System.out.println("Read " + commitDiffs.length + " new commits since " + previousRevision);
+            return new NewCommits(newId.getName(), List.of(commitDiffs));
+        } catch (IOException | GitAPIException e) {
+            throw new RuntimeException(e);
         }
+    }
+
+    /**
+     * Add the commits made since the history was read, then connect the classes again
+     * The new commits are counted before the commits already read, as if the whole history was read again,
+     * except that the commits already read are still counted for the classes they were read for:
+     * a class that was moved to another package starts with no history, and the classes that were removed are kept
+     * in the co-change statistics but not connected; the number of commits read also grows by the new commits
+     * @param newCommits    the commits read by readNewCommits, since the history was read
+     */
+    public synchronized void appendCommitHistory(NewCommits newCommits) {
+        // the commits of each class are from the most recent, so the older commits go after the new commits
+        HashMap<ClassEntity, List<CommitInfo>> olderCommitInfos = new HashMap<>();
+        if (graphGenerator != null) {
+            graphGenerator.getClassEntities().values().forEach(entity -> {
+                olderCommitInfos.put((ClassEntity) entity, new ArrayList<>(entity.getCommitInfos()));
+                entity.clearGitHistory();
+            });
+        }
+
+        GitDiffAssociationRules olderRules = gitDiffAssociationRules;
+        CoChangeMatrix olderMatrix = coChangeMatrix;
+        renamedPaths.clear();
+        gitDiffAssociationRules = new GitDiffAssociationRules(maxCommitInfosPerClass < 0);
+        coChangeMatrix = new CoChangeMatrix(maxClassesPerCommit, CoChangeMatrix.DEFAULT_MAX_SHARED_COMMITS);
+        coChangeTimeline = null;
+        newCommits.commitDiffs.forEach(this::storeDiffs);
+
+        gitDiffAssociationRules.addOlderCommits(olderRules);
+        coChangeMatrix.addOlderCommits(olderMatrix);
+        olderCommitInfos.forEach((classEntity, commitInfos) -> {
+            for (CommitInfo commitInfo : commitInfos) {
+                if (maxCommitInfosPerClass >= 0 && classEntity.getCommitInfos().size() >= maxCommitInfosPerClass) {
+                    break;
+                }
+                classEntity.addCommitInfo(commitInfo);
+            }
+        });
+        historyRevision = newCommits.newRevision;
 
-        // after storing all the commits and classes, now store the connections between classes and git commits
-        // this will be used to annotate the code graph (how a change of entities is correlated)
         addGitHistoryConnections();
     }
 
@@ -136,37 +385,30 @@ public class GitCommitReader {
      */
     private void addGitHistoryConnections() {
 
-        // for each pair of entities, want to store the diffs of each in a list
-        // that can be used for correlation analysis after?
-        var classesAndDiffPairs = new MultiKeyMap(); // NOTE: has some limitations, try to only use locally
-        for (CommitInfo commitInfo : gitDiffAssociationRules.getCommitInfos()){
-            Set<ClassEntity> classEntitySet = commitInfo.getClasses();
-            // TODO - fix size complexity - currently O(n^2), seems excessive
-            for (ClassEntity outerClassEntity : classEntitySet){
-                for (ClassEntity innerClassEntity : classEntitySet){
-                    if (outerClassEntity.equals(innerClassEntity)){ // don't check against itself
-                        continue;
-                    }
-
-                    if (!(classesAndDiffPairs.containsKey(outerClassEntity, innerClassEntity)
-                        || classesAndDiffPairs.containsKey(innerClassEntity, outerClassEntity))){
-                        classesAndDiffPairs.put(outerClassEntity, innerClassEntity, 0);
-                    }
-                }
-            }
+        // the pairs of classes changed in the same commit were counted as the commits were stored
+        System.out.println("Done getting git diff pairs! Size " + coChangeMatrix.getNumPairs());
+        if (graphGenerator != null) {
+            graphGenerator.setCoChangeMatrix(coChangeMatrix);
         }
 
-        System.out.println("Done getting git diff pairs! Size " + classesAndDiffPairs.size());
-
-        for (Object object : classesAndDiffPairs.keySet()){
-            var multiKey = (MultiKey) object;
-            ClassEntity classEntity1 = (ClassEntity) multiKey.getKey(0);
-            ClassEntity classEntity2 = (ClassEntity) multiKey.getKey(1);
+        addWeightedConnections();
+    }
 
-            float confidenceA = gitDiffAssociationRules.calculateConfidence(classEntity1, classEntity2);
-            float confidenceB = gitDiffAssociationRules.calculateConfidence(classEntity2, classEntity1);
+    /**
+     * Connect the pairs of classes in the co-change matrix, weighted by the git history weighting
+     */
+    private void addWeightedConnections() {
+        for (int pair = 0; pair < coChangeMatrix.getNumPairs(); pair++){
+            ClassEntity classEntity1 = coChangeMatrix.getFirstClass(pair);
+            ClassEntity classEntity2 = coChangeMatrix.getSecondClass(pair);
+            if (!isInGraph(classEntity1) || !isInGraph(classEntity2)) {
+                continue; // removed by an update of the codebase, after its commits were read
+            }
 
-            float weight = (confidenceA + confidenceB) / 2; // average?
+            float weight = calculateWeight(pair, gitHistoryWeighting);
+            if (weight == 0 && !gitHistoryWeighting.isAllCommits()) {
+                continue; // not changed together in the window
+            }
 
             float adjustedWeight = weight * WEIGHT_ADJUSTER;
             System.out.println("Between " + classEntity1.getName() + " and " + classEntity2.getName() + ", weight = " + weight);
@@ -175,70 +417,283 @@ public class GitCommitReader {
         }
     }
 
+    private boolean isInGraph(ClassEntity classEntity) {
+        return graphGenerator == null || graphGenerator.getClassEntities().get(classEntity.getKey()) == classEntity;
+    }
+
+    /**
+     * @return  the weight of a pair in the co-change matrix, 0 if the classes did not change together in the weighting's window
+     */
+    private float calculateWeight(int pair, GitHistoryWeighting weighting) {
+        if (weighting.isAllCommits()) {
+            ClassEntity classEntity1 = coChangeMatrix.getFirstClass(pair);
+            ClassEntity classEntity2 = coChangeMatrix.getSecondClass(pair);
+            float confidenceA = gitDiffAssociationRules.calculateConfidence(classEntity1, classEntity2);
+            float confidenceB = gitDiffAssociationRules.calculateConfidence(classEntity2, classEntity1);
+
+            return (confidenceA + confidenceB) / 2; // average?
+        }
+
+        if (coChangeTimeline == null) {
+            coChangeTimeline = CoChangeTimeline.build(gitDiffAssociationRules, coChangeMatrix);
+        }
+        return coChangeTimeline.calculateWeight(pair, weighting);
+    }
+
+    /**
+     * Get the weight of the git connection between two classes with another weighting, without connecting them again
+     * A window only leaves out pairs, so with all commits the classes are connected for every weighting
+     * @param classEntityA          a class
+     * @param classEntityB          the connected class
+     * @param gitHistoryWeighting   the weighting
+     * @return                      the weight of the connection, 0 if the classes did not change together with the weighting
+     */
+    public synchronized float getGitWeight(ClassEntity classEntityA, ClassEntity classEntityB, GitHistoryWeighting gitHistoryWeighting) {
+        int pair = (coChangeMatrix == null) ? -1 : coChangeMatrix.getPair(classEntityA, classEntityB);
+        if (pair < 0) {
+            return 0;
+        }
+        return calculateWeight(pair, gitHistoryWeighting) * WEIGHT_ADJUSTER;
+    }
+
+    public GitHistoryWeighting getGitHistoryWeighting() {
+        return gitHistoryWeighting;
+    }
+
+    /**
+     * Set how commits are weighted, re-weighting the git connections of the history that was already read
+     * The commit times are sorted once, so changing the window or half-life does not read or diff the history again
+     * @param gitHistoryWeighting   the weighting
+     */
+    public synchronized void setGitHistoryWeighting(GitHistoryWeighting gitHistoryWeighting) {
+        if (gitHistoryWeighting.equals(this.gitHistoryWeighting)) {
+            return;
+        }
+        this.gitHistoryWeighting = gitHistoryWeighting;
+
+        if (coChangeMatrix != null) {
+            for (int pair = 0; pair < coChangeMatrix.getNumPairs(); pair++) {
+                coChangeMatrix.getFirstClass(pair).clearGitConnections();
+                coChangeMatrix.getSecondClass(pair).clearGitConnections();
+            }
+            addWeightedConnections();
+        }
+    }
+
+    /**
+     * @return  number of commits diffed by the last read, commits in the commit history store are not diffed again
+     */
+    public int getNumDiffedCommits() {
+        return numDiffedCommits;
+    }
+
+    public CoChangeMatrix getCoChangeMatrix() {
+        return coChangeMatrix;
+    }
+
+    /**
+     * Set the largest commit used for co-changes, larger commits (ex. reformatting the whole codebase) are skipped
+     * @param maxClassesPerCommit   the max number of classes changed in one commit
+     */
+    public void setMaxClassesPerCommit(int maxClassesPerCommit) {
+        this.maxClassesPerCommit = maxClassesPerCommit;
+    }
+
+    public int getDiffParallelism() {
+        return diffParallelism;
+    }
+
+    public void setDiffParallelism(int diffParallelism) {
+        if (diffParallelism < 1) {
+            throw new IllegalArgumentException("Diff parallelism must be at least 1, was " + diffParallelism);
+        }
+        this.diffParallelism = diffParallelism;
+    }
+
+    public int getMaxCommitInfosPerClass() {
+        return maxCommitInfosPerClass;
+    }
+
+    /**
+     * Set how many of the most recent commits are kept in each class, for showing the commits of a class or edge
+     * When bounded, the other commits are only kept as co-change statistics, which bounds the memory of reading the whole history
+     * @param maxCommitInfosPerClass    the max number of CommitInfos per class, -1 to keep every commit
+     */
+    public void setMaxCommitInfosPerClass(int maxCommitInfosPerClass) {
+        this.maxCommitInfosPerClass = maxCommitInfosPerClass;
+    }
+
+    /**
+     * @return  the statistics of the last read, for the classes changed by each commit
+     */
+    public GitDiffAssociationRules getGitDiffAssociationRules() {
+        return gitDiffAssociationRules;
+    }
+
+    public AnalysisProgress getAnalysisProgress() {
+        return analysisProgress;
+    }
+
+    /**
+     * Set the progress to report to, and to check for cancellation between commits
+     * @param analysisProgress  the progress, or AnalysisProgress.NONE if not run as a job
+     */
+    public void setAnalysisProgress(AnalysisProgress analysisProgress) {
+        this.analysisProgress = analysisProgress;
+    }
+
+    public boolean isLineStats() {
+        return lineStats;
+    }
+
+    /**
+     * Set whether to count the added and removed lines of each changed class, stored in its CommitInfo
+     * Off by default, since changes are otherwise found from the paths and object ids alone
+     * @param lineStats     whether to count the lines
+     */
+    public void setLineStats(boolean lineStats) {
+        this.lineStats = lineStats;
+    }
+
     public static int getWeightAdjuster() {
         return WEIGHT_ADJUSTER;
     }
 
     /**
-     * Similar to the command: git diff <previous-commit> <new-commit>
+     * Diff some commits with their previous commits, using one ObjectReader for all of them
+     * Safe to call from multiple threads, nothing is stored here
+     * @param repository    the repository
+     * @param commits       the commits, from the most recent to the oldest
+     * @param positions     positions of the commits to diff
+     * @param lineStats     whether to count the added and removed lines of each entry
+     * @param progress      progress to count each diff in, and to check for cancellation
+     * @return              the diffs, in the order of the positions
+     */
+    private static List<CommitDiff> computeCommitDiffs(Repository repository, List<RevCommit> commits, List<Integer> positions,
+                                                       boolean lineStats, AnalysisProgress progress) {
+        List<CommitDiff> commitDiffs = new ArrayList<>(positions.size());
+
+        try (ObjectReader reader = repository.newObjectReader();
+             DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+
+            diffFormatter.setReader(reader, repository.getConfig());
+            // to filter on Suffix
+            diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
+            DiffConfig diffConfig = repository.getConfig().get(DiffConfig.KEY);
+
+            for (int position : positions) {
+                progress.checkCancelled();
+                RevCommit currentCommit = commits.get(position);
+                RevCommit previousCommit = (position + 1 < commits.size()) ? commits.get(position + 1) : null;
+                commitDiffs.add(getDiffs(reader, diffFormatter, diffConfig, previousCommit, currentCommit, lineStats));
+                progress.advance();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return commitDiffs;
+    }
+
+    /**
+     * Similar to the command: git diff --name-status <previous-commit> <new-commit>
+     * The entries are classified from their paths and object ids, file contents are only loaded for rename detection
+     * and when counting lines (similar to: git diff --numstat)
      * @param previousCommit    previous commit (might be null)
      * @param currentCommit     current commit
+     * @param lineStats         whether to count the added and removed lines of each entry
      */
-    private void getDiffs(RevCommit previousCommit, RevCommit currentCommit) throws IOException, GitAPIException {
-
-        Repository repository = git.getRepository();
+    private static CommitDiff getDiffs(ObjectReader reader, DiffFormatter diffFormatter, DiffConfig diffConfig,
+                                       RevCommit previousCommit, RevCommit currentCommit, boolean lineStats) throws IOException {
 
         // https://stackoverflow.com/questions/23334862/jgit-how-to-get-diff-from-multiple-revcommits
-        AbstractTreeIterator oldTreeParser = prepareTreeParser(repository, previousCommit);
-        AbstractTreeIterator newTreeParser = prepareTreeParser(repository, currentCommit);
+        AbstractTreeIterator oldTreeParser = prepareTreeParser(reader, previousCommit);
+        AbstractTreeIterator newTreeParser = prepareTreeParser(reader, currentCommit);
 
-        List<DiffEntry> diff = git.diff().
-                setOldTree(oldTreeParser).
-                setNewTree(newTreeParser).
-                // to filter on Suffix
-                        setPathFilter(PathSuffixFilter.create(".java")).
-                call();
+        List<DiffEntry> diff = diffFormatter.scan(oldTreeParser, newTreeParser);
 
-        RenameDetector renameDetector = new RenameDetector(repository);
+        RenameDetector renameDetector = new RenameDetector(reader, diffConfig);
         renameDetector.addAll(diff);
         diff = renameDetector.compute();
 
-        CommitInfo commitInfo = new CommitInfo(
+        String[] oldPaths = new String[diff.size()];
+        String[] newPaths = new String[diff.size()];
+        boolean[] renamed = new boolean[diff.size()];
+        for (int i = 0; i < diff.size(); i++) {
+            DiffEntry entry = diff.get(i);
+            oldPaths[i] = entry.getOldPath();
+            newPaths[i] = entry.getNewPath();
+            renamed[i] = entry.getScore() >= renameDetector.getRenameScore();
+        }
+
+        int[] linesAdded = null;
+        int[] linesRemoved = null;
+        if (lineStats) {
+            linesAdded = new int[diff.size()];
+            linesRemoved = new int[diff.size()];
+            for (int i = 0; i < diff.size(); i++) {
+                for (Edit edit : diffFormatter.toFileHeader(diff.get(i)).toEditList()) { // empty for binary files
+                    linesAdded[i] += edit.getLengthB();
+                    linesRemoved[i] += edit.getLengthA();
+                }
+            }
+        }
+
+        return new CommitDiff(
                 currentCommit.getId().getName(),
+                (previousCommit == null) ? null : previousCommit.getId().getName(),
                 currentCommit.getAuthorIdent().getName(),
                 currentCommit.getCommitTime(),
-                currentCommit.getShortMessage()
+                currentCommit.getShortMessage(),
+                oldPaths, newPaths, renamed, linesAdded, linesRemoved
+        );
+    }
+
+    /**
+     * Store the commit and its changed classes
+     * @param commitDiff    the diff of the commit
+     */
+    private void storeDiffs(CommitDiff commitDiff) {
+        CommitInfo commitInfo = new CommitInfo(
+                commitDiff.getCommitId(),
+                commitDiff.getAuthor(),
+                commitDiff.getCommitTime(),
+                commitDiff.getMessage()
         );
         gitDiffAssociationRules.addCommitInfo(commitInfo);
 
-        for (DiffEntry entry : diff) {
-            //System.out.println("Entry: " + entry + ", from: " + entry.getOldId() + ", to: " + entry.getNewId());
+        for (int i = 0; i < commitDiff.getNumFiles(); i++) {
+            String oldPath = commitDiff.getOldPath(i);
+            String newPath = commitDiff.getNewPath(i);
+            //System.out.println("Entry from: " + oldPath + ", to: " + newPath);
 
-            if (entry.getScore() >= renameDetector.getRenameScore()) {
-                System.out.println("file: " + entry.getOldPath() + " copied/moved to: " + entry.getNewPath());
-                renamedClassEntityNames.put(entry.getOldPath(), entry.getNewPath()); // keep track of oldPath, a previous commit would have it as a newPath // FIXME could have duplicates
+            if (commitDiff.isRenamed(i)) {
+                System.out.println("file: " + oldPath + " copied/moved to: " + newPath);
+                renamedClassEntityNames.put(oldPath, newPath); // keep track of oldPath, a previous commit would have it as a newPath
+                renamedPaths.addRename(oldPath, newPath);
             }
 
-            OutputStream outputStream = new ByteArrayOutputStream();
-            DiffFormatter formatter = new DiffFormatter(outputStream);
-            formatter.setRepository(repository);
-            formatter.format(entry);
-//            System.out.println(outputStream.toString());
-
-            if (CommitInfo.determineCommitType(entry.getOldPath(), entry.getNewPath()) == CommitType.DELETE){ // Note: deletes will not have their code details stored
-                System.out.println("DELETED CLASS " + entry.getOldPath());
-                deletedClasses.add(entry.getOldPath());
+            if (CommitInfo.determineCommitType(oldPath, newPath) == CommitType.DELETE){ // Note: deletes will not have their code details stored
+                System.out.println("DELETED CLASS " + oldPath);
+                deletedClasses.add(oldPath);
             } else if (graphGenerator != null) {
-                ClassEntity classEntity = getClassEntity(entry.getNewPath());
+                ClassEntity classEntity = getClassEntity(newPath);
                 if (classEntity != null) {
-                    classEntity.addCommitInfo(commitInfo);
+                    if (maxCommitInfosPerClass < 0 || classEntity.getCommitInfos().size() < maxCommitInfosPerClass) {
+                        classEntity.addCommitInfo(commitInfo); // commits are stored from the most recent, so these are the most recent
+                    }
                     commitInfo.addClass(classEntity);
+                    if (commitDiff.hasLineStats() && lineStats) {
+                        commitInfo.addLineStats(classEntity, commitDiff.getLinesAdded(i), commitDiff.getLinesRemoved(i));
+                    }
                     gitDiffAssociationRules.addClassEntity(classEntity);
                 }
             }
 
         }
 
+        // count the pairs of classes changed by the commit, so the commit does not need to be kept
+        coChangeMatrix.addCommit(commitInfo);
+
         //System.out.println("===============================");
 
     }
@@ -250,12 +705,23 @@ public class GitCommitReader {
      * @return  the classEntity, or null if it doesn't exist in the graph generator
      */
     private ClassEntity getClassEntity(String fullFilename) {
+        fullFilename = renamedPaths.resolve(fullFilename);
 
-        while (renamedClassEntityNames.containsKey(fullFilename)){ // TODO test multiple renames on a file // TODO - test with package creates/changes as well
-            fullFilename = renamedClassEntityNames.get(fullFilename);
-            System.out.println("renamed file, try with :" + fullFilename);
+        // files read by the SourcecodeReader are indexed by their path
+        ClassEntity indexedClassEntity = graphGenerator.getClassEntityByPath(fullFilename);
+        if (indexedClassEntity != null) {
+            return indexedClassEntity;
         }
 
+        return findClassEntity(fullFilename);
+    }
+
+    /**
+     * Find the classEntity of a file that is not indexed, by matching the folders of its path to the packages
+     * @param fullFilename      the filename of the Java Class, after any renames
+     * @return  the classEntity, or null if it doesn't exist in the graph generator
+     */
+    private ClassEntity findClassEntity(String fullFilename) {
         String[] fileSections = fullFilename.split("/");
 
         LinkedHashMap<String, Entity> packages = graphGenerator.getPackageEntities();
@@ -264,18 +730,21 @@ public class GitCommitReader {
         // Note: need to iterate over each folder (fileSection)
         // because the valid package name might start in an inner folder.
         // This makes sure we know that we are starting at a valid package/class name
+        // Class keys are fully qualified, so the package prefix is built up as valid packages are found
+        // (classes in the default package are keyed by their name alone)
         String keyName = "";
         for (String fileSection : fileSections){
             fileSection = fileSection.replace(".java", "");
             keyName += fileSection;
-            if (packages.containsKey(keyName) || classes.containsKey(fileSection)){
+            if (!classes.containsKey(keyName) && !packages.containsKey(keyName)){
+                keyName = fileSection; // the valid name might start at this folder instead
+            }
 
-                if (classes.containsKey(fileSection)){
-                    System.out.println("FOUND CLASS FOR " + fullFilename + " AS " + keyName);
-                    return (ClassEntity) classes.get(fileSection);
-                } else {
-                    System.out.println("FOUND PACKAGE FOR " + fullFilename + " AS " + keyName);
-                }
+            if (classes.containsKey(keyName)){
+                System.out.println("FOUND CLASS FOR " + fullFilename + " AS " + keyName);
+                return (ClassEntity) classes.get(keyName);
+            } else if (packages.containsKey(keyName)){
+                System.out.println("FOUND PACKAGE FOR " + fullFilename + " AS " + keyName);
                 keyName += ".";
             } else {
                 keyName = "";
@@ -291,24 +760,37 @@ public class GitCommitReader {
     }
 
 
-    private static AbstractTreeIterator prepareTreeParser(Repository repository, RevCommit commit) throws IOException {
+    private static AbstractTreeIterator prepareTreeParser(ObjectReader reader, RevCommit commit) throws IOException {
         // from the commit we can build the tree which allows us to construct the TreeParser
 
-        RevWalk walk = new RevWalk(repository);
         CanonicalTreeParser treeParser = new CanonicalTreeParser();
-        ObjectReader reader = repository.newObjectReader();
 
         if (commit != null){ // not first commit
             ObjectId treeId = commit.getTree().getId();
             treeParser.reset(reader, treeId);
         }
 
-        walk.dispose();
-
         return treeParser;
     }
 
     public LinkedHashMap<String, String> getRenamedClassEntityNames() {
         return renamedClassEntityNames;
     }
+
+    /**
+     * The commits made since the history was read, diffed but not added to the history yet
+     */
+    public static class NewCommits {
+        private final String newRevision; // id of the most recent commit
+        private final List<CommitDiff> commitDiffs; // from the most recent commit
+
+        private NewCommits(String newRevision, List<CommitDiff> commitDiffs) {
+            this.newRevision = newRevision;
+            this.commitDiffs = commitDiffs;
+        }
+
+        public int getNumCommits() {
+            return commitDiffs.size();
+        }
+    }
 }
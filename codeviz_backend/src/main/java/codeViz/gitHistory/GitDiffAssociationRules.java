@@ -3,18 +3,52 @@ package codeViz.gitHistory;
 import codeViz.entity.ClassEntity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class GitDiffAssociationRules {
+    private static final int[] NO_COMMITS = new int[0];
+
     private final Map<ClassEntity, Integer> classCounts;
     private final ArrayList<CommitInfo> commitInfos;
     private int totalFileChangeCount;
 
+    // whether the commits are kept, otherwise each commit is folded into the positions as it is added
+    private final boolean keepCommitInfos;
+    private int numCommits;
+    private long[] commitTimes; // epoch time of each commit, in seconds
+
+    // when streaming, the positions of the commits that changed each class so far, and the number of classes of each commit
+    private final HashMap<ClassEntity, int[]> streamedPositions;
+    private final HashMap<ClassEntity, int[]> numStreamedPositions;
+    private int[] commitSizes;
+
+    // for each class, the sorted positions of the commits that changed it
+    // built on the first calculation after a commit or class is added, null until then
+    private HashMap<ClassEntity, int[]> commitPositions;
+
     public GitDiffAssociationRules(){
+        this(true);
+    }
+
+    /**
+     * Create the association rules
+     * @param keepCommitInfos   whether to keep every commit, otherwise only the commit positions of each class are kept
+     *                          and the classes of a commit must be added right after the commit
+     */
+    public GitDiffAssociationRules(boolean keepCommitInfos){
         this.classCounts = new LinkedHashMap<>();
         this.commitInfos = new ArrayList<>();
         this.totalFileChangeCount = 0;
+        this.keepCommitInfos = keepCommitInfos;
+        this.numCommits = 0;
+        this.commitTimes = new long[16];
+        this.streamedPositions = new HashMap<>();
+        this.numStreamedPositions = new HashMap<>();
+        this.commitSizes = keepCommitInfos ? null : new int[16];
+        this.commitPositions = null;
     }
 
     public void addClassEntity(ClassEntity classEntity){
@@ -22,21 +56,174 @@ public class GitDiffAssociationRules {
         //System.out.println(initialWeight);
         classCounts.put(classEntity, initialWeight + 1);
         totalFileChangeCount += 1;
+        commitPositions = null;
+
+        if (!keepCommitInfos && numCommits > 0) {
+            // changed by the most recent commit added, unless it was already counted for that commit
+            int position = numCommits - 1;
+            int[] positions = streamedPositions.computeIfAbsent(classEntity, k -> new int[4]);
+            int[] numPositions = numStreamedPositions.computeIfAbsent(classEntity, k -> new int[1]);
+            if (numPositions[0] > 0 && positions[numPositions[0] - 1] == position) {
+                return;
+            }
+            if (numPositions[0] == positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+                streamedPositions.put(classEntity, positions);
+            }
+            positions[numPositions[0]++] = position;
+            commitSizes[position]++;
+        }
     }
 
     public void addCommitInfo(CommitInfo commitInfo){
-        commitInfos.add(commitInfo);
+        if (keepCommitInfos) {
+            commitInfos.add(commitInfo);
+        } else if (numCommits == commitSizes.length) {
+            commitSizes = Arrays.copyOf(commitSizes, numCommits * 2);
+        }
+        if (numCommits == commitTimes.length) {
+            commitTimes = Arrays.copyOf(commitTimes, numCommits * 2);
+        }
+        commitTimes[numCommits++] = commitInfo.getTime();
+        commitPositions = null;
     }
 
-    public float calculateConfidence(ClassEntity classEntityA, ClassEntity classEntityB){
-        float pA = (float) classCounts.getOrDefault(classEntityA, 0) / totalFileChangeCount;
-        float countAorB = 0;
+    /**
+     * Add the commits of rules read before these, after the commits of these rules
+     * The older rules are not changed
+     * @param olderRules    the rules of the commits older than the commits already added, keeping the commits the same way
+     */
+    void addOlderCommits(GitDiffAssociationRules olderRules){
+        if (olderRules.keepCommitInfos != keepCommitInfos) {
+            throw new IllegalArgumentException("The older rules must keep their commits the same way");
+        }
+        int numNewerCommits = numCommits;
+        int totalNumCommits = numCommits + olderRules.numCommits;
+
+        olderRules.classCounts.forEach((classEntity, count) -> classCounts.merge(classEntity, count, Integer::sum));
+        totalFileChangeCount += olderRules.totalFileChangeCount;
+
+        commitTimes = Arrays.copyOf(commitTimes, Math.max(commitTimes.length, totalNumCommits));
+        System.arraycopy(olderRules.commitTimes, 0, commitTimes, numNewerCommits, olderRules.numCommits);
+        if (keepCommitInfos) {
+            commitInfos.addAll(olderRules.commitInfos);
+        } else {
+            commitSizes = Arrays.copyOf(commitSizes, Math.max(commitSizes.length, totalNumCommits));
+            System.arraycopy(olderRules.commitSizes, 0, commitSizes, numNewerCommits, olderRules.numCommits);
+
+            // the older commits go after the newer commits, so their positions are moved by the number of newer commits
+            olderRules.streamedPositions.forEach((classEntity, olderPositions) -> {
+                int numOlderPositions = olderRules.numStreamedPositions.get(classEntity)[0];
+                int[] numPositions = numStreamedPositions.computeIfAbsent(classEntity, k -> new int[1]);
+                int[] positions = Arrays.copyOf(streamedPositions.getOrDefault(classEntity, NO_COMMITS),
+                        Math.max(4, numPositions[0] + numOlderPositions));
+                for (int i = 0; i < numOlderPositions; i++) {
+                    positions[numPositions[0] + i] = olderPositions[i] + numNewerCommits;
+                }
+                numPositions[0] += numOlderPositions;
+                streamedPositions.put(classEntity, positions);
+            });
+        }
+        numCommits = totalNumCommits;
+        commitPositions = null;
+    }
+
+    /**
+     * Store the commits that changed each class, so pairs of classes can be compared by intersecting sorted arrays
+     * The classes of each commit must be added before the first calculation
+     */
+    private HashMap<ClassEntity, int[]> getCommitPositions(){
+        if (commitPositions == null && !keepCommitInfos) {
+            HashMap<ClassEntity, int[]> positions = new HashMap<>();
+            streamedPositions.forEach((classEntity, classPositions) ->
+                    positions.put(classEntity, Arrays.copyOf(classPositions, numStreamedPositions.get(classEntity)[0])));
+            commitPositions = positions;
+        } else if (commitPositions == null) {
+            HashMap<ClassEntity, int[]> numCommits = new HashMap<>();
+            for (CommitInfo commitInfo : commitInfos){
+                for (ClassEntity classEntity : commitInfo.getClasses()){
+                    numCommits.computeIfAbsent(classEntity, k -> new int[1])[0]++;
+                }
+            }
 
-        for (CommitInfo commitInfo : commitInfos){
-            if (commitInfo.containsClass(classEntityA) || commitInfo.containsClass(classEntityB)){
-                countAorB += 1;
+            HashMap<ClassEntity, int[]> positions = new HashMap<>();
+            numCommits.forEach((classEntity, count) -> positions.put(classEntity, new int[count[0]]));
+            for (int i = 0; i < commitInfos.size(); i++){
+                for (ClassEntity classEntity : commitInfos.get(i).getClasses()){
+                    int[] classPositions = positions.get(classEntity);
+                    int[] count = numCommits.get(classEntity);
+                    classPositions[classPositions.length - count[0]] = i; // commits are visited in order, so the positions are sorted
+                    count[0]--;
+                }
             }
+            commitPositions = positions;
         }
+        return commitPositions;
+    }
+
+    /**
+     * @return  the sorted positions of the commits that changed the class, from the most recent commit
+     */
+    int[] getCommitPositions(ClassEntity classEntity){
+        return getCommitPositions().getOrDefault(classEntity, NO_COMMITS);
+    }
+
+    /**
+     * @return  number of commits that changed the class
+     */
+    public int getNumCommits(ClassEntity classEntity){
+        return getCommitPositions(classEntity).length;
+    }
+
+    /**
+     * @return  number of commits added
+     */
+    public int getNumCommits(){
+        return numCommits;
+    }
+
+    /**
+     * @return  epoch time of the commit at the position, in seconds
+     */
+    long getCommitTime(int position){
+        return commitTimes[position];
+    }
+
+    /**
+     * @return  number of classes changed by the commit at the position
+     */
+    int getNumClasses(int position){
+        return keepCommitInfos ? commitInfos.get(position).getClasses().size() : commitSizes[position];
+    }
+
+    /**
+     * Count the commits that changed both classes
+     */
+    private static int countIntersection(int[] positionsA, int[] positionsB){
+        int count = 0;
+        int a = 0;
+        int b = 0;
+        while (a < positionsA.length && b < positionsB.length){
+            if (positionsA[a] < positionsB[b]){
+                a++;
+            } else if (positionsA[a] > positionsB[b]){
+                b++;
+            } else {
+                count++;
+                a++;
+                b++;
+            }
+        }
+        return count;
+    }
+
+    public float calculateConfidence(ClassEntity classEntityA, ClassEntity classEntityB){
+        float pA = (float) classCounts.getOrDefault(classEntityA, 0) / totalFileChangeCount;
+
+        // number of commits that changed A or B
+        int[] positionsA = getCommitPositions(classEntityA);
+        int[] positionsB = getCommitPositions(classEntityB);
+        float countAorB = positionsA.length + positionsB.length - countIntersection(positionsA, positionsB);
 
         float pAorB = countAorB / totalFileChangeCount;
 
@@ -50,6 +237,33 @@ public class GitDiffAssociationRules {
         return confidence;
     }
 
+    /**
+     * Support of a pair of classes: the fraction of commits that changed both classes
+     */
+    public float calculateSupport(ClassEntity classEntityA, ClassEntity classEntityB){
+        if (numCommits == 0){
+            return 0;
+        }
+        int countAandB = countIntersection(getCommitPositions(classEntityA), getCommitPositions(classEntityB));
+        return (float) countAandB / numCommits;
+    }
+
+    /**
+     * Lift of a pair of classes: how much more often they change together than if their changes were independent
+     */
+    public float calculateLift(ClassEntity classEntityA, ClassEntity classEntityB){
+        int[] positionsA = getCommitPositions(classEntityA);
+        int[] positionsB = getCommitPositions(classEntityB);
+        if (positionsA.length == 0 || positionsB.length == 0){
+            return 0;
+        }
+        float countAandB = countIntersection(positionsA, positionsB);
+        return countAandB * numCommits / ((float) positionsA.length * positionsB.length);
+    }
+
+    /**
+     * @return  the commits, empty if the commits are not kept
+     */
     public ArrayList<CommitInfo> getCommitInfos() {
         return commitInfos;
     }
@@ -0,0 +1,62 @@
+package codeViz.gitHistory;
+
+/**
+ * How commits are weighted when annotating the graph with the git history
+ * Commits can be limited to a window before the most recent commit, and can decay with age,
+ * so recent coupling is not drowned out by coupling from years ago
+ */
+public class GitHistoryWeighting {
+
+    public static final GitHistoryWeighting ALL_COMMITS = new GitHistoryWeighting(0, 0);
+
+    private final double windowDays;
+    private final double halfLifeDays;
+
+    /**
+     * Create a weighting
+     * @param windowDays    only use the commits this many days before the most recent commit, 0 to use all commits
+     * @param halfLifeDays  halve the weight of a commit for every this many days before the most recent commit, 0 for no decay
+     */
+    public GitHistoryWeighting(double windowDays, double halfLifeDays) {
+        if (!(windowDays >= 0) || !(halfLifeDays >= 0)) {
+            throw new IllegalArgumentException("Window and half-life must be at least 0 days, were " + windowDays + " and " + halfLifeDays);
+        }
+        this.windowDays = windowDays;
+        this.halfLifeDays = halfLifeDays;
+    }
+
+    public double getWindowDays() {
+        return windowDays;
+    }
+
+    public double getHalfLifeDays() {
+        return halfLifeDays;
+    }
+
+    /**
+     * @return  whether every commit has the same weight
+     */
+    public boolean isAllCommits() {
+        return windowDays == 0 && halfLifeDays == 0;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof GitHistoryWeighting)) {
+            return false;
+        }
+        GitHistoryWeighting weighting = (GitHistoryWeighting) object;
+        return windowDays == weighting.windowDays && halfLifeDays == weighting.halfLifeDays;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(windowDays) * 31 + Double.hashCode(halfLifeDays);
+    }
+
+    @Override
+    public String toString() {
+        return "window: " + ((windowDays == 0) ? "all" : windowDays + " days")
+                + ", half-life: " + ((halfLifeDays == 0) ? "none" : halfLifeDays + " days");
+    }
+}
@@ -0,0 +1,123 @@
+package codeViz.gitHistory;
+
+import codeViz.codeSummary.CompilationUnitSummaryCache;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a bare mirror of each repository that was analyzed, so its history is only downloaded once
+ * Opening a repository again only fetches the objects added since the last time
+ * Works with any URI that JGit can clone, including local file:// repositories
+ */
+public class GitMirrorManager {
+
+    public static final String DEFAULT_MIRROR_DIRECTORY = "./codeviz_cache/mirrors";
+
+    private final Path baseDirectory;
+
+    // a lock for each mirror directory, so mirrors of different repositories are cloned and fetched at the same time
+    private final ConcurrentHashMap<File, Object> mirrorLocks;
+
+    /**
+     * Create a mirror manager in the default directory
+     */
+    public GitMirrorManager() {
+        this(Paths.get(DEFAULT_MIRROR_DIRECTORY));
+    }
+
+    /**
+     * Create a mirror manager, using any mirrors already stored in the directory
+     * @param baseDirectory     directory to store the mirrors in
+     */
+    public GitMirrorManager(Path baseDirectory) {
+        this.baseDirectory = baseDirectory;
+        this.mirrorLocks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the directory of a repository's mirror
+     * The directory is named after the repository, with a hash of the URI so different forks don't share a mirror
+     * @param uri   the URI of the repository
+     * @return      the mirror directory, which might not exist yet
+     */
+    public File getMirrorDirectory(String uri) {
+        String repositoryName = uri.replaceAll("/+$", "");
+        repositoryName = repositoryName.substring(repositoryName.lastIndexOf('/') + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+        String uriHash = CompilationUnitSummaryCache.hash(uri.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        return baseDirectory.resolve(repositoryName + "-" + uriHash + ".git").toFile();
+    }
+
+    /**
+     * Open the mirror of a repository, cloning it the first time and fetching the new commits after that
+     * Only one clone or fetch of the same mirror runs at a time, the mirrors of other repositories are not waited for
+     * @param uri               the URI of the repository
+     * @param tokenPassword     the token password of the user, empty for public repositories
+     * @return                  the mirror, which the caller must close
+     */
+    public Git openMirror(String uri, String tokenPassword) {
+        File mirrorDirectory = getMirrorDirectory(uri);
+        synchronized (mirrorLocks.computeIfAbsent(mirrorDirectory, k -> new Object())) {
+            return openMirror(uri, tokenPassword, mirrorDirectory);
+        }
+    }
+
+    private Git openMirror(String uri, String tokenPassword, File mirrorDirectory) {
+        UsernamePasswordCredentialsProvider credentialsProvider = new UsernamePasswordCredentialsProvider(tokenPassword, "");
+
+        Git git = openExistingMirror(mirrorDirectory);
+        if (git != null) {
+            try {
+                git.fetch()
+                        .setCredentialsProvider(credentialsProvider)
+                        .setRemoveDeletedRefs(true)
+                        .call();
+                System.out.println("Fetched new commits of " + uri + " into " + mirrorDirectory);
+                return git;
+            } catch (GitAPIException e) {
+                // the mirror could be corrupted, clone it again below
+                System.out.println("ERROR, could not fetch " + uri + ", cloning again: " + e.getMessage());
+                git.close();
+            }
+        }
+
+        try {
+            FileUtils.deleteDirectory(mirrorDirectory);
+            git = Git.cloneRepository()
+                    .setURI(uri)
+                    .setCredentialsProvider(credentialsProvider)
+                    .setDirectory(mirrorDirectory)
+                    .setMirror(true)
+                    .call();
+            System.out.println("Cloned " + uri + " into " + mirrorDirectory);
+            return git;
+        } catch (IOException | GitAPIException e) {
+            try {
+                FileUtils.deleteDirectory(mirrorDirectory); // don't leave a partial mirror
+            } catch (IOException ignored) {
+                // the clone error is more useful
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Git openExistingMirror(File mirrorDirectory) {
+        if (!mirrorDirectory.isDirectory()) {
+            return null;
+        }
+        try {
+            return Git.open(mirrorDirectory);
+        } catch (IOException e) {
+            System.out.println("ERROR, could not open mirror " + mirrorDirectory + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
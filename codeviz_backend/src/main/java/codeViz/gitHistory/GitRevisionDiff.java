@@ -0,0 +1,100 @@
+package codeViz.gitHistory;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The .java files that changed between two revisions of a git repository
+ * Similar to the command: git diff --name-status -M <old-revision> <new-revision> -- '*.java'
+ */
+public class GitRevisionDiff {
+
+    private final String newRevision;
+    private final Set<String> removedPaths;
+    private final LinkedHashMap<String, byte[]> changedFiles;
+
+    private GitRevisionDiff(String newRevision) {
+        this.newRevision = newRevision;
+        this.removedPaths = new LinkedHashSet<>();
+        this.changedFiles = new LinkedHashMap<>();
+    }
+
+    /**
+     * Get the .java files that changed between two revisions
+     * @param repository        the repository
+     * @param oldRevision       the previously analyzed revision, or null to get every file in the new revision
+     * @param newRevision       the revision to update to (ex. a commit id, branch name or HEAD)
+     * @return                  the changed files
+     */
+    public static GitRevisionDiff compute(Repository repository, String oldRevision, String newRevision) throws IOException {
+        ObjectId newCommitId = resolve(repository, newRevision);
+        GitRevisionDiff gitRevisionDiff = new GitRevisionDiff(newCommitId.getName());
+
+        ObjectId oldTreeId = (oldRevision == null) ? null : resolve(repository, oldRevision + "^{tree}");
+        ObjectId newTreeId = resolve(repository, newRevision + "^{tree}");
+
+        try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+             ObjectReader objectReader = repository.newObjectReader()) {
+            diffFormatter.setRepository(repository);
+            diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
+            diffFormatter.setDetectRenames(true);
+
+            List<DiffEntry> diff = diffFormatter.scan(oldTreeId, newTreeId);
+            for (DiffEntry entry : diff) {
+                switch (entry.getChangeType()) {
+                    case DELETE -> gitRevisionDiff.removedPaths.add(entry.getOldPath());
+                    case RENAME -> {
+                        gitRevisionDiff.removedPaths.add(entry.getOldPath());
+                        gitRevisionDiff.changedFiles.put(entry.getNewPath(), objectReader.open(entry.getNewId().toObjectId()).getBytes());
+                    }
+                    default -> // ADD, MODIFY, COPY
+                            gitRevisionDiff.changedFiles.put(entry.getNewPath(), objectReader.open(entry.getNewId().toObjectId()).getBytes());
+                }
+            }
+        }
+
+        System.out.println("Diff from " + oldRevision + " to " + newRevision + ": "
+                + gitRevisionDiff.changedFiles.size() + " changed, " + gitRevisionDiff.removedPaths.size() + " removed");
+        return gitRevisionDiff;
+    }
+
+    private static ObjectId resolve(Repository repository, String revision) throws IOException {
+        ObjectId objectId = repository.resolve(revision);
+        if (objectId == null) {
+            throw new IOException("Could not find revision " + revision);
+        }
+        return objectId;
+    }
+
+    /**
+     * @return  the commit id of the new revision
+     */
+    public String getNewRevision() {
+        return newRevision;
+    }
+
+    /**
+     * @return  paths of the deleted files, and the old paths of renamed files
+     */
+    public Set<String> getRemovedPaths() {
+        return removedPaths;
+    }
+
+    /**
+     * @return  paths and contents of the added, modified, copied and renamed files, at the new revision
+     */
+    public LinkedHashMap<String, byte[]> getChangedFiles() {
+        return changedFiles;
+    }
+}
@@ -0,0 +1,68 @@
+package codeViz.gitHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Union-find of file paths that were renamed into each other, so any historic path resolves to the file's current path
+ * Renames must be added from the most recent commit to the oldest, and paths resolved in the same order
+ */
+class RenamedPaths {
+
+    private final HashMap<String, Integer> pathIds;
+    private final ArrayList<String> paths;
+    private int[] parents;
+
+    RenamedPaths() {
+        this.pathIds = new HashMap<>();
+        this.paths = new ArrayList<>();
+        this.parents = new int[16];
+    }
+
+    private int addId(String path) {
+        int id = paths.size();
+        pathIds.put(path, id);
+        paths.add(path);
+        if (id == parents.length) {
+            parents = Arrays.copyOf(parents, id * 2);
+        }
+        parents[id] = id;
+        return id;
+    }
+
+    private int findRoot(int id) {
+        while (parents[id] != id) {
+            parents[id] = parents[parents[id]]; // path halving
+            id = parents[id];
+        }
+        return id;
+    }
+
+    /**
+     * Record a rename, the old path then resolves to wherever the new path resolves to
+     * If the old path was already seen in a more recent commit, it was reused by a different file after this rename,
+     * so the old path starts a new entry and the more recent entry is only reachable from its own renames
+     * @param oldPath   path before the rename
+     * @param newPath   path after the rename
+     */
+    void addRename(String oldPath, String newPath) {
+        Integer newId = pathIds.get(newPath);
+        int newRoot = findRoot((newId == null) ? addId(newPath) : newId);
+        parents[addId(oldPath)] = newRoot;
+    }
+
+    /**
+     * @param path  a historic or current path
+     * @return      the most recent path of the file, the same path if it was never renamed
+     */
+    String resolve(String path) {
+        Integer id = pathIds.get(path);
+        return (id == null) ? path : paths.get(findRoot(id));
+    }
+
+    void clear() {
+        pathIds.clear();
+        paths.clear();
+    }
+}
@@ -0,0 +1,287 @@
+import codeViz.AnalysisContext;
+import codeViz.AnalysisContextManager;
+import codeViz.AnalysisJob;
+import codeViz.AnalysisJobManager;
+import codeViz.AnalysisProgress;
+import codeViz.AnalysisSession;
+import codeViz.GraphPayload;
+import codeViz.entity.Entity;
+import codeViz.entity.EntityType;
+import codeViz.entity.PackageEntity;
+import codeViz.gitHistory.GitMirrorManager;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Sessions viewing the same repository should share its graph without changing each other's view,
+ * and only the most recently used repositories and sessions are kept
+ */
+public class AnalysisContextTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    private Path createRepository(String packageName) throws IOException, GitAPIException {
+        Path directory = tempDirectory.resolve(packageName);
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            writeFile(directory, "src/" + packageName + "/Cart.java", "package " + packageName + ";\n"
+                    + "public class Cart {\n"
+                    + "    private Item item;\n"
+                    + "    public int total() { return item.price(); }\n"
+                    + "}\n");
+            writeFile(directory, "src/" + packageName + "/Item.java", "package " + packageName + ";\n"
+                    + "public class Item {\n"
+                    + "    public int price() { return 1; }\n"
+                    + "}\n");
+            commit(git, "add cart");
+        }
+        return directory;
+    }
+
+    private AnalysisContextManager createManager(int maxRepositories, int maxSessions) {
+        return createManager(maxRepositories, maxSessions, null);
+    }
+
+    private AnalysisContextManager createManager(int maxRepositories, int maxSessions, AnalysisJobManager analysisJobManager) {
+        return new AnalysisContextManager(maxRepositories, maxSessions,
+                null, new GitMirrorManager(tempDirectory.resolve("mirrors")), null, List.of(tempDirectory), analysisJobManager);
+    }
+
+    private static String readGraph(AnalysisSession session) {
+        return new String(session.getGraphPayload().getBody(), StandardCharsets.ISO_8859_1); // keeps every byte of the compact graph
+    }
+
+    @Test
+    public void testSessionsShareGraphWithOwnView() throws IOException, GitAPIException {
+        Path directory = createRepository("shop");
+        AnalysisContextManager analysisContextManager = createManager(2, 10);
+
+        AnalysisSession searchingSession = analysisContextManager.getSession("searching");
+        AnalysisSession viewingSession = analysisContextManager.getSession("viewing");
+        assertSame(searchingSession.getGraphPayload(), viewingSession.getGraphPayload()); // the same empty graph
+        assertTrue(readGraph(viewingSession).startsWith("CVZG"));
+
+        assertEquals("", analysisContextManager.updateRepository(searchingSession, directory.toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        assertEquals("", analysisContextManager.updateRepository(viewingSession, directory + "/", null, "HEAD", -1, AnalysisProgress.NONE));
+        AnalysisContext context = searchingSession.getContext();
+        assertSame(context, viewingSession.getContext()); // the analyzed graph is shared
+        assertEquals(1, analysisContextManager.getNumLoadedRepositories());
+        String viewedGraph = readGraph(viewingSession);
+        assertTrue(viewedGraph.contains("Cart"));
+
+        // a search in one session is not shown in the other
+        searchingSession.setSearch(Map.of("value", "Item", "searchClasses", "true"), EntityType.CLASS);
+        assertTrue(context.generateSearchGraph(searchingSession).contains("Found results for: Item"));
+        assertNotEquals(viewedGraph, readGraph(searchingSession));
+        assertEquals("", context.generateSearchGraph(viewingSession));
+        assertEquals(viewedGraph, readGraph(viewingSession));
+
+        // viewing the inside of a node in one session does not change the other
+        viewingSession.setCurrentLevel(EntityType.PACKAGE);
+        context.generateGraph(viewingSession);
+        context.generateInnerGraph(viewingSession, "1_shop", EntityType.CLASS);
+        assertEquals("shop", viewingSession.getSelectedNodeToString());
+        assertEquals(EntityType.CLASS, viewingSession.getCurrentLevel());
+        context.generateGraph(searchingSession);
+        assertEquals("", searchingSession.getSelectedNodeToString());
+        assertEquals("shop", viewingSession.getSelectedNodeToString());
+        String exportedGraph = context.exportGraph(viewingSession); // the inner graph, in Gexf format for Gephi
+        assertTrue(exportedGraph.contains("<gexf") && exportedGraph.contains("label=\"Cart\""));
+        assertFalse(exportedGraph.contains("label=\"shop\""));
+
+        // the search is shown over the shared graph, its entities are not highlighted
+        PackageEntity shop = (PackageEntity) viewingSession.getSelectedNode();
+        assertFalse(shop.isHighlighted());
+        assertTrue(shop.getClasses().stream().noneMatch(Entity::isHighlighted));
+
+        // the search is kept until it is cleared
+        assertTrue(context.generateSearchGraph(searchingSession).contains("Found results for: Item"));
+        searchingSession.clearSearch();
+        assertEquals("", context.generateSearchGraph(searchingSession));
+
+        assertTrue(searchingSession.setGitHistoryWeighting(-1, 0).startsWith("ERROR"));
+    }
+
+    @Test
+    public void testGeneratedGraphsAreCached() throws IOException, GitAPIException {
+        Path directory = createRepository("shop");
+        AnalysisContextManager analysisContextManager = createManager(2, 10);
+
+        AnalysisSession firstSession = analysisContextManager.getSession("first");
+        AnalysisSession secondSession = analysisContextManager.getSession("second");
+        assertEquals("", analysisContextManager.updateRepository(firstSession, directory.toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        AnalysisContext context = firstSession.getContext();
+        GraphPayload classGraph = firstSession.getGraphPayload();
+
+        // switching back to a level uses the graph generated before, in any session
+        firstSession.setCurrentLevel(EntityType.PACKAGE);
+        context.generateGraph(firstSession);
+        assertNotSame(classGraph, firstSession.getGraphPayload());
+        firstSession.setCurrentLevel(EntityType.CLASS);
+        context.generateGraph(firstSession);
+        assertSame(classGraph, firstSession.getGraphPayload());
+        assertEquals(2, context.getNumCachedViews());
+        assertEquals("", analysisContextManager.updateRepository(secondSession, directory.toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        assertNotSame(classGraph, secondSession.getGraphPayload()); // updated, so the graph is generated again
+        AnalysisContext updatedContext = secondSession.getContext();
+        assertSame(context, updatedContext); // updated in place, so every session viewing it sees the update
+        assertSame(updatedContext, firstSession.getContext());
+        assertEquals(1, updatedContext.getNumCachedViews());
+        context = updatedContext;
+        classGraph = secondSession.getGraphPayload();
+        context.generateGraph(firstSession);
+        assertSame(classGraph, firstSession.getGraphPayload());
+
+        // a search is a different graph, with its own result
+        firstSession.setSearch(Map.of("value", "Item", "searchClasses", "true"), EntityType.CLASS);
+        assertTrue(context.generateSearchGraph(firstSession).contains("Found results for: Item"));
+        GraphPayload searchGraph = firstSession.getGraphPayload();
+        assertNotSame(classGraph, searchGraph);
+        assertEquals("", context.generateSearchGraph(secondSession));
+        assertSame(classGraph, secondSession.getGraphPayload());
+        assertTrue(context.generateSearchGraph(firstSession).contains("Found results for: Item"));
+        assertSame(searchGraph, firstSession.getGraphPayload());
+        firstSession.clearSearch();
+        assertEquals("", context.generateSearchGraph(firstSession));
+        assertSame(classGraph, firstSession.getGraphPayload());
+
+        // the inner graph of a node is cached with its node
+        secondSession.setCurrentLevel(EntityType.PACKAGE);
+        context.generateGraph(secondSession);
+        context.generateInnerGraph(secondSession, "1_shop", EntityType.CLASS);
+        GraphPayload innerGraph = secondSession.getGraphPayload();
+        assertNotSame(classGraph, innerGraph);
+        firstSession.setCurrentLevel(EntityType.PACKAGE);
+        context.generateGraph(firstSession);
+        context.generateInnerGraph(firstSession, "1_shop", EntityType.CLASS);
+        assertSame(innerGraph, firstSession.getGraphPayload());
+        assertEquals("shop", firstSession.getSelectedNodeToString());
+        assertEquals(EntityType.CLASS, firstSession.getCurrentLevel());
+    }
+
+    @Test
+    public void testUpdateChangesLoadedContextOnlyOnSuccess() throws IOException, GitAPIException {
+        Path directory = createRepository("shop");
+        AnalysisContextManager analysisContextManager = createManager(2, 10);
+        AnalysisSession session = analysisContextManager.getSession("session");
+        assertEquals("", analysisContextManager.updateRepository(session, directory.toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        AnalysisContext context = session.getContext();
+        GraphPayload graph = session.getGraphPayload();
+
+        // only the changed file is read again, into the codebase of the loaded context
+        try (Git git = Git.open(directory.toFile())) {
+            writeFile(directory, "src/shop/Order.java", "package shop;\n"
+                    + "public class Order {\n"
+                    + "    private Cart cart;\n"
+                    + "}\n");
+            commit(git, "add order");
+        }
+        assertEquals("", analysisContextManager.updateRepository(session, directory.toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        AnalysisContext updatedContext = session.getContext();
+        assertSame(context, updatedContext);
+        assertTrue(readGraph(session).contains("Order") && readGraph(session).contains("Item"));
+        assertFalse(context.getNodeDetails(session, "1_shop.Order").isEmpty());
+
+        // a failed update keeps the loaded context
+        assertTrue(analysisContextManager.updateRepository(session, directory.toString(), null, "missing", -1, AnalysisProgress.NONE)
+                .startsWith("ERROR"));
+        assertSame(updatedContext, session.getContext());
+        assertSame(updatedContext, analysisContextManager.getLoadedContext(directory.toString()));
+        assertNotSame(graph, session.getGraphPayload());
+
+        // only directories within the local repository roots can be updated
+        for (String repoDirectory : new String[]{null, "", " ", tempDirectory.getParent().toString(),
+                directory.resolve("../..").toString(), directory.resolve("missing").toString()}) {
+            assertTrue(analysisContextManager.checkLocalRepository(repoDirectory).startsWith("ERROR"));
+            assertTrue(analysisContextManager.updateRepository(session, repoDirectory, null, "HEAD", -1, AnalysisProgress.NONE)
+                    .startsWith("ERROR"));
+        }
+        assertEquals("", analysisContextManager.checkLocalRepository(directory.toString()));
+        assertSame(updatedContext, session.getContext());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreRemoved() throws IOException, GitAPIException {
+        AnalysisContextManager analysisContextManager = createManager(1, 2);
+
+        AnalysisSession firstSession = analysisContextManager.getSession("first");
+        AnalysisSession secondSession = analysisContextManager.getSession("second");
+        assertEquals("", analysisContextManager.updateRepository(firstSession, createRepository("shop").toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        assertNotNull(firstSession.getContext());
+
+        // only one repository is kept, so the first one is unloaded and its session goes back to an empty graph
+        assertEquals("", analysisContextManager.updateRepository(secondSession, createRepository("store").toString(), null, "HEAD", -1, AnalysisProgress.NONE));
+        assertEquals(1, analysisContextManager.getNumLoadedRepositories());
+        assertNull(firstSession.getContext());
+        assertNotNull(analysisContextManager.getContext(firstSession));
+        assertFalse(readGraph(firstSession).contains("Cart")); // the graph of the unloaded repository isn't shown anymore
+        assertFalse(secondSession.getContext().getNodeDetails(secondSession, "1_store.Cart").isEmpty());
+
+        // only two sessions are kept, the least recently used session is forgotten
+        assertSame(secondSession, analysisContextManager.getSession("second"));
+        analysisContextManager.getSession("third");
+        assertEquals(2, analysisContextManager.getNumSessions());
+        assertSame(secondSession, analysisContextManager.getSession("second"));
+        assertNotSame(firstSession, analysisContextManager.getSession("first"));
+
+        assertEquals("https://github.com/owner/repo", AnalysisContextManager.getRepositoryKey("https://github.com/owner/repo.git"));
+        assertEquals("https://github.com/owner/repo", AnalysisContextManager.getRepositoryKey("https://github.com/owner/repo/"));
+    }
+
+    @Test
+    public void testSessionsWithUnfinishedJobsAreKept() throws InterruptedException {
+        AnalysisJobManager analysisJobManager = new AnalysisJobManager(1, 1, 0);
+        AnalysisContextManager analysisContextManager = createManager(1, 1, analysisJobManager);
+        AnalysisSession analyzingSession = analysisContextManager.getSession("analyzing");
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AnalysisJob job = analysisJobManager.submit("analyzing", "repo", progress -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return "";
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(analysisJobManager.hasUnfinishedJob("analyzing"));
+
+        // the session is kept while its job runs, even with too many sessions
+        analysisContextManager.getSession("other");
+        assertEquals(2, analysisContextManager.getNumSessions());
+        assertSame(analyzingSession, analysisContextManager.getSession("analyzing"));
+        assertFalse(analyzingSession.takeReset());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.getState().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.getState().isFinished());
+
+        // once the job finished the session can be forgotten, and it is reset when its client comes back
+        analysisContextManager.getSession("third");
+        assertEquals(1, analysisContextManager.getNumSessions());
+        AnalysisSession resetSession = analysisContextManager.getSession("analyzing");
+        assertNotSame(analyzingSession, resetSession);
+        assertTrue(resetSession.takeReset());
+        assertFalse(resetSession.takeReset()); // the client is only told once
+        assertFalse(analysisContextManager.getSession("new").takeReset());
+        analysisJobManager.shutdown();
+    }
+}
@@ -0,0 +1,123 @@
+import codeViz.AnalysisJob;
+import codeViz.AnalysisJobManager;
+import codeViz.AnalysisProgress;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Analysis jobs should run in the background with a bounded queue, and stop when cancelled or out of time
+ */
+public class AnalysisJobManagerTest {
+
+    private static void waitUntilFinished(AnalysisJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.getState().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.getState().isFinished());
+    }
+
+    /**
+     * A task that keeps checking for cancellation until it is released
+     */
+    private static AnalysisJobManager.AnalysisTask waitingTask(CountDownLatch started, CountDownLatch release) {
+        return progress -> {
+            progress.startPhase(AnalysisProgress.Phase.PARSE, -1);
+            started.countDown();
+            try {
+                while (!release.await(5, TimeUnit.MILLISECONDS)) {
+                    progress.checkCancelled();
+                    progress.advance();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return "";
+        };
+    }
+
+    @Test
+    public void testJobsReportProgress() throws InterruptedException {
+        AnalysisJobManager analysisJobManager = new AnalysisJobManager(1, 2, 0);
+
+        AnalysisJob job = analysisJobManager.submit("repo", progress -> {
+            progress.startPhase(AnalysisProgress.Phase.HISTORY, 4);
+            for (int i = 0; i < 4; i++) {
+                progress.advance();
+            }
+            assertEquals(4, progress.getDone());
+            assertEquals(0L, progress.getEtaMillis());
+            return "";
+        });
+        waitUntilFinished(job);
+        assertEquals(AnalysisJob.State.SUCCEEDED, job.getState());
+        assertEquals("DONE", job.toResponse().get("phase"));
+        assertSame(job, analysisJobManager.getJob(job.getId()));
+
+        AnalysisJob failedJob = analysisJobManager.submit("bad repo", progress -> "ERROR, not a valid Java project");
+        waitUntilFinished(failedJob);
+        assertEquals(AnalysisJob.State.FAILED, failedJob.getState());
+        assertEquals("ERROR, not a valid Java project", failedJob.getError());
+        assertFalse(analysisJobManager.cancel(failedJob.getId())); // already finished
+
+        // an Error doesn't leave the job running
+        AnalysisJob brokenJob = analysisJobManager.submit("broken repo", progress -> {
+            throw new StackOverflowError();
+        });
+        waitUntilFinished(brokenJob);
+        assertEquals(AnalysisJob.State.FAILED, brokenJob.getState());
+
+        analysisJobManager.shutdown();
+    }
+
+    @Test
+    public void testQueueIsBoundedAndJobsCanBeCancelled() throws InterruptedException {
+        AnalysisJobManager analysisJobManager = new AnalysisJobManager(1, 1, 0);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AnalysisJob runningJob = analysisJobManager.submit("huge repo", waitingTask(started, release));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        AnalysisJob queuedJob = analysisJobManager.submit("queued repo", progress -> "");
+        assertEquals(AnalysisJob.State.QUEUED, queuedJob.getState());
+
+        // the queue is full
+        assertThrows(RejectedExecutionException.class, () -> analysisJobManager.submit("rejected repo", progress -> ""));
+
+        // cancelling the queued job makes room for another job
+        assertTrue(analysisJobManager.cancel(queuedJob.getId()));
+        assertEquals(AnalysisJob.State.CANCELLED, queuedJob.getState());
+        AnalysisJob nextJob = analysisJobManager.submit("next repo", progress -> "");
+
+        // the running job stops at its next check
+        assertEquals(AnalysisJob.State.RUNNING, runningJob.getState());
+        assertTrue(analysisJobManager.cancel(runningJob.getId()));
+        waitUntilFinished(runningJob);
+        assertEquals(AnalysisJob.State.CANCELLED, runningJob.getState());
+        assertTrue(runningJob.getError().contains("PARSE"));
+
+        waitUntilFinished(nextJob);
+        assertEquals(AnalysisJob.State.SUCCEEDED, nextJob.getState());
+        analysisJobManager.shutdown();
+    }
+
+    @Test
+    public void testJobsAreCancelledAfterTheTimeLimit() throws InterruptedException {
+        AnalysisJobManager analysisJobManager = new AnalysisJobManager(1, 1, 50);
+
+        AnalysisJob job = analysisJobManager.submit("huge repo", waitingTask(new CountDownLatch(1), new CountDownLatch(1)));
+        AnalysisJob queuedJob = analysisJobManager.submit("small repo", progress -> "");
+        waitUntilFinished(job);
+        assertEquals(AnalysisJob.State.CANCELLED, job.getState());
+
+        // the time limit starts when the job runs, not while it waits in the queue
+        waitUntilFinished(queuedJob);
+        assertEquals(AnalysisJob.State.SUCCEEDED, queuedJob.getState());
+        analysisJobManager.shutdown();
+    }
+}
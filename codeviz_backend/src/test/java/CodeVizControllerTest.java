@@ -0,0 +1,49 @@
+import codeViz.AnalysisContextManager;
+import codeViz.AnalysisJobManager;
+import codeViz.CodeVizController;
+import codeViz.gitHistory.GitMirrorManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The controller should return the ETag of the session's graph, and the graph only if the client doesn't have it
+ */
+public class CodeVizControllerTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    public void testGraphResponses() {
+        AnalysisJobManager analysisJobManager = new AnalysisJobManager(1, 1, 0);
+        AnalysisContextManager analysisContextManager = new AnalysisContextManager(1, 2,
+                null, new GitMirrorManager(tempDirectory.resolve("mirrors")), null, List.of(tempDirectory), analysisJobManager);
+        CodeVizController controller = new CodeVizController(analysisContextManager, analysisJobManager);
+        MockHttpSession httpSession = new MockHttpSession();
+
+        ResponseEntity<Map<String, String>> levelResponse = controller.viewGraphLevel("PACKAGE", httpSession);
+        assertEquals(HttpStatus.OK, levelResponse.getStatusCode());
+        String eTag = levelResponse.getBody().get("eTag");
+        assertNotNull(eTag);
+
+        ResponseEntity<byte[]> graphResponse = controller.getGraph(null, "", httpSession);
+        assertEquals(HttpStatus.OK, graphResponse.getStatusCode());
+        assertTrue(graphResponse.getBody().length > 0);
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getGraph(eTag, "gzip", httpSession).getStatusCode());
+
+        ResponseEntity<Map<String, String>> annotateResponse = controller.annotateGraph(false, -1, 0, httpSession);
+        assertEquals(HttpStatus.OK, annotateResponse.getStatusCode());
+        assertTrue(annotateResponse.getBody().get("error").startsWith("ERROR")); // the weighting is checked, the graph is still shown
+        assertNotNull(annotateResponse.getBody().get("eTag"));
+        analysisJobManager.shutdown();
+    }
+}
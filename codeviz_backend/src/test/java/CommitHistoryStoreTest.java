@@ -0,0 +1,87 @@
+import codeViz.GraphGenerator;
+import codeViz.gitHistory.CommitHistoryStore;
+import codeViz.gitHistory.GitCommitReader;
+import codeViz.gitHistory.GitMirrorManager;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Reading the git history again should use the stored diffs, and give the same history as diffing every commit
+ */
+public class CommitHistoryStoreTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    /**
+     * Read the git history of the repository
+     * @return  the commit count of each class and the git connections, in a form that does not depend on insertion order
+     */
+    private static Map<String, String> readHistory(GitCommitReader gitCommitReader, GraphGenerator graphGenerator, Path directory) {
+        gitCommitReader.extractCommitHistory(directory.toFile(), -1);
+        return describeHistory(graphGenerator);
+    }
+
+    @Test
+    public void testStoredCommitsAreNotDiffedAgain() throws IOException, GitAPIException {
+        Path directory = tempDirectory.resolve("repo");
+        Path storeDirectory = tempDirectory.resolve("store");
+        String jdbcUrl = "jdbc:h2:file:" + storeDirectory.toAbsolutePath() + "/commits";
+        GitMirrorManager gitMirrorManager = new GitMirrorManager(storeDirectory.resolve("mirrors"));
+
+        String revision = null;
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            for (int version = 0; version < 4; version++) {
+                writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", version));
+                if (version % 2 == 0) {
+                    writeFile(directory, "src/shop/Item.java", createClass("shop", "Item", version));
+                }
+                revision = commit(git, "version " + version);
+            }
+        }
+
+        // the first read diffs every commit
+        GraphGenerator graphGenerator = analyzeCodebase(directory, revision);
+        Map<String, String> firstHistory;
+        try (CommitHistoryStore commitHistoryStore = new CommitHistoryStore(jdbcUrl)) {
+            GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator, gitMirrorManager, commitHistoryStore);
+            firstHistory = readHistory(gitCommitReader, graphGenerator, directory);
+            assertEquals(4, gitCommitReader.getNumDiffedCommits());
+        }
+        assertTrue(firstHistory.get("shop.Cart").startsWith("4 "));
+
+        // after a restart, only the new commit is diffed
+        try (Git git = Git.open(directory.toFile())) {
+            writeFile(directory, "src/shop/Item.java", createClass("shop", "Item", 4));
+            writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", 4));
+            revision = commit(git, "version 4");
+        }
+        graphGenerator = analyzeCodebase(directory, revision);
+        Map<String, String> storedHistory;
+        try (CommitHistoryStore commitHistoryStore = new CommitHistoryStore(jdbcUrl)) {
+            GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator, gitMirrorManager, commitHistoryStore);
+            storedHistory = readHistory(gitCommitReader, graphGenerator, directory);
+            assertEquals(1, gitCommitReader.getNumDiffedCommits());
+
+            // a window of the history only looks up its own commits, which are all stored
+            gitCommitReader.extractCommitHistory(directory.toFile(), 3);
+            assertEquals(0, gitCommitReader.getNumDiffedCommits());
+        }
+
+        // same as diffing every commit without a store
+        graphGenerator = analyzeCodebase(directory, revision);
+        GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator, gitMirrorManager, null);
+        assertEquals(readHistory(gitCommitReader, graphGenerator, directory), storedHistory);
+        assertEquals(5, gitCommitReader.getNumDiffedCommits());
+        assertTrue(storedHistory.get("shop.Cart").startsWith("5 "));
+    }
+}
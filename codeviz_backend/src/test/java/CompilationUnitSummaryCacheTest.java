@@ -0,0 +1,108 @@
+import codeViz.codeSummary.*;
+import com.github.javaparser.StaticJavaParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompilationUnitSummaryCacheTest {
+
+    private static final String CODE_A = """
+            package test;
+            public class ClassA extends ClassB {
+                private ClassB classB;
+                public ClassA(ClassB classB) { this.classB = classB; }
+                public int run(String name) {
+                    ClassB other = new ClassB();
+                    if (name.isEmpty()) { return other.count(); }
+                    super.count();
+                    return classB.count() + helper();
+                }
+                private int helper() { return 1; }
+            }
+            """;
+
+    private static final String CODE_B = """
+            package test;
+            public class ClassB {
+                public int count() { return 0; }
+            }
+            """;
+
+    @TempDir
+    Path directory;
+
+    private static CompilationUnitSummary summarize(String code) {
+        return CodeSummaryExtractor.summarize(StaticJavaParser.parse(code));
+    }
+
+    private static byte[] toBytes(CompilationUnitSummary compilationUnitSummary) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        CodeSummarySerializer.write(compilationUnitSummary, new DataOutputStream(byteArrayOutputStream));
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Test
+    public void testGetStoredSummary() throws IOException {
+        CompilationUnitSummaryCache summaryCache = new CompilationUnitSummaryCache(directory, 1024 * 1024);
+
+        String hash = CompilationUnitSummaryCache.hash(CODE_A.getBytes(StandardCharsets.UTF_8));
+        assertNull(summaryCache.get(hash));
+
+        CompilationUnitSummary compilationUnitSummary = summarize(CODE_A);
+        summaryCache.put(hash, compilationUnitSummary);
+
+        CompilationUnitSummary cachedSummary = summaryCache.get(hash);
+        assertNotNull(cachedSummary);
+        assertEquals("test", cachedSummary.getPackageName());
+        TypeSummary typeSummary = cachedSummary.getTypes().get(0);
+        assertEquals("ClassA", typeSummary.getName());
+        assertEquals("ClassB", typeSummary.getSuperClassName());
+        assertEquals(2, typeSummary.getMethods().size());
+        assertEquals(5, typeSummary.getMethods().get(0).getCallSites().size());
+        assertArrayEquals(toBytes(compilationUnitSummary), toBytes(cachedSummary));
+
+        // entries are kept between runs
+        CompilationUnitSummaryCache reopenedCache = new CompilationUnitSummaryCache(directory, 1024 * 1024);
+        assertEquals(1, reopenedCache.size());
+        assertArrayEquals(toBytes(compilationUnitSummary), toBytes(reopenedCache.get(hash)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        CompilationUnitSummary summaryA = summarize(CODE_A);
+        CompilationUnitSummary summaryB = summarize(CODE_B);
+        long maxSize = toBytes(summaryA).length + toBytes(summaryB).length;
+        CompilationUnitSummaryCache summaryCache = new CompilationUnitSummaryCache(directory, maxSize);
+
+        summaryCache.put("a", summaryA);
+        summaryCache.put("b", summaryB);
+        assertEquals(2, summaryCache.size());
+
+        summaryCache.get("a"); // b is now the least recently used
+        summaryCache.put("c", summaryB);
+
+        assertTrue(summaryCache.contains("a"));
+        assertFalse(summaryCache.contains("b"));
+        assertTrue(summaryCache.contains("c"));
+        assertTrue(summaryCache.getTotalSizeBytes() <= maxSize);
+    }
+
+    @Test
+    public void testOldVersionsRemoved() throws IOException {
+        Path oldVersionDirectory = directory.resolve("v" + (CompilationUnitSummaryCache.FORMAT_VERSION - 1));
+        Files.createDirectories(oldVersionDirectory);
+        Files.writeString(oldVersionDirectory.resolve("a.summary"), "old");
+
+        CompilationUnitSummaryCache summaryCache = new CompilationUnitSummaryCache(directory, 1024);
+        assertFalse(Files.exists(oldVersionDirectory));
+        assertEquals(0, summaryCache.size());
+    }
+}
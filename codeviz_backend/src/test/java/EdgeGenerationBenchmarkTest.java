@@ -0,0 +1,81 @@
+import codeViz.GraphGenerator;
+import codeViz.entity.ClassEntity;
+import codeViz.entity.EntityType;
+import codeViz.entity.PackageEntity;
+import org.gephi.graph.api.DirectedGraph;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the edge generation in entitiesToNodes, which should scale linearly with the size of the graph
+ * The timing is tagged as a benchmark and not part of the default test run, run it with -DexcludedGroups=none
+ */
+public class EdgeGenerationBenchmarkTest {
+
+    private static final int CONNECTIONS_PER_CLASS = 4;
+    private static final int REPETITIONS = 5;
+
+    private static GraphGenerator createGraph(int numClasses) {
+        GraphGenerator graphGenerator = new GraphGenerator();
+        PackageEntity packageEntity = new PackageEntity("benchmark");
+        graphGenerator.addEntity(packageEntity);
+
+        List<ClassEntity> classEntities = new ArrayList<>(numClasses);
+        for (int i = 0; i < numClasses; i++) {
+            ClassEntity classEntity = new ClassEntity("Class" + i, packageEntity);
+            graphGenerator.addEntity(classEntity);
+            classEntities.add(classEntity);
+        }
+        for (int i = 0; i < numClasses; i++) {
+            for (int j = 1; j <= CONNECTIONS_PER_CLASS; j++) {
+                classEntities.get(i).addConnectedEntity(classEntities.get((i + j) % numClasses));
+            }
+        }
+        return graphGenerator;
+    }
+
+    /**
+     * @return  the fastest time to generate the graph, in nanoseconds
+     */
+    private static long timeEntitiesToNodes(int numClasses) {
+        GraphGenerator graphGenerator = createGraph(numClasses);
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < REPETITIONS; i++) {
+            long startTime = System.nanoTime();
+            DirectedGraph directedGraph = graphGenerator.entitiesToNodes(EntityType.CLASS, false);
+            bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+
+            assertEquals(numClasses, directedGraph.getNodeCount());
+            assertEquals(numClasses * CONNECTIONS_PER_CLASS, directedGraph.getEdgeCount());
+        }
+        System.out.println("entitiesToNodes with " + numClasses + " classes: " + (bestTime / 1_000_000.0) + " ms, "
+                + (bestTime / (numClasses * CONNECTIONS_PER_CLASS)) + " ns per edge");
+        return bestTime;
+    }
+
+    @Test
+    public void testEdgeGeneration() {
+        GraphGenerator graphGenerator = createGraph(100);
+        DirectedGraph directedGraph = graphGenerator.entitiesToNodes(EntityType.CLASS, false);
+        assertEquals(100, directedGraph.getNodeCount());
+        assertEquals(100 * CONNECTIONS_PER_CLASS, directedGraph.getEdgeCount());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testEdgeGenerationScalesLinearly() {
+        timeEntitiesToNodes(2_000); // warm up
+
+        long smallTime = timeEntitiesToNodes(5_000);
+        long largeTime = timeEntitiesToNodes(20_000);
+
+        // 4x the graph takes about 4x as long when linear, 16x when quadratic
+        assertTrue(largeTime < smallTime * 10,
+                "4x the classes took " + ((double) largeTime / smallTime) + "x as long");
+    }
+}
@@ -1,9 +1,15 @@
+import codeViz.GraphGenerator;
+import codeViz.entity.AdjacencyStore;
 import codeViz.entity.ClassEntity;
+import codeViz.entity.Entity;
+import codeViz.entity.EntityType;
 import codeViz.entity.MethodEntity;
 import codeViz.entity.PackageEntity;
 import org.junit.jupiter.api.Test;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -127,4 +133,60 @@ public class EntityTest {
         assertEquals((1+2)*size_inc, methodEntity1a1.getSize());
         assertEquals((1+2)*size_inc, methodEntity1a2.getSize());
     }
+
+    /**
+     * Test that connections keep their order and weights, including once the list is large enough to be indexed
+     */
+    @Test
+    public void testConnectionWeights() {
+        GraphGenerator graphGenerator = new GraphGenerator();
+        PackageEntity packageEntity = new PackageEntity("package1");
+        graphGenerator.addEntity(packageEntity);
+
+        List<ClassEntity> classEntities = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ClassEntity classEntity = new ClassEntity("class" + i, packageEntity);
+            graphGenerator.addEntity(classEntity);
+            classEntities.add(classEntity);
+        }
+
+        ClassEntity source = classEntities.get(0);
+        for (int i = 1; i < classEntities.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                source.addConnectedEntity(classEntities.get(i));
+            }
+        }
+        source.addGitConnectedEntity(classEntities.get(3), 0.5f);
+        source.addGitConnectedEntity(new ClassEntity("notConnected"), 0.5f);
+
+        assertEquals(19, source.getConnectedEntities().size());
+        List<Entity> connectedEntities = new ArrayList<>(source.getConnectedEntities());
+        assertEquals(classEntities.subList(1, 20), connectedEntities);
+        assertEquals(15f, source.getConnectedEntitiesAndWeights().get(classEntities.get(15)));
+        assertNull(source.getConnectedEntitiesAndWeights().get(source));
+        assertEquals(1, source.getGitConnectedEntitiesAndWeights().size());
+
+        AdjacencyStore adjacencyStore = graphGenerator.getAdjacencyStore(EntityType.CLASS, false);
+        assertEquals(20, adjacencyStore.getNumEntities());
+        assertEquals(19, adjacencyStore.getNumConnections());
+        int start = adjacencyStore.getStart(source.getId());
+        assertEquals(19, adjacencyStore.getEnd(source.getId()) - start);
+        assertEquals(classEntities.get(15).getId(), adjacencyStore.getTarget(start + 14));
+        assertEquals(15f, adjacencyStore.getWeight(start + 14));
+        assertEquals(adjacencyStore.getStart(1), adjacencyStore.getEnd(1)); // no connections
+
+        AdjacencyStore gitAdjacencyStore = graphGenerator.getAdjacencyStore(EntityType.CLASS, true);
+        assertEquals(1, gitAdjacencyStore.getNumConnections());
+        assertEquals(0.5f, gitAdjacencyStore.getWeight(gitAdjacencyStore.getStart(source.getId())));
+
+        // the stores are kept until the connections change
+        assertSame(adjacencyStore, graphGenerator.getAdjacencyStore(EntityType.CLASS, false));
+        assertSame(gitAdjacencyStore, graphGenerator.getAdjacencyStore(EntityType.CLASS, true));
+        classEntities.get(1).addConnectedEntity(source);
+        AdjacencyStore changedStore = graphGenerator.getAdjacencyStore(EntityType.CLASS, false);
+        assertNotSame(adjacencyStore, changedStore);
+        assertEquals(20, changedStore.getNumConnections());
+        source.clearGitConnections();
+        assertEquals(0, graphGenerator.getAdjacencyStore(EntityType.CLASS, true).getNumConnections());
+    }
 }
@@ -1,9 +1,12 @@
 import codeViz.entity.ClassEntity;
+import codeViz.gitHistory.CoChangeMatrix;
 import codeViz.gitHistory.CommitInfo;
 import codeViz.gitHistory.GitDiffAssociationRules;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class GitDiffAssociationRulesTest {
 
@@ -67,5 +70,68 @@ public class GitDiffAssociationRulesTest {
 
         assertEquals( (float) 3 / 3, gitDiffAssociationRules.calculateConfidence(classEntityA, classEntityD));
         assertEquals( (float) 3, gitDiffAssociationRules.calculateConfidence(classEntityD, classEntityA)); // classEntityD only appears once
+
+        // A and B change together in 1 of 5 commits, A changes in 3 commits, B changes in 2 commits
+        assertEquals( (float) 1 / 5, gitDiffAssociationRules.calculateSupport(classEntityA, classEntityB));
+        assertEquals( (float) 1 * 5 / (3 * 2), gitDiffAssociationRules.calculateLift(classEntityA, classEntityB));
+        assertEquals( 0f, gitDiffAssociationRules.calculateSupport(classEntityB, classEntityC));
+        assertEquals( 0f, gitDiffAssociationRules.calculateLift(classEntityB, classEntityC));
+
+        // adding a commit afterwards is included in the next calculation
+        CommitInfo commitInfo6 = new CommitInfo("0006", "testUser", 1515525000, "commit 6");
+        commitInfo6.addClass(classEntityB);
+        commitInfo6.addClass(classEntityC);
+        gitDiffAssociationRules.addCommitInfo(commitInfo6);
+        gitDiffAssociationRules.addClassEntity(classEntityB);
+        gitDiffAssociationRules.addClassEntity(classEntityC);
+        assertEquals( (float) 1 / 6, gitDiffAssociationRules.calculateSupport(classEntityB, classEntityC));
+        assertEquals( ((float) 5 / 10) / ((float) 3 / 10), gitDiffAssociationRules.calculateConfidence(classEntityB, classEntityC)); // B or C in 5 commits, B in 3, 10 files changed
+    }
+
+    @Test
+    public void testCoChangeMatrix() {
+        ClassEntity classEntityA = new ClassEntity("ClassA");
+        ClassEntity classEntityB = new ClassEntity("ClassB");
+        ClassEntity classEntityC = new ClassEntity("ClassC");
+        ClassEntity classEntityD = new ClassEntity("ClassD");
+
+        // from the most recent commit to the oldest
+        CommitInfo commitInfo1 = new CommitInfo("0001", "testUser", 1707210179, "reformat");
+        commitInfo1.addClass(classEntityA);
+        commitInfo1.addClass(classEntityB);
+        commitInfo1.addClass(classEntityC);
+        commitInfo1.addClass(classEntityD);
+        CommitInfo commitInfo2 = new CommitInfo("0002", "testUser", 1678783231, "commit 2");
+        commitInfo2.addClass(classEntityB);
+        commitInfo2.addClass(classEntityA);
+        CommitInfo commitInfo3 = new CommitInfo("0003", "testUser", 1581858671, "commit 3");
+        commitInfo3.addClass(classEntityA);
+        commitInfo3.addClass(classEntityB);
+        commitInfo3.addClass(classEntityC);
+        List<CommitInfo> commitInfos = List.of(commitInfo1, commitInfo2, commitInfo3);
+
+        CoChangeMatrix coChangeMatrix = CoChangeMatrix.build(commitInfos, 10);
+        assertEquals(6, coChangeMatrix.getNumPairs());
+        assertEquals(3, coChangeMatrix.getCount(classEntityA, classEntityB));
+        assertEquals(3, coChangeMatrix.getCount(classEntityB, classEntityA));
+        assertEquals(2, coChangeMatrix.getCount(classEntityA, classEntityC));
+        assertEquals(0, coChangeMatrix.getCount(classEntityA, classEntityA));
+        assertEquals(commitInfo1, coChangeMatrix.getMostRecentCommit(classEntityC, classEntityB));
+        assertEquals(List.of(commitInfo1, commitInfo2, commitInfo3), coChangeMatrix.getSharedCommits(classEntityB, classEntityA, 10));
+        assertEquals(List.of(commitInfo1, commitInfo3), coChangeMatrix.getSharedCommits(classEntityA, classEntityC, 10));
+        assertEquals(List.of(commitInfo1), coChangeMatrix.getSharedCommits(classEntityA, classEntityB, 1));
+        assertEquals(List.of(), coChangeMatrix.getSharedCommits(classEntityA, classEntityA, 10));
+        assertEquals(classEntityA, coChangeMatrix.getFirstClass(0));
+        assertEquals(classEntityB, coChangeMatrix.getSecondClass(0));
+
+        // the commit that changed 4 classes is skipped
+        coChangeMatrix = CoChangeMatrix.build(commitInfos, 3);
+        assertEquals(1, coChangeMatrix.getNumSkippedCommits());
+        assertEquals(3, coChangeMatrix.getNumPairs());
+        assertEquals(2, coChangeMatrix.getCount(classEntityA, classEntityB));
+        assertEquals(0, coChangeMatrix.getCount(classEntityA, classEntityD));
+        assertEquals(commitInfo2, coChangeMatrix.getMostRecentCommit(classEntityA, classEntityB));
+        assertEquals(List.of(commitInfo2, commitInfo3), coChangeMatrix.getSharedCommits(classEntityA, classEntityB, 10));
+        assertNull(coChangeMatrix.getMostRecentCommit(classEntityC, classEntityD));
     }
 }
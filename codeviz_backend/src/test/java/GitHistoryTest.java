@@ -40,14 +40,14 @@ public class GitHistoryTest {
 
         // add entities to graph generator
         GraphGenerator graphGenerator = new GraphGenerator();
-        graphGenerator.addEntity(calculatorPackage.getName(), calculatorPackage);
-        graphGenerator.addEntity(calculatorPackageTest.getName(), calculatorPackageTest);
-
-        graphGenerator.addEntity(bufferedImageCustom.getName(), bufferedImageCustom);
-        graphGenerator.addEntity(calculator.getName(), calculator);
-        graphGenerator.addEntity(simpleJavaCalculator.getName(), simpleJavaCalculator);
-        graphGenerator.addEntity(ui.getName(), ui);
-        graphGenerator.addEntity(calculatorTest.getName(), calculatorTest);
+        graphGenerator.addEntity(calculatorPackage);
+        graphGenerator.addEntity(calculatorPackageTest);
+
+        graphGenerator.addEntity(bufferedImageCustom);
+        graphGenerator.addEntity(calculator);
+        graphGenerator.addEntity(simpleJavaCalculator);
+        graphGenerator.addEntity(ui);
+        graphGenerator.addEntity(calculatorTest);
 
         // create connections
         ui.addConnectedEntity(calculator);
@@ -0,0 +1,154 @@
+import codeViz.GraphGenerator;
+import codeViz.entity.ClassEntity;
+import codeViz.gitHistory.GitCommitReader;
+import codeViz.gitHistory.GitHistoryWeighting;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Co-changes can be limited to recent commits, or weighted by how recently they happened
+ * Folding the commits into the statistics as they are read should give the same weights as keeping every commit
+ */
+public class GitHistoryWeightingTest {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private static String createCart(int version) {
+        // git connections are only added between classes that are connected in the code
+        return "package shop;\n"
+                + "public class Cart {\n"
+                + "    private Item item;\n"
+                + "    private Order order;\n"
+                + "    public int version() { return " + version + "; }\n"
+                + "}\n";
+    }
+
+    private static float getGitWeight(GraphGenerator graphGenerator, String classA, String classB) {
+        ClassEntity classEntityA = (ClassEntity) graphGenerator.getClassEntities().get(classA);
+        ClassEntity classEntityB = (ClassEntity) graphGenerator.getClassEntities().get(classB);
+        return classEntityA.getGitConnectedEntitiesAndWeights().getOrDefault(classEntityB, 0f);
+    }
+
+    /**
+     * Create a repository where Cart changed with Item long ago, and with Order recently
+     * @return  the last revision
+     */
+    private static String createHistory(Path directory) throws IOException, GitAPIException {
+        String revision = null;
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            int version = 0;
+            for (int day : new int[]{0, 1}) {
+                writeFile(directory, "src/shop/Cart.java", createCart(version));
+                writeFile(directory, "src/shop/Item.java", createClass("shop", "Item", version++));
+                revision = commit(git, "item " + day, START_MILLIS + day * DAY_MILLIS);
+            }
+            for (int day : new int[]{100, 101}) {
+                writeFile(directory, "src/shop/Cart.java", createCart(version));
+                writeFile(directory, "src/shop/Order.java", createClass("shop", "Order", version++));
+                revision = commit(git, "order " + day, START_MILLIS + day * DAY_MILLIS);
+            }
+        }
+        return revision;
+    }
+
+    @Test
+    public void testWindowAndDecay() throws IOException, GitAPIException {
+        String revision = createHistory(directory);
+
+        GraphGenerator graphGenerator = analyzeCodebase(directory, revision);
+        GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator);
+        gitCommitReader.extractCommitHistory(directory.toFile(), -1);
+
+        // all commits weighted the same
+        float itemWeight = getGitWeight(graphGenerator, "shop.Cart", "shop.Item");
+        float orderWeight = getGitWeight(graphGenerator, "shop.Cart", "shop.Order");
+        assertTrue(itemWeight > 0);
+        assertEquals(itemWeight, orderWeight);
+
+        // a window with every commit gives the same weights
+        gitCommitReader.setGitHistoryWeighting(new GitHistoryWeighting(1000, 0));
+        assertEquals(itemWeight, getGitWeight(graphGenerator, "shop.Cart", "shop.Item"), 1e-5);
+        assertEquals(orderWeight, getGitWeight(graphGenerator, "shop.Cart", "shop.Order"), 1e-5);
+
+        // the old co-changes are outside of a 10 day window
+        gitCommitReader.setGitHistoryWeighting(new GitHistoryWeighting(10, 0));
+        assertEquals(0f, getGitWeight(graphGenerator, "shop.Cart", "shop.Item"));
+        assertFalse(graphGenerator.getClassEntities().get("shop.Cart").getGitConnectedEntitiesAndWeights()
+                .containsKey(graphGenerator.getClassEntities().get("shop.Item")));
+        assertTrue(getGitWeight(graphGenerator, "shop.Cart", "shop.Order") > 0);
+
+        // with decay, the recent co-changes weigh more
+        gitCommitReader.setGitHistoryWeighting(new GitHistoryWeighting(0, 10));
+        float decayedItemWeight = getGitWeight(graphGenerator, "shop.Cart", "shop.Item");
+        float decayedOrderWeight = getGitWeight(graphGenerator, "shop.Cart", "shop.Order");
+        assertTrue(decayedItemWeight > 0);
+        assertTrue(decayedOrderWeight > decayedItemWeight * 100);
+        assertTrue(decayedOrderWeight <= orderWeight);
+
+        // every commit is in the window, so the weight is scaled by the average decay of the pair's co-changes,
+        // where the most recent commit (day 101) has a weight of 1
+        assertEquals(orderWeight * (Math.pow(0.5, 1 / 10.0) + 1) / 2, decayedOrderWeight, 1e-5);
+        assertEquals(itemWeight * (Math.pow(0.5, 101 / 10.0) + Math.pow(0.5, 100 / 10.0)) / 2, decayedItemWeight, 1e-7);
+
+        // back to all commits
+        gitCommitReader.setGitHistoryWeighting(GitHistoryWeighting.ALL_COMMITS);
+        assertEquals(itemWeight, getGitWeight(graphGenerator, "shop.Cart", "shop.Item"));
+        assertEquals(orderWeight, getGitWeight(graphGenerator, "shop.Cart", "shop.Order"));
+
+        // the weights of another weighting are read without weighting the graph again
+        ClassEntity cart = (ClassEntity) graphGenerator.getClassEntities().get("shop.Cart");
+        ClassEntity item = (ClassEntity) graphGenerator.getClassEntities().get("shop.Item");
+        assertEquals(0f, gitCommitReader.getGitWeight(cart, item, new GitHistoryWeighting(10, 0)));
+        assertEquals(decayedItemWeight, gitCommitReader.getGitWeight(item, cart, new GitHistoryWeighting(0, 10)));
+        assertEquals(itemWeight, gitCommitReader.getGitWeight(cart, item, GitHistoryWeighting.ALL_COMMITS));
+        assertEquals(itemWeight, getGitWeight(graphGenerator, "shop.Cart", "shop.Item"));
+
+        assertThrows(IllegalArgumentException.class, () -> new GitHistoryWeighting(-1, 0));
+    }
+
+    @Test
+    public void testStreamedCommitsGiveSameWeights() throws IOException, GitAPIException {
+        String revision = createHistory(directory);
+
+        GraphGenerator keptGraphGenerator = analyzeCodebase(directory, revision);
+        GitCommitReader keptReader = new GitCommitReader(keptGraphGenerator);
+        keptReader.extractCommitHistory(directory.toFile(), -1);
+
+        // only the most recent commit is kept in each class
+        GraphGenerator streamedGraphGenerator = analyzeCodebase(directory, revision);
+        GitCommitReader streamedReader = new GitCommitReader(streamedGraphGenerator);
+        streamedReader.setMaxCommitInfosPerClass(1);
+        streamedReader.extractCommitHistory(directory.toFile(), -1);
+
+        ClassEntity cart = (ClassEntity) streamedGraphGenerator.getClassEntities().get("shop.Cart");
+        assertEquals(1, cart.getCommitInfos().size());
+        assertEquals("order 101", cart.getCommitInfos().get(0).getMessage());
+        assertEquals(4, streamedReader.getGitDiffAssociationRules().getNumCommits(cart));
+        assertTrue(streamedReader.getGitDiffAssociationRules().getCommitInfos().isEmpty());
+        assertEquals(4, ((ClassEntity) keptGraphGenerator.getClassEntities().get("shop.Cart")).getCommitInfos().size());
+
+        for (GitHistoryWeighting weighting : new GitHistoryWeighting[]{
+                GitHistoryWeighting.ALL_COMMITS, new GitHistoryWeighting(10, 0), new GitHistoryWeighting(0, 10)}) {
+            keptReader.setGitHistoryWeighting(weighting);
+            streamedReader.setGitHistoryWeighting(weighting);
+            for (String className : new String[]{"shop.Item", "shop.Order"}) {
+                assertEquals(getGitWeight(keptGraphGenerator, "shop.Cart", className),
+                        getGitWeight(streamedGraphGenerator, "shop.Cart", className));
+            }
+        }
+        assertEquals(2, streamedReader.getCoChangeMatrix().getCount(cart,
+                (ClassEntity) streamedGraphGenerator.getClassEntities().get("shop.Item")));
+    }
+}
@@ -0,0 +1,75 @@
+import codeViz.GraphGenerator;
+import codeViz.entity.ClassEntity;
+import codeViz.gitHistory.GitCommitReader;
+import codeViz.gitHistory.GitMirrorManager;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Reading the history of a repository URI, using a local file:// repository instead of GitHub
+ */
+public class GitMirrorTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    private static String commitVersion(Git git, Path directory, int version) throws IOException, GitAPIException {
+        writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", version));
+        return commit(git, "version " + version);
+    }
+
+    /**
+     * Read the history of the repository URI
+     * @return  number of commits that changed the class
+     */
+    private static int countCommits(Path directory, String revision, GitMirrorManager gitMirrorManager, String uri, int maxNumCommits) throws IOException {
+        GraphGenerator graphGenerator = analyzeCodebase(directory, revision);
+        GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator, gitMirrorManager, null);
+        gitCommitReader.extractCommitHistory(uri, "", maxNumCommits);
+        return ((ClassEntity) graphGenerator.getClassEntities().get("shop.Cart")).getCommitInfos().size();
+    }
+
+    @Test
+    public void testMirrorIsReused() throws IOException, GitAPIException {
+        Path directory = tempDirectory.resolve("repo");
+        Path mirrorsDirectory = tempDirectory.resolve("mirrors");
+        String uri = directory.toUri().toString();
+        GitMirrorManager gitMirrorManager = new GitMirrorManager(mirrorsDirectory);
+
+        String revision;
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            for (int version = 0; version < 5; version++) {
+                commitVersion(git, directory, version);
+            }
+            revision = git.getRepository().resolve("HEAD").getName();
+        }
+
+        assertEquals(5, countCommits(directory, revision, gitMirrorManager, uri, -1));
+        File mirrorDirectory = gitMirrorManager.getMirrorDirectory(uri);
+        assertTrue(new File(mirrorDirectory, "HEAD").isFile()); // a bare repository
+
+        // a new commit is fetched into the same mirror, instead of cloning again
+        File marker = new File(mirrorDirectory, "marker");
+        assertTrue(marker.createNewFile());
+        try (Git git = Git.open(directory.toFile())) {
+            revision = commitVersion(git, directory, 5);
+        }
+        assertEquals(6, countCommits(directory, revision, gitMirrorManager, uri, -1));
+        assertTrue(marker.exists());
+
+        // the walk stops at the max number of commits (the last commit read is only compared against)
+        assertEquals(3, countCommits(directory, revision, gitMirrorManager, uri, 5));
+
+        // a different URI has its own mirror
+        assertNotEquals(mirrorDirectory, gitMirrorManager.getMirrorDirectory(uri + "other"));
+    }
+}
@@ -1,4 +1,5 @@
 import codeViz.GraphGenerator;
+import codeViz.GraphPayload;
 import codeViz.entity.ClassEntity;
 import codeViz.entity.EntityType;
 import codeViz.entity.MethodEntity;
@@ -7,6 +8,13 @@ import org.gephi.graph.api.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -26,8 +34,6 @@ public class GraphGeneratorTest {
 
     private GraphGenerator graphGenerator;
 
-    private final boolean GENERATE_GEXF = false;
-
     @BeforeEach
     public void setupGraphGenerator() {
         // loosely following these uml/java examples:
@@ -123,10 +129,13 @@ public class GraphGeneratorTest {
         assertEquals("Professor", edges[2].getSource().getLabel());
         assertEquals("Person", edges[2].getTarget().getLabel());
 
-        if (GENERATE_GEXF) {
-            graphGenerator.directedGraphToGexf(directedGraph, "./src/test/gexf/class_gephi.gexf");
-        }
-
+        String gexf = graphGenerator.directedGraphToGexfString(EntityType.CLASS, false);
+        assertEquals(4, gexf.split("<node ", -1).length - 1);
+        assertEquals(3, gexf.split("<edge ", -1).length - 1);
+        assertTrue(gexf.contains("<node id=\"1_Person\" label=\"Person\" >"));
+        assertTrue(gexf.contains("<edge source=\"1_Person\" target=\"4_Address\" weight=\"1.0\" >"));
+        assertTrue(gexf.contains("<edge source=\"2_Student\" target=\"1_Person\""));
+        assertTrue(gexf.contains("<edge source=\"3_Professor\" target=\"1_Person\""));
     }
 
     /**
@@ -225,4 +234,114 @@ public class GraphGeneratorTest {
         // more tests for other levels...
     }
 
+
+    /**
+     * Test that writing the Gexf directly gives the same graph as exporting the Gephi graph
+     */
+    @Test
+    public void testStreamingGexfMatchesGephi() {
+        graphGenerator.setEntitiesCoordinates();
+        graphGenerator.performSearch("Person", false, false, false, false, false, false, EntityType.CLASS);
+
+        graphGenerator.setUseGephiWorkspace(true);
+        String gephiClassGexf = graphGenerator.directedGraphToGexfString(EntityType.CLASS, false);
+        String gephiMethodGexf = graphGenerator.directedGraphToGexfString(personPackage, EntityType.METHOD, false);
+
+        graphGenerator.setUseGephiWorkspace(false);
+        String classGexf = graphGenerator.directedGraphToGexfString(EntityType.CLASS, false);
+        assertEquals(gephiClassGexf, classGexf);
+        assertEquals(gephiMethodGexf, graphGenerator.directedGraphToGexfString(personPackage, EntityType.METHOD, false));
+        assertTrue(classGexf.contains("<edge source=\"1_Person\" target=\"4_Address\" weight=\"1.0\" >"));
+    }
+
+    /**
+     * Test that the in-memory graph is compressed and hashed, and includes the legend
+     */
+    @Test
+    public void testGraphPayload() throws IOException {
+        graphGenerator.setEntitiesCoordinates();
+        GraphPayload classPayload = graphGenerator.directedGraphToCompactPayload(EntityType.CLASS, false);
+        assertEquals(2, classPayload.getLegend().size());
+        assertEquals("person", classPayload.getLegend().keySet().iterator().next());
+
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(classPayload.getGzippedBody()))) {
+            assertArrayEquals(classPayload.getBody(), inputStream.readAllBytes());
+        }
+
+        // the same graph has the same ETag, a changed graph has a new one
+        GraphPayload samePayload = graphGenerator.directedGraphToCompactPayload(EntityType.CLASS, false);
+        assertEquals(classPayload.getETag(), samePayload.getETag());
+        assertTrue(samePayload.matches(classPayload.getETag()));
+        assertTrue(samePayload.matches("W/" + classPayload.getETag()));
+        assertFalse(samePayload.matches(null));
+
+        graphGenerator.performSearch("Person", false, false, false, false, false, false, EntityType.CLASS);
+        GraphPayload searchPayload = graphGenerator.directedGraphToCompactPayload(EntityType.CLASS, false);
+        assertNotEquals(classPayload.getETag(), searchPayload.getETag());
+        assertFalse(searchPayload.matches(classPayload.getETag()));
+        assertEquals("search result", searchPayload.getLegend().keySet().iterator().next());
+    }
+
+    /**
+     * Read a string of the string table of a compact graph
+     */
+    private static String readCompactString(ByteBuffer buffer, int stringTableStart, int numStrings, int index) {
+        int start = buffer.getInt(stringTableStart + 4 * index);
+        int end = buffer.getInt(stringTableStart + 4 * (index + 1));
+        int bytesStart = stringTableStart + 4 * (numStrings + 1);
+        return new String(buffer.array(), bytesStart + start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCompactPayload() {
+        graphGenerator.setEntitiesCoordinates();
+        String gexf = graphGenerator.directedGraphToGexfString(EntityType.METHOD, false);
+        GraphPayload compactPayload = graphGenerator.directedGraphToCompactPayload(EntityType.METHOD, false);
+        assertEquals(GraphPayload.COMPACT_MEDIA_TYPE, compactPayload.getMediaType());
+
+        ByteBuffer buffer = ByteBuffer.wrap(compactPayload.getBody()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("CVZG", new String(compactPayload.getBody(), 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(1, buffer.getInt(4));
+        int numStrings = buffer.getInt(8);
+        int numStringBytes = buffer.getInt(12);
+        int numNodes = buffer.getInt(16);
+        int numEdges = buffer.getInt(20);
+        int numLegendItems = buffer.getInt(24);
+        assertEquals(gexf.split("<node ", -1).length - 1, numNodes);
+        assertEquals(gexf.split("<edge ", -1).length - 1, numEdges);
+        assertTrue(numEdges > 0);
+
+        // the columns are in the same order as the Gexf nodes and edges
+        int stringTableStart = 28;
+        int nodesStart = stringTableStart + 4 * (numStrings + 1) + ((numStringBytes + 3) & ~3);
+        int edgesStart = nodesStart + 4 * 6 * numNodes;
+        int legendStart = edgesStart + 4 * 3 * numEdges;
+        assertEquals(compactPayload.getBody().length, legendStart + 4 * 2 * numLegendItems);
+
+        String[] nodeIds = new String[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodeIds[i] = readCompactString(buffer, stringTableStart, numStrings, buffer.getInt(nodesStart + 4 * i));
+            String label = readCompactString(buffer, stringTableStart, numStrings, buffer.getInt(nodesStart + 4 * (numNodes + i)));
+            float x = buffer.getFloat(nodesStart + 4 * (3 * numNodes + i));
+            int colour = buffer.getInt(nodesStart + 4 * (5 * numNodes + i));
+            assertTrue(gexf.contains("<node id=\"" + nodeIds[i] + "\" label=\"" + label + "\" >"));
+            assertTrue(gexf.contains("<position x=\"" + x + "\""));
+            assertTrue(gexf.contains("<color r=\"" + (colour >> 16) + "\" g=\"" + ((colour >> 8) & 0xFF) + "\" b=\"" + (colour & 0xFF) + "\">"));
+        }
+
+        String firstEdge = "<edge source=\"" + nodeIds[buffer.getInt(edgesStart)]
+                + "\" target=\"" + nodeIds[buffer.getInt(edgesStart + 4 * numEdges)]
+                + "\" weight=\"" + (double) buffer.getFloat(edgesStart + 4 * 2 * numEdges) + "\" >";
+        assertTrue(gexf.indexOf("<edge ") == gexf.indexOf(firstEdge));
+
+        // the legend is sent with the graph
+        assertEquals(compactPayload.getLegend().size(), numLegendItems);
+        String category = readCompactString(buffer, stringTableStart, numStrings, buffer.getInt(legendStart));
+        String colour = readCompactString(buffer, stringTableStart, numStrings, buffer.getInt(legendStart + 4 * numLegendItems));
+        assertEquals(compactPayload.getLegend().get(category), colour);
+
+        assertEquals(graphGenerator.directedGraphToCompactPayload(EntityType.METHOD, false).getETag(), compactPayload.getETag());
+        assertNotNull(graphGenerator.directedGraphToCompactPayload(personPackage, EntityType.METHOD, false));
+        assertNull(graphGenerator.directedGraphToCompactPayload(person, EntityType.PACKAGE, false));
+    }
 }
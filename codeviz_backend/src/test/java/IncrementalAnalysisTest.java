@@ -0,0 +1,153 @@
+import codeViz.GraphGenerator;
+import codeViz.SourcecodeReader;
+import codeViz.entity.Entity;
+import codeViz.gitHistory.GitCommitReader;
+import codeViz.gitHistory.GitRevisionDiff;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+public class IncrementalAnalysisTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testUpdateMatchesFullAnalysis() throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            writeFile(directory, "src/shop/Cart.java", """
+                    package shop;
+                    public class Cart {
+                        private Item item;
+                        public int total() { return item.price() + discount(); }
+                        private int discount() { return 0; }
+                    }
+                    """);
+            writeFile(directory, "src/shop/Item.java", """
+                    package shop;
+                    public class Item {
+                        public int price() { return 1; }
+                    }
+                    """);
+            writeFile(directory, "src/shop/Old.java", """
+                    package shop;
+                    public class Old {
+                        public void unused(Cart cart) { cart.total(); }
+                    }
+                    """);
+            writeFile(directory, "src/shop/Moved.java", """
+                    package shop;
+                    public class Moved {
+                        public int get(Item item) { if (item == null) { return 0; } return item.price(); }
+                    }
+                    """);
+            String firstRevision = commit(git, "first");
+
+            writeFile(directory, "src/shop/Item.java", """
+                    package shop;
+                    public class Item {
+                        public int price() { return weight() * 2; }
+                        public int weight() { return 1; }
+                    }
+                    """);
+            Files.delete(directory.resolve("src/shop/Old.java"));
+            Files.createDirectories(directory.resolve("src/shop/other"));
+            Files.move(directory.resolve("src/shop/Moved.java"), directory.resolve("src/shop/other/Moved.java"));
+            writeFile(directory, "src/shop/Added.java", """
+                    package shop;
+                    public class Added {
+                        public int run(Cart cart) { return cart.total(); }
+                    }
+                    """);
+            String secondRevision = commit(git, "second");
+
+            // analyze the first revision, then update to the second revision
+            SourcecodeReader incrementalReader = new SourcecodeReader(2, null);
+            GitRevisionDiff firstDiff = GitRevisionDiff.compute(git.getRepository(), null, firstRevision);
+            assertTrue(incrementalReader.updateCodebase(firstDiff.getRemovedPaths(), firstDiff.getChangedFiles(), firstDiff.getNewRevision()));
+            assertNotNull(incrementalReader.getGraphGenerator().getClassEntities().get("shop.Old"));
+            Entity cart = incrementalReader.getGraphGenerator().getClassEntities().get("shop.Cart");
+            Entity item = incrementalReader.getGraphGenerator().getClassEntities().get("shop.Item");
+            Entity moved = incrementalReader.getGraphGenerator().getClassEntities().get("shop.Moved");
+
+            GitRevisionDiff secondDiff = GitRevisionDiff.compute(git.getRepository(), firstRevision, secondRevision);
+            assertEquals(3, secondDiff.getChangedFiles().size()); // modified, renamed, added
+            assertEquals(2, secondDiff.getRemovedPaths().size()); // deleted, renamed
+            assertTrue(incrementalReader.updateCodebase(secondDiff.getRemovedPaths(), secondDiff.getChangedFiles(), secondDiff.getNewRevision()));
+            assertEquals(secondRevision, incrementalReader.getAnalyzedRevision());
+
+            // analyze the second revision directly
+            SourcecodeReader fullReader = new SourcecodeReader(1, null);
+            GitRevisionDiff fullDiff = GitRevisionDiff.compute(git.getRepository(), null, secondRevision);
+            assertTrue(fullReader.updateCodebase(fullDiff.getRemovedPaths(), fullDiff.getChangedFiles(), fullDiff.getNewRevision()));
+
+            GraphGenerator incrementalGraph = incrementalReader.getGraphGenerator();
+            assertNull(incrementalGraph.getClassEntities().get("shop.Old"));
+            // only the entities of the changed files are created again, a changed class keeps its entity
+            assertSame(cart, incrementalGraph.getClassEntities().get("shop.Cart"));
+            assertSame(item, incrementalGraph.getClassEntities().get("shop.Item"));
+            assertNull(incrementalGraph.getClassEntities().get("shop.Moved"));
+            assertNotSame(moved, incrementalGraph.getClassEntities().get("shop.other.Moved"));
+            assertNotNull(incrementalGraph.getMethodEntities().get("shop.Item.weight"));
+            assertTrue(incrementalGraph.getMethodEntities().get("shop.Item.price").getConnectedEntities()
+                    .contains(incrementalGraph.getMethodEntities().get("shop.Item.weight")));
+            assertEquals(describeGraph(fullReader.getGraphGenerator()), describeGraph(incrementalGraph));
+        }
+    }
+
+    @Test
+    public void testAppendedHistoryMatchesFullRead() throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            String firstRevision = null;
+            for (int version = 0; version < 3; version++) {
+                writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", version));
+                if (version != 1) {
+                    writeFile(directory, "src/shop/Item.java", createClass("shop", "Item", version));
+                }
+                firstRevision = commit(git, "change " + version);
+            }
+
+            // read the history up to the first revision
+            SourcecodeReader incrementalReader = analyzeCodebase(directory, firstRevision, 1);
+            GitCommitReader incrementalCommitReader = new GitCommitReader(incrementalReader.getGraphGenerator());
+            incrementalCommitReader.setMaxCommitInfosPerClass(2);
+            incrementalCommitReader.extractCommitHistory(directory.toFile(), -1);
+
+            writeFile(directory, "src/shop/Added.java", createClass("shop", "Added", 0));
+            writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", 3));
+            commit(git, "add");
+            writeFile(directory, "src/shop/Added.java", createClass("shop", "Added", 1));
+            writeFile(directory, "src/shop/Item.java", createClass("shop", "Item", 4));
+            String secondRevision = commit(git, "change 4");
+
+            // only the two new commits are read and appended
+            GitRevisionDiff diff = GitRevisionDiff.compute(git.getRepository(), firstRevision, secondRevision);
+            assertTrue(incrementalReader.updateCodebase(diff.getRemovedPaths(), diff.getChangedFiles(), diff.getNewRevision()));
+            GitCommitReader.NewCommits newCommits = incrementalCommitReader.readNewCommits(directory.toFile(), secondRevision);
+            assertEquals(2, newCommits.getNumCommits());
+            assertEquals(2, incrementalCommitReader.getNumDiffedCommits());
+            incrementalCommitReader.appendCommitHistory(newCommits);
+
+            // the whole history read at the second revision
+            GraphGenerator fullGraph = analyzeCodebase(directory, secondRevision);
+            GitCommitReader fullCommitReader = new GitCommitReader(fullGraph);
+            fullCommitReader.setMaxCommitInfosPerClass(2);
+            fullCommitReader.extractCommitHistory(directory.toFile(), -1);
+
+            assertEquals(5, fullCommitReader.getNumDiffedCommits());
+            assertEquals(describeHistory(fullGraph), describeHistory(incrementalReader.getGraphGenerator()));
+            assertEquals(fullCommitReader.getCoChangeMatrix().getNumPairs(), incrementalCommitReader.getCoChangeMatrix().getNumPairs());
+
+            // a revision that is not later than the history read can't be appended
+            assertNull(incrementalCommitReader.readNewCommits(directory.toFile(), firstRevision + "~1"));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import codeViz.GraphGenerator;
+import codeViz.entity.ClassEntity;
+import codeViz.gitHistory.CommitInfo;
+import codeViz.gitHistory.GitCommitReader;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Diffing the commits on multiple threads should give the same history as diffing them in order
+ */
+public class ParallelCommitDiffTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Read the git history of the repository with the given parallelism
+     * @return  the commit count of each class and the git connections, in a form that does not depend on insertion order
+     */
+    private static Map<String, String> readHistory(Path directory, String revision, int diffParallelism) throws IOException {
+        GraphGenerator graphGenerator = analyzeCodebase(directory, revision);
+        GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator);
+        gitCommitReader.setDiffParallelism(diffParallelism);
+        gitCommitReader.extractCommitHistory(directory.toFile(), -1);
+        assertEquals("src/shop/other/Moved.java", gitCommitReader.getRenamedClassEntityNames().get("src/shop/Moved.java"));
+        return describeHistory(graphGenerator);
+    }
+
+    @Test
+    public void testParallelDiffsMatchSequential() throws IOException, GitAPIException {
+        String lastRevision = null;
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", 0));
+            writeFile(directory, "src/shop/Moved.java", createClass("shop", "Moved", 0));
+            commit(git, "first");
+
+            for (int version = 1; version <= 6; version++) {
+                writeFile(directory, "src/shop/Moved.java", createClass("shop", "Moved", version));
+                if (version % 2 == 0) {
+                    writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", version));
+                }
+                commit(git, "change " + version);
+            }
+
+            // the changes to shop/Moved.java above should be counted for the renamed file
+            Files.delete(directory.resolve("src/shop/Moved.java"));
+            writeFile(directory, "src/shop/other/Moved.java", createClass("shop.other", "Moved", 6));
+            commit(git, "move");
+
+            for (int version = 7; version <= 9; version++) {
+                writeFile(directory, "src/shop/other/Moved.java", createClass("shop.other", "Moved", version));
+                writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", version));
+                lastRevision = commit(git, "change " + version);
+            }
+        }
+
+        Map<String, String> sequentialHistory = readHistory(directory, lastRevision, 1);
+        Map<String, String> parallelHistory = readHistory(directory, lastRevision, 3);
+
+        assertTrue(sequentialHistory.get("shop.other.Moved").startsWith("11 ")); // every commit changed it
+        assertEquals(sequentialHistory, parallelHistory);
+    }
+
+    @Test
+    public void testLineStats() throws IOException, GitAPIException {
+        String lastRevision;
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", 0));
+            commit(git, "first");
+            writeFile(directory, "src/shop/Cart.java", createClass("shop", "Cart", 1));
+            lastRevision = commit(git, "second");
+        }
+
+        for (boolean lineStats : List.of(false, true)) {
+            GraphGenerator graphGenerator = analyzeCodebase(directory, lastRevision);
+            GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator);
+            gitCommitReader.setLineStats(lineStats);
+            gitCommitReader.extractCommitHistory(directory.toFile(), -1);
+
+            ClassEntity cart = (ClassEntity) graphGenerator.getClassEntities().get("shop.Cart");
+            List<CommitInfo> commitInfos = cart.getCommitInfos();
+            assertEquals(2, commitInfos.size());
+            CommitInfo secondCommit = commitInfos.get(0);
+            CommitInfo firstCommit = commitInfos.get(1);
+            assertEquals(lineStats, secondCommit.hasLineStats());
+
+            if (lineStats) {
+                assertEquals(1, secondCommit.getLinesAdded(cart)); // the version line changed
+                assertEquals(1, secondCommit.getLinesRemoved(cart));
+                assertEquals(6, firstCommit.getLinesAdded(cart));
+                assertEquals(0, firstCommit.getLinesRemoved(cart));
+                assertEquals(6, firstCommit.getLinesChanged(cart));
+            } else {
+                assertEquals(0, secondCommit.getLinesChanged(cart));
+            }
+        }
+    }
+
+    @Test
+    public void testRenamedBackAndForth() throws IOException, GitAPIException {
+        String lastRevision;
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            // the folders don't match the package, so the class can only be found from its path
+            writeFile(directory, "lib/Util.java", createClass("tools", "Util", 0));
+            commit(git, "first");
+            writeFile(directory, "lib/Util.java", createClass("tools", "Util", 1));
+            commit(git, "change");
+            Files.delete(directory.resolve("lib/Util.java"));
+            writeFile(directory, "old/Util.java", createClass("tools", "Util", 1));
+            commit(git, "move");
+            Files.delete(directory.resolve("old/Util.java"));
+            writeFile(directory, "lib/Util.java", createClass("tools", "Util", 1));
+            lastRevision = commit(git, "move back");
+        }
+
+        GraphGenerator graphGenerator = analyzeCodebase(directory, lastRevision);
+        ClassEntity util = (ClassEntity) graphGenerator.getClassEntities().get("tools.Util");
+        assertSame(util, graphGenerator.getClassEntityByPath("lib/Util.java"));
+
+        GitCommitReader gitCommitReader = new GitCommitReader(graphGenerator);
+        gitCommitReader.extractCommitHistory(directory.toFile(), -1);
+        assertEquals(4, util.getCommitInfos().size()); // every commit changed it
+    }
+}
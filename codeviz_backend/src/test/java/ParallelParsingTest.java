@@ -0,0 +1,87 @@
+import codeViz.GraphGenerator;
+import codeViz.SourcecodeReader;
+import codeViz.entity.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Parsing the files in parallel should give the same graph as parsing them one at a time,
+ * including the order the entities and connections are added in
+ */
+public class ParallelParsingTest {
+
+    private static final int NUM_CLASSES = 40; // more files than can be pending at once, so the oldest are merged early
+
+    /**
+     * @return  the code of a class that has a field of the next class and calls its method
+     */
+    private static String createConnectedClass(int index) {
+        int next = (index + 1) % NUM_CLASSES;
+        String packageName = "shop" + index % 3;
+        return "package " + packageName + ";\n"
+                + "import shop" + next % 3 + ".Part" + next + ";\n"
+                + "public class Part" + index + " {\n"
+                + "    private Part" + next + " next;\n"
+                + "    public int size() { return next.weight() + weight(); }\n"
+                + "    public int weight() { return " + index + "; }\n"
+                + "}\n";
+    }
+
+    private static GraphGenerator analyzeZip(int parallelism) throws IOException {
+        // not in name order, so the insertion order comes from the zip
+        Map<String, String> files = new LinkedHashMap<>();
+        for (int i = NUM_CLASSES - 1; i >= 0; i -= 2) {
+            files.put("src/shop" + i % 3 + "/Part" + i + ".java", createConnectedClass(i));
+        }
+        for (int i = 0; i < NUM_CLASSES; i += 2) {
+            files.put("src/shop" + i % 3 + "/Part" + i + ".java", createConnectedClass(i));
+        }
+
+        SourcecodeReader sourcecodeReader = new SourcecodeReader(parallelism, null);
+        assertTrue(sourcecodeReader.analyzeCodebase(createZip("repo-main", files)));
+        return sourcecodeReader.getGraphGenerator();
+    }
+
+    /**
+     * @return  each entity with its connections, in the order they were added
+     */
+    private static List<String> listInsertionOrder(GraphGenerator graphGenerator) {
+        List<String> order = new ArrayList<>();
+        for (Map<String, Entity> entities : List.of(graphGenerator.getPackageEntities(),
+                graphGenerator.getClassEntities(), graphGenerator.getMethodEntities())) {
+            entities.forEach((key, entity) -> {
+                List<String> connections = new ArrayList<>();
+                entity.getConnectedEntitiesAndWeights().forEach((connectedEntity, weight) ->
+                        connections.add(connectedEntity.getKey()));
+                order.add(key + " " + connections);
+            });
+        }
+        return order;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        GraphGenerator sequentialGraph = analyzeZip(1);
+        assertEquals(NUM_CLASSES, sequentialGraph.getClassEntities().size());
+        assertEquals(3, sequentialGraph.getPackageEntities().size());
+        assertTrue(sequentialGraph.getClassEntities().get("shop1.Part1").getConnectedEntitiesAndWeights()
+                .containsKey(sequentialGraph.getClassEntities().get("shop2.Part2")));
+
+        // the first class in the zip is added first, even if another thread finishes parsing before it
+        assertEquals("shop0.Part39", sequentialGraph.getClassEntities().keySet().iterator().next());
+
+        for (int parallelism : new int[]{2, 4, 8}) {
+            GraphGenerator parallelGraph = analyzeZip(parallelism);
+            assertEquals(listInsertionOrder(sequentialGraph), listInsertionOrder(parallelGraph));
+            assertEquals(describeGraph(sequentialGraph), describeGraph(parallelGraph));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import codeViz.SourcecodeReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Benchmark of reading a codebase, parsing its files one at a time and in parallel
+ * The timing is tagged as a benchmark and not part of the default test run, run it with -DexcludedGroups=none
+ */
+public class ParsingBenchmarkTest {
+
+    private static final int NUM_CLASSES = 1_000;
+    private static final int METHODS_PER_CLASS = 10;
+    private static final int REPETITIONS = 3;
+
+    /**
+     * @return  the code of a class whose methods call the methods of the next class
+     */
+    private static String createCallingClass(int index) {
+        int next = (index + 1) % NUM_CLASSES;
+        StringBuilder code = new StringBuilder("package shop" + index % 10 + ";\n"
+                + "import shop" + next % 10 + ".Part" + next + ";\n"
+                + "public class Part" + index + " {\n"
+                + "    private Part" + next + " next;\n");
+        for (int i = 0; i < METHODS_PER_CLASS; i++) {
+            code.append("    public int weight").append(i).append("(int amount) {\n")
+                    .append("        int total = 0;\n")
+                    .append("        for (int j = 0; j < amount; j++) {\n")
+                    .append("            if (j % 2 == 0) { total += next.weight").append(i).append("(j); } else { total -= j; }\n")
+                    .append("        }\n")
+                    .append("        return total;\n")
+                    .append("    }\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    /**
+     * @return  the fastest time to read the codebase, in nanoseconds
+     */
+    private static long timeAnalyzeCodebase(Map<String, String> files, int parallelism) throws IOException {
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < REPETITIONS; i++) {
+            InputStream zip = createZip("repo-main", files);
+            SourcecodeReader sourcecodeReader = new SourcecodeReader(parallelism, null);
+            long startTime = System.nanoTime();
+            assertTrue(sourcecodeReader.analyzeCodebase(zip));
+            bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+
+            assertEquals(NUM_CLASSES, sourcecodeReader.getGraphGenerator().getClassEntities().size());
+        }
+        System.out.println("analyzeCodebase of " + files.size() + " files with " + parallelism + " threads: "
+                + (bestTime / 1_000_000.0) + " ms, " + (bestTime / files.size() / 1_000) + " us per file");
+        return bestTime;
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testParallelParsingSpeedup() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            files.put("src/shop" + i % 10 + "/Part" + i + ".java", createCallingClass(i));
+        }
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        timeAnalyzeCodebase(files, parallelism); // warm up
+
+        long sequentialTime = timeAnalyzeCodebase(files, 1);
+        long parallelTime = timeAnalyzeCodebase(files, parallelism);
+        System.out.println("parsing with " + parallelism + " threads is " + ((double) sequentialTime / parallelTime) + "x as fast");
+
+        // with one processor the times are about the same, the parallel parse should never be much slower
+        assertTrue(parallelTime < sequentialTime * 1.5,
+                "parsing with " + parallelism + " threads took " + ((double) parallelTime / sequentialTime) + "x as long");
+    }
+}
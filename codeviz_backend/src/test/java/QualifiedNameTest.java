@@ -0,0 +1,96 @@
+import codeViz.GraphGenerator;
+import codeViz.SourcecodeReader;
+import codeViz.entity.Entity;
+import codeViz.entity.EntityType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QualifiedNameTest {
+
+    private static GraphGenerator analyze(String... pathsAndCode) {
+        LinkedHashMap<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < pathsAndCode.length; i += 2) {
+            files.put(pathsAndCode[i], pathsAndCode[i + 1].getBytes(StandardCharsets.UTF_8));
+        }
+        SourcecodeReader sourcecodeReader = new SourcecodeReader(1, null);
+        assertTrue(sourcecodeReader.updateCodebase(Set.of(), files, "test"));
+        return sourcecodeReader.getGraphGenerator();
+    }
+
+    @Test
+    public void testSameSimpleNameInTwoPackages() {
+        GraphGenerator graphGenerator = analyze(
+                "src/a/Util.java", """
+                        package a;
+                        public class Util {
+                            public int size() { return 1; }
+                        }
+                        """,
+                "src/b/Util.java", """
+                        package b;
+                        public class Util {
+                            public int size() { return 2; }
+                        }
+                        """,
+                "src/c/User.java", """
+                        package c;
+                        import b.Util;
+                        public class User {
+                            private Util util;
+                            public int run() { return util.size(); }
+                        }
+                        """,
+                "src/a/Helper.java", """
+                        package a;
+                        public class Helper {
+                            public int help(Util util) { return util.size(); }
+                        }
+                        """);
+
+        Entity utilA = graphGenerator.getClassEntities().get("a.Util");
+        Entity utilB = graphGenerator.getClassEntities().get("b.Util");
+        assertNotNull(utilA);
+        assertNotNull(utilB);
+        assertNotEquals(utilA, utilB);
+        assertNotNull(graphGenerator.getMethodEntities().get("a.Util.size"));
+        assertNotNull(graphGenerator.getMethodEntities().get("b.Util.size"));
+
+        // the import is used over the first class named Util
+        Entity user = graphGenerator.getClassEntities().get("c.User");
+        assertTrue(user.getConnectedEntities().contains(utilB));
+        assertFalse(user.getConnectedEntities().contains(utilA));
+        assertTrue(graphGenerator.getMethodEntities().get("c.User.run").getConnectedEntities()
+                .contains(graphGenerator.getMethodEntities().get("b.Util.size")));
+
+        // the same package is used when there is no import
+        Entity helper = graphGenerator.getClassEntities().get("a.Helper");
+        assertTrue(helper.getConnectedEntities().contains(utilA));
+        assertTrue(graphGenerator.getMethodEntities().get("a.Helper.help").getConnectedEntities()
+                .contains(graphGenerator.getMethodEntities().get("a.Util.size")));
+    }
+
+    @Test
+    public void testSymbolTableIds() {
+        GraphGenerator graphGenerator = analyze(
+                "Main.java", """
+                        public class Main {
+                            public void run() { }
+                        }
+                        """);
+
+        // classes in the default package are keyed by their name alone
+        Entity main = graphGenerator.getClassEntities().get("Main");
+        assertNotNull(main);
+        assertEquals("Main", graphGenerator.getSymbolTable(EntityType.CLASS).getKey(main.getId()));
+        assertEquals(main, graphGenerator.getEntity(EntityType.CLASS, main.getId()));
+
+        Entity run = graphGenerator.getMethodEntities().get("Main.run");
+        assertEquals(run.getId(), graphGenerator.getSymbolTable(EntityType.METHOD).getId("Main.run"));
+        assertEquals(-1, graphGenerator.getSymbolTable(EntityType.METHOD).getId("Main.missing"));
+    }
+}
@@ -66,11 +66,11 @@ public class SourcecodeReaderTest {
             System.out.println(key + ": " +  entity.getName());
         }
 
-        assertTrue(classEntities.containsKey("ClassEntity"));
-        assertTrue(classEntities.containsKey("Entity"));
-        assertTrue(classEntities.containsKey("EntityType"));
-        assertTrue(classEntities.containsKey("MethodEntity"));
-        assertTrue(classEntities.containsKey("PackageEntity"));
+        assertTrue(classEntities.containsKey("codeViz.entity.ClassEntity"));
+        assertTrue(classEntities.containsKey("codeViz.entity.Entity"));
+        assertTrue(classEntities.containsKey("codeViz.entity.EntityType"));
+        assertTrue(classEntities.containsKey("codeViz.entity.MethodEntity"));
+        assertTrue(classEntities.containsKey("codeViz.entity.PackageEntity"));
     }
 
     /**
@@ -88,20 +88,20 @@ public class SourcecodeReaderTest {
             System.out.println(key + ": " +  entity.getName());
         }
 
-        assertTrue(methodEntities.containsKey("ClassEntity.addConnectedEntity"));
-        assertTrue(methodEntities.containsKey("Entity.addConnectedEntity"));
-        assertTrue(methodEntities.containsKey("Entity.getEntityType"));
-//        assertTrue(methodEntities.containsKey("EntityType"));
-        assertTrue(methodEntities.containsKey("MethodEntity.getClassEntity"));
-        assertTrue(methodEntities.containsKey("MethodEntity.addConnectedEntity"));
-        assertTrue(methodEntities.containsKey("PackageEntity.addConnectedEntity"));
-
-        assertTrue(methodEntities.containsKey("ClassEntity.ClassEntity"));
-        assertTrue(methodEntities.containsKey("Entity.Entity"));
-        assertTrue(methodEntities.containsKey("EntityType.EntityType"));
-        assertTrue(methodEntities.containsKey("MethodEntity.MethodEntity"));
-        assertTrue(methodEntities.containsKey("MethodEntity.MethodEntity"));
-        assertTrue(methodEntities.containsKey("PackageEntity.PackageEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.ClassEntity.addConnectedEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.Entity.addConnectedEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.Entity.getEntityType"));
+//        assertTrue(methodEntities.containsKey("codeViz.entity.EntityType"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.MethodEntity.getClassEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.MethodEntity.addConnectedEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.PackageEntity.addConnectedEntity"));
+
+        assertTrue(methodEntities.containsKey("codeViz.entity.ClassEntity.ClassEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.Entity.Entity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.EntityType.EntityType"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.MethodEntity.MethodEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.MethodEntity.MethodEntity"));
+        assertTrue(methodEntities.containsKey("codeViz.entity.PackageEntity.PackageEntity"));
     }
 
 
@@ -119,10 +119,10 @@ public class SourcecodeReaderTest {
 
         PackageEntity entityPackage = (PackageEntity) packageEntities.get("codeViz.entity");
 
-        ClassEntity entityClass = (ClassEntity) classEntities.get("Entity");
-        ClassEntity packageEntityClass = (ClassEntity) classEntities.get("PackageEntity");
-        ClassEntity classEntityClass = (ClassEntity) classEntities.get("ClassEntity");
-        ClassEntity methodEntityClass = (ClassEntity) classEntities.get("MethodEntity");
+        ClassEntity entityClass = (ClassEntity) classEntities.get("codeViz.entity.Entity");
+        ClassEntity packageEntityClass = (ClassEntity) classEntities.get("codeViz.entity.PackageEntity");
+        ClassEntity classEntityClass = (ClassEntity) classEntities.get("codeViz.entity.ClassEntity");
+        ClassEntity methodEntityClass = (ClassEntity) classEntities.get("codeViz.entity.MethodEntity");
 
         assertEquals(entityPackage, entityClass.getPackageEntity());
         assertEquals(entityPackage, packageEntityClass.getPackageEntity());
@@ -146,16 +146,16 @@ public class SourcecodeReaderTest {
 
         // check class and method connections
 
-        ClassEntity entityClass = (ClassEntity) classEntities.get("Entity");
-        ClassEntity packageEntityClass = (ClassEntity) classEntities.get("PackageEntity");
-        ClassEntity classEntityClass = (ClassEntity) classEntities.get("ClassEntity");
-        ClassEntity methodEntityClass = (ClassEntity) classEntities.get("MethodEntity");
+        ClassEntity entityClass = (ClassEntity) classEntities.get("codeViz.entity.Entity");
+        ClassEntity packageEntityClass = (ClassEntity) classEntities.get("codeViz.entity.PackageEntity");
+        ClassEntity classEntityClass = (ClassEntity) classEntities.get("codeViz.entity.ClassEntity");
+        ClassEntity methodEntityClass = (ClassEntity) classEntities.get("codeViz.entity.MethodEntity");
 
-        MethodEntity entityAddConnectedEntityMethod = (MethodEntity) methodEntities.get("Entity.addConnectedEntity");
-        MethodEntity packageAddConnectedEntityMethod = (MethodEntity) methodEntities.get("PackageEntity.addConnectedEntity");
-        MethodEntity classAddConnectedEntityMethod = (MethodEntity) methodEntities.get("ClassEntity.addConnectedEntity");
-        MethodEntity methodGetClassEntityMethod = (MethodEntity) methodEntities.get("MethodEntity.getClassEntity");
-        MethodEntity entityGetEntityTypeMethod = (MethodEntity) methodEntities.get("Entity.getEntityType");
+        MethodEntity entityAddConnectedEntityMethod = (MethodEntity) methodEntities.get("codeViz.entity.Entity.addConnectedEntity");
+        MethodEntity packageAddConnectedEntityMethod = (MethodEntity) methodEntities.get("codeViz.entity.PackageEntity.addConnectedEntity");
+        MethodEntity classAddConnectedEntityMethod = (MethodEntity) methodEntities.get("codeViz.entity.ClassEntity.addConnectedEntity");
+        MethodEntity methodGetClassEntityMethod = (MethodEntity) methodEntities.get("codeViz.entity.MethodEntity.getClassEntity");
+        MethodEntity entityGetEntityTypeMethod = (MethodEntity) methodEntities.get("codeViz.entity.Entity.getEntityType");
 
         assertNotNull(entityClass);
         assertNotNull(packageEntityClass);
@@ -197,10 +197,10 @@ public class SourcecodeReaderTest {
             System.out.println(key + ": " +  entity.getName());
         }
 
-        Entity packageEntityClass = classEntities.get("PackageEntity");
-        Entity classEntityClass = classEntities.get("ClassEntity");
-        Entity methodEntityClass = classEntities.get("MethodEntity");
-        Entity entityClass = classEntities.get("Entity");
+        Entity packageEntityClass = classEntities.get("codeViz.entity.PackageEntity");
+        Entity classEntityClass = classEntities.get("codeViz.entity.ClassEntity");
+        Entity methodEntityClass = classEntities.get("codeViz.entity.MethodEntity");
+        Entity entityClass = classEntities.get("codeViz.entity.Entity");
 
         assertTrue(packageEntityClass.getConnectedEntities().contains(entityClass));
         assertTrue(classEntityClass.getConnectedEntities().contains(entityClass));
@@ -223,11 +223,11 @@ public class SourcecodeReaderTest {
             System.out.println(key + ": " +  entity.getName());
         }
 
-        Entity packageEntityClass = classEntities.get("PackageEntity");
-        Entity classEntityClass = classEntities.get("ClassEntity");
-        Entity methodEntityClass = classEntities.get("MethodEntity");
-        Entity entityTypeClass = classEntities.get("EntityType");
-        Entity entityClass = classEntities.get("Entity");
+        Entity packageEntityClass = classEntities.get("codeViz.entity.PackageEntity");
+        Entity classEntityClass = classEntities.get("codeViz.entity.ClassEntity");
+        Entity methodEntityClass = classEntities.get("codeViz.entity.MethodEntity");
+        Entity entityTypeClass = classEntities.get("codeViz.entity.EntityType");
+        Entity entityClass = classEntities.get("codeViz.entity.Entity");
 
         //FIXME assertTrue(entityClass.getConnectedEntities().contains(entityTypeClass));
 
@@ -246,23 +246,23 @@ public class SourcecodeReaderTest {
     public void testGenerateMethodEdges() {
         LinkedHashMap<String, Entity> methodEntities = graphGenerator.getMethodEntities();
 
-        Entity entityAddConnectedEntity = methodEntities.get("Entity.addConnectedEntity");
-        Entity packageAddConnectedEntity = methodEntities.get("PackageEntity.addConnectedEntity");
-        Entity classAddConnectedEntity = methodEntities.get("ClassEntity.addConnectedEntity");
-        Entity methodAddConnectedEntity = methodEntities.get("MethodEntity.addConnectedEntity");
+        Entity entityAddConnectedEntity = methodEntities.get("codeViz.entity.Entity.addConnectedEntity");
+        Entity packageAddConnectedEntity = methodEntities.get("codeViz.entity.PackageEntity.addConnectedEntity");
+        Entity classAddConnectedEntity = methodEntities.get("codeViz.entity.ClassEntity.addConnectedEntity");
+        Entity methodAddConnectedEntity = methodEntities.get("codeViz.entity.MethodEntity.addConnectedEntity");
 
         // test that subclass methods call superclass method
         assertTrue(packageAddConnectedEntity.getConnectedEntities().contains(entityAddConnectedEntity));
         assertTrue(classAddConnectedEntity.getConnectedEntities().contains(entityAddConnectedEntity));
         assertTrue(methodAddConnectedEntity.getConnectedEntities().contains(entityAddConnectedEntity));
 
-        Entity entityInit = methodEntities.get("Entity.Entity");
-        Entity packageInit = methodEntities.get("PackageEntity.PackageEntity");
-        Entity classInit = methodEntities.get("ClassEntity.ClassEntity"); // FIXME - multiple constructors
-        Entity methodInit = methodEntities.get("MethodEntity.MethodEntity");
+        Entity entityInit = methodEntities.get("codeViz.entity.Entity.Entity");
+        Entity packageInit = methodEntities.get("codeViz.entity.PackageEntity.PackageEntity");
+        Entity classInit = methodEntities.get("codeViz.entity.ClassEntity.ClassEntity"); // FIXME - multiple constructors
+        Entity methodInit = methodEntities.get("codeViz.entity.MethodEntity.MethodEntity");
 
-        Entity packageAddClass = methodEntities.get("PackageEntity.addClass");
-        Entity classAddMethod = methodEntities.get("ClassEntity.addMethod");
+        Entity packageAddClass = methodEntities.get("codeViz.entity.PackageEntity.addClass");
+        Entity classAddMethod = methodEntities.get("codeViz.entity.ClassEntity.addMethod");
 
 //        // test that subclass methods call superclass method FIXME
 //        assertTrue(packageInit.getConnectedEntities().contains(entityInit));
@@ -273,8 +273,8 @@ public class SourcecodeReaderTest {
         assertTrue(methodInit.getConnectedEntities().contains(classAddMethod));
 
         // superclass method connection - ClassEntity.getMethod should be connected to Entity.getName
-        Entity getMethod = methodEntities.get("ClassEntity.getMethod");
-        Entity getName = methodEntities.get("Entity.getName");
+        Entity getMethod = methodEntities.get("codeViz.entity.ClassEntity.getMethod");
+        Entity getName = methodEntities.get("codeViz.entity.Entity.getName");
         //FIXME assertTrue(getMethod.getConnectedEntities().contains(getName));
     }
 
@@ -296,16 +296,16 @@ public class SourcecodeReaderTest {
         LinkedHashMap<String, Entity> methodEntities = graphGenerator.getMethodEntities();
 
         assertNotEquals(Entity.getHighlightedColour(), packageEntities.get("codeViz.entity").getParentColour());
-        assertNotEquals(Entity.getHighlightedColour(), classEntities.get("PackageEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), classEntities.get("MethodEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.addMethod").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.getMethods").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.getMethod").getParentColour());
+        assertNotEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.PackageEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.MethodEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.addMethod").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.getMethods").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.getMethod").getParentColour());
 
         // methods in MethodEntity class don't contain "Method" in their name
-        //FIXME assertNotEquals(Entity.getHighlighedColour(), methodEntities.get("MethodEntity.MethodEntity").getParentColour());
-        assertNotEquals(Entity.getHighlightedColour(), methodEntities.get("MethodEntity.getClassEntity").getParentColour());
-        assertNotEquals(Entity.getHighlightedColour(), methodEntities.get("MethodEntity.addConnectedEntity").getParentColour());
+        //FIXME assertNotEquals(Entity.getHighlighedColour(), methodEntities.get("codeViz.entity.MethodEntity.MethodEntity").getParentColour());
+        assertNotEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.MethodEntity.getClassEntity").getParentColour());
+        assertNotEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.MethodEntity.addConnectedEntity").getParentColour());
     }
 
     /**
@@ -320,10 +320,10 @@ public class SourcecodeReaderTest {
 
         LinkedHashMap<String, Entity> methodEntities = graphGenerator.getMethodEntities();
 
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("Entity.addConnectedEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("PackageEntity.addConnectedEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.addConnectedEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("MethodEntity.addConnectedEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.Entity.addConnectedEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.PackageEntity.addConnectedEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.addConnectedEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.MethodEntity.addConnectedEntity").getParentColour());
     }
 
     /**
@@ -338,27 +338,27 @@ public class SourcecodeReaderTest {
         graphGenerator.performSearch("addMethod", isDetailed, isDetailed, isDetailed, isDetailed, isDetailed, isDetailed, EntityType.CLASS);
         methodEntities = graphGenerator.getMethodEntities();
         classEntities = graphGenerator.getClassEntities();
-        assertNotEquals(Entity.getHighlightedColour(), classEntities.get("PackageEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), classEntities.get("ClassEntity").getParentColour()); // class that contains addMethod
-        assertEquals(Entity.getHighlightedColour(), classEntities.get("MethodEntity").getParentColour()); // class that calls addMethod
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.addMethod").getParentColour());
-        //FIXME assertEquals(Entity.getHighlighedColour(), methodEntities.get("MethodEntity.MethodEntity").getParentColour()); // calls addMethod
+        assertNotEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.PackageEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.ClassEntity").getParentColour()); // class that contains addMethod
+        assertEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.MethodEntity").getParentColour()); // class that calls addMethod
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.addMethod").getParentColour());
+        //FIXME assertEquals(Entity.getHighlighedColour(), methodEntities.get("codeViz.entity.MethodEntity.MethodEntity").getParentColour()); // calls addMethod
 
         graphGenerator.performSearch("MethodEntity", isDetailed, isDetailed, isDetailed, isDetailed, isDetailed, isDetailed, EntityType.CLASS);
         packageEntities = graphGenerator.getPackageEntities();
         classEntities = graphGenerator.getClassEntities();
         assertEquals(Entity.getHighlightedColour(), packageEntities.get("codeViz.entity").getParentColour()); // package that contains the class
-        assertNotEquals(Entity.getHighlightedColour(), classEntities.get("PackageEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), classEntities.get("ClassEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), classEntities.get("MethodEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.addMethod").getParentColour()); // MethodEntity argument
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.getMethod").getParentColour()); // MethodEntity return type
-        //assertEquals(Entity.getHighlightedColour(), methodEntities.get("ClassEntity.getMethods").getParentColour()); // TODO - MethodEntity list return type
+        assertNotEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.PackageEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.ClassEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), classEntities.get("codeViz.entity.MethodEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.addMethod").getParentColour()); // MethodEntity argument
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.getMethod").getParentColour()); // MethodEntity return type
+        //assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.ClassEntity.getMethods").getParentColour()); // TODO - MethodEntity list return type
 
         // methods in MethodEntity class are highlighted for detailed search
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("MethodEntity.MethodEntity").getParentColour());
-        //FIXME assertEquals(Entity.getHighlightedColour(), methodEntities.get("MethodEntity.getClassEntity").getParentColour());
-        assertEquals(Entity.getHighlightedColour(), methodEntities.get("MethodEntity.addConnectedEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.MethodEntity.MethodEntity").getParentColour());
+        //FIXME assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.MethodEntity.getClassEntity").getParentColour());
+        assertEquals(Entity.getHighlightedColour(), methodEntities.get("codeViz.entity.MethodEntity.addConnectedEntity").getParentColour());
     }
 
 }
@@ -0,0 +1,188 @@
+import codeViz.GraphGenerator;
+import codeViz.SourcecodeReader;
+import codeViz.entity.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Type names and the objects methods are called on should resolve to the same classes the compiler would use
+ */
+public class SymbolIndexTest {
+
+    private static String createUtil(String packageName) {
+        return "package " + packageName + ";\n"
+                + "public class Util {\n"
+                + "    public int size() { return 1; }\n"
+                + "}\n";
+    }
+
+    private static GraphGenerator analyzeFiles(Map<String, String> files) throws IOException {
+        SourcecodeReader sourcecodeReader = new SourcecodeReader(1, null);
+        assertTrue(sourcecodeReader.analyzeCodebase(createZip("repo-main", files)));
+        return sourcecodeReader.getGraphGenerator();
+    }
+
+    private static boolean isConnected(Map<String, Entity> entities, String key, String connectedKey) {
+        return entities.get(key).getConnectedEntities().contains(entities.get(connectedKey));
+    }
+
+    @Test
+    public void testImportsAndSamePackage() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("src/a/Util.java", createUtil("a"));
+        files.put("src/b/Util.java", createUtil("b"));
+        files.put("src/c/Util.java", createUtil("c"));
+        // an explicit import is used over the same package and a wildcard import
+        files.put("src/c/Explicit.java", """
+                package c;
+                import a.*;
+                import b.Util;
+                public class Explicit {
+                    private Util util;
+                    public int run() { return util.size(); }
+                }
+                """);
+        // the same package is used over a wildcard import
+        files.put("src/c/SamePackage.java", """
+                package c;
+                import a.*;
+                public class SamePackage {
+                    private Util util;
+                    public int run() { return util.size(); }
+                }
+                """);
+        // a wildcard import is used when the package has no class with the name
+        files.put("src/d/Wildcard.java", """
+                package d;
+                import b.*;
+                public class Wildcard {
+                    private Util util;
+                    public int run() { return util.size(); }
+                }
+                """);
+        GraphGenerator graphGenerator = analyzeFiles(files);
+        Map<String, Entity> classes = graphGenerator.getClassEntities();
+        Map<String, Entity> methods = graphGenerator.getMethodEntities();
+
+        assertTrue(isConnected(classes, "c.Explicit", "b.Util"));
+        assertFalse(isConnected(classes, "c.Explicit", "a.Util"));
+        assertFalse(isConnected(classes, "c.Explicit", "c.Util"));
+        assertTrue(isConnected(methods, "c.Explicit.run", "b.Util.size"));
+
+        assertTrue(isConnected(classes, "c.SamePackage", "c.Util"));
+        assertFalse(isConnected(classes, "c.SamePackage", "a.Util"));
+        assertTrue(isConnected(methods, "c.SamePackage.run", "c.Util.size"));
+
+        assertTrue(isConnected(classes, "d.Wildcard", "b.Util"));
+        assertTrue(isConnected(methods, "d.Wildcard.run", "b.Util.size"));
+    }
+
+    @Test
+    public void testVariablesShadowTypesAndFields() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("src/shop/Util.java", createUtil("shop"));
+        files.put("src/shop/Counter.java", """
+                package shop;
+                public class Counter {
+                    public int size() { return 2; }
+                }
+                """);
+        files.put("src/shop/Box.java", """
+                package shop;
+                public class Box {
+                    public int size() { return 3; }
+                }
+                """);
+        files.put("src/shop/Cart.java", """
+                package shop;
+                public class Cart {
+                    private Counter Util;
+                    private Counter counter;
+                    public int fieldNamedLikeType() { return Util.size(); }
+                    public int localVariable() {
+                        Box counter = new Box();
+                        return counter.size();
+                    }
+                    public int argument(Util counter) { return counter.size(); }
+                    public int field() { return counter.size(); }
+                }
+                """);
+        Map<String, Entity> methods = analyzeFiles(files).getMethodEntities();
+
+        // a field named like a class is used over the class
+        assertTrue(isConnected(methods, "shop.Cart.fieldNamedLikeType", "shop.Counter.size"));
+        assertFalse(isConnected(methods, "shop.Cart.fieldNamedLikeType", "shop.Util.size"));
+
+        // a local variable or argument is used over a field with the same name
+        assertTrue(isConnected(methods, "shop.Cart.localVariable", "shop.Box.size"));
+        assertFalse(isConnected(methods, "shop.Cart.localVariable", "shop.Counter.size"));
+        assertTrue(isConnected(methods, "shop.Cart.argument", "shop.Util.size"));
+        assertFalse(isConnected(methods, "shop.Cart.argument", "shop.Counter.size"));
+        assertTrue(isConnected(methods, "shop.Cart.field", "shop.Counter.size"));
+    }
+
+    @Test
+    public void testAmbiguousSimpleNames() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("src/a/Util.java", createUtil("a"));
+        files.put("src/b/Util.java", createUtil("b"));
+        // both wildcard imports have a Util, the first one is used
+        files.put("src/c/TwoWildcards.java", """
+                package c;
+                import b.*;
+                import a.*;
+                public class TwoWildcards {
+                    private Util util;
+                    public int run() { return util.size(); }
+                }
+                """);
+        // without an import, the first class named Util in the codebase is used
+        files.put("src/c/NoImport.java", """
+                package c;
+                public class NoImport {
+                    private Util util;
+                    public int run() { return util.size(); }
+                }
+                """);
+        GraphGenerator graphGenerator = analyzeFiles(files);
+        Map<String, Entity> classes = graphGenerator.getClassEntities();
+        Map<String, Entity> methods = graphGenerator.getMethodEntities();
+
+        assertTrue(isConnected(classes, "c.TwoWildcards", "b.Util"));
+        assertFalse(isConnected(classes, "c.TwoWildcards", "a.Util"));
+        assertTrue(isConnected(methods, "c.TwoWildcards.run", "b.Util.size"));
+
+        assertTrue(isConnected(classes, "c.NoImport", "a.Util"));
+        assertFalse(isConnected(classes, "c.NoImport", "b.Util"));
+        assertTrue(isConnected(methods, "c.NoImport.run", "a.Util.size"));
+    }
+
+    @Test
+    public void testUnscopedCalls() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("src/jobs/Worker.java", """
+                package jobs;
+                public class Worker {
+                    public int helper() { return 1; }
+                    public int direct() { return helper(); }
+                    public Runnable anonymous() {
+                        return new Runnable() {
+                            public void run() { helper(); }
+                        };
+                    }
+                }
+                """);
+        Map<String, Entity> methods = analyzeFiles(files).getMethodEntities();
+
+        // an unscoped call resolves against the class of the method it is made in
+        assertTrue(isConnected(methods, "jobs.Worker.direct", "jobs.Worker.helper"));
+        // a method of an anonymous class resolves against the class around it
+        assertTrue(isConnected(methods, "jobs.Worker.anonymous", "jobs.Worker.helper"));
+    }
+}
@@ -0,0 +1,66 @@
+import codeViz.GraphGenerator;
+import codeViz.SourcecodeReader;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static testUtils.TestRepositories.*;
+
+/**
+ * Reading a codebase from its zip archive should give the same graph as reading the same files from a directory
+ */
+public class ZipCodebaseTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testZipMatchesDirectory() throws IOException, GitAPIException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("src/shop/Cart.java", """
+                package shop;
+                import shop.items.Item;
+                public class Cart {
+                    private Item item;
+                    public int total() { return item.price() + discount(); }
+                    private int discount() { return 0; }
+                }
+                """);
+        files.put("src/shop/items/Item.java", """
+                package shop.items;
+                public class Item {
+                    public int price() { return 1; }
+                }
+                """);
+        files.put("README.md", "not java");
+        files.put("src/shop/Empty.java", "");
+
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                writeFile(directory, file.getKey(), file.getValue());
+            }
+            commit(git, "add shop");
+        }
+        GraphGenerator directoryGraph = analyzeCodebase(directory, "HEAD");
+
+        SourcecodeReader sourcecodeReader = new SourcecodeReader(1, null);
+        assertTrue(sourcecodeReader.analyzeCodebase(createZip("shop-main", files)));
+        GraphGenerator zipGraph = sourcecodeReader.getGraphGenerator();
+
+        assertEquals(describeGraph(directoryGraph), describeGraph(zipGraph));
+        assertTrue(zipGraph.getClassEntities().containsKey("shop.items.Item"));
+        // the top-level folder of the archive is not part of the path
+        assertSame(zipGraph.getClassEntities().get("shop.Cart"), zipGraph.getClassEntityByPath("src/shop/Cart.java"));
+        assertNull(zipGraph.getClassEntityByPath("shop-main/src/shop/Cart.java"));
+
+        // a zip without any .java files is not a Java project
+        assertFalse(new SourcecodeReader(1, null).analyzeCodebase(createZip("docs-main", Map.of("README.md", "not java"))));
+    }
+}
@@ -0,0 +1,148 @@
+package testUtils;
+
+import codeViz.GraphGenerator;
+import codeViz.SourcecodeReader;
+import codeViz.entity.ClassEntity;
+import codeViz.entity.Entity;
+import codeViz.gitHistory.GitRevisionDiff;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Helpers to create small git repositories and zip archives in tests, and to analyze them
+ * The repositories should be created in a JUnit @TempDir, so they are deleted after the test
+ */
+public class TestRepositories {
+
+    private TestRepositories() {
+    }
+
+    public static void writeFile(Path directory, String path, String code) throws IOException {
+        Path filePath = directory.resolve(path);
+        Files.createDirectories(filePath.getParent());
+        Files.writeString(filePath, code);
+    }
+
+    /**
+     * Commit every change in the repository, including deleted files
+     * @return  the commit id
+     */
+    public static String commit(Git git, String message) throws GitAPIException {
+        return commit(git, message, new PersonIdent("testUser", "test@test.com"));
+    }
+
+    /**
+     * Commit every change in the repository, at the given time
+     * @param whenMillis    the time of the commit, in milliseconds since the epoch
+     * @return              the commit id
+     */
+    public static String commit(Git git, String message, long whenMillis) throws GitAPIException {
+        return commit(git, message, new PersonIdent("testUser", "test@test.com", whenMillis, 0));
+    }
+
+    private static String commit(Git git, String message, PersonIdent person) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.add().setUpdate(true).addFilepattern(".").call(); // stage deletes
+        return git.commit().setMessage(message).setAuthor(person).setCommitter(person).call().getName();
+    }
+
+    /**
+     * @return  the code of a class with 6 lines, where only the version line changes between versions
+     */
+    public static String createClass(String packageName, String className, int version) {
+        return "package " + packageName + ";\n"
+                + "public class " + className + " {\n"
+                + "    public int version() { return " + version + "; }\n"
+                + "    public String name() { return \"" + className + "\"; }\n"
+                + "    public int twice() { return version() * 2; }\n"
+                + "}\n";
+    }
+
+    /**
+     * Analyze the code of a repository at a revision
+     * @param parallelism   number of threads to parse the files with
+     * @return              the reader, with the analyzed graph
+     */
+    public static SourcecodeReader analyzeCodebase(Path directory, String revision, int parallelism) throws IOException {
+        SourcecodeReader sourcecodeReader = new SourcecodeReader(parallelism, null);
+        try (Git git = Git.open(directory.toFile())) {
+            GitRevisionDiff diff = GitRevisionDiff.compute(git.getRepository(), null, revision);
+            assertTrue(sourcecodeReader.updateCodebase(diff.getRemovedPaths(), diff.getChangedFiles(), diff.getNewRevision()));
+        }
+        return sourcecodeReader;
+    }
+
+    public static GraphGenerator analyzeCodebase(Path directory, String revision) throws IOException {
+        return analyzeCodebase(directory, revision, 1).getGraphGenerator();
+    }
+
+    /**
+     * Get the git history read into the graph
+     * @return  the commit count of each class and the git connections, in a form that does not depend on insertion order
+     */
+    public static Map<String, String> describeHistory(GraphGenerator graphGenerator) {
+        Map<String, String> description = new TreeMap<>();
+        for (Entity entity : graphGenerator.getClassEntities().values()) {
+            TreeSet<String> connections = new TreeSet<>();
+            entity.getGitConnectedEntitiesAndWeights().forEach((connectedEntity, weight) ->
+                    connections.add(connectedEntity.getKey() + "=" + weight));
+            description.put(entity.getKey(), ((ClassEntity) entity).getCommitInfos().size() + " " + connections);
+        }
+        return description;
+    }
+
+    /**
+     * Create a zip archive like a GitHub branch archive, with every file in a top-level folder
+     * @param folder    name of the top-level folder, ex. repo-main
+     * @param files     path and code of each file, in the order they are added to the zip
+     * @return          the zip contents
+     */
+    public static InputStream createZip(String folder, Map<String, String> files) throws IOException {
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(zipBytes)) {
+            zipOutputStream.putNextEntry(new ZipEntry(folder + "/"));
+            zipOutputStream.closeEntry();
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(folder + "/" + file.getKey()));
+                zipOutputStream.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(zipBytes.toByteArray());
+    }
+
+    /**
+     * Get the entities, connections and complexity in a form that does not depend on insertion order
+     */
+    public static Map<String, String> describeGraph(GraphGenerator graphGenerator) {
+        Map<String, String> description = new TreeMap<>();
+        for (Map<String, Entity> entities : List.of(graphGenerator.getPackageEntities(),
+                graphGenerator.getClassEntities(), graphGenerator.getMethodEntities())) {
+            entities.forEach((key, entity) -> {
+                TreeSet<String> connections = new TreeSet<>();
+                entity.getConnectedEntitiesAndWeights().forEach((connectedEntity, weight) ->
+                        connections.add(connectedEntity.getKey() + "=" + weight));
+                description.put(entity.getEntityType() + " " + key, entity.getSize() + " " + connections + " "
+                        + entity.getComplexityDetails().getLinesOfCode() + " " + entity.getComplexityDetails().getCyclomaticComplexity());
+            });
+        }
+        return description;
+    }
+}
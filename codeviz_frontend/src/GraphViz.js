@@ -1,15 +1,14 @@
 /**
- * This example shows how to load a GEXF graph file (using the dedicated
- * graphology parser), and display it with some basic map features: Zoom in and
+ * This example shows how to load a graph in the compact format of the backend,
+ * and display it with some basic map features: Zoom in and
  * out buttons, reset zoom button, and a slider to increase or decrease the
  * quantity of labels displayed on screen.
  */
 
 import Sigma from "sigma";
 import Graph from "graphology";
-import { parse } from "graphology-gexf/browser";
 // import React from 'react';
-import React, { useState, useEffect} from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import forceAtlas2 from "graphology-layout-forceatlas2";
 
 import RightContext from './RightContext';
@@ -18,101 +17,138 @@ import Legend from "./Legend";
 
 export var selectedColours, setSelectedColours;
 
+// load the graph again after a view change, set once the graph is displayed
+export var refreshGraph = () => {};
+
 // create shared variable here, so it can edit it
 export var hoveredNodeString = null;
 export var labelsThresholdRange, thresholdLabel = null;
 
-// Load external GEXF file:
+/**
+ * Read a graph in the compact format written by CompactGraphWriter in the backend
+ * A string table, then the node, edge and legend columns, little-endian and aligned to 4 bytes,
+ * so each column is read as a typed array without copying (browsers are little-endian)
+ * @param buffer    the ArrayBuffer of the graph
+ * @returns         the graph, and the legend as [{category, color}]
+ */
+export function parseCompactGraph(buffer) {
+  const view = new DataView(buffer);
+  const magic = String.fromCharCode(view.getUint8(0), view.getUint8(1), view.getUint8(2), view.getUint8(3));
+  if (magic !== "CVZG" || view.getInt32(4, true) !== 1) {
+    throw new Error("Unsupported graph format");
+  }
+  const numStrings = view.getInt32(8, true);
+  const numStringBytes = view.getInt32(12, true);
+  const numNodes = view.getInt32(16, true);
+  const numEdges = view.getInt32(20, true);
+  const numLegendItems = view.getInt32(24, true);
+
+  let offset = 28;
+  const readColumn = (ArrayType, length) => {
+    const column = new ArrayType(buffer, offset, length);
+    offset += 4 * length;
+    return column;
+  };
+
+  const stringOffsets = readColumn(Int32Array, numStrings + 1);
+  const stringBytes = new Uint8Array(buffer, offset, numStringBytes);
+  offset += (numStringBytes + 3) & ~3;
+  const decoder = new TextDecoder();
+  const strings = new Array(numStrings);
+  for (let i = 0; i < numStrings; i++) {
+    strings[i] = decoder.decode(stringBytes.subarray(stringOffsets[i], stringOffsets[i + 1]));
+  }
+
+  const nodeIds = readColumn(Int32Array, numNodes);
+  const nodeLabels = readColumn(Int32Array, numNodes);
+  const nodeSizes = readColumn(Float32Array, numNodes);
+  const nodeXs = readColumn(Float32Array, numNodes);
+  const nodeYs = readColumn(Float32Array, numNodes);
+  const nodeColours = readColumn(Uint32Array, numNodes);
+  const edgeSources = readColumn(Int32Array, numEdges);
+  const edgeTargets = readColumn(Int32Array, numEdges);
+  const edgeWeights = readColumn(Float32Array, numEdges);
+  const legendCategories = readColumn(Int32Array, numLegendItems);
+  const legendColours = readColumn(Int32Array, numLegendItems);
+
+  const graph = new Graph({ type: "directed" });
+  for (let i = 0; i < numNodes; i++) {
+    const colour = nodeColours[i];
+    graph.addNode(strings[nodeIds[i]], {
+      label: strings[nodeLabels[i]],
+      size: nodeSizes[i],
+      x: nodeXs[i],
+      y: nodeYs[i],
+      color: `rgb(${colour >>> 16},${(colour >>> 8) & 0xff},${colour & 0xff})`, // same as the legend colours
+    });
+  }
+  for (let i = 0; i < numEdges; i++) {
+    // keyed like the edges of the Gexf parser, the backend finds the edge details by the index at the end
+    graph.addEdgeWithKey(`geid_0_${i}`, strings[nodeIds[edgeSources[i]]], strings[nodeIds[edgeTargets[i]]], {
+      weight: edgeWeights[i],
+      size: edgeWeights[i],
+    });
+  }
+
+  const legend = [];
+  for (let i = 0; i < numLegendItems; i++) {
+    legend.push({ category: strings[legendCategories[i]], color: strings[legendColours[i]] });
+  }
+  return { graph, legend };
+}
+
+// Load the graph of the session:
 function GraphViz() {
   const initialNodeMessage = "Click on a node to view more options. If the 'Git History' graph is displayed, hover over an edge to view its git history details."
-  let hoveredEdge = null;
   const [popUpMenu, setPopUpMenu] = React.useState(false);
-  let graph = null;
-  let renderer = null;
+
+  // the renderer of the displayed graph, killed before the next graph is displayed so its WebGL context is released
+  const rendererRef = useRef(null);
 
   [selectedColours, setSelectedColours] = useState([]);
+  const [legendItems, setLegendItems] = useState([]);
 
       const fetchData = async () => {
-        const response = await fetch("codeviz_demo.gexf"); //needs to be in 'public' folder // TODO - don't hardcode here
-        const gexf = await response.text();
-  
-        // Parse GEXF string:
-        graph = parse(Graph, gexf);
+        // each session has its own graph, the browser's cached graph is used if it didn't change (ETag)
+        const response = await fetch('/api/graph', { cache: 'no-cache' });
+        if (!response.ok) { // ex. 404 if no graph could be generated, keep showing the current graph
+          console.error('Failed to load the graph: ', response.status);
+          return;
+        }
+        const compactGraph = parseCompactGraph(await response.arrayBuffer());
+        setLegendItems(compactGraph.legend);
+        const graph = compactGraph.graph;
 
-        // Retrieve some useful DOM elements:
         const container = document.getElementsByClassName("graphDisplay--image")[0];
-        const zoomInBtn = document.getElementById("zoom-in");
-        const zoomOutBtn = document.getElementById("zoom-out");
-        const zoomResetBtn = document.getElementById("zoom-reset");
-
         labelsThresholdRange = document.getElementById("labels-threshold");
         thresholdLabel = document.getElementById("thresholdLabel");
-        var labelSize = document.getElementById("label-size");
+        const labelSize = document.getElementById("label-size");
 
         const settings = forceAtlas2.inferSettings(graph);
         forceAtlas2.assign(graph, { settings, iterations: 600 });
 
         // Remove old sigma:
-        const rendererOld = new Sigma(graph, container, {
-          minCameraRatio: 0.1,
-          maxCameraRatio: 10,
-        });
-        rendererOld.kill();
+        if (rendererRef.current) {
+          rendererRef.current.kill();
+        }
 
-        // Instantiate new sigma:
-        renderer = new Sigma(graph, container, {
+        // Instantiate new sigma, keeping the label settings of the controls:
+        const renderer = new Sigma(graph, container, {
           minCameraRatio: 0.1,
           maxCameraRatio: 10,
           enableEdgeEvents: true,
+          labelSize: +labelSize.value,
         });
-        const camera = renderer.getCamera();
-        renderer.refresh(); // to make sure graph appears right away
-
-        // only reset details when clicking (not dragging) elsewhere
-        renderer.on("clickStage", () => {
-          document.getElementById("nodeDetails").innerHTML = initialNodeMessage;
-          hoveredEdge = null;
-          setHoveredNeighbours(graph, renderer);
-        });
-
-        renderer.on("enterEdge", (e) => {
-          fetch('/api/getEdgeDetails?edgeName=' + e.edge.toString())
-              .then((response) => response.json())
-              .then((responseData) => {
-                if (responseData.string) {
-                  hoveredEdge = e.edge;
-                  setHoveredNeighbours(graph, renderer);
-                  document.getElementById("nodeDetails").innerHTML = responseData.string;
-                }
-              });
-        });
-  
-        // Bind zoom manipulation buttons
-        zoomInBtn.addEventListener("click", () => {
-          camera.animatedZoom({ duration: 600 });
-        });
-        zoomOutBtn.addEventListener("click", () => {
-          camera.animatedUnzoom({ duration: 600 });
-        });
-        zoomResetBtn.addEventListener("click", () => {
-          camera.animatedReset({ duration: 600 });
-        });
-
-        // Bind labels threshold to range input
-        labelsThresholdRange.addEventListener("input", () => {
+        rendererRef.current = renderer;
+        if (labelsThresholdRange.value) {
           renderer.setSetting("labelRenderedSizeThreshold", +labelsThresholdRange.value);
-          thresholdLabel.innerHTML = "Threshold: " + labelsThresholdRange.value;
-        });
-
-        // Set proper range initial value:
-        labelsThresholdRange.value = renderer.getSetting("labelRenderedSizeThreshold") + "";
-
-        labelSize.addEventListener("input", () => {
-          renderer.setSetting("labelSize", +labelSize.value);
-          thresholdLabel.innerHTML = "Label Size: " + labelSize.value;
-        });
+        } else {
+          // Set proper range initial value:
+          labelsThresholdRange.value = renderer.getSetting("labelRenderedSizeThreshold") + "";
+        }
 
         setHoveredNeighbours(graph, renderer);
+        renderer.refresh(); // to make sure graph appears right away
       };
 
       function setHoveredNeighbours(graph, renderer){
@@ -120,6 +156,7 @@ function GraphViz() {
         // display hovered node's neighbours
         let hoveredNode = undefined;
         let hoveredNeighbors = undefined;
+        let hoveredEdge = null;
         let legendNodes = new Set();
 
         // Bind graph interactions:
@@ -134,6 +171,25 @@ function GraphViz() {
           hoveredNodeString = null;
         });
 
+        // only reset details when clicking (not dragging) elsewhere
+        renderer.on("clickStage", () => {
+          document.getElementById("nodeDetails").innerHTML = initialNodeMessage;
+          hoveredEdge = null;
+          renderer.refresh();
+        });
+
+        renderer.on("enterEdge", (e) => {
+          fetch('/api/getEdgeDetails?edgeName=' + e.edge.toString())
+              .then((response) => response.json())
+              .then((responseData) => {
+                if (responseData.string) {
+                  hoveredEdge = e.edge;
+                  renderer.refresh();
+                  document.getElementById("nodeDetails").innerHTML = responseData.string;
+                }
+              });
+        });
+
         function setHoveredNode(node) {
           if (node) {
             hoveredNode = node;
@@ -192,18 +248,50 @@ function GraphViz() {
       }
 
     useEffect(() => {
-      fetchData();
+      refreshGraph = fetchData;
+
+      // the controls act on the renderer displayed when they are used, so they are bound once
+      const zoomInBtn = document.getElementById("zoom-in");
+      const zoomOutBtn = document.getElementById("zoom-out");
+      const zoomResetBtn = document.getElementById("zoom-reset");
+      const thresholdRange = document.getElementById("labels-threshold");
+      const labelSize = document.getElementById("label-size");
+
+      const zoomIn = () => rendererRef.current?.getCamera().animatedZoom({ duration: 600 });
+      const zoomOut = () => rendererRef.current?.getCamera().animatedUnzoom({ duration: 600 });
+      const zoomReset = () => rendererRef.current?.getCamera().animatedReset({ duration: 600 });
+      const changeThreshold = () => {
+        rendererRef.current?.setSetting("labelRenderedSizeThreshold", +thresholdRange.value);
+        document.getElementById("thresholdLabel").innerHTML = "Threshold: " + thresholdRange.value;
+      };
+      const changeLabelSize = () => {
+        rendererRef.current?.setSetting("labelSize", +labelSize.value);
+        document.getElementById("thresholdLabel").innerHTML = "Label Size: " + labelSize.value;
+      };
+
+      zoomInBtn.addEventListener("click", zoomIn);
+      zoomOutBtn.addEventListener("click", zoomOut);
+      zoomResetBtn.addEventListener("click", zoomReset);
+      thresholdRange.addEventListener("input", changeThreshold);
+      labelSize.addEventListener("input", changeLabelSize);
+
+      return () => {
+        zoomInBtn.removeEventListener("click", zoomIn);
+        zoomOutBtn.removeEventListener("click", zoomOut);
+        zoomResetBtn.removeEventListener("click", zoomReset);
+        thresholdRange.removeEventListener("input", changeThreshold);
+        labelSize.removeEventListener("input", changeLabelSize);
+        refreshGraph = () => {};
+        if (rendererRef.current) {
+          rendererRef.current.kill();
+          rendererRef.current = null;
+        }
+      };
     }, []);
 
   useEffect(() => {
-    // call fetchData to ensure graph and renderer are set with all the capabilities
-    console.log("in useEffect", selectedColours);
-    fetchData().then(r => {
-      console.log("Selected items changed:", selectedColours);
-      // if (graph !== null && renderer !== null) {
-      //   setHoveredNeighbours(graph, renderer); // already called in fetchData, don't need to call again
-      // }
-    });
+    // load the graph on mount, and again when the selected legend colours change, so the reducers start over
+    fetchData();
   }, [selectedColours]); // run when selectedColours changes
 
   const [controlsExpanded, setControlsExpanded] = useState(false);
@@ -239,7 +327,7 @@ function GraphViz() {
           </div>
           </div>
         </div>
-        <Legend />
+        <Legend legendItems={legendItems} />
         <div id="nodeDetailsDisplay">
           <div className="node-help">
             <h2 className="h2">Node/Edge Details:</h2>
@@ -1,10 +1,8 @@
 import React, {useState} from 'react';
-import legendItems from './LegendItems';
-
 import './Legend.css';
 import {selectedColours, setSelectedColours} from  "./GraphViz";
 
-function Legend() {
+function Legend({ legendItems }) {
     const [selectAll, setSelectAll] = useState(false);
 
     const handleCheckboxChange = (category) => {
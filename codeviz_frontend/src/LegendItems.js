@@ -1,8 +0,0 @@
-const legendItems = [
-	{ category: 'bookstore', color: 'rgb(201,175,202)' },
-	{ category: 'bookstore.inventory', color: 'rgb(229,188,247)' },
-	{ category: 'bookstore.users', color: 'rgb(210,182,245)' },
-	{ category: 'bookstore.mockservlet', color: 'rgb(199,132,193)' },
-];
-
-export default legendItems;
\ No newline at end of file
@@ -1,4 +1,5 @@
 import React, { useEffect, useState } from 'react';
+import { refreshGraph } from './GraphViz';
 
 function Menu() {
     const [milestone, setMilestoneValue] = useState('m1');
@@ -15,6 +16,8 @@ function Menu() {
     const [repoURL, setRepoURL] = useState('');
     const [loading, setLoading] = useState(false);
     const [error, setError] = useState(null);
+    const [jobId, setJobId] = useState(null);
+    const [jobProgress, setJobProgress] = useState('');
     const [searchResult, setSearchResult] = useState(null);
 
     // Function to handle changes in the repoURL input field
@@ -23,10 +26,58 @@ function Menu() {
         setRepoURL(newRepoURL);
     };
 
+    // Poll the analysis job until it finishes
+    const pollJob = (newJobId) => {
+        fetch(`/api/jobStatus?jobId=${encodeURIComponent(newJobId)}`)
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error('Network response was not ok');
+                }
+                return response.json();
+            })
+            .then(data => {
+                if (data.state === 'SUCCEEDED') {
+                    console.log('SUCCESS!');
+                    setLoading(false);
+                    setJobId(null);
+                    refreshView();
+                } else if (data.state === 'FAILED' || data.state === 'CANCELLED' || !data.state) {
+                    console.error('Error:', data.error || 'An unexpected error occurred');
+                    setError(data.error || 'An unexpected error occurred');
+                    setLoading(false);
+                    setJobId(null);
+                } else {
+                    // ex. "PARSE 120 files", "HISTORY 30/50, about 4s left"
+                    let progress = data.phase;
+                    if (data.done !== '0') {
+                        progress += ' ' + data.done + (data.total !== '-1' ? '/' + data.total : '');
+                    }
+                    if (data.etaSeconds) {
+                        progress += ', about ' + data.etaSeconds + 's left';
+                    }
+                    setJobProgress(progress);
+                    setTimeout(() => pollJob(newJobId), 1000);
+                }
+            })
+            .catch(error => {
+                console.error('Error:', error);
+                setError(error.message || 'An unexpected error occurred');
+                setLoading(false);
+                setJobId(null);
+            });
+    };
+
+    const handleCancel = () => {
+        if (jobId) {
+            fetch(`/api/cancelJob?jobId=${encodeURIComponent(jobId)}`, { method: 'POST' });
+        }
+    };
+
     // Function to handle form submission
     const handleSubmit = () => {
         setLoading(true);
         setError(false); // if retrying, set error to false
+        setJobProgress('QUEUED');
         // Make a POST request to initialize CodeVizController with repoURL
         const isSuccessful = fetch('/init', {
             method: 'POST',
@@ -44,21 +95,21 @@ function Menu() {
             })
             .then(data => {
                 if (data.ok === 'true') {
-                    // Handle successful response
-                    console.log('SUCCESS!');
+                    // the repo is analyzed in the background, follow its progress
                     console.log('Response data:', data);
+                    setJobId(data.jobId);
+                    pollJob(data.jobId);
                 } else {
                     // Handle error response
                     console.error('Error:', data.error || 'An unexpected error occurred');
                     setError(data.error || 'An unexpected error occurred');
+                    setLoading(false);
                 }
             })
             .catch(error => {
                 // Handle error
                 console.error('Error:', error);
                 setError(error.message || 'An unexpected error occurred');
-            })
-            .finally(() => {
                 setLoading(false);
             });
         console.log(isSuccessful)
@@ -72,11 +123,11 @@ function Menu() {
     };
 
     const handleM1Change = () => {
-        fetch('/api/annotateGraph?gitHistory=false');
+        fetch('/api/annotateGraph?gitHistory=false').then(refreshView);
     };
 
     const handleM2Change = () => {
-        fetch('/api/annotateGraph?gitHistory=true');
+        fetch('/api/annotateGraph?gitHistory=true').then(refreshView);
     };
     const mySearchFunction = async () => {
         const searchValue = document.getElementById("searchInput").value;
@@ -105,6 +156,7 @@ function Menu() {
             });
             const data = await response.json();
             setSearchResult(data.string)
+            refreshView();
         } catch (error) {
             console.error('Error:', error);
         }
@@ -126,64 +178,74 @@ function Menu() {
             if (!response.ok) {
                 throw new Error(`HTTP error! status: ${response.status}`);
             }
-            // Optionally, process the response if it returns any data
-            const responseData = await response.json();
-            console.log(responseData);
-            // Update any state or UI as necessary
+            // the search highlights are removed, show the graph without them
+            refreshView();
         } catch (error) {
             console.error("Failed to clear search: ", error);
         }
 
         // Optionally, clear any displayed search results in the UI
-        document.getElementById("printSearch").innerHTML = "";
+        setSearchResult('');
     };
 
-    <button id="clear-search" onClick={clearSearch}>Clear Search</button>
-
-    useEffect(() => {
-        const fetchData = async () => {
-
-            const packageView = document.getElementById("package-view");
-            const classView = document.getElementById("class-view");
-            const methodView = document.getElementById("method-view");
-            const clearSearch = document.getElementById("clear-search");
-
-            // Bind view level buttons
-
-            packageView.addEventListener("click", () => {
-                fetch('/api/viewGraphLevel?level=PACKAGE');
-            });
-            classView.addEventListener("click", () => {
-                fetch('/api/viewGraphLevel?level=CLASS');
-            });
-            methodView.addEventListener("click", () => {
-                fetch('/api/viewGraphLevel?level=METHOD');
+    // Show the level and annotations of the displayed graph
+    const updateGraphInfo = () => {
+        fetch('/api/getCurrentGraphName')
+            .then((response) => response.json())
+            .then((responseData) => {
+                document.getElementById("currentLevel").innerHTML = "Current level: " + responseData.string;
+                if (responseData.sessionReset === 'true') {
+                    // the session was forgotten by the backend, so its graph is gone
+                    setError('Your session expired, submit the repository again to view its graph');
+                }
             });
-            clearSearch.addEventListener("click", () => {
-                fetch('/api/clearSearch');
+
+        fetch('/api/getCurrentLevel')
+            .then((response) => response.json())
+            .then((responseData) => {
+                setLevel(responseData.string);
             });
 
-            fetch('/api/getCurrentGraphName')
-                .then((response) => response.json())
-                .then((responseData) => {
-                    document.getElementById("currentLevel").innerHTML = "Current level: " + responseData.string;
-                });
+        fetch('/api/getCurrentMilestone')
+            .then((response) => response.json())
+            .then((responseData) => {
+                setMilestoneValue(responseData.string);
+            });
+    };
 
-            fetch('/api/getCurrentLevel')
-                .then((response) => response.json())
-                .then((responseData) => {
-                    setLevel(responseData.string);
-                });
+    // Download the displayed graph in Gexf format, to open it in Gephi
+    const exportGraph = () => {
+        fetch('/api/exportGraph')
+            .then((response) => {
+                if (!response.ok) {
+                    throw new Error(`HTTP error! status: ${response.status}`);
+                }
+                return response.blob();
+            })
+            .then((blob) => {
+                const url = URL.createObjectURL(blob);
+                const link = document.createElement('a');
+                link.href = url;
+                link.download = 'codeviz.gexf';
+                link.click();
+                URL.revokeObjectURL(url);
+            })
+            .catch((error) => console.error('Failed to export graph: ', error));
+    };
 
-            fetch('/api/getCurrentMilestone')
-                .then((response) => response.json())
-                .then((responseData) => {
-                    setMilestoneValue(responseData.string);
-                });
+    // Load the graph and its details again after a view change
+    const refreshView = () => {
+        refreshGraph();
+        updateGraphInfo();
+    };
 
-        };
-        fetchData();
+    // View another level of the graph
+    const viewGraphLevel = (graphLevel) => {
+        fetch('/api/viewGraphLevel?level=' + graphLevel).then(refreshView);
+    };
 
+    useEffect(() => {
+        updateGraphInfo();
     }, [level]);
 
     return (
@@ -197,7 +259,8 @@ function Menu() {
                            placeholder="Enter Repository URL" />
                     <button id="viewRepoButton" type="submit" onClick={handleSubmit} disabled={loading}>Submit</button>
                     {error && <p className="error">{error}</p>}
-                    {loading && <p>Loading...</p>}
+                    {loading && <p>Loading... {jobProgress}</p>}
+                    {loading && jobId && <button id="cancelRepoButton" onClick={handleCancel}>Cancel</button>}
                 </div>
             </div>
 
@@ -283,7 +346,7 @@ function Menu() {
                 )}
 
                 <button id="searchButton" onClick={mySearchFunction}>Search</button>
-                <button id="clear-search" onClick={() => { /* Implement clear search logic */ }}>Clear Search</button>
+                <button id="clear-search" onClick={clearSearch}>Clear Search</button>
                 {searchResult && (
                     <div id="printSearch" dangerouslySetInnerHTML={{ __html: searchResult }}></div>
                 )}
@@ -294,9 +357,9 @@ function Menu() {
                 <h3>Switch Level</h3>
                 <p id="currentLevel"></p>
                 <div className="help-display">
-                    <div className="input"><label htmlFor="package-view"></label><button id="package-view">Package</button></div>
-                    <div className="input"><label htmlFor="class-view"></label><button id="class-view">Class</button></div>
-                    <div className="input"><label htmlFor="method-view"></label><button id="method-view">Method</button></div>
+                    <div className="input"><label htmlFor="package-view"></label><button id="package-view" onClick={() => viewGraphLevel('PACKAGE')}>Package</button></div>
+                    <div className="input"><label htmlFor="class-view"></label><button id="class-view" onClick={() => viewGraphLevel('CLASS')}>Class</button></div>
+                    <div className="input"><label htmlFor="method-view"></label><button id="method-view" onClick={() => viewGraphLevel('METHOD')}>Method</button></div>
                     <div>
                         <img src="/info-icon.png" alt='icon' className="info--icon" />
                         <p className='tooltip'>Level of granularity at which to display the graph</p>
@@ -313,6 +376,7 @@ function Menu() {
                     <img src="/info-icon.png" alt='icon' className="info--icon" />
                     <p className='tooltip'>Graph type to view. Note: Git History graph is only available for class view</p>
                 </div>
+                <button id="export-graph" onClick={exportGraph}>Export to Gephi</button>
             </div>
         </div>
     );
@@ -1,6 +1,6 @@
 import React from "react";
 import './RightContext.css';
-import {hoveredNodeString} from './GraphViz'; // read-only
+import {hoveredNodeString, refreshGraph} from './GraphViz'; // read-only
 
 export var context, setContext;
 
@@ -53,7 +53,7 @@ function RightContext() {
         clickedOption = true;
         if (savedHoveredNodeString != null) {
             if (chosenNodeApi === 'generateInnerGraph') {
-                fetch('/api/generateInnerGraph?nodeName=' + savedHoveredNodeString.toString());
+                fetch('/api/generateInnerGraph?nodeName=' + savedHoveredNodeString.toString()).then(() => refreshGraph());
             } else {
                 fetch('/api/' + chosenNodeApi + '?nodeName=' + savedHoveredNodeString.toString())
                     .then((response) => response.json())